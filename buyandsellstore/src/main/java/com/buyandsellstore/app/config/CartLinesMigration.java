@@ -0,0 +1,45 @@
+package com.buyandsellstore.app.config;
+
+import com.buyandsellstore.app.repository.CartRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves carts saved with an items list to the keyed lines map, batch by batch, at startup.
+ * Carts that are not migrated yet read as empty and are not swept for expired holds, so this
+ * runs while the context is created, before the web server accepts requests, and a failure
+ * stops the startup. Each cart is rewritten in one conditional update that merges with lines
+ * written since, so it is safe to run on several nodes at once, and a no-op once every cart
+ * has been moved.
+ */
+@Component
+public class CartLinesMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(CartLinesMigration.class);
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Value("${cart.migration.batch-size:500}")
+    private int batchSize = 500;
+
+    @PostConstruct
+    public void migrate() {
+        long carts = 0;
+        try {
+            int seen;
+            do {
+                seen = cartRepository.migrateItemsToLines(batchSize);
+                carts += seen;
+            } while (seen == batchSize);
+            if (carts > 0) log.info("Moved {} carts to keyed lines", carts);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Cart line migration stopped after " + carts
+                    + " carts; it resumes at the next start", e);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.buyandsellstore.app.config;
+
+import com.buyandsellstore.app.model.*;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.*;
+
+import java.util.*;
+
+/**
+ * The declared index catalogue and its startup check.
+ *
+ * Every index the repositories rely on is declared with {@code @Indexed}/{@code @CompoundIndex}
+ * on the entities listed in {@link #INDEXED_ENTITIES}. Spring Boot leaves auto-index-creation
+ * off, so at startup each declared index is compared with what the collection really has;
+ * missing ones are created, or only reported when {@code mongo.indexes.create-missing} is
+ * false (e.g. when index builds on a large collection are scheduled by hand). A unique index
+ * that cannot be built fails startup, with a sample of the duplicate keys blocking it: the
+ * code relies on those indexes to reject duplicate listings and usernames.
+ */
+@Configuration
+public class MongoIndexConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexConfig.class);
+
+    private static final int DUPLICATE_SAMPLE = 5;
+
+    // Keep in sync with the @Document classes; RepositoryQueryPlanTest checks the queries against it
+    public static final List<Class<?>> INDEXED_ENTITIES = List.of(Book.class, HomeItem.class, Cart.class, Order.class,
+            User.class, WishlistItem.class, PasswordResetToken.class, PriceHistoryBucket.class, InventoryShard.class,
+            GuestCart.class, CartEvent.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean createMissing;
+
+    private volatile List<String> missing = List.of();
+
+    public MongoIndexConfig(MongoTemplate mongoTemplate,
+                            @Value("${mongo.indexes.create-missing:true}") boolean createMissing) {
+        this.mongoTemplate = mongoTemplate;
+        this.createMissing = createMissing;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        List<String> stillMissing = new ArrayList<>();
+        List<String> uniqueFailures = new ArrayList<>();
+        for (Class<?> entity : INDEXED_ENTITIES) {
+            try {
+                IndexOperations indexOps = mongoTemplate.indexOps(entity);
+                Set<String> existing = new HashSet<>();
+                for (IndexInfo info : indexOps.getIndexInfo()) {
+                    existing.add(keyOf(info));
+                }
+                for (IndexDefinition index : resolver.resolveIndexFor(entity)) {
+                    if (existing.contains(keyOf(index.getIndexKeys()))) continue;
+                    String name = mongoTemplate.getCollectionName(entity) + " " + index.getIndexKeys().toJson();
+                    if (!createMissing) {
+                        stillMissing.add(name);
+                        continue;
+                    }
+                    try {
+                        indexOps.ensureIndex(index);
+                        log.info("Created index {}", name);
+                    } catch (RuntimeException e) {
+                        log.warn("Could not create index {}: {}", name, e.getMessage());
+                        stillMissing.add(name);
+                        if (isUnique(index)) {
+                            uniqueFailures.add(name + " (" + e.getMessage() + "), duplicates: "
+                                    + duplicates(mongoTemplate.getCollectionName(entity), index.getIndexKeys()));
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not verify indexes of {}: {}", entity.getSimpleName(), e.getMessage());
+            }
+        }
+        if (!stillMissing.isEmpty()) {
+            log.warn("Missing MongoDB indexes, queries on these fields scan the whole collection: {}", stillMissing);
+        }
+        missing = List.copyOf(stillMissing);
+        if (!uniqueFailures.isEmpty()) {
+            throw new IllegalStateException("Could not build unique MongoDB indexes, remove the duplicates and restart: "
+                    + uniqueFailures);
+        }
+    }
+
+    private static boolean isUnique(IndexDefinition index) {
+        return Boolean.TRUE.equals(index.getIndexOptions().get("unique"));
+    }
+
+    // Up to DUPLICATE_SAMPLE key values held by more than one document, e.g. [{sellerId: "s1", title: "Dune"} x2]
+    private List<String> duplicates(String collection, Document keys) {
+        Document group = new Document();
+        for (String field : keys.keySet()) group.append(field.replace('.', '_'), "$" + field);
+        List<String> found = new ArrayList<>();
+        try {
+            for (Document duplicate : mongoTemplate.getCollection(collection).aggregate(List.of(
+                    new Document("$group", new Document("_id", group).append("count", new Document("$sum", 1))),
+                    new Document("$match", new Document("count", new Document("$gt", 1))),
+                    new Document("$limit", DUPLICATE_SAMPLE))).allowDiskUse(true)) {
+                found.add(duplicate.get("_id", Document.class).toJson() + " x" + duplicate.get("count"));
+            }
+        } catch (RuntimeException e) {
+            found.add("could not be listed: " + e.getMessage());
+        }
+        return found;
+    }
+
+    // Declared indexes the last check found missing and did not create
+    public List<String> getMissingIndexes() {
+        return missing;
+    }
+
+    // "sellerId:1,title:1", the same for a declared and an existing index whatever their names
+    static String keyOf(Document keys) {
+        StringJoiner joiner = new StringJoiner(",");
+        keys.forEach((field, direction) -> joiner.add(field + ":" + direction));
+        return joiner.toString();
+    }
+
+    static String keyOf(IndexInfo info) {
+        StringJoiner joiner = new StringJoiner(",");
+        for (IndexField field : info.getIndexFields()) {
+            Object direction = field.getDirection() == null ? "special"
+                    : field.getDirection() == Sort.Direction.ASC ? 1 : -1;
+            joiner.add(field.getKey() + ":" + direction);
+        }
+        return joiner.toString();
+    }
+}
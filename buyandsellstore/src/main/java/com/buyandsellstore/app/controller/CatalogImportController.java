@@ -0,0 +1,57 @@
+package com.buyandsellstore.app.controller;
+
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.ImportReport;
+import com.buyandsellstore.app.service.CatalogImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Bulk catalog upload for sellers: a CSV or JSON Lines file of books or home items
+@RestController
+@CrossOrigin(origins = "http://localhost:3000", methods = { RequestMethod.POST, RequestMethod.GET, RequestMethod.OPTIONS })
+public class CatalogImportController {
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @PostMapping("/upload/catalog")
+    public ResponseEntity<Map<String, Object>> importCatalog(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("sellerId") String sellerId,
+            @RequestParam("type") String type) throws IOException {
+
+        if (!CatalogChangedEvent.BOOK.equals(type) && !CatalogChangedEvent.HOME.equals(type)) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("message", "type must be \"book\" or \"home\""));
+        }
+
+        ImportReport report;
+        try (InputStream in = file.getInputStream()) {
+            report = catalogImportService.importCatalog(sellerId, type, file.getOriginalFilename(), in);
+        }
+
+        // the full list of rejected rows can be large, so it is fetched separately
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("id", report.getId());
+        summary.put("status", report.getStatus());
+        summary.put("rowsRead", report.getRowsRead());
+        summary.put("inserted", report.getInserted());
+        summary.put("duplicates", report.getDuplicates());
+        summary.put("rejected", report.getRejected());
+        summary.put("reportUrl", "/upload/catalog/" + report.getId());
+        return ResponseEntity.ok(summary);
+    }
+
+    @GetMapping("/upload/catalog/{id}")
+    public ResponseEntity<ImportReport> importReport(@PathVariable String id) {
+        ImportReport report = catalogImportService.getReport(id);
+        return report == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(report);
+    }
+}
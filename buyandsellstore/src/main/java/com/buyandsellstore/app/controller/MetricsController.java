@@ -0,0 +1,64 @@
+package com.buyandsellstore.app.controller;
+
+import com.buyandsellstore.app.config.MongoIndexConfig;
+import com.buyandsellstore.app.service.CartEventService;
+import com.buyandsellstore.app.service.CartWriteBuffer;
+import com.buyandsellstore.app.service.CatalogCache;
+import com.buyandsellstore.app.service.CatalogIdFilter;
+import com.buyandsellstore.app.service.GuestCartStore;
+import com.buyandsellstore.app.service.HotInventoryService;
+import com.buyandsellstore.app.service.ReservationService;
+import com.buyandsellstore.app.service.TrendingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Runtime counters of the in-process caches and indexes, for dashboards and load tests
+@RestController
+public class MetricsController {
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private MongoIndexConfig mongoIndexConfig;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private CatalogIdFilter catalogIdFilter;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private HotInventoryService hotInventoryService;
+
+    @Autowired
+    private GuestCartStore guestCartStore;
+
+    @Autowired
+    private CartEventService cartEventService;
+
+    @Autowired
+    private CartWriteBuffer cartWriteBuffer;
+
+    @GetMapping("/metrics")
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("catalogCache", catalogCache.stats());
+        metrics.put("missingIndexes", mongoIndexConfig.getMissingIndexes());
+        metrics.put("trending", trendingService.stats());
+        metrics.put("catalogIdFilter", catalogIdFilter.stats());
+        metrics.put("reservations", reservationService.stats());
+        metrics.put("hotInventory", hotInventoryService.stats());
+        metrics.put("guestCarts", guestCartStore.stats());
+        metrics.put("cartEvents", cartEventService.stats());
+        metrics.put("cartWriteBehind", cartWriteBuffer.stats());
+        return metrics;
+    }
+}
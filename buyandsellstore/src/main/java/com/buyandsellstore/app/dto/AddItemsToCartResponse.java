@@ -0,0 +1,27 @@
+package com.buyandsellstore.app.dto;
+
+import java.util.List;
+
+public class AddItemsToCartResponse {
+    private boolean success;            // True when every line was added
+    private String message;
+    private List<CartLineResult> results; // One per requested line, in order
+
+    public AddItemsToCartResponse() {
+    }
+
+    public AddItemsToCartResponse(boolean success, String message, List<CartLineResult> results) {
+        this.success = success;
+        this.message = message;
+        this.results = results;
+    }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public List<CartLineResult> getResults() { return results; }
+    public void setResults(List<CartLineResult> results) { this.results = results; }
+}
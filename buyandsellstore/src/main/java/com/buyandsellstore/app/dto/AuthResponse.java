@@ -6,6 +6,7 @@ public class AuthResponse {
     private boolean success;
     private String message;
     private User user;
+    private AddItemsToCartResponse cartMerge; // Outcome of moving the guest cart in at login, if there was one
 
     public AuthResponse(boolean success, String message, User user) {
         this.success = success;
@@ -37,6 +38,14 @@ public class AuthResponse {
         this.user = user;
     }
 
+    public AddItemsToCartResponse getCartMerge() {
+        return cartMerge;
+    }
+
+    public void setCartMerge(AddItemsToCartResponse cartMerge) {
+        this.cartMerge = cartMerge;
+    }
+
     @Override
     public String toString() {
         return "AuthResponse{" +
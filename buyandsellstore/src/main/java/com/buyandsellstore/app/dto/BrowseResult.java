@@ -0,0 +1,39 @@
+package com.buyandsellstore.app.dto;
+
+import com.buyandsellstore.app.model.HomeItem;
+
+import java.util.List;
+
+public class BrowseResult {
+    private int total;                          // Items matching the whole filter
+    private List<HomeItem> items;               // Requested page of them
+    private List<FacetCount> typeFacets;        // Counts ignore the filter's own type, so other categories stay visible
+    private List<FacetCount> manufacturerFacets;
+    private List<FacetCount> priceFacets;
+
+    public BrowseResult() {}
+
+    public BrowseResult(int total, List<HomeItem> items, List<FacetCount> typeFacets,
+                        List<FacetCount> manufacturerFacets, List<FacetCount> priceFacets) {
+        this.total = total;
+        this.items = items;
+        this.typeFacets = typeFacets;
+        this.manufacturerFacets = manufacturerFacets;
+        this.priceFacets = priceFacets;
+    }
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public List<HomeItem> getItems() { return items; }
+    public void setItems(List<HomeItem> items) { this.items = items; }
+
+    public List<FacetCount> getTypeFacets() { return typeFacets; }
+    public void setTypeFacets(List<FacetCount> typeFacets) { this.typeFacets = typeFacets; }
+
+    public List<FacetCount> getManufacturerFacets() { return manufacturerFacets; }
+    public void setManufacturerFacets(List<FacetCount> manufacturerFacets) { this.manufacturerFacets = manufacturerFacets; }
+
+    public List<FacetCount> getPriceFacets() { return priceFacets; }
+    public void setPriceFacets(List<FacetCount> priceFacets) { this.priceFacets = priceFacets; }
+}
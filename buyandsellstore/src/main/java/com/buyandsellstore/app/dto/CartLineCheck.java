@@ -0,0 +1,46 @@
+package com.buyandsellstore.app.dto;
+
+public class CartLineCheck {
+    public static final String OK = "OK";
+    public static final String PRICE_CHANGED = "PRICE_CHANGED"; // Still available, at the current price
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String INSUFFICIENT_STOCK = "INSUFFICIENT_STOCK";
+
+    private String itemId;
+    private String type;
+    private int quantity;
+    private double cartPrice; // Price the line was added at
+    private Double price;     // Current price; null when the item is gone
+    private String status;
+    private String message;
+
+    public CartLineCheck() {}
+
+    public CartLineCheck(String itemId, String type, int quantity, double cartPrice) {
+        this.itemId = itemId;
+        this.type = type;
+        this.quantity = quantity;
+        this.cartPrice = cartPrice;
+    }
+
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+
+    public double getCartPrice() { return cartPrice; }
+    public void setCartPrice(double cartPrice) { this.cartPrice = cartPrice; }
+
+    public Double getPrice() { return price; }
+    public void setPrice(Double price) { this.price = price; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
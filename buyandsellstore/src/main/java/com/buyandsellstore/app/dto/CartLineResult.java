@@ -0,0 +1,38 @@
+package com.buyandsellstore.app.dto;
+
+public class CartLineResult {
+    public static final String ADDED = "ADDED";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String INSUFFICIENT_STOCK = "INSUFFICIENT_STOCK";
+    public static final String INVALID = "INVALID";
+    public static final String FAILED = "FAILED"; // Stock was taken but the cart write failed, so it was given back
+
+    private String itemId;
+    private String type;
+    private Integer quantity;
+    private String status;
+    private String message;
+
+    public CartLineResult() {}
+
+    public CartLineResult(String itemId, String type, Integer quantity) {
+        this.itemId = itemId;
+        this.type = type;
+        this.quantity = quantity;
+    }
+
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
@@ -0,0 +1,50 @@
+package com.buyandsellstore.app.dto;
+
+import com.buyandsellstore.app.model.CartItem;
+
+import java.util.List;
+
+public class CartValidationResponse {
+    private boolean valid;            // Every line is available at the price it shows
+    private String message;
+    private double total;             // Current prices of the available lines
+    private int priceChanges;
+    private int unavailable;          // Lines that are gone or short of stock
+    private List<CartLineCheck> lines; // One per cart line, in order
+    private List<CartItem> items;     // The available lines at current price, name and seller
+
+    public CartValidationResponse() {
+    }
+
+    public CartValidationResponse(boolean valid, String message, double total, int priceChanges, int unavailable,
+                                  List<CartLineCheck> lines, List<CartItem> items) {
+        this.valid = valid;
+        this.message = message;
+        this.total = total;
+        this.priceChanges = priceChanges;
+        this.unavailable = unavailable;
+        this.lines = lines;
+        this.items = items;
+    }
+
+    public boolean isValid() { return valid; }
+    public void setValid(boolean valid) { this.valid = valid; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public double getTotal() { return total; }
+    public void setTotal(double total) { this.total = total; }
+
+    public int getPriceChanges() { return priceChanges; }
+    public void setPriceChanges(int priceChanges) { this.priceChanges = priceChanges; }
+
+    public int getUnavailable() { return unavailable; }
+    public void setUnavailable(int unavailable) { this.unavailable = unavailable; }
+
+    public List<CartLineCheck> getLines() { return lines; }
+    public void setLines(List<CartLineCheck> lines) { this.lines = lines; }
+
+    public List<CartItem> getItems() { return items; }
+    public void setItems(List<CartItem> items) { this.items = items; }
+}
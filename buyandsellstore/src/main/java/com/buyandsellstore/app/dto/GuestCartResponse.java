@@ -0,0 +1,34 @@
+package com.buyandsellstore.app.dto;
+
+import com.buyandsellstore.app.model.CartItem;
+
+import java.util.List;
+
+public class GuestCartResponse {
+    private boolean success;
+    private String message;
+    private String guestCartToken; // Send back with the next guest cart call and at login
+    private List<CartItem> items;
+
+    public GuestCartResponse() {
+    }
+
+    public GuestCartResponse(boolean success, String message, String guestCartToken, List<CartItem> items) {
+        this.success = success;
+        this.message = message;
+        this.guestCartToken = guestCartToken;
+        this.items = items;
+    }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public String getGuestCartToken() { return guestCartToken; }
+    public void setGuestCartToken(String guestCartToken) { this.guestCartToken = guestCartToken; }
+
+    public List<CartItem> getItems() { return items; }
+    public void setItems(List<CartItem> items) { this.items = items; }
+}
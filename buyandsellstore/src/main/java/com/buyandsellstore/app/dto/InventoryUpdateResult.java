@@ -0,0 +1,43 @@
+package com.buyandsellstore.app.dto;
+
+public class InventoryUpdateResult {
+    public static final String UPDATED = "UPDATED";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String VERSION_CONFLICT = "VERSION_CONFLICT";
+    public static final String INSUFFICIENT_STOCK = "INSUFFICIENT_STOCK";
+    public static final String INVALID = "INVALID";
+
+    private String itemId;
+    private String type;
+    private String status;
+    private String message;
+    private Long version;          // Current version, when the item exists
+    private Integer totalQuantity; // Current stock, when the item exists
+
+    public InventoryUpdateResult() {}
+
+    public InventoryUpdateResult(String itemId, String type, String status, String message) {
+        this.itemId = itemId;
+        this.type = type;
+        this.status = status;
+        this.message = message;
+    }
+
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public Integer getTotalQuantity() { return totalQuantity; }
+    public void setTotalQuantity(Integer totalQuantity) { this.totalQuantity = totalQuantity; }
+}
@@ -0,0 +1,28 @@
+package com.buyandsellstore.app.dto;
+
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LowStockReport {
+    private String sellerId;
+    private int threshold;                           // Items with this many or fewer in stock are listed
+    private List<Book> books = new ArrayList<>();    // Lowest stock first
+    private List<HomeItem> homeItems = new ArrayList<>();
+
+    public LowStockReport() {}
+
+    public String getSellerId() { return sellerId; }
+    public void setSellerId(String sellerId) { this.sellerId = sellerId; }
+
+    public int getThreshold() { return threshold; }
+    public void setThreshold(int threshold) { this.threshold = threshold; }
+
+    public List<Book> getBooks() { return books; }
+    public void setBooks(List<Book> books) { this.books = books; }
+
+    public List<HomeItem> getHomeItems() { return homeItems; }
+    public void setHomeItems(List<HomeItem> homeItems) { this.homeItems = homeItems; }
+}
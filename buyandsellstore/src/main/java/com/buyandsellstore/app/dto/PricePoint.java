@@ -0,0 +1,29 @@
+package com.buyandsellstore.app.dto;
+
+public class PricePoint {
+    private String at;      // ISO-8601 instant; start of the window when downsampled
+    private double price;   // Price in effect at the end of the window
+    private double min;     // Lowest and highest price seen in the window
+    private double max;
+
+    public PricePoint() {}
+
+    public PricePoint(String at, double price, double min, double max) {
+        this.at = at;
+        this.price = price;
+        this.min = min;
+        this.max = max;
+    }
+
+    public String getAt() { return at; }
+    public void setAt(String at) { this.at = at; }
+
+    public double getPrice() { return price; }
+    public void setPrice(double price) { this.price = price; }
+
+    public double getMin() { return min; }
+    public void setMin(double min) { this.min = min; }
+
+    public double getMax() { return max; }
+    public void setMax(double max) { this.max = max; }
+}
@@ -0,0 +1,39 @@
+package com.buyandsellstore.app.dto;
+
+public class SearchHit {
+    private String itemId;
+    private String type;         // "book" or "home"
+    private String title;
+    private String field;        // Field that matched: "title", "author" or "manufacturer"
+    private String matchedText;  // Original text of the matched field
+    private int distance;        // Edits between the query and the matched text (0 = exact)
+
+    public SearchHit() {}
+
+    public SearchHit(String itemId, String type, String title, String field, String matchedText, int distance) {
+        this.itemId = itemId;
+        this.type = type;
+        this.title = title;
+        this.field = field;
+        this.matchedText = matchedText;
+        this.distance = distance;
+    }
+
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getField() { return field; }
+    public void setField(String field) { this.field = field; }
+
+    public String getMatchedText() { return matchedText; }
+    public void setMatchedText(String matchedText) { this.matchedText = matchedText; }
+
+    public int getDistance() { return distance; }
+    public void setDistance(int distance) { this.distance = distance; }
+}
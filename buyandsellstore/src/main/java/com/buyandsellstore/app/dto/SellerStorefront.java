@@ -0,0 +1,41 @@
+package com.buyandsellstore.app.dto;
+
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SellerStorefront {
+    private User seller;                                   // null when the id is unknown
+    private List<Book> books = new ArrayList<>();          // One page each, by title
+    private List<HomeItem> homeItems = new ArrayList<>();
+    private int bookCount;                                 // All of the seller's items, not just the page
+    private int homeItemCount;
+    private int reviewCount;
+    private double averageRating;                          // Over every review of every item; 0 without reviews
+
+    public SellerStorefront() {}
+
+    public User getSeller() { return seller; }
+    public void setSeller(User seller) { this.seller = seller; }
+
+    public List<Book> getBooks() { return books; }
+    public void setBooks(List<Book> books) { this.books = books; }
+
+    public List<HomeItem> getHomeItems() { return homeItems; }
+    public void setHomeItems(List<HomeItem> homeItems) { this.homeItems = homeItems; }
+
+    public int getBookCount() { return bookCount; }
+    public void setBookCount(int bookCount) { this.bookCount = bookCount; }
+
+    public int getHomeItemCount() { return homeItemCount; }
+    public void setHomeItemCount(int homeItemCount) { this.homeItemCount = homeItemCount; }
+
+    public int getReviewCount() { return reviewCount; }
+    public void setReviewCount(int reviewCount) { this.reviewCount = reviewCount; }
+
+    public double getAverageRating() { return averageRating; }
+    public void setAverageRating(double averageRating) { this.averageRating = averageRating; }
+}
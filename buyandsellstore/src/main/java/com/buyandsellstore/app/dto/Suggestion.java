@@ -0,0 +1,39 @@
+package com.buyandsellstore.app.dto;
+
+public class Suggestion {
+    private String text;    // Original (display) text of the matched title/author/manufacturer
+    private String itemId;  // Most popular item carrying this text
+    private String type;    // "book" or "home"
+    private String field;   // "title", "author" or "manufacturer"
+
+    public Suggestion() {}
+
+    public Suggestion(String text, String itemId, String type, String field) {
+        this.text = text;
+        this.itemId = itemId;
+        this.type = type;
+        this.field = field;
+    }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getField() { return field; }
+    public void setField(String field) { this.field = field; }
+
+    @Override
+    public String toString() {
+        return "Suggestion{" +
+                "text='" + text + '\'' +
+                ", itemId='" + itemId + '\'' +
+                ", type='" + type + '\'' +
+                ", field='" + field + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,28 @@
+package com.buyandsellstore.app.dto;
+
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TopRatedPage {
+    private List<Book> books = new ArrayList<>();          // Filled for type "book"
+    private List<HomeItem> homeItems = new ArrayList<>();  // Filled for type "home"
+    private String endCursor;                              // Pass as "after" for the next page
+    private boolean hasNextPage;
+
+    public TopRatedPage() {}
+
+    public List<Book> getBooks() { return books; }
+    public void setBooks(List<Book> books) { this.books = books; }
+
+    public List<HomeItem> getHomeItems() { return homeItems; }
+    public void setHomeItems(List<HomeItem> homeItems) { this.homeItems = homeItems; }
+
+    public String getEndCursor() { return endCursor; }
+    public void setEndCursor(String endCursor) { this.endCursor = endCursor; }
+
+    public boolean isHasNextPage() { return hasNextPage; }
+    public void setHasNextPage(boolean hasNextPage) { this.hasNextPage = hasNextPage; }
+}
@@ -0,0 +1,35 @@
+package com.buyandsellstore.app.dto;
+
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+
+public class TrendingItem {
+    private String itemId;
+    private String type;        // "book" or "home"
+    private double score;       // Decayed activity count as of now
+    private Book book;          // Set for type "book"
+    private HomeItem homeItem;  // Set for type "home"
+
+    public TrendingItem() {}
+
+    public TrendingItem(String itemId, String type, double score) {
+        this.itemId = itemId;
+        this.type = type;
+        this.score = score;
+    }
+
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public double getScore() { return score; }
+    public void setScore(double score) { this.score = score; }
+
+    public Book getBook() { return book; }
+    public void setBook(Book book) { this.book = book; }
+
+    public HomeItem getHomeItem() { return homeItem; }
+    public void setHomeItem(HomeItem homeItem) { this.homeItem = homeItem; }
+}
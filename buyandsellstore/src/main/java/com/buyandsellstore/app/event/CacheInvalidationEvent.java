@@ -0,0 +1,80 @@
+package com.buyandsellstore.app.event;
+
+/**
+ * Published when a document changed somewhere other than this node's save path
+ * (usually another app node, seen through a MongoDB change stream), so local
+ * caches of that collection can drop what they hold.
+ */
+public class CacheInvalidationEvent {
+
+    public enum Source {
+        BOOKS("books"),
+        HOME_ITEMS("homeItems"),
+        USERS("users"),
+        CARTS("carts");
+
+        private final String collection;
+
+        Source(String collection) {
+            this.collection = collection;
+        }
+
+        public String getCollection() {
+            return collection;
+        }
+
+        public static Source fromCollection(String collection) {
+            for (Source source : values()) {
+                if (source.collection.equals(collection)) return source;
+            }
+            return null;
+        }
+    }
+
+    private final Source source;
+    private final String documentId; // null means every document of the collection
+    private final boolean deleted;
+
+    public CacheInvalidationEvent(Source source, String documentId, boolean deleted) {
+        this.source = source;
+        this.documentId = documentId;
+        this.deleted = deleted;
+    }
+
+    // Events may have been missed (e.g. the stored resume token fell off the oplog)
+    public static CacheInvalidationEvent all(Source source) {
+        return new CacheInvalidationEvent(source, null, false);
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    // "book"/"home" as used by CatalogChangedEvent, or null for non-catalog collections
+    public String getCatalogType() {
+        if (source == Source.BOOKS) return CatalogChangedEvent.BOOK;
+        if (source == Source.HOME_ITEMS) return CatalogChangedEvent.HOME;
+        return null;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public boolean isAll() {
+        return documentId == null;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInvalidationEvent{" +
+                "source=" + source +
+                ", documentId='" + documentId + '\'' +
+                ", deleted=" + deleted +
+                '}';
+    }
+}
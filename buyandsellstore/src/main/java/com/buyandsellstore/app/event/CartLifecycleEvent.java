@@ -0,0 +1,78 @@
+package com.buyandsellstore.app.event;
+
+/**
+ * Published when a user's cart changes state: created by its first add, an item added or
+ * removed by the user, items ordered, or a line dropped because its hold ran out. Feeds the
+ * cart analytics.
+ */
+public class CartLifecycleEvent {
+
+    public enum Kind {
+        CREATED,
+        ITEM_ADDED,
+        REMOVED,
+        ORDERED,
+        EXPIRED
+    }
+
+    private final Kind kind;
+    private final String userId;
+    private final String sellerId; // Null for CREATED and for lines saved before carts kept it
+    private final String type;     // "book" or "home", see CatalogChangedEvent
+    private final String itemId;
+    private final int quantity;
+    private final long at;
+
+    public CartLifecycleEvent(Kind kind, String userId, String sellerId, String type, String itemId, int quantity) {
+        this.kind = kind;
+        this.userId = userId;
+        this.sellerId = sellerId;
+        this.type = type;
+        this.itemId = itemId;
+        this.quantity = quantity;
+        this.at = System.currentTimeMillis();
+    }
+
+    public static CartLifecycleEvent created(String userId) {
+        return new CartLifecycleEvent(Kind.CREATED, userId, null, null, null, 0);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getSellerId() {
+        return sellerId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public long getAt() {
+        return at;
+    }
+
+    @Override
+    public String toString() {
+        return "CartLifecycleEvent{" +
+                "kind=" + kind +
+                ", userId='" + userId + '\'' +
+                ", sellerId='" + sellerId + '\'' +
+                ", itemId='" + itemId + '\'' +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
@@ -0,0 +1,56 @@
+package com.buyandsellstore.app.event;
+
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+
+/**
+ * Published whenever a Book or HomeItem is written, so in-memory catalog
+ * indexes can update themselves without polling MongoDB.
+ */
+public class CatalogChangedEvent {
+
+    public static final String BOOK = "book";
+    public static final String HOME = "home";
+
+    private final String type; // "book" or "home", same values used by the cart
+    private final Book book;
+    private final HomeItem homeItem;
+
+    private CatalogChangedEvent(String type, Book book, HomeItem homeItem) {
+        this.type = type;
+        this.book = book;
+        this.homeItem = homeItem;
+    }
+
+    public static CatalogChangedEvent of(Book book) {
+        return new CatalogChangedEvent(BOOK, book, null);
+    }
+
+    public static CatalogChangedEvent of(HomeItem homeItem) {
+        return new CatalogChangedEvent(HOME, null, homeItem);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getItemId() {
+        return book != null ? book.getId() : homeItem.getId();
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public HomeItem getHomeItem() {
+        return homeItem;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogChangedEvent{" +
+                "type='" + type + '\'' +
+                ", itemId='" + getItemId() + '\'' +
+                '}';
+    }
+}
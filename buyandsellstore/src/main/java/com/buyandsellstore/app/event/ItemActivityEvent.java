@@ -0,0 +1,62 @@
+package com.buyandsellstore.app.event;
+
+/**
+ * Published when a shopper shows interest in an item: added it to a cart or
+ * wishlist, or ordered it. Feeds the trending counters.
+ */
+public class ItemActivityEvent {
+
+    public enum Kind {
+        CART(1.0),
+        WISHLIST(1.0),
+        ORDER(3.0); // A purchase says more than a click
+
+        private final double weight;
+
+        Kind(double weight) {
+            this.weight = weight;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+    }
+
+    private final String type; // "book" or "home", see CatalogChangedEvent
+    private final String itemId;
+    private final Kind kind;
+    private final int quantity;
+
+    public ItemActivityEvent(String type, String itemId, Kind kind, int quantity) {
+        this.type = type;
+        this.itemId = itemId;
+        this.kind = kind;
+        this.quantity = quantity;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemActivityEvent{" +
+                "type='" + type + '\'' +
+                ", itemId='" + itemId + '\'' +
+                ", kind=" + kind +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
@@ -1,12 +1,22 @@
 package com.buyandsellstore.app.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.util.List;
 
 @Document(collection = "books")
+// One listing per seller and title; created at startup by MongoIndexConfig
+@CompoundIndex(name = "seller_title", def = "{'sellerId': 1, 'title': 1}", unique = true)
+// Serves topRated; _id breaks ties so the page cursor is stable
+@CompoundIndex(name = "rank", def = "{'rankScore': -1, '_id': -1}")
+// Only items that could be low for some seller; serves lowStockItems and the alert job.
+// The bound is LowStockService.MAX_THRESHOLD
+@CompoundIndex(name = "seller_low_stock", def = "{'sellerId': 1, 'totalQuantity': 1}",
+        partialFilter = "{'totalQuantity': {'$lte': 100}}")
 public class Book {
 
     @Id
@@ -21,6 +31,13 @@ public class Book {
     private String sellerId;
 
     private int totalQuantity;
+    private double rankScore; // Bayesian average of the ratings, see RankingService
+    private int reviewCount;
+    private long version; // Bumped by every write but review changes, checked by updateInventory; missing on old documents means 0
+    private long reviewsVersion; // Bumped by every review change, checked by updateReviews; missing means 0
+    @Indexed(sparse = true) // Only hot items have it; the rebalancer looks them up
+    private Integer hotShards; // Set while the stock lives in inventoryShards; totalQuantity is then their synced sum
+    private List<String> writeTokens; // Tokens of the last conditional bulk writes that matched, see InventoryService
     @Field("reviews") // MongoDB field for embedded reviews
     private List<Review> reviews;
     public Book(){
@@ -137,6 +154,77 @@ public class Book {
         this.totalQuantity = totalQuantity;
     }
 
+    // Shallow copy with another stock, so a cached instance can be served without changing it
+    public Book withTotalQuantity(int totalQuantity) {
+        Book book = new Book();
+        book.id = id;
+        book.title = title;
+        book.type = type;
+        book.author = author;
+        book.price = price;
+        book.imageUrl = imageUrl;
+        book.description = description;
+        book.ratings = ratings;
+        book.sellerId = sellerId;
+        book.rankScore = rankScore;
+        book.reviewCount = reviewCount;
+        book.version = version;
+        book.reviewsVersion = reviewsVersion;
+        book.hotShards = hotShards;
+        book.writeTokens = writeTokens;
+        book.reviews = reviews;
+        book.totalQuantity = totalQuantity;
+        return book;
+    }
+
+    public double getRankScore() {
+        return rankScore;
+    }
+
+    public void setRankScore(double rankScore) {
+        this.rankScore = rankScore;
+    }
+
+    public int getReviewCount() {
+        return reviewCount;
+    }
+
+    public void setReviewCount(int reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public long getReviewsVersion() {
+        return reviewsVersion;
+    }
+
+    public void setReviewsVersion(long reviewsVersion) {
+        this.reviewsVersion = reviewsVersion;
+    }
+
+    public List<String> getWriteTokens() {
+        return writeTokens;
+    }
+
+    public void setWriteTokens(List<String> writeTokens) {
+        this.writeTokens = writeTokens;
+    }
+
+    public Integer getHotShards() {
+        return hotShards;
+    }
+
+    public void setHotShards(Integer hotShards) {
+        this.hotShards = hotShards;
+    }
+
     public String getType() {
         return type;
     }
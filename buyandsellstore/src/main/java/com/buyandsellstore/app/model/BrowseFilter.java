@@ -0,0 +1,51 @@
+package com.buyandsellstore.app.model;
+
+public class BrowseFilter {
+    private Double minPrice;      // Inclusive, optional
+    private Double maxPrice;      // Inclusive, optional
+    private Double minRating;     // Optional
+    private String type;          // Home item category, case-insensitive
+    private String manufacturer;  // Case-insensitive
+    private String sellerId;
+
+    public BrowseFilter() {
+    }
+
+    // Getters and Setters
+    public Double getMinPrice() {
+        return minPrice;
+    }
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+    public Double getMinRating() {
+        return minRating;
+    }
+    public void setMinRating(Double minRating) {
+        this.minRating = minRating;
+    }
+    public String getType() {
+        return type;
+    }
+    public void setType(String type) {
+        this.type = type;
+    }
+    public String getManufacturer() {
+        return manufacturer;
+    }
+    public void setManufacturer(String manufacturer) {
+        this.manufacturer = manufacturer;
+    }
+    public String getSellerId() {
+        return sellerId;
+    }
+    public void setSellerId(String sellerId) {
+        this.sellerId = sellerId;
+    }
+}
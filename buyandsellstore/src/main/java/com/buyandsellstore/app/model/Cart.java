@@ -1,17 +1,27 @@
 package com.buyandsellstore.app.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Document(collection = "carts") // MongoDB collection name
 public class Cart {
     @Id
     private String id; // Unique ID for the cart
+    @Indexed(unique = true) // One cart per user
     private String userId; // Reference to the user owning the cart
-    private List<CartItem> items = new ArrayList<>(); // List of items in the cart (books, home items, etc.)
+    // Lines keyed by ItemType.lineKey ("book:<id>"), so a line is found and changed by its key
+    private Map<String, CartItem> lines = new LinkedHashMap<>();
+    // Earliest reservedUntil of the lines; lets the reservation sweeper find carts holding expired lines without a scan
+    @Indexed(sparse = true)
+    private Date nextExpiry;
 
     // Constructors
     public Cart() {
@@ -38,12 +48,36 @@ public class Cart {
         this.userId = userId;
     }
 
+    public Map<String, CartItem> getLines() {
+        return lines;
+    }
+
+    public void setLines(Map<String, CartItem> lines) {
+        this.lines = lines;
+    }
+
+    public Date getNextExpiry() {
+        return nextExpiry;
+    }
+
+    public void setNextExpiry(Date nextExpiry) {
+        this.nextExpiry = nextExpiry;
+    }
+
+    // The lines as the list GraphQL and the services work with; not stored
+    @Transient
     public List<CartItem> getItems() {
-        return items;
+        return lines == null ? new ArrayList<>() : new ArrayList<>(lines.values());
     }
 
     public void setItems(List<CartItem> items) {
-        this.items = items;
+        lines = new LinkedHashMap<>();
+        for (CartItem item : items) {
+            lines.merge(ItemType.lineKey(item.getType(), item.getItemId()), item, (a, b) -> {
+                a.setQuantity(a.getQuantity() + b.getQuantity());
+                return a;
+            });
+        }
     }
 
     @Override
@@ -51,7 +85,7 @@ public class Cart {
         return "Cart{" +
                 "id='" + id + '\'' +
                 ", userId='" + userId + '\'' +
-                ", items=" + items +
+                ", lines=" + lines +
                 '}';
     }
 }
@@ -0,0 +1,54 @@
+package com.buyandsellstore.app.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// One cart lifecycle event, appended and never updated; MongoDB deletes it after 90 days
+@Document(collection = "cartEvents")
+public class CartEvent {
+
+    @Id
+    private String id;
+    private String kind;        // CREATED, ITEM_ADDED, REMOVED, ORDERED or EXPIRED
+    private String userId;
+    private String sellerId;
+    private String type;        // "book" or "home"
+    private String itemId;
+    private int quantity;
+    @Indexed(expireAfter = "90d")
+    private Date at;
+
+    public CartEvent() {
+    }
+
+    public CartEvent(String kind, String userId, String sellerId, String type, String itemId, int quantity, Date at) {
+        this.kind = kind;
+        this.userId = userId;
+        this.sellerId = sellerId;
+        this.type = type;
+        this.itemId = itemId;
+        this.quantity = quantity;
+        this.at = at;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getKind() { return kind; }
+    public void setKind(String kind) { this.kind = kind; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public String getSellerId() { return sellerId; }
+    public void setSellerId(String sellerId) { this.sellerId = sellerId; }
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+    public Date getAt() { return at; }
+    public void setAt(Date at) { this.at = at; }
+}
@@ -1,5 +1,7 @@
 package com.buyandsellstore.app.model;
 
+import java.util.Date;
+
 public class CartItem {
     private String itemId; // Unique ID of the item (e.g., book ID, home item ID)
     private String type; // Type of the item (e.g., "book", "homeItem")
@@ -9,6 +11,7 @@ public class CartItem {
     private String imageUrl; // Add this field
     private String sellerId;
     private String productName;
+    private Date reservedUntil; // Cart lines only: the units are given back to stock after this, see ReservationService
 
     // Constructors
     public CartItem() {
@@ -92,4 +95,12 @@ public class CartItem {
     public String getProductName() {
         return productName;
     }
+
+    public Date getReservedUntil() {
+        return reservedUntil;
+    }
+
+    public void setReservedUntil(Date reservedUntil) {
+        this.reservedUntil = reservedUntil;
+    }
 }
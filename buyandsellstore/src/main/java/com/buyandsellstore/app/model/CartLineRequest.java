@@ -0,0 +1,36 @@
+package com.buyandsellstore.app.model;
+
+public class CartLineRequest {
+    private String itemId;
+    private String type;        // "book" or "home"
+    private Integer quantity;   // Units to add, at least 1
+
+    public CartLineRequest() {
+    }
+
+    public CartLineRequest(String itemId, String type, Integer quantity) {
+        this.itemId = itemId;
+        this.type = type;
+        this.quantity = quantity;
+    }
+
+    // Getters and Setters
+    public String getItemId() {
+        return itemId;
+    }
+    public void setItemId(String itemId) {
+        this.itemId = itemId;
+    }
+    public String getType() {
+        return type;
+    }
+    public void setType(String type) {
+        this.type = type;
+    }
+    public Integer getQuantity() {
+        return quantity;
+    }
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,37 @@
+package com.buyandsellstore.app.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// A visitor's cart that GuestCartStore moved out of memory; MongoDB deletes it once expiresAt passes
+@Document(collection = "guestCarts")
+public class GuestCart {
+
+    @Id
+    private String id;          // The guest cart token
+    private List<CartItem> items = new ArrayList<>();
+    @Indexed(expireAfterSeconds = 0)
+    private Date expiresAt;
+
+    public GuestCart() {
+    }
+
+    public GuestCart(String id, List<CartItem> items, Date expiresAt) {
+        this.id = id;
+        this.items = items;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public List<CartItem> getItems() { return items; }
+    public void setItems(List<CartItem> items) { this.items = items; }
+    public Date getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Date expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -1,26 +1,45 @@
 package com.buyandsellstore.app.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.util.List;
 
 @Document(collection = "homeItems")
+// One listing per seller, manufacturer and title; created at startup by MongoIndexConfig
+@CompoundIndex(name = "seller_manufacturer_title", def = "{'sellerId': 1, 'manufacturer': 1, 'title': 1}", unique = true)
+// Serves topRated; _id breaks ties so the page cursor is stable
+@CompoundIndex(name = "rank", def = "{'rankScore': -1, '_id': -1}")
+// Only items that could be low for some seller; serves lowStockItems and the alert job.
+// The bound is LowStockService.MAX_THRESHOLD
+@CompoundIndex(name = "seller_low_stock", def = "{'sellerId': 1, 'totalQuantity': 1}",
+        partialFilter = "{'totalQuantity': {'$lte': 100}}")
 public class HomeItem {
 
     @Id
     private String id; // Unique identifier for MongoDB
     private String title;
+    @Indexed
     private String type;
     private String description;
     private double price;
     private String imageUrl;
+    @Indexed
     private String manufacturer;
     private double ratings;
     private String sellerId;
 
     private int totalQuantity;
+    private double rankScore; // Bayesian average of the ratings, see RankingService
+    private int reviewCount;
+    private long version; // Bumped by every write but review changes, checked by updateInventory; missing on old documents means 0
+    private long reviewsVersion; // Bumped by every review change, checked by updateReviews; missing means 0
+    @Indexed(sparse = true) // Only hot items have it; the rebalancer looks them up
+    private Integer hotShards; // Set while the stock lives in inventoryShards; totalQuantity is then their synced sum
+    private List<String> writeTokens; // Tokens of the last conditional bulk writes that matched, see InventoryService
 
     @Field("reviews") // MongoDB field for embedded reviews
     private List<Review> reviews;
@@ -131,6 +150,77 @@ public class HomeItem {
         this.totalQuantity = totalQuantity;
     }
 
+    // Shallow copy with another stock, so a cached instance can be served without changing it
+    public HomeItem withTotalQuantity(int totalQuantity) {
+        HomeItem homeItem = new HomeItem();
+        homeItem.id = id;
+        homeItem.title = title;
+        homeItem.type = type;
+        homeItem.description = description;
+        homeItem.price = price;
+        homeItem.imageUrl = imageUrl;
+        homeItem.manufacturer = manufacturer;
+        homeItem.ratings = ratings;
+        homeItem.sellerId = sellerId;
+        homeItem.rankScore = rankScore;
+        homeItem.reviewCount = reviewCount;
+        homeItem.version = version;
+        homeItem.reviewsVersion = reviewsVersion;
+        homeItem.hotShards = hotShards;
+        homeItem.writeTokens = writeTokens;
+        homeItem.reviews = reviews;
+        homeItem.totalQuantity = totalQuantity;
+        return homeItem;
+    }
+
+    public double getRankScore() {
+        return rankScore;
+    }
+
+    public void setRankScore(double rankScore) {
+        this.rankScore = rankScore;
+    }
+
+    public int getReviewCount() {
+        return reviewCount;
+    }
+
+    public void setReviewCount(int reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public long getReviewsVersion() {
+        return reviewsVersion;
+    }
+
+    public void setReviewsVersion(long reviewsVersion) {
+        this.reviewsVersion = reviewsVersion;
+    }
+
+    public List<String> getWriteTokens() {
+        return writeTokens;
+    }
+
+    public void setWriteTokens(List<String> writeTokens) {
+        this.writeTokens = writeTokens;
+    }
+
+    public Integer getHotShards() {
+        return hotShards;
+    }
+
+    public void setHotShards(Integer hotShards) {
+        this.hotShards = hotShards;
+    }
+
     public List<Review> getReviews() {
         return reviews;
     }
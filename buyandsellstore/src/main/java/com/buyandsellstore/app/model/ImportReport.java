@@ -0,0 +1,92 @@
+package com.buyandsellstore.app.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Outcome of one bulk catalog upload, stored in the "importReports" collection
+ * so the seller can fetch the rejected rows afterwards.
+ */
+@Document(collection = "importReports")
+public class ImportReport {
+
+    @Id
+    private String id;
+    private String sellerId;
+    private String itemType;        // "book" or "home"
+    private String fileName;
+    private String status;          // RUNNING, COMPLETED or FAILED
+    private Date startedAt;
+    private Date finishedAt;
+    private int rowsRead;
+    private int inserted;
+    private int duplicates;         // Already in the catalog, or repeated earlier in the file
+    private int rejected;           // Failed validation or the insert
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated; // More errors than catalog.import.max-errors
+
+    public ImportReport() {
+    }
+
+    public ImportReport(String sellerId, String itemType, String fileName) {
+        this.sellerId = sellerId;
+        this.itemType = itemType;
+        this.fileName = fileName;
+        this.status = "RUNNING";
+        this.startedAt = new Date();
+    }
+
+    public static class RowError {
+        private int row;         // 1-based data row, header excluded
+        private String title;
+        private String reason;
+
+        public RowError() {
+        }
+
+        public RowError(int row, String title, String reason) {
+            this.row = row;
+            this.title = title;
+            this.reason = reason;
+        }
+
+        public int getRow() { return row; }
+        public void setRow(int row) { this.row = row; }
+        public String getTitle() { return title; }
+        public void setTitle(String title) { this.title = title; }
+        public String getReason() { return reason; }
+        public void setReason(String reason) { this.reason = reason; }
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getSellerId() { return sellerId; }
+    public void setSellerId(String sellerId) { this.sellerId = sellerId; }
+    public String getItemType() { return itemType; }
+    public void setItemType(String itemType) { this.itemType = itemType; }
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public Date getStartedAt() { return startedAt; }
+    public void setStartedAt(Date startedAt) { this.startedAt = startedAt; }
+    public Date getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Date finishedAt) { this.finishedAt = finishedAt; }
+    public int getRowsRead() { return rowsRead; }
+    public void setRowsRead(int rowsRead) { this.rowsRead = rowsRead; }
+    public int getInserted() { return inserted; }
+    public void setInserted(int inserted) { this.inserted = inserted; }
+    public int getDuplicates() { return duplicates; }
+    public void setDuplicates(int duplicates) { this.duplicates = duplicates; }
+    public int getRejected() { return rejected; }
+    public void setRejected(int rejected) { this.rejected = rejected; }
+    public List<RowError> getErrors() { return errors; }
+    public void setErrors(List<RowError> errors) { this.errors = errors; }
+    public boolean isErrorsTruncated() { return errorsTruncated; }
+    public void setErrorsTruncated(boolean errorsTruncated) { this.errorsTruncated = errorsTruncated; }
+}
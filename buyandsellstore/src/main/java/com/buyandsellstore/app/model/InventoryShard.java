@@ -0,0 +1,46 @@
+package com.buyandsellstore.app.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// One slice of a hot item's stock, see HotInventoryService. The id is "type:itemId:shard", so
+// the decrement path addresses a shard by _id alone
+@Document(collection = "inventoryShards")
+@CompoundIndex(name = "item_shards", def = "{'type': 1, 'itemId': 1}")
+public class InventoryShard {
+
+    @Id
+    private String id;
+    private String type;        // "book" or "home"
+    private String itemId;
+    private int shard;          // 0 to hotShards - 1
+    private int quantity;
+
+    public InventoryShard() {
+    }
+
+    public InventoryShard(String type, String itemId, int shard, int quantity) {
+        this.id = id(type, itemId, shard);
+        this.type = type;
+        this.itemId = itemId;
+        this.shard = shard;
+        this.quantity = quantity;
+    }
+
+    public static String id(String type, String itemId, int shard) {
+        return type + ":" + itemId + ":" + shard;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+    public int getShard() { return shard; }
+    public void setShard(int shard) { this.shard = shard; }
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+}
@@ -0,0 +1,51 @@
+package com.buyandsellstore.app.model;
+
+public class InventoryUpdate {
+    private String itemId;
+    private String type;            // "book" or "home"
+    private Double price;           // New price, optional
+    private Integer totalQuantity;  // New absolute stock, optional
+    private Integer quantityDelta;  // Stock adjustment, optional; cannot be combined with totalQuantity
+    private Long expectedVersion;   // Skip the update unless the item is still at this version
+
+    public InventoryUpdate() {
+    }
+
+    // Getters and Setters
+    public String getItemId() {
+        return itemId;
+    }
+    public void setItemId(String itemId) {
+        this.itemId = itemId;
+    }
+    public String getType() {
+        return type;
+    }
+    public void setType(String type) {
+        this.type = type;
+    }
+    public Double getPrice() {
+        return price;
+    }
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+    public Integer getTotalQuantity() {
+        return totalQuantity;
+    }
+    public void setTotalQuantity(Integer totalQuantity) {
+        this.totalQuantity = totalQuantity;
+    }
+    public Integer getQuantityDelta() {
+        return quantityDelta;
+    }
+    public void setQuantityDelta(Integer quantityDelta) {
+        this.quantityDelta = quantityDelta;
+    }
+    public Long getExpectedVersion() {
+        return expectedVersion;
+    }
+    public void setExpectedVersion(Long expectedVersion) {
+        this.expectedVersion = expectedVersion;
+    }
+}
@@ -0,0 +1,49 @@
+package com.buyandsellstore.app.model;
+
+import java.util.Locale;
+
+// Catalog item types as stored on cart lines; "homeItem" is an old spelling of HOME
+public enum ItemType {
+    BOOK("book"),
+    HOME("home");
+
+    private final String code;
+
+    ItemType(String code) {
+        this.code = code;
+    }
+
+    public String code() {
+        return code;
+    }
+
+    // Case-insensitive; null for anything that is not a catalog type
+    public static ItemType of(String type) {
+        if (type == null) return null;
+        if (type.equalsIgnoreCase(BOOK.code)) return BOOK;
+        if (type.equalsIgnoreCase(HOME.code) || type.equalsIgnoreCase("homeItem")) return HOME;
+        return null;
+    }
+
+    // The type as a cart line stores it: the code for catalog types, other types lowercased
+    public static String normalize(String type) {
+        ItemType itemType = of(type);
+        return itemType != null ? itemType.code : type == null ? null : type.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Key of the line for an item in Cart.lines, "type:itemId". Both parts become a MongoDB field
+     * name, so they may not be empty, contain '.' or start with '$'.
+     */
+    public static String lineKey(String type, String itemId) {
+        String normalized = normalize(type);
+        if (normalized == null || normalized.isEmpty() || normalized.contains(".") || normalized.contains(":")
+                || normalized.startsWith("$")) {
+            throw new IllegalArgumentException("Unsupported item type: " + type);
+        }
+        if (itemId == null || itemId.isEmpty() || itemId.contains(".")) {
+            throw new IllegalArgumentException("Unsupported item id: " + itemId);
+        }
+        return normalized + ":" + itemId;
+    }
+}
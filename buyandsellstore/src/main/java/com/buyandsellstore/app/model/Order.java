@@ -1,6 +1,7 @@
 package com.buyandsellstore.app.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Date;
@@ -10,6 +11,7 @@ import java.util.List;
 public class Order {
     @Id
     private String id;
+    @Indexed
     private String userId;
     private List<CartItem> items;
     private float totalPrice;
@@ -0,0 +1,49 @@
+package com.buyandsellstore.app.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Up to catalog.price-history.bucket-size price changes of one item, as parallel arrays of
+// epoch millis and prices; one document per bucket instead of one per change
+@Document(collection = "priceHistory")
+@CompoundIndex(name = "item_start", def = "{'itemId': 1, 'start': -1}")
+public class PriceHistoryBucket {
+
+    @Id
+    private String id;
+    private String itemId;
+    private String type;        // "book" or "home"
+    private long start;         // First and last timestamp in the bucket
+    private long end;
+    private int n;              // Points in the bucket
+    private List<Long> t = new ArrayList<>();
+    private List<Double> p = new ArrayList<>();
+    private double lastPrice;   // Price after the newest point
+
+    public PriceHistoryBucket() {
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    public long getStart() { return start; }
+    public void setStart(long start) { this.start = start; }
+    public long getEnd() { return end; }
+    public void setEnd(long end) { this.end = end; }
+    public int getN() { return n; }
+    public void setN(int n) { this.n = n; }
+    public List<Long> getT() { return t; }
+    public void setT(List<Long> t) { this.t = t; }
+    public List<Double> getP() { return p; }
+    public void setP(List<Double> p) { this.p = p; }
+    public double getLastPrice() { return lastPrice; }
+    public void setLastPrice(double lastPrice) { this.lastPrice = lastPrice; }
+}
@@ -0,0 +1,42 @@
+package com.buyandsellstore.app.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Units of one seller's items put in carts, removed from them, ordered and expired on one UTC day; _id is
+// "sellerId:yyyy-MM-dd", so a window of days is read by id
+@Document(collection = "sellerCartDays")
+public class SellerCartDay {
+
+    @Id
+    private String id;
+    private String sellerId;
+    private String day;         // yyyy-MM-dd, UTC
+    private long added;
+    private long removed;
+    private long ordered;
+    private long expired;
+
+    public SellerCartDay() {
+    }
+
+    public static String id(String sellerId, String day) {
+        return sellerId + ":" + day;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getSellerId() { return sellerId; }
+    public void setSellerId(String sellerId) { this.sellerId = sellerId; }
+    public String getDay() { return day; }
+    public void setDay(String day) { this.day = day; }
+    public long getAdded() { return added; }
+    public void setAdded(long added) { this.added = added; }
+    public long getRemoved() { return removed; }
+    public void setRemoved(long removed) { this.removed = removed; }
+    public long getOrdered() { return ordered; }
+    public void setOrdered(long ordered) { this.ordered = ordered; }
+    public long getExpired() { return expired; }
+    public void setExpired(long expired) { this.expired = expired; }
+}
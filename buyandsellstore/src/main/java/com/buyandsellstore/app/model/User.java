@@ -16,6 +16,7 @@ public class User {
     @Id
     private String id; // Unique identifier for MongoDB
 
+    @Indexed(unique = true)
     private String username; // Username for login
 
     @Indexed(unique = true)
@@ -24,6 +25,7 @@ public class User {
     private String password; // Hashed password
     private String firstName; // First name of the user
     private String lastName; // Last name of the user
+    @Indexed
     private String phone;
     private boolean isSeller;
 
@@ -33,6 +35,8 @@ public class User {
     private Integer primaryShippingIndex;
     private String profilePictureUrl;
     private String resetToken;
+    private Integer lowStockThreshold; // Sellers only; null means LowStockService's default
+    private List<String> lowStockNotified = new ArrayList<>(); // "type:itemId" of the items in the last alert
 
     // Default Constructor
     public User() {
@@ -179,6 +183,22 @@ public class User {
         this.resetToken = resetToken;
     }
 
+    public Integer getLowStockThreshold() {
+        return lowStockThreshold;
+    }
+
+    public void setLowStockThreshold(Integer lowStockThreshold) {
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    public List<String> getLowStockNotified() {
+        return lowStockNotified;
+    }
+
+    public void setLowStockNotified(List<String> lowStockNotified) {
+        this.lowStockNotified = lowStockNotified;
+    }
+
     @Override
     public String toString() {
         return "User{" +
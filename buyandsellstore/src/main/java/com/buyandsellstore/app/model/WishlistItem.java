@@ -1,6 +1,7 @@
 package com.buyandsellstore.app.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Date;
@@ -10,6 +11,7 @@ public class WishlistItem {
 
     @Id
     private String id;          // Unique identifier for the wishlist item (generated by MongoDB)
+    @Indexed
     private String userId;      // Which user this wishlist item belongs to
     private String itemId;      // ID of the item (similar to CartItem)
     private String type;        // e.g., "book", "homeItem", etc.
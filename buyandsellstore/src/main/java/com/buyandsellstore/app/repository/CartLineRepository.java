@@ -0,0 +1,44 @@
+package com.buyandsellstore.app.repository;
+
+import com.buyandsellstore.app.model.Cart;
+import com.buyandsellstore.app.model.CartItem;
+import com.mongodb.client.result.UpdateResult;
+
+import java.util.Date;
+import java.util.List;
+
+// Custom fragment of CartRepository, see CartLineRepositoryImpl
+public interface CartLineRepository {
+
+    // Adds line.quantity to the user's line for the same item, or appends the line; creates the cart if needed,
+    // and then returns true
+    boolean addLine(String userId, CartItem line);
+
+    // addLine for several lines in one update
+    boolean addLines(String userId, List<CartItem> lines);
+
+    // Takes one unit off the line and drops it at zero; matched 0 means no cart, modified 0 means no such line
+    UpdateResult removeOne(String userId, String itemId, String type);
+
+    // Moves the hold of every line the cart still has to until, so no reservation sweep can release them any more;
+    // the cart as it is then, or null when there is none
+    Cart renewHolds(String userId, Date until);
+
+    // clearLines in one findOneAndUpdate that returns the cart as it was before; null when there is none
+    Cart takeLines(String userId);
+
+    // Drops every line but keeps the cart, and with it the journal positions of CartWriteBuffer; 0 when there is no cart
+    long clearLines(String userId);
+
+    // Net unit changes per line from CartWriteBuffer, in one update: positive ones add like addLines, negative
+    // ones take units off and drop lines at zero. Skipped when the cart's journal.<node> position is already at seq
+    // or past it, so a replayed journal applies each change once. True when it created the cart, like addLines
+    boolean applyChanges(String userId, List<CartItem> changes, String node, long seq);
+
+    // The seq of the last applyChanges from node on the user's cart; 0 when none
+    long journalPosition(String userId, String node);
+
+    // Moves the items list of up to batchSize carts saved before lines were keyed into their lines map;
+    // returns how many carts it looked at
+    int migrateItemsToLines(int batchSize);
+}
@@ -0,0 +1,237 @@
+package com.buyandsellstore.app.repository;
+
+import com.buyandsellstore.app.model.Cart;
+import com.buyandsellstore.app.model.CartItem;
+import com.buyandsellstore.app.model.ItemType;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cart line changes as one updateOne each, with no read of the cart; adding several lines is
+ * still a single update.
+ *
+ * Lines live in the cart's lines map under ItemType.lineKey ("book:<id>"), so each update is a
+ * pipeline that addresses the line by its key: an add merges into the existing line (quantity
+ * added, hold renewed, name and price as first added) or creates it, and a removal decrements
+ * it or drops the key at zero. Cost does not grow with the number of other lines, apart from
+ * nextExpiry, the earliest hold, which every update recomputes. Adding upserts on userId,
+ * which is unique, so the first item also creates the cart in the same call. Two clicks or two
+ * tabs are applied one after the other by the server instead of the later save overwriting
+ * the earlier one.
+ *
+ * Every add also moves the line's reservedUntil forward; ReservationService releases lines
+ * whose hold has run out.
+ */
+public class CartLineRepositoryImpl implements CartLineRepository {
+
+    private static final Document LINES = new Document("$ifNull", List.of("$lines", new Document()));
+
+    // Earliest hold of the lines; null when none has one
+    private static final Document NEXT_EXPIRY = new Document("$set", new Document("nextExpiry",
+            new Document("$min", new Document("$map", new Document("input", new Document("$objectToArray", LINES))
+                    .append("as", "l").append("in", "$$l.v.reservedUntil")))));
+
+    private static final Document CLEARED = new Document("$set", new Document("lines", new Document()))
+            .append("$unset", new Document("nextExpiry", ""));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean addLine(String userId, CartItem line) {
+        return addLines(userId, List.of(line));
+    }
+
+    @Override
+    public boolean addLines(String userId, List<CartItem> lines) {
+        if (lines.isEmpty()) return false;
+        Map<String, Document> newLines = new LinkedHashMap<>();
+        for (CartItem line : lines) {
+            newLines.merge(ItemType.lineKey(line.getType(), line.getItemId()), lineDocument(line),
+                    (a, b) -> a.append("quantity", a.getInteger("quantity") + b.getInteger("quantity")));
+        }
+        List<Document> pipeline = List.of(new Document("$set", new Document("lines", merge(newLines, true))), NEXT_EXPIRY);
+        try {
+            return collection().updateOne(new Document("userId", userId), pipeline, new UpdateOptions().upsert(true))
+                    .getUpsertedId() != null;
+        } catch (MongoWriteException e) {
+            // Two first adds raced to create the cart; the other insert won, so this one now updates it
+            if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) throw e;
+            collection().updateOne(new Document("userId", userId), pipeline);
+            return false;
+        }
+    }
+
+    @Override
+    public UpdateResult removeOne(String userId, String itemId, String type) {
+        String key;
+        try {
+            key = ItemType.lineKey(type, itemId);
+        } catch (IllegalArgumentException e) {
+            // Cannot be in any cart: report whether the cart exists, with nothing modified
+            return UpdateResult.acknowledged(collection().countDocuments(new Document("userId", userId)), 0L, null);
+        }
+        String path = "$lines." + key;
+        Document decremented = new Document("$mergeObjects", List.of(LINES, new Document(key,
+                new Document("$mergeObjects", List.of(path,
+                        new Document("quantity", new Document("$subtract", List.of(path + ".quantity", 1))))))));
+        // A missing line also takes this branch, which leaves the cart as it is
+        Document dropped = new Document("$arrayToObject", new Document("$filter",
+                new Document("input", new Document("$objectToArray", LINES)).append("as", "l")
+                        .append("cond", new Document("$ne", List.of("$$l.k", new Document("$literal", key))))));
+        Document remaining = new Document("$cond", List.of(
+                new Document("$gt", List.of(path + ".quantity", 1)), decremented, dropped));
+
+        List<Document> pipeline = List.of(new Document("$set", new Document("lines", remaining)), NEXT_EXPIRY);
+        return collection().updateOne(new Document("userId", userId), pipeline);
+    }
+
+    @Override
+    public Cart renewHolds(String userId, Date until) {
+        Document held = new Document("$arrayToObject", new Document("$map",
+                new Document("input", new Document("$objectToArray", LINES)).append("as", "l")
+                        .append("in", new Document("k", "$$l.k").append("v", new Document("$mergeObjects",
+                                List.of("$$l.v", new Document("reservedUntil", new Document("$literal", until))))))));
+        Document cart = collection().findOneAndUpdate(new Document("userId", userId),
+                List.of(new Document("$set", new Document("lines", held)), NEXT_EXPIRY),
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+        return cart == null ? null : mongoTemplate.getConverter().read(Cart.class, cart);
+    }
+
+    @Override
+    public Cart takeLines(String userId) {
+        Document cart = collection().findOneAndUpdate(new Document("userId", userId), CLEARED,
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE));
+        return cart == null ? null : mongoTemplate.getConverter().read(Cart.class, cart);
+    }
+
+    @Override
+    public long clearLines(String userId) {
+        return collection().updateOne(new Document("userId", userId), CLEARED).getMatchedCount();
+    }
+
+    @Override
+    public boolean applyChanges(String userId, List<CartItem> changes, String node, long seq) {
+        Map<String, Document> added = new LinkedHashMap<>();
+        Document taken = new Document();
+        for (CartItem change : changes) {
+            String key = ItemType.lineKey(change.getType(), change.getItemId());
+            if (change.getQuantity() > 0) {
+                added.put(key, lineDocument(change));
+            } else if (change.getQuantity() < 0) {
+                String path = "$lines." + key;
+                // A line that is not there stays away
+                taken.append(key, new Document("$cond", List.of(new Document("$ifNull", List.of(path, false)),
+                        new Document("$mergeObjects", List.of(path, new Document("quantity",
+                                new Document("$add", List.of(path + ".quantity", change.getQuantity()))))),
+                        "$$REMOVE")));
+            }
+        }
+        if (added.isEmpty() && taken.isEmpty()) return false;
+        String position = "journal." + node;
+        List<Document> pipeline = new ArrayList<>();
+        if (!added.isEmpty()) pipeline.add(new Document("$set", new Document("lines", merge(added, true))));
+        if (!taken.isEmpty()) {
+            pipeline.add(new Document("$set", new Document("lines", new Document("$mergeObjects", List.of(LINES, taken)))));
+            pipeline.add(new Document("$set", new Document("lines", new Document("$arrayToObject", new Document("$filter",
+                    new Document("input", new Document("$objectToArray", LINES)).append("as", "l")
+                            .append("cond", new Document("$gt", List.of("$$l.v.quantity", 0))))))));
+        }
+        pipeline.add(NEXT_EXPIRY);
+        pipeline.add(new Document("$set", new Document(position, seq)));
+
+        Document filter = new Document("userId", userId).append(position, new Document("$not", new Document("$gte", seq)));
+        try {
+            return collection().updateOne(filter, pipeline, new UpdateOptions().upsert(!added.isEmpty())).getUpsertedId() != null;
+        } catch (MongoWriteException e) {
+            // The cart exists with the change already applied, or a first add raced this one to create it
+            if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) throw e;
+            collection().updateOne(filter, pipeline);
+            return false;
+        }
+    }
+
+    @Override
+    public long journalPosition(String userId, String node) {
+        Document cart = collection().find(new Document("userId", userId)).projection(new Document("journal." + node, 1)).first();
+        Document journal = cart == null ? null : cart.get("journal", Document.class);
+        return journal != null && journal.get(node) instanceof Number seq ? seq.longValue() : 0L;
+    }
+
+    @Override
+    public int migrateItemsToLines(int batchSize) {
+        List<Document> legacy = collection().find(new Document("items", new Document("$exists", true)))
+                .projection(new Document("items", 1)).limit(batchSize).into(new ArrayList<>());
+        List<WriteModel<Document>> writes = new ArrayList<>(legacy.size());
+        for (Document cart : legacy) {
+            Map<String, Document> lines = new LinkedHashMap<>();
+            for (Document item : cart.getList("items", Document.class, List.of())) {
+                String key;
+                try {
+                    key = ItemType.lineKey(item.getString("type"), item.getString("itemId"));
+                } catch (IllegalArgumentException e) {
+                    continue; // Not addressable, so it could never have been changed or removed either
+                }
+                Document line = new Document(item).append("type", ItemType.normalize(item.getString("type")));
+                line.put("quantity", line.get("quantity") instanceof Number quantity ? quantity.intValue() : 0);
+                lines.merge(key, line, (a, b) -> a.append("quantity", a.getInteger("quantity") + b.getInteger("quantity")));
+            }
+            // Merged into lines the new code may already have written for this cart, then the list is gone
+            writes.add(new UpdateOneModel<>(new Document("_id", cart.get("_id")).append("items", new Document("$exists", true)),
+                    List.of(new Document("$set", new Document("lines", merge(lines, false))),
+                            NEXT_EXPIRY, new Document("$unset", "items"))));
+        }
+        if (!writes.isEmpty()) collection().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        return legacy.size();
+    }
+
+    // The cart's lines with each of newLines merged into the line under its key
+    private static Document merge(Map<String, Document> newLines, boolean renewHold) {
+        Document changed = new Document();
+        for (Map.Entry<String, Document> entry : newLines.entrySet()) {
+            String path = "$lines." + entry.getKey();
+            Document line = entry.getValue();
+            Document update = new Document("quantity", new Document("$add",
+                    List.of(new Document("$ifNull", List.of(path + ".quantity", 0)), line.getInteger("quantity"))));
+            if (renewHold) update.append("reservedUntil", new Document("$literal", line.get("reservedUntil"))); // The whole line is held again
+            // New line, overridden by what the existing line already has, then the new quantity
+            changed.append(entry.getKey(), new Document("$mergeObjects", List.of(
+                    new Document("$literal", line), // Names may start with '$'
+                    new Document("$ifNull", List.of(path, new Document())),
+                    update)));
+        }
+        return new Document("$mergeObjects", List.of(LINES, changed));
+    }
+
+    private static Document lineDocument(CartItem line) {
+        return new Document("itemId", line.getItemId())
+                .append("type", ItemType.normalize(line.getType()))
+                .append("name", line.getName())
+                .append("quantity", line.getQuantity())
+                .append("price", line.getPrice())
+                .append("imageUrl", line.getImageUrl())
+                .append("sellerId", line.getSellerId())
+                .append("reservedUntil", line.getReservedUntil());
+    }
+
+    private MongoCollection<Document> collection() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Cart.class));
+    }
+}
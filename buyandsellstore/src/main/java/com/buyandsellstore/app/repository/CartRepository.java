@@ -5,6 +5,8 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.Optional;
 
-public interface CartRepository extends MongoRepository<Cart, String> {
+public interface CartRepository extends MongoRepository<Cart, String>, CartLineRepository {
     Optional<Cart> findByUserId(String userId); // Add this method
+
+    long deleteByUserId(String userId);
 }
@@ -0,0 +1,9 @@
+package com.buyandsellstore.app.repository;
+
+import com.buyandsellstore.app.model.ImportReport;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImportReportRepository extends MongoRepository<ImportReport, String> {
+}
@@ -0,0 +1,13 @@
+package com.buyandsellstore.app.repository;
+
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+
+// Custom fragment of BookRepository and HomeItemRepository, see ReviewScoreRepositoryImpl
+public interface ReviewScoreRepository {
+
+    // Writes reviews, ratings, reviewCount and rankScore if the stored reviewsVersion still matches; bumps it
+    boolean updateReviews(Book book);
+
+    boolean updateReviews(HomeItem homeItem);
+}
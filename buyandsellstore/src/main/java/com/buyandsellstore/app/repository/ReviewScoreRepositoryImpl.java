@@ -0,0 +1,61 @@
+package com.buyandsellstore.app.repository;
+
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.Review;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+/**
+ * Review mutations write only the review fields, in one conditional update: the filter
+ * requires the reviewsVersion the item was read at, so two reviews posted at the same time
+ * cannot overwrite each other and the score always matches the reviews stored with it. It is
+ * a counter of its own because every sale and restock bumps version, and a review should not
+ * have to retry because the stock moved.
+ */
+public class ReviewScoreRepositoryImpl implements ReviewScoreRepository {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean updateReviews(Book book) {
+        if (!update(Book.class, book.getId(), book.getReviewsVersion(), book.getReviews(), book.getRatings(),
+                book.getReviewCount(), book.getRankScore())) {
+            return false;
+        }
+        book.setReviewsVersion(book.getReviewsVersion() + 1);
+        return true;
+    }
+
+    @Override
+    public boolean updateReviews(HomeItem homeItem) {
+        if (!update(HomeItem.class, homeItem.getId(), homeItem.getReviewsVersion(), homeItem.getReviews(), homeItem.getRatings(),
+                homeItem.getReviewCount(), homeItem.getRankScore())) {
+            return false;
+        }
+        homeItem.setReviewsVersion(homeItem.getReviewsVersion() + 1);
+        return true;
+    }
+
+    private boolean update(Class<?> entityClass, String id, long reviewsVersion, List<Review> reviews, double ratings,
+                           int reviewCount, double rankScore) {
+        Criteria criteria = Criteria.where("_id").is(id);
+        // Documents never reviewed since the counter was added have no field, which reads as 0
+        criteria = reviewsVersion == 0
+                ? criteria.and("reviewsVersion").in(0, null)
+                : criteria.and("reviewsVersion").is(reviewsVersion);
+        Update update = new Update()
+                .set("reviews", reviews)
+                .set("ratings", ratings)
+                .set("reviewCount", reviewCount)
+                .set("rankScore", rankScore)
+                .inc("reviewsVersion", 1);
+        return mongoTemplate.updateFirst(new Query(criteria), update, entityClass).getMatchedCount() == 1;
+    }
+}
@@ -5,6 +5,7 @@ import com.buyandsellstore.app.repository.BookRepository;
 import com.buyandsellstore.app.model.Review;
 import com.buyandsellstore.app.service.BookService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
@@ -16,6 +17,8 @@ import java.util.List;
 @Controller
 public class BookResolver {
 
+    private static final String DUPLICATE_MESSAGE = "This book already exists for the seller. Duplicate uploads are not allowed.";
+
     @Autowired
     private BookService bookService;
 
@@ -62,15 +65,15 @@ public class BookResolver {
             @Argument String description,
             @Argument String sellerId) {
 
-        Book existingBook = bookService.findByTitleAndSellerId(title, sellerId);
-        if (existingBook != null) {
-            return new UploadBookResponse(false, "This book already exists for the seller. Duplicate uploads are not allowed.", null);
-        }
-
         Book book = new Book(title, author, price, imageUrl, description, sellerId, totalQuantity);
         book.setReviews(new ArrayList<>());
 
-        return new UploadBookResponse(true, "Upload successful!", bookService.save(book));
+        // The unique (sellerId, title) index rejects duplicates, also when two uploads race
+        try {
+            return new UploadBookResponse(true, "Upload successful!", bookService.save(book));
+        } catch (DuplicateKeyException e) {
+            return new UploadBookResponse(false, DUPLICATE_MESSAGE, null);
+        }
     }
 
     @MutationMapping
@@ -84,22 +87,11 @@ public class BookResolver {
             @Argument String description,
             @Argument String sellerId) {
 
-        // Find existing book by ID
-        Book existingBook = bookService.getBookById(id);
-        if (existingBook == null) {
-            return new UploadBookResponse(false, "Book not found.", null);
+        // Only the edited fields are written, so concurrent sales and reviews are kept
+        try {
+            return bookService.updateBook(id, title, author, totalQuantity, price, imageUrl, description, sellerId);
+        } catch (DuplicateKeyException e) {
+            return new UploadBookResponse(false, DUPLICATE_MESSAGE, null);
         }
-
-        // Update fields
-        existingBook.setTitle(title);
-        existingBook.setAuthor(author);
-        existingBook.setTotalQuantity(totalQuantity);
-        existingBook.setPrice(price);
-        existingBook.setImageUrl(imageUrl);
-        existingBook.setDescription(description);
-        existingBook.setSellerId(sellerId);
-
-        Book updatedBook = bookService.save(existingBook);
-        return new UploadBookResponse(true, "Book updated successfully.", updatedBook);
     }
 }
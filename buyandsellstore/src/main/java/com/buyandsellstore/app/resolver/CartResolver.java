@@ -1,12 +1,17 @@
 package com.buyandsellstore.app.resolver;
 
+import com.buyandsellstore.app.dto.AddItemsToCartResponse;
+import com.buyandsellstore.app.dto.CartValidationResponse;
+import com.buyandsellstore.app.dto.GuestCartResponse;
 import com.buyandsellstore.app.dto.ResponseMessage;
 import com.buyandsellstore.app.model.Book;
 import com.buyandsellstore.app.model.CartItem;
+import com.buyandsellstore.app.model.CartLineRequest;
 import com.buyandsellstore.app.model.HomeItem;
 import com.buyandsellstore.app.service.BookService;
 import com.buyandsellstore.app.service.CartService;
 import com.buyandsellstore.app.service.HomeItemService;
+import com.buyandsellstore.app.service.InventoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
@@ -26,6 +31,9 @@ public class CartResolver {
     @Autowired
     private HomeItemService homeItemService;
 
+    @Autowired
+    private InventoryService inventoryService;
+
     @QueryMapping(name = "cartItems")
     public List<CartItem> getCartItems(@Argument(name = "id") String userId) {
         // Retrieve cart items for the user
@@ -35,6 +43,12 @@ public class CartResolver {
         // Ensure an empty list is returned if the user has no cart items
         return cartItems != null ? cartItems : new ArrayList<>();
     }
+    // Current prices and stock for the cart's lines, with the total checkout will charge
+    @QueryMapping
+    public CartValidationResponse validateCart(@Argument String userId) {
+        return cartService.validateCart(userId);
+    }
+
     @MutationMapping
     public ResponseMessage addToCart(
             @Argument String userId,
@@ -47,34 +61,64 @@ public class CartResolver {
         }
         switch (type.toLowerCase()) {
             case "book":
-                Book book = bookService.getBookById(itemId);
-                if (book == null) {
-                    return new ResponseMessage(false, "Book not found.");
+                // Decrement first, atomically; only then is the item put in the cart
+                if (inventoryService.reserveOne(Book.class, itemId) == null) {
+                    return bookService.getBookById(itemId) == null
+                            ? new ResponseMessage(false, "Book not found.")
+                            : new ResponseMessage(false, "Item not available anymore!");
                 }
-                if (book.getTotalQuantity() <= 0) {
-                    return new ResponseMessage(false, "Item not available anymore!");
+                if (!addReserved(userId, itemId, type, Book.class)) {
+                    return new ResponseMessage(false, "Failed to add item to cart.");
                 }
-                cartService.addToCart(userId, itemId, type);
-                book.setTotalQuantity(book.getTotalQuantity() - 1);
-                bookService.save(book);
                 return new ResponseMessage(true, "Book added to the cart!");
             case "home":
-                HomeItem homeItem = homeItemService.getHomeItemById(itemId);
-                if (homeItem == null) {
-                    return new ResponseMessage(false, "Home item not found.");
+                if (inventoryService.reserveOne(HomeItem.class, itemId) == null) {
+                    return homeItemService.getHomeItemById(itemId) == null
+                            ? new ResponseMessage(false, "Home item not found.")
+                            : new ResponseMessage(false, "Item not available anymore!");
                 }
-                if (homeItem.getTotalQuantity() <= 0) {
-                    return new ResponseMessage(false, "Item not available anymore!");
+                if (!addReserved(userId, itemId, type, HomeItem.class)) {
+                    return new ResponseMessage(false, "Failed to add item to cart.");
                 }
-                cartService.addToCart(userId, itemId, type);
-                homeItem.setTotalQuantity(homeItem.getTotalQuantity() - 1);
-                homeItemService.save(homeItem);
                 return new ResponseMessage(true, "Home item added to the cart!");
             default:
                 return new ResponseMessage(false, "Unsupported item type: " + type);
         }
     }
 
+    // Several items and quantities in one call, e.g. re-ordering or moving a wishlist into the cart
+    @MutationMapping
+    public AddItemsToCartResponse addItemsToCart(@Argument String userId, @Argument List<CartLineRequest> items) {
+        return cartService.addItemsToCart(userId, items);
+    }
+
+    // Carts of visitors who are not logged in, by the token the first add returns; merged at login
+    @QueryMapping
+    public List<CartItem> guestCartItems(@Argument String guestCartToken) {
+        return cartService.guestCartItems(guestCartToken);
+    }
+
+    @MutationMapping
+    public GuestCartResponse addToGuestCart(@Argument String guestCartToken, @Argument String itemId, @Argument String type) {
+        return cartService.addToGuestCart(guestCartToken, itemId, type);
+    }
+
+    @MutationMapping
+    public GuestCartResponse removeFromGuestCart(@Argument String guestCartToken, @Argument String itemId, @Argument String type) {
+        return cartService.removeFromGuestCart(guestCartToken, itemId, type);
+    }
+
+    // Adds the reserved unit to the cart, or gives it back if the cart write fails
+    private boolean addReserved(String userId, String itemId, String type, Class<?> entityClass) {
+        try {
+            cartService.addToCart(userId, itemId, type);
+            return true;
+        } catch (RuntimeException e) {
+            inventoryService.releaseOne(entityClass, itemId);
+            return false;
+        }
+    }
+
 //    @MutationMapping
 //    public ResponseMessage removeFromCart(
 //            @Argument String userId,
@@ -95,6 +139,7 @@ public class CartResolver {
             return new ResponseMessage(false, "Item type is required.");
         }
 
+        // The unit goes back to stock with the cart write, which may be buffered
         ResponseMessage message = cartService.removeFromCart(userId, itemId, type);
         if (!message.isSuccess()) {
             return new ResponseMessage(false, "Failed to remove item from cart.");
@@ -102,19 +147,9 @@ public class CartResolver {
 
         switch (type.toLowerCase()) {
             case "book":
-                Book book = bookService.getBookById(itemId);
-                if (book != null) {
-                    book.setTotalQuantity(book.getTotalQuantity() + 1);
-                    bookService.save(book);
-                }
                 return new ResponseMessage(true, "Book removed from cart!.");
 
             case "home":
-                HomeItem homeItem = homeItemService.getHomeItemById(itemId);
-                if (homeItem != null) {
-                    homeItem.setTotalQuantity(homeItem.getTotalQuantity() + 1);
-                    homeItemService.save(homeItem);
-                }
                 return new ResponseMessage(true, "Home item removed from cart!");
 
             default:
@@ -0,0 +1,57 @@
+package com.buyandsellstore.app.resolver;
+
+import com.buyandsellstore.app.dto.BrowseResult;
+import com.buyandsellstore.app.dto.SearchHit;
+import com.buyandsellstore.app.dto.TopRatedPage;
+import com.buyandsellstore.app.dto.Suggestion;
+import com.buyandsellstore.app.model.BrowseFilter;
+import com.buyandsellstore.app.service.BrowseService;
+import com.buyandsellstore.app.service.CatalogSearchService;
+import com.buyandsellstore.app.service.CatalogSuggestService;
+import com.buyandsellstore.app.service.RankingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.List;
+
+@Controller
+public class CatalogSearchResolver {
+
+    @Autowired
+    private CatalogSuggestService catalogSuggestService;
+
+    @Autowired
+    private CatalogSearchService catalogSearchService;
+
+    @Autowired
+    private BrowseService browseService;
+
+    @Autowired
+    private RankingService rankingService;
+
+    // Fired on every keystroke of the search box, answered from memory
+    @QueryMapping
+    public List<Suggestion> suggest(@Argument String prefix, @Argument Integer limit) {
+        return catalogSuggestService.suggest(prefix, limit);
+    }
+
+    // fuzzy defaults to true; pass false for exact word matches only
+    @QueryMapping
+    public List<SearchHit> searchCatalog(@Argument String query, @Argument Boolean fuzzy, @Argument Integer limit) {
+        return catalogSearchService.search(query, fuzzy, limit);
+    }
+
+    // Category page: filtered home items plus facet counts
+    @QueryMapping
+    public BrowseResult browse(@Argument BrowseFilter filter, @Argument Integer first, @Argument Integer offset) {
+        return browseService.browse(filter, first, offset);
+    }
+
+    // Best-rated books or home items by Bayesian score; pass endCursor as after for the next page
+    @QueryMapping
+    public TopRatedPage topRated(@Argument String type, @Argument Integer first, @Argument String after) {
+        return rankingService.topRated(type, first, after);
+    }
+}
@@ -5,6 +5,7 @@ import com.buyandsellstore.app.model.HomeItem;
 import com.buyandsellstore.app.model.Review;
 import com.buyandsellstore.app.service.HomeItemService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
@@ -16,6 +17,8 @@ import java.util.List;
 @Controller
 public class HomeItemResolver {
 
+    private static final String DUPLICATE_MESSAGE = "Duplicate item by the same manufacturer and seller is not allowed.";
+
     @Autowired
     private HomeItemService homeItemService;
 
@@ -30,21 +33,15 @@ public class HomeItemResolver {
             @Argument String sellerId,
             @Argument String type) {
 
-        // Check for existing item by title and seller
-        HomeItem existingItem = homeItemService.findByTitleAndSellerId(title, sellerId);
-        if (existingItem != null) {
-            return new UploadHomeItemResponse(false, "Seller has already uploaded an item. Duplicate uploads are not allowed.", null);
-        }
-
-        // Optionally prevent duplicates by manufacturer
-        HomeItem byManufacturer = homeItemService.findByManufacturer(manufacturer);
-        if (byManufacturer != null && byManufacturer.getSellerId().equals(sellerId)) {
-            return new UploadHomeItemResponse(false, "Duplicate item by the same manufacturer and seller is not allowed.", null);
-        }
-
         HomeItem homeItem = new HomeItem(title, type, description, price, imageUrl, manufacturer, sellerId, totalQuantity);
         homeItem.setReviews(new ArrayList<>());
-        return new UploadHomeItemResponse(true, "Upload successful", homeItemService.save(homeItem));
+
+        // The unique (sellerId, manufacturer, title) index rejects duplicates, also when two uploads race
+        try {
+            return new UploadHomeItemResponse(true, "Upload successful", homeItemService.save(homeItem));
+        } catch (DuplicateKeyException e) {
+            return new UploadHomeItemResponse(false, DUPLICATE_MESSAGE, null);
+        }
     }
 
     @MutationMapping
@@ -59,24 +56,13 @@ public class HomeItemResolver {
             @Argument String sellerId,
             @Argument String type) {
 
-        // Find existing item by ID
-        HomeItem existingItem = homeItemService.getHomeItemById(id);
-        if (existingItem == null) {
-            return new UploadHomeItemResponse(false, "Home item not found.", null);
+        // Only the edited fields are written, so concurrent sales and reviews are kept
+        try {
+            return homeItemService.updateHomeItem(id, title, description, totalQuantity, price, imageUrl, manufacturer,
+                    sellerId, type);
+        } catch (DuplicateKeyException e) {
+            return new UploadHomeItemResponse(false, DUPLICATE_MESSAGE, null);
         }
-
-        // Update fields
-        existingItem.setTitle(title);
-        existingItem.setDescription(description);
-        existingItem.setTotalQuantity(totalQuantity);
-        existingItem.setPrice(price);
-        existingItem.setImageUrl(imageUrl);
-        existingItem.setManufacturer(manufacturer);
-        existingItem.setSellerId(sellerId);
-        existingItem.setType(type);
-
-        HomeItem updatedItem = homeItemService.save(existingItem);
-        return new UploadHomeItemResponse(true, "Home item updated successfully.", updatedItem);
     }
 
     @QueryMapping
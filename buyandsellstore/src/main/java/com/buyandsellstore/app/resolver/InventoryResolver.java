@@ -0,0 +1,53 @@
+package com.buyandsellstore.app.resolver;
+
+import com.buyandsellstore.app.dto.InventoryUpdateResult;
+import com.buyandsellstore.app.dto.PricePoint;
+import com.buyandsellstore.app.dto.ResponseMessage;
+import com.buyandsellstore.app.model.InventoryUpdate;
+import com.buyandsellstore.app.service.HotInventoryService;
+import com.buyandsellstore.app.service.InventoryService;
+import com.buyandsellstore.app.service.PriceHistoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.List;
+
+@Controller
+public class InventoryResolver {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private PriceHistoryService priceHistoryService;
+
+    @Autowired
+    private HotInventoryService hotInventoryService;
+
+    // Stock and price changes across a seller's catalog in one call; one result per update, in order
+    @MutationMapping
+    public List<InventoryUpdateResult> updateInventory(@Argument List<InventoryUpdate> updates) {
+        return inventoryService.updateInventory(updates);
+    }
+
+    // Splits an item's stock across shards for a flash sale; disable moves it back onto the item
+    @MutationMapping
+    public ResponseMessage enableHotInventory(@Argument String itemId, @Argument String type, @Argument int shards) {
+        return hotInventoryService.enable(type, itemId, shards);
+    }
+
+    @MutationMapping
+    public ResponseMessage disableHotInventory(@Argument String itemId, @Argument String type) {
+        return hotInventoryService.disable(type, itemId);
+    }
+
+    // Price chart of one item; from/to are ISO-8601 instants, at most maxPoints points come back
+    @QueryMapping
+    public List<PricePoint> priceHistory(@Argument String itemId, @Argument String from, @Argument String to,
+                                         @Argument Integer maxPoints) {
+        return priceHistoryService.priceHistory(itemId, from, to, maxPoints);
+    }
+}
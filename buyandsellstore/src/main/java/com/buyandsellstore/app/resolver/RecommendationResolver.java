@@ -1,7 +1,9 @@
 package com.buyandsellstore.app.resolver;
 
+import com.buyandsellstore.app.dto.TrendingItem;
 import com.buyandsellstore.app.model.Book;
 import com.buyandsellstore.app.service.RecommendationService;
+import com.buyandsellstore.app.service.TrendingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
@@ -15,9 +17,18 @@ public class RecommendationResolver {
     @Autowired
     private RecommendationService recommendationService;
 
+    @Autowired
+    private TrendingService trendingService;
+
     @QueryMapping
     public List<Book> recommendBooksForUser(@Argument String userId) {
         //System.out.println("📡 recommendBooksForUser triggered for userId: " + userId);
         return recommendationService.recommendBooks(userId);
     }
+
+    // Most active items lately, from decayed cart/wishlist/order counters
+    @QueryMapping
+    public List<TrendingItem> trending(@Argument String type, @Argument Integer limit) {
+        return trendingService.trending(type, limit);
+    }
 }
@@ -1,9 +1,15 @@
 package com.buyandsellstore.app.resolver;
 
+import com.buyandsellstore.app.dto.LowStockReport;
 import com.buyandsellstore.app.dto.SellerStats;
+import com.buyandsellstore.app.dto.SellerStorefront;
+import com.buyandsellstore.app.model.ResponseMessage;
+import com.buyandsellstore.app.service.LowStockService;
 import com.buyandsellstore.app.service.OrderService;
+import com.buyandsellstore.app.service.StorefrontService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.stereotype.Controller;
 
@@ -13,9 +19,32 @@ public class SellerResolver {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private LowStockService lowStockService;
+
+    @Autowired
+    private StorefrontService storefrontService;
+
     @QueryMapping(name = "getSellerStatistics")
     public SellerStats getSellerStatistics(@Argument String sellerId) {
         // Use centralized analytics logic from OrderService
         return orderService.getSellerStats(sellerId);
     }
+
+    // Profile, one page of each item kind, counts and rating of a seller in one request
+    @QueryMapping
+    public SellerStorefront sellerStorefront(@Argument String sellerId, @Argument Integer first, @Argument Integer offset) {
+        return storefrontService.sellerStorefront(sellerId, first, offset);
+    }
+
+    // Items at or below the seller's threshold, lowest stock first
+    @QueryMapping
+    public LowStockReport lowStockItems(@Argument String sellerId) {
+        return lowStockService.lowStockItems(sellerId);
+    }
+
+    @MutationMapping
+    public ResponseMessage setLowStockThreshold(@Argument String sellerId, @Argument int threshold) {
+        return lowStockService.setLowStockThreshold(sellerId, threshold);
+    }
 }
@@ -4,6 +4,7 @@ import com.buyandsellstore.app.dto.AuthResponse;
 import com.buyandsellstore.app.model.Address;
 import com.buyandsellstore.app.model.AddressInput;
 import com.buyandsellstore.app.model.User;
+import com.buyandsellstore.app.service.CartService;
 import com.buyandsellstore.app.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
@@ -23,13 +24,16 @@ public class UserResolver {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private CartService cartService;
+
     @QueryMapping
     public String hello() {
         return "Hello Chitra";
     }
 
     @MutationMapping
-    public AuthResponse login(@Argument String username, @Argument String password) {
+    public AuthResponse login(@Argument String username, @Argument String password, @Argument String guestCartToken) {
         // Validate input arguments
         if (username == null || username.trim().isEmpty() || password == null || password.trim().isEmpty()) {
             return new AuthResponse(false, "Username or password cannot be empty.", null);
@@ -40,8 +44,12 @@ public class UserResolver {
             if (user == null) {
                 return new AuthResponse(false, "Invalid credentials.", null);
             }
-            // Successful login
-            return new AuthResponse(true, "Login successful!", user);
+            // Successful login; a cart built before logging in moves into the user's cart
+            AuthResponse response = new AuthResponse(true, "Login successful!", user);
+            if (guestCartToken != null) {
+                response.setCartMerge(cartService.mergeGuestCart(user.getId(), guestCartToken));
+            }
+            return response;
         } catch (Exception e) {
             e.printStackTrace();
             return new AuthResponse(false, "An error occurred during login. Please try again.", null);
@@ -0,0 +1,106 @@
+package com.buyandsellstore.app.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size Bloom filter over strings: no false negatives, false positives at roughly
+ * the rate it was sized for as long as no more keys than planned are added.
+ *
+ * The k bit positions come from two 64-bit hashes combined as h1 + i * h2 (Kirsch and
+ * Mitzenmacher), so a key is hashed once. Bits live in an AtomicLongArray, so concurrent
+ * puts and reads need no lock.
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final LongAdder insertions = new LongAdder(); // Puts that set at least one new bit
+
+    private BloomFilter(long bits, int hashes) {
+        this.bits = bits;
+        this.hashes = hashes;
+        this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+    }
+
+    // m = -n ln p / (ln 2)^2 bits and k = m/n ln 2 hashes
+    static BloomFilter create(long expectedKeys, double falsePositiveRate) {
+        long n = Math.max(1, expectedKeys);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = Math.max(64, (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2))));
+        m = Math.min(m, (long) Integer.MAX_VALUE * 64);
+        int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        return new BloomFilter(m, k);
+    }
+
+    void put(String key) {
+        long h1 = hash(key);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0) {
+                if (words.compareAndSet(word, current, current | mask)) {
+                    changed = true;
+                    break;
+                }
+                current = words.get(word);
+            }
+        }
+        if (changed) insertions.increment();
+    }
+
+    boolean mightContain(String key) {
+        long h1 = hash(key);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    // (1 - e^(-kn/m))^k for the keys added so far
+    double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashes * (double) insertions.sum() / bits), hashes);
+    }
+
+    long bits() {
+        return bits;
+    }
+
+    int hashes() {
+        return hashes;
+    }
+
+    long insertions() {
+        return insertions.sum();
+    }
+
+    long sizeBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    // FNV-1a over the chars, then a finalizer to spread the low bits
+    private static long hash(String key) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
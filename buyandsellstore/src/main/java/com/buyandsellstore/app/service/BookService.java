@@ -1,13 +1,25 @@
 package com.buyandsellstore.app.service;
 
+import com.buyandsellstore.app.dto.UploadBookResponse;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
 import com.buyandsellstore.app.model.Book;
 import com.buyandsellstore.app.model.Review;
 import com.buyandsellstore.app.repository.BookRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 
 @Service
 public class BookService {
@@ -15,12 +27,106 @@ public class BookService {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private RankingService rankingService;
+
+    @Autowired
+    private CatalogIdFilter catalogIdFilter;
+
+    private static final int REVIEW_WRITE_ATTEMPTS = 3;
+    private static final int EDIT_ATTEMPTS = 3;
+    static final String HOT_STOCK_MESSAGE = "Stock of this item is sharded for a flash sale; disable hot inventory first.";
+
     public List<Book> getAllBooks() {
         return bookRepository.findAll();
     }
 
+    // Cached; the returned book is shared, so use getBookForUpdate before modifying and saving it
     public Book getBookById(String id) {
-        return bookRepository.findById(id).orElse(null);
+        Book cached = catalogCache.getBook(id);
+        if (cached != null) {
+            Integer stock = getStock(id);
+            // A copy: other readers hold the cached instance
+            return stock == null || stock == cached.getTotalQuantity() ? cached : cached.withTotalQuantity(stock);
+        }
+        if (catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.BOOK, id)) return null;
+        long stamp = catalogCache.stamp();
+        Book book = bookRepository.findById(id).orElse(null);
+        if (book == null) {
+            catalogIdFilter.recordMiss();
+        } else {
+            catalogCache.putBook(book, stamp);
+            catalogCache.putStock(CatalogChangedEvent.BOOK, id, book.getTotalQuantity());
+        }
+        return book;
+    }
+
+    // getById for many ids: cached ones from memory, the rest in one query; ids that do not exist are left out
+    public Map<String, Book> getBooksByIds(Collection<String> ids) {
+        Map<String, Book> found = new LinkedHashMap<>();
+        List<String> toLoad = new ArrayList<>();
+        for (String id : ids) {
+            Book cached = catalogCache.getBook(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else if (!catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.BOOK, id)) {
+                toLoad.add(id);
+            }
+        }
+        if (toLoad.isEmpty()) return found;
+        long stamp = catalogCache.stamp();
+        int loaded = 0;
+        for (Book book : bookRepository.findAllById(toLoad)) {
+            catalogCache.putBook(book, stamp);
+            found.put(book.getId(), book);
+            loaded++;
+        }
+        for (int i = loaded; i < toLoad.size(); i++) catalogIdFilter.recordMiss();
+        return found;
+    }
+
+    // getForUpdate for many ids in one findAllById, e.g. to price a checkout; ids that do not exist are left out
+    public Map<String, Book> getBooksForUpdate(Collection<String> ids) {
+        List<String> toLoad = new ArrayList<>();
+        for (String id : ids) {
+            if (!catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.BOOK, id)) toLoad.add(id);
+        }
+        Map<String, Book> found = new LinkedHashMap<>();
+        if (toLoad.isEmpty()) return found;
+        for (Book book : bookRepository.findAllById(toLoad)) found.put(book.getId(), book);
+        for (int i = found.size(); i < toLoad.size(); i++) catalogIdFilter.recordMiss();
+        return found;
+    }
+
+    // Always reads MongoDB, for read-modify-write paths
+    public Book getBookForUpdate(String id) {
+        if (catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.BOOK, id)) return null;
+        Book book = bookRepository.findById(id).orElse(null);
+        if (book == null) catalogIdFilter.recordMiss();
+        return book;
+    }
+
+    // Current quantity, at most catalog.cache.stock-ttl-ms old
+    public Integer getStock(String id) {
+        Integer stock = catalogCache.getStock(CatalogChangedEvent.BOOK, id);
+        if (stock == null) {
+            Query query = new Query(Criteria.where("_id").is(id));
+            query.fields().include("totalQuantity");
+            Book book = mongoTemplate.findOne(query, Book.class);
+            if (book == null) return null;
+            stock = book.getTotalQuantity();
+            catalogCache.putStock(CatalogChangedEvent.BOOK, id, stock);
+        }
+        return stock;
     }
 
     public Book findByTitleAndSellerId(String title, String sellerId) {
@@ -31,29 +137,74 @@ public class BookService {
         return bookRepository.findBySellerId(sellerId);
     }
 
+    // For new books; edits of a stored one go through updateBook
     public Book save(Book book){
-        return bookRepository.save(book);
+        book.setVersion(book.getVersion() + 1);
+        // New items start at the prior, not below every rated item; refreshPriors only rescores stored scores
+        int reviewCount = book.getReviews() == null ? 0 : book.getReviews().size();
+        book.setReviewCount(reviewCount);
+        book.setRankScore(rankingService.rankScore(CatalogChangedEvent.BOOK, book.getRatings(), reviewCount));
+        Book saved = bookRepository.save(book);
+        eventPublisher.publishEvent(CatalogChangedEvent.of(saved));
+        return saved;
     }
 
 
+    /**
+     * A seller's edit of a stored book: one $set of the edited fields, guarded on the version
+     * it was read at. Stock changes, reviews and write tokens written by others in the
+     * meantime are left as they are; a version that moved in between means a reload and
+     * another try. Throws DuplicateKeyException when the new title clashes.
+     */
+    public UploadBookResponse updateBook(String id, String title, String author, int totalQuantity, double price,
+                                         String imageUrl, String description, String sellerId) {
+        for (int attempt = 0; attempt < EDIT_ATTEMPTS; attempt++) {
+            Book existing = getBookForUpdate(id);
+            if (existing == null) return new UploadBookResponse(false, "Book not found.", null);
+
+            // The shard sum overwrites totalQuantity on the next rebalance, so a restock here would be lost
+            boolean hot = existing.getHotShards() != null;
+            if (hot && totalQuantity != existing.getTotalQuantity()) {
+                return new UploadBookResponse(false, HOT_STOCK_MESSAGE, null);
+            }
+            Update edit = new Update()
+                    .set("title", title)
+                    .set("author", author)
+                    .set("price", price)
+                    .set("imageUrl", imageUrl)
+                    .set("description", description)
+                    .set("sellerId", sellerId)
+                    .inc("version", 1);
+            if (!hot) edit.set("totalQuantity", totalQuantity);
+            Criteria unchanged = Criteria.where("_id").is(id);
+            // Documents written before versions existed have no field, which reads as 0
+            unchanged = existing.getVersion() == 0 ? unchanged.and("version").in(0, null)
+                    : unchanged.and("version").is(existing.getVersion());
+            Book updated = mongoTemplate.findAndModify(new Query(unchanged), edit,
+                    FindAndModifyOptions.options().returnNew(true), Book.class);
+            if (updated != null) {
+                eventPublisher.publishEvent(CatalogChangedEvent.of(updated));
+                return new UploadBookResponse(true, "Book updated successfully.", updated);
+            }
+        }
+        return new UploadBookResponse(false, "Book is being changed, please retry.", null);
+    }
+
     // Add a review to a book
     public Book addReview(String bookId, Review newReview) {
-        Book book = bookRepository.findById(bookId).orElse(null);
-        if (book != null) {
+        return updateReviews(bookId, book -> {
             List<Review> reviews = book.getReviews();
             if (reviews == null) reviews = new ArrayList<>();
             reviews.add(newReview);
             book.setReviews(reviews);
-            updateAverageRating(book);
-            bookRepository.save(book);
-        }
-        return book;
+            return true;
+        });
     }
 
     // Update a review by reviewer name
     public Book updateReview(String bookId, String reviewer, Review updatedReview) {
-        Book book = bookRepository.findById(bookId).orElse(null);
-        if (book != null && book.getReviews() != null) {
+        return updateReviews(bookId, book -> {
+            if (book.getReviews() == null) return false;
             for (Review review : book.getReviews()) {
                 if (review.getReviewer().equalsIgnoreCase(reviewer)) {
                     review.setComment(updatedReview.getComment());
@@ -62,21 +213,34 @@ public class BookService {
                     break;
                 }
             }
-            updateAverageRating(book);
-            bookRepository.save(book);
-        }
-        return book;
+            return true;
+        });
     }
 
     // Delete a review by reviewer name
     public Book deleteReview(String bookId, String reviewer) {
-        Book book = bookRepository.findById(bookId).orElse(null);
-        if (book != null && book.getReviews() != null) {
+        return updateReviews(bookId, book -> {
+            if (book.getReviews() == null) return false;
             book.getReviews().removeIf(review -> review.getReviewer().equalsIgnoreCase(reviewer));
+            return true;
+        });
+    }
+
+    // Applies a review change and stores it with the new rating and rank score in one
+    // conditional write; reloads and retries when another review landed in between
+    private Book updateReviews(String bookId, Predicate<Book> change) {
+        for (int attempt = 0; attempt < REVIEW_WRITE_ATTEMPTS; attempt++) {
+            Book book = bookRepository.findById(bookId).orElse(null);
+            if (book == null || !change.test(book)) return book;
             updateAverageRating(book);
-            bookRepository.save(book);
+            book.setReviewCount(book.getReviews().size());
+            book.setRankScore(rankingService.rankScore(CatalogChangedEvent.BOOK, book.getRatings(), book.getReviewCount()));
+            if (bookRepository.updateReviews(book)) {
+                eventPublisher.publishEvent(CatalogChangedEvent.of(book));
+                return book;
+            }
         }
-        return book;
+        throw new RuntimeException("Book " + bookId + " is being reviewed concurrently, please retry");
     }
 
     // Recalculate average rating after add/update/delete
@@ -0,0 +1,92 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.BrowseResult;
+import com.buyandsellstore.app.event.CacheInvalidationEvent;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.BrowseFilter;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.repository.HomeItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Category pages: filters home items and returns facet counts from an in-memory
+ * {@link FacetIndex}, so only the requested page is read from MongoDB. Changes that arrive
+ * while the index is loaded are applied after the load, see {@link SnapshotGate}.
+ */
+@Service
+public class BrowseService {
+
+    private static final Logger log = LoggerFactory.getLogger(BrowseService.class);
+
+    @Autowired
+    private HomeItemRepository homeItemRepository;
+
+    @Value("${catalog.browse.default-page-size:24}")
+    private int defaultPageSize;
+
+    @Value("${catalog.browse.max-facet-values:20}")
+    private int maxFacetValues;
+
+    private final FacetIndex index = new FacetIndex();
+    private final SnapshotGate gate = new SnapshotGate();
+
+    public BrowseResult browse(BrowseFilter filter, Integer first, Integer offset) {
+        int limit = first == null ? defaultPageSize : Math.max(0, Math.min(first, 100));
+        FacetIndex.Page page = index.browse(filter, offset == null ? 0 : Math.max(0, offset), limit, maxFacetValues);
+
+        // One round trip for the page, returned in index order
+        Map<String, HomeItem> byId = new HashMap<>();
+        homeItemRepository.findAllById(page.ids).forEach(item -> byId.put(item.getId(), item));
+        List<HomeItem> items = new ArrayList<>(page.ids.size());
+        for (String id : page.ids) {
+            HomeItem item = byId.get(id);
+            if (item != null) items.add(item);
+        }
+        return new BrowseResult(page.total, items, page.types, page.manufacturers, page.prices);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCatalog() {
+        Thread loader = new Thread(() -> {
+            gate.load(() -> homeItemRepository.findAll().forEach(this::index));
+            log.info("Browse facet index loaded: {} home items", index.size());
+        }, "catalog-browse-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.getHomeItem() != null) {
+            gate.apply(() -> index(event.getHomeItem()));
+        }
+    }
+
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        if (event.getSource() != CacheInvalidationEvent.Source.HOME_ITEMS) return;
+        if (event.isAll()) {
+            // Cleared first, or items deleted while the stream was down would stay browsable
+            index.clear();
+            loadCatalog();
+        } else if (event.isDeleted()) {
+            gate.apply(() -> index.remove(event.getDocumentId()));
+        }
+    }
+
+    private void index(HomeItem item) {
+        index.upsert(item.getId(), item.getType(), item.getManufacturer(), item.getSellerId(),
+                item.getPrice(), item.getRatings());
+    }
+}
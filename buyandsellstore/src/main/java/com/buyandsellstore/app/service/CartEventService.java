@@ -0,0 +1,167 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CartLifecycleEvent;
+import com.buyandsellstore.app.model.CartEvent;
+import com.buyandsellstore.app.model.SellerCartDay;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cart analytics kept as it happens instead of scanning every cart.
+ *
+ * Each CartLifecycleEvent is queued in memory and written every {@code analytics.cart.flush-ms}:
+ * the events go to the append-only cartEvents collection in one insert, and the units added,
+ * removed, ordered and expired per seller and UTC day are folded into sellerCartDays with one unordered
+ * bulk of $inc upserts. A seller's abandonment rate over the last
+ * {@code analytics.cart.window-days} is then a read of that many small documents by id,
+ * however many carts there are. The queue is bounded by {@code analytics.cart.max-pending};
+ * events beyond it, or in a batch MongoDB rejected, are dropped and counted, never retried,
+ * so analytics can not slow down or fail a cart change.
+ */
+@Service
+public class CartEventService {
+
+    private static final Logger log = LoggerFactory.getLogger(CartEventService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${analytics.cart.window-days:30}")
+    private int windowDays = 30;
+
+    @Value("${analytics.cart.max-pending:100000}")
+    private int maxPending = 100000;
+
+    private final Queue<CartLifecycleEvent> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    @EventListener
+    public void onCartEvent(CartLifecycleEvent event) {
+        if (pendingCount.incrementAndGet() > maxPending) {
+            pendingCount.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        pending.add(event);
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.cart.flush-ms:1000}")
+    public void flush() {
+        List<CartLifecycleEvent> batch = new ArrayList<>();
+        CartLifecycleEvent event;
+        while ((event = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            batch.add(event);
+        }
+        if (batch.isEmpty()) return;
+
+        List<CartEvent> documents = new ArrayList<>(batch.size());
+        Map<String, long[]> days = new LinkedHashMap<>(); // sellerCartDays id -> added, ordered, expired, removed
+        for (CartLifecycleEvent e : batch) {
+            documents.add(new CartEvent(e.getKind().name(), e.getUserId(), e.getSellerId(), e.getType(),
+                    e.getItemId(), e.getQuantity(), new Date(e.getAt())));
+            int column = e.getKind() == CartLifecycleEvent.Kind.ITEM_ADDED ? 0
+                    : e.getKind() == CartLifecycleEvent.Kind.ORDERED ? 1
+                    : e.getKind() == CartLifecycleEvent.Kind.EXPIRED ? 2
+                    : e.getKind() == CartLifecycleEvent.Kind.REMOVED ? 3 : -1;
+            if (column < 0 || e.getSellerId() == null) continue;
+            days.computeIfAbsent(SellerCartDay.id(e.getSellerId(), day(e.getAt())), id -> new long[4])[column] += e.getQuantity();
+        }
+
+        try {
+            mongoTemplate.insert(documents, CartEvent.class);
+            written.add(documents.size());
+        } catch (RuntimeException ex) {
+            dropped.add(documents.size());
+            log.warn("Could not write {} cart events: {}", documents.size(), ex.getMessage());
+        }
+        if (days.isEmpty()) return;
+        List<Pair<Query, Update>> counters = new ArrayList<>(days.size());
+        for (Map.Entry<String, long[]> entry : days.entrySet()) {
+            int split = entry.getKey().lastIndexOf(':');
+            long[] units = entry.getValue();
+            counters.add(Pair.of(new Query(Criteria.where("_id").is(entry.getKey())), new Update()
+                    .inc("added", units[0]).inc("ordered", units[1]).inc("expired", units[2]).inc("removed", units[3])
+                    .setOnInsert("sellerId", entry.getKey().substring(0, split))
+                    .setOnInsert("day", entry.getKey().substring(split + 1))));
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SellerCartDay.class).upsert(counters).execute();
+        } catch (RuntimeException ex) {
+            log.warn("Could not update the cart counters of {} seller days: {}", counters.size(), ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Share of the units of the seller's items put in carts over the last window-days (today
+     * included) that were neither ordered nor taken out again by the user in that window, in
+     * percent. Reads one document per day.
+     */
+    public double abandonmentRate(String sellerId) {
+        long[] totals = totals(sellerId, System.currentTimeMillis());
+        if (totals[0] == 0) return 0.0;
+        // Orders of units carted before the window can outnumber the adds inside it
+        return Math.max(0.0, 1 - (double) (totals[1] + totals[3]) / totals[0]) * 100;
+    }
+
+    // Added, ordered, expired and removed units of the seller in the window ending on the day of now
+    long[] totals(String sellerId, long now) {
+        LocalDate today = LocalDate.ofInstant(Instant.ofEpochMilli(now), ZoneOffset.UTC);
+        List<String> ids = new ArrayList<>(windowDays);
+        for (int i = 0; i < windowDays; i++) ids.add(SellerCartDay.id(sellerId, today.minusDays(i).toString()));
+        long[] totals = new long[4];
+        for (SellerCartDay day : mongoTemplate.find(new Query(Criteria.where("_id").in(ids)), SellerCartDay.class)) {
+            totals[0] += day.getAdded();
+            totals[1] += day.getOrdered();
+            totals[2] += day.getExpired();
+            totals[3] += day.getRemoved();
+        }
+        return totals;
+    }
+
+    private static String day(long epochMillis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC).toString();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", pendingCount.get());
+        stats.put("written", written.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("windowDays", windowDays);
+        return stats;
+    }
+}
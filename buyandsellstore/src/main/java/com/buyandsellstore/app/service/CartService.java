@@ -1,17 +1,38 @@
 package com.buyandsellstore.app.service;
 
+import com.buyandsellstore.app.dto.AddItemsToCartResponse;
+import com.buyandsellstore.app.dto.CartLineCheck;
+import com.buyandsellstore.app.dto.CartLineResult;
+import com.buyandsellstore.app.dto.CartValidationResponse;
+import com.buyandsellstore.app.dto.GuestCartResponse;
+import com.buyandsellstore.app.dto.InventoryUpdateResult;
 import com.buyandsellstore.app.dto.ResponseMessage;
+import com.buyandsellstore.app.event.CartLifecycleEvent;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.event.ItemActivityEvent;
+import com.buyandsellstore.app.model.Book;
 import com.buyandsellstore.app.model.Cart;
 import com.buyandsellstore.app.model.CartItem;
-import com.buyandsellstore.app.repository.BookRepository;
+import com.buyandsellstore.app.model.CartLineRequest;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.ItemType;
 import com.buyandsellstore.app.repository.CartRepository;
-import com.buyandsellstore.app.repository.HomeItemRepository;
+import com.mongodb.client.result.UpdateResult;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class CartService {
@@ -19,126 +40,456 @@ public class CartService {
     private CartRepository cartRepository;
 
     @Autowired
-    private BookRepository bookRepository; // For fetching book details if the type is 'book'
+    private BookService bookService; // For fetching book details if the type is 'book' (cached)
 
     @Autowired
-    private HomeItemRepository homeItemRepository; // For fetching book details if the type is 'book'
+    private HomeItemService homeItemService;
 
-    public ResponseMessage addToCart(String userId, String itemId, String type) {
-        // Fetch the existing cart for the user
-        Optional<Cart> optionalCart = cartRepository.findByUserId(userId);
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
-        Cart cart;
-        if (optionalCart.isPresent()) {
-            cart = optionalCart.get();
-        } else {
-            // Create a new cart if it doesn't exist
-            cart = new Cart();
-            cart.setUserId(userId);
-        }
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private GuestCartStore guestCartStore;
 
-        // Check if the item already exists in the cart
-        boolean itemExists = cart.getItems().stream()
-                .anyMatch(cartItem -> cartItem.getItemId().equals(itemId) && cartItem.getType().equalsIgnoreCase(type));
+    @Autowired
+    private CartWriteBuffer cartWriteBuffer;
 
-        if (itemExists) {
-            // Update the quantity of the existing item
-            cart.getItems().forEach(cartItem -> {
-                if (cartItem.getItemId().equals(itemId) && cartItem.getType().equalsIgnoreCase(type)) {
-                    cartItem.setQuantity(cartItem.getQuantity() + 1); // Increment quantity
-                }
+    // How long units stay held in a cart after the last add, see ReservationService
+    @Value("${cart.reservation.ttl-ms:1800000}")
+    private long reservationTtlMs = 1800000;
+
+    @Value("${cart.max-lines:100}")
+    private int maxLines = 100;
+
+    public ResponseMessage addToCart(String userId, String itemId, String type) {
+        // Line details in case the item is not in the cart yet; the catalog lookups are cached
+        CartItem cartItem = new CartItem();
+        cartItem.setItemId(itemId);
+        cartItem.setType(type);
+        cartItem.setQuantity(1);
+        cartItem.setReservedUntil(new Date(System.currentTimeMillis() + reservationTtlMs));
+        if ("book".equalsIgnoreCase(type)) {
+            Optional.ofNullable(bookService.getBookById(itemId)).ifPresent(book -> {
+                cartItem.setName(book.getTitle());
+                cartItem.setPrice(book.getPrice());
+                cartItem.setImageUrl(book.getImageUrl());
+                cartItem.setSellerId(book.getSellerId());
+            });
+        } else if ("home".equalsIgnoreCase(type)) {
+            Optional.ofNullable(homeItemService.getHomeItemById(itemId)).ifPresent(homeItem -> {
+                cartItem.setName(homeItem.getTitle());
+                cartItem.setPrice(homeItem.getPrice());
+                cartItem.setImageUrl(homeItem.getImageUrl());
+                cartItem.setSellerId(homeItem.getSellerId());
             });
         } else {
-            // Create a new CartItem
-            CartItem cartItem = new CartItem();
-            cartItem.setItemId(itemId);
-            cartItem.setType(type);
-
-            if ("book".equalsIgnoreCase(type)) {
-                // Fetch book details
-                bookRepository.findById(itemId).ifPresent(book -> {
-                    cartItem.setName(book.getTitle());
-                    cartItem.setPrice(book.getPrice());
-                    cartItem.setQuantity(1); // Default to 1
-                    cartItem.setImageUrl(book.getImageUrl()); // Default to 1
-                });
-            } else if ("home".equalsIgnoreCase(type)) {
-                homeItemRepository.findById(itemId).ifPresent(homeItem -> {
-                    cartItem.setName(homeItem.getTitle());
-                    cartItem.setPrice(homeItem.getPrice());
-                    cartItem.setQuantity(1); // Default to 1
-                    cartItem.setImageUrl(homeItem.getImageUrl()); // Default to 1
-                });
-            }else {
-                // For other types, add custom logic here
-                cartItem.setName("Unknown Item");
-                cartItem.setPrice(0.0);
-                cartItem.setQuantity(1);
+            // For other types, add custom logic here
+            cartItem.setName("Unknown Item");
+            cartItem.setPrice(0.0);
+        }
+
+        if (cartWriteBuffer.isEnabled()) {
+            cartWriteBuffer.add(userId, cartItem); // Written with the user's other clicks on the next flush, which reports CREATED
+        } else if (cartRepository.addLine(userId, cartItem)) {
+            // One server-side update: increments the existing line (renewing its hold) or appends this one, creating the cart if needed
+            eventPublisher.publishEvent(CartLifecycleEvent.created(userId));
+        }
+        eventPublisher.publishEvent(new ItemActivityEvent(type, itemId, ItemActivityEvent.Kind.CART, 1));
+        eventPublisher.publishEvent(new CartLifecycleEvent(CartLifecycleEvent.Kind.ITEM_ADDED, userId,
+                cartItem.getSellerId(), type, itemId, 1));
+
+        return new ResponseMessage(true, "Item added to cart successfully.");
+    }
+
+
+    /**
+     * Adds many lines at once, e.g. a previous order again or a whole wishlist. Stock for all
+     * lines is taken in one bulk write per collection and every reserved line goes into the
+     * cart in one update; each line reports its own outcome, so some can be added while others
+     * are sold out.
+     */
+    public AddItemsToCartResponse addItemsToCart(String userId, List<CartLineRequest> lines) {
+        List<CartLineResult> results = new ArrayList<>(lines.size());
+        Map<String, Map<String, Integer>> wanted = new LinkedHashMap<>(); // type -> itemId -> quantity
+        Map<String, CartLineResult> byKey = new HashMap<>();
+
+        for (int i = 0; i < lines.size(); i++) {
+            CartLineRequest line = lines.get(i);
+            String type = line.getType() == null ? null : line.getType().toLowerCase(Locale.ROOT);
+            CartLineResult result = new CartLineResult(line.getItemId(), type, line.getQuantity());
+            results.add(result);
+
+            String problem = validate(line, type);
+            if (problem == null && i >= maxLines) problem = "At most " + maxLines + " lines per request";
+            if (problem == null && byKey.putIfAbsent(type + ":" + line.getItemId(), result) != null) problem = "Item listed more than once";
+            if (problem != null) {
+                result.setStatus(CartLineResult.INVALID);
+                result.setMessage(problem);
+            } else {
+                wanted.computeIfAbsent(type, t -> new LinkedHashMap<>()).put(line.getItemId(), line.getQuantity());
             }
+        }
 
-            // Add the new item to the cart
-            cart.getItems().add(cartItem);
+        Date reservedUntil = new Date(System.currentTimeMillis() + reservationTtlMs);
+        List<CartItem> cartLines = new ArrayList<>();
+        Map<String, Map<String, Integer>> reserved = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Integer>> entry : wanted.entrySet()) {
+            String type = entry.getKey();
+            boolean books = CatalogChangedEvent.BOOK.equals(type);
+            Map<String, ?> items = books ? bookService.getBooksByIds(entry.getValue().keySet())
+                    : homeItemService.getHomeItemsByIds(entry.getValue().keySet());
+            Map<String, Integer> existing = new LinkedHashMap<>(entry.getValue());
+            existing.keySet().retainAll(items.keySet());
+            Map<String, String> outcome = inventoryService.reserveAll(books ? Book.class : HomeItem.class, existing);
+
+            for (Map.Entry<String, Integer> want : entry.getValue().entrySet()) {
+                CartLineResult result = byKey.get(type + ":" + want.getKey());
+                String status = outcome.getOrDefault(want.getKey(), InventoryUpdateResult.NOT_FOUND);
+                if (InventoryUpdateResult.UPDATED.equals(status)) {
+                    Object item = items.get(want.getKey());
+                    CartItem cartLine = item instanceof Book book
+                            ? cartLine(want.getKey(), type, want.getValue(), book.getTitle(), book.getPrice(), book.getImageUrl(), reservedUntil)
+                            : cartLine(want.getKey(), type, want.getValue(), ((HomeItem) item).getTitle(),
+                                    ((HomeItem) item).getPrice(), ((HomeItem) item).getImageUrl(), reservedUntil);
+                    cartLine.setSellerId(item instanceof Book book ? book.getSellerId() : ((HomeItem) item).getSellerId());
+                    cartLines.add(cartLine);
+                    reserved.computeIfAbsent(type, t -> new LinkedHashMap<>()).put(want.getKey(), want.getValue());
+                    result.setStatus(CartLineResult.ADDED);
+                } else if (InventoryUpdateResult.INSUFFICIENT_STOCK.equals(status)) {
+                    result.setStatus(CartLineResult.INSUFFICIENT_STOCK);
+                    result.setMessage("Not enough stock for " + want.getValue() + ".");
+                } else {
+                    result.setStatus(CartLineResult.NOT_FOUND);
+                    result.setMessage("Item not found.");
+                }
+            }
         }
 
-        // Save the updated cart
-        cartRepository.save(cart);
+        if (!cartLines.isEmpty()) {
+            try {
+                cartWriteBuffer.flushUser(userId); // Buffered clicks first, so the cart holds them when this lands
+                if (cartRepository.addLines(userId, cartLines)) eventPublisher.publishEvent(CartLifecycleEvent.created(userId));
+            } catch (RuntimeException e) {
+                // Nothing was added, so give every reserved unit back
+                reserved.forEach((type, units) -> inventoryService.releaseAll(
+                        CatalogChangedEvent.BOOK.equals(type) ? Book.class : HomeItem.class, units));
+                for (CartItem cartLine : cartLines) {
+                    CartLineResult result = byKey.get(cartLine.getType() + ":" + cartLine.getItemId());
+                    result.setStatus(CartLineResult.FAILED);
+                    result.setMessage("Failed to add item to cart.");
+                }
+                cartLines.clear();
+            }
+        }
+        for (CartItem cartLine : cartLines) {
+            eventPublisher.publishEvent(new ItemActivityEvent(cartLine.getType(), cartLine.getItemId(),
+                    ItemActivityEvent.Kind.CART, cartLine.getQuantity()));
+            eventPublisher.publishEvent(new CartLifecycleEvent(CartLifecycleEvent.Kind.ITEM_ADDED, userId,
+                    cartLine.getSellerId(), cartLine.getType(), cartLine.getItemId(), cartLine.getQuantity()));
+        }
 
-        return new ResponseMessage(true, "Item added to cart successfully.");
+        boolean success = !results.isEmpty() && cartLines.size() == results.size();
+        return new AddItemsToCartResponse(success,
+                "Added " + cartLines.size() + " of " + results.size() + " items to the cart.", results);
     }
 
+    /**
+     * Adds one unit to a visitor's cart, which lives in memory (see GuestCartStore). Nothing
+     * is written to MongoDB and no stock is reserved until the cart is merged at login; stock
+     * is only checked against the cached quantity. A missing or expired token starts a new cart.
+     */
+    public GuestCartResponse addToGuestCart(String token, String itemId, String type) {
+        String normalized = type == null ? null : type.toLowerCase(Locale.ROOT);
+        Object item = CatalogChangedEvent.BOOK.equals(normalized) ? bookService.getBookById(itemId)
+                : CatalogChangedEvent.HOME.equals(normalized) ? homeItemService.getHomeItemById(itemId) : null;
+        if (item == null) return new GuestCartResponse(false, "Item not found.", token, guestCartItems(token));
+        int stock = item instanceof Book book ? book.getTotalQuantity() : ((HomeItem) item).getTotalQuantity();
+        if (stock < 1) return new GuestCartResponse(false, "Item not available anymore!", token, guestCartItems(token));
+        CartItem line = item instanceof Book book
+                ? cartLine(itemId, normalized, 1, book.getTitle(), book.getPrice(), book.getImageUrl(), null)
+                : cartLine(itemId, normalized, 1, ((HomeItem) item).getTitle(), ((HomeItem) item).getPrice(),
+                        ((HomeItem) item).getImageUrl(), null);
 
-    public List<CartItem> getAllCartItemsForUser(String userId) {
-        // Check if the cart for the user exists
-        Optional<Cart> cart = cartRepository.findByUserId(userId);
-        return cart.map(Cart::getItems).orElse(new ArrayList<>());
+        boolean[] full = {false};
+        List<CartItem> items = guestCartStore.update(token, lines -> full[0] = !addUnit(lines, line));
+        if (items == null) {
+            token = guestCartStore.newToken();
+            guestCartStore.create(token);
+            items = guestCartStore.update(token, lines -> addUnit(lines, line));
+        }
+        if (full[0]) return new GuestCartResponse(false, "At most " + maxLines + " different items per cart.", token, items);
+        return new GuestCartResponse(true, "Item added to cart successfully.", token, items == null ? List.of() : items);
     }
 
-    public ResponseMessage removeFromCart(String userId, String itemId, String type) {
+    public GuestCartResponse removeFromGuestCart(String token, String itemId, String type) {
+        boolean[] found = {false};
+        List<CartItem> items = guestCartStore.update(token, lines -> {
+            for (int i = 0; i < lines.size(); i++) {
+                CartItem line = lines.get(i);
+                if (line.getItemId().equals(itemId) && line.getType().equalsIgnoreCase(type)) {
+                    line.setQuantity(line.getQuantity() - 1);
+                    if (line.getQuantity() <= 0) lines.remove(i);
+                    found[0] = true;
+                    return;
+                }
+            }
+        });
+        if (items == null) return new GuestCartResponse(false, "Cart not found.", token, List.of());
+        if (!found[0]) return new GuestCartResponse(false, "Item not found in the cart.", token, items);
+        return new GuestCartResponse(true, "Item quantity reduced successfully.", token, items);
+    }
 
-        Optional<Cart> optionalCart = cartRepository.findByUserId(userId);
+    public List<CartItem> guestCartItems(String token) {
+        List<CartItem> items = guestCartStore.get(token);
+        return items == null ? new ArrayList<>() : items;
+    }
 
-        if (optionalCart.isEmpty()) {
-            return new ResponseMessage(false, "Cart not found for the user.");
+    /**
+     * Moves a guest cart into the user's cart at login through addItemsToCart: the stock is
+     * reserved and all lines land in one cart update. Lines that could not be written go back
+     * to the guest cart; sold-out ones are reported and dropped. Null when there is no guest cart.
+     */
+    public AddItemsToCartResponse mergeGuestCart(String userId, String token) {
+        List<CartItem> lines = guestCartStore.take(token);
+        if (lines == null || lines.isEmpty()) return null;
+        List<CartLineRequest> requests = new ArrayList<>(lines.size());
+        for (CartItem line : lines) {
+            requests.add(new CartLineRequest(line.getItemId(), line.getType(), line.getQuantity()));
+        }
+        AddItemsToCartResponse merged;
+        try {
+            merged = addItemsToCart(userId, requests);
+        } catch (RuntimeException e) {
+            guestCartStore.restore(token, lines);
+            return new AddItemsToCartResponse(false, "Could not move the guest cart, it is kept for later.", List.of());
+        }
+        List<CartItem> failed = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            if (CartLineResult.FAILED.equals(merged.getResults().get(i).getStatus())) failed.add(lines.get(i));
         }
+        if (!failed.isEmpty()) guestCartStore.restore(token, failed);
+        return merged;
+    }
 
-        Cart cart = optionalCart.get();
+    /**
+     * The user's cart lines for checkout, with every hold renewed in the same update so the
+     * reservation sweep can not give their units back while the order is placed: every unit of
+     * the returned lines is reserved for this user. Buffered cart clicks are written first.
+     */
+    public List<CartItem> claimCart(String userId) {
+        cartWriteBuffer.flushUser(userId);
+        Cart cart = cartRepository.renewHolds(userId, new Date(System.currentTimeMillis() + reservationTtlMs));
+        return cart == null ? new ArrayList<>() : cart.getItems();
+    }
 
-        // this is because we call this type of remove query from frontend only when we want to delete the entire cart
-        if (itemId == null && type == null) {
-            cartRepository.delete(cart);
-            return new ResponseMessage(true, "Entire cart deleted successfully.");
+    // Empties the cart and returns the lines it had, whose units now belong to the caller
+    public List<CartItem> takeCart(String userId) {
+        Cart cart = cartRepository.takeLines(userId);
+        return cart == null ? new ArrayList<>() : cart.getItems();
+    }
+
+    // Puts lines from takeCart back, e.g. when the order could not be placed; their units are still reserved
+    public void restoreCart(String userId, List<CartItem> lines) {
+        if (!lines.isEmpty()) cartRepository.addLines(userId, lines);
+    }
+
+    // The user's cart at current prices and stock, e.g. before showing the checkout page
+    public CartValidationResponse validateCart(String userId) {
+        List<CartItem> cart = getAllCartItemsForUser(userId);
+        return revalidate(cart, cart);
+    }
+
+    /**
+     * Reprices lines against MongoDB and checks that each can still be had, with one findAllById
+     * per item type however many lines there are. Units that a line of {@code cart} still holds
+     * (its reservation has not run out) count as available; anything beyond them has to be in
+     * stock now. The total is what the available lines cost at current prices.
+     */
+    public CartValidationResponse revalidate(List<CartItem> lines, List<CartItem> cart) {
+        Date now = new Date();
+        Map<String, Integer> held = new HashMap<>();
+        for (CartItem line : cart) {
+            // Lines added before reservations could expire hold their units for good
+            if (line.getReservedUntil() == null || line.getReservedUntil().after(now)) {
+                held.merge(lineKey(line.getType(), line.getItemId()), line.getQuantity(), Integer::sum);
+            }
         }
+        Map<String, Set<String>> ids = new HashMap<>();
+        for (CartItem line : lines) {
+            ids.computeIfAbsent(ItemType.normalize(line.getType()), t -> new LinkedHashSet<>()).add(line.getItemId());
+        }
+        Map<String, Book> books = ids.containsKey(CatalogChangedEvent.BOOK)
+                ? bookService.getBooksForUpdate(ids.get(CatalogChangedEvent.BOOK)) : Map.of();
+        Map<String, HomeItem> homeItems = ids.containsKey(CatalogChangedEvent.HOME)
+                ? homeItemService.getHomeItemsForUpdate(ids.get(CatalogChangedEvent.HOME)) : Map.of();
+
+        List<CartLineCheck> checks = new ArrayList<>(lines.size());
+        List<CartItem> items = new ArrayList<>(lines.size());
+        Map<String, Integer> stockLeft = new HashMap<>(); // Several lines may share an item
+        double total = 0;
+        int priceChanges = 0;
+        int unavailable = 0;
+        for (CartItem line : lines) {
+            String type = ItemType.normalize(line.getType());
+            String key = lineKey(type, line.getItemId());
+            CartLineCheck check = new CartLineCheck(line.getItemId(), line.getType(), line.getQuantity(), line.getPrice());
+            checks.add(check);
+            Book book = CatalogChangedEvent.BOOK.equals(type) ? books.get(line.getItemId()) : null;
+            HomeItem homeItem = CatalogChangedEvent.HOME.equals(type) ? homeItems.get(line.getItemId()) : null;
+            if (book == null && homeItem == null) {
+                check.setStatus(CartLineCheck.NOT_FOUND);
+                check.setMessage("Item not found.");
+                unavailable++;
+                continue;
+            }
+            double price = book != null ? book.getPrice() : homeItem.getPrice();
+            check.setPrice(price);
 
-        boolean itemFound = false;
+            int fromHeld = Math.min(line.getQuantity(), held.getOrDefault(key, 0));
+            held.put(key, held.getOrDefault(key, 0) - fromHeld);
+            int left = stockLeft.getOrDefault(key, book != null ? book.getTotalQuantity() : homeItem.getTotalQuantity());
+            int needed = line.getQuantity() - fromHeld;
+            if (needed > left) {
+                check.setStatus(CartLineCheck.INSUFFICIENT_STOCK);
+                check.setMessage("Not enough stock for " + line.getQuantity() + ".");
+                unavailable++;
+                continue;
+            }
+            stockLeft.put(key, left - needed);
 
-        // Iterate through items to find the matching one
-        for (CartItem cartItem : cart.getItems()) {
-            if (cartItem.getItemId().equals(itemId) && cartItem.getType().equalsIgnoreCase(type)) {
-                itemFound = true;
+            if (Math.abs(price - line.getPrice()) >= 0.005) {
+                check.setStatus(CartLineCheck.PRICE_CHANGED);
+                check.setMessage(String.format(Locale.ROOT, "Price changed from %.2f to %.2f.", line.getPrice(), price));
+                priceChanges++;
+            } else {
+                check.setStatus(CartLineCheck.OK);
+            }
+            CartItem item = book != null
+                    ? cartLine(line.getItemId(), line.getType(), line.getQuantity(), book.getTitle(), price, book.getImageUrl(), line.getReservedUntil())
+                    : cartLine(line.getItemId(), line.getType(), line.getQuantity(), homeItem.getTitle(), price,
+                            homeItem.getImageUrl(), line.getReservedUntil());
+            item.setSellerId(book != null ? book.getSellerId() : homeItem.getSellerId());
+            items.add(item);
+            total += price * line.getQuantity();
+        }
 
-                // Reduce quantity by 1
-                cartItem.setQuantity(cartItem.getQuantity() - 1);
+        total = Math.round(total * 100) / 100.0;
+        boolean valid = !lines.isEmpty() && priceChanges == 0 && unavailable == 0;
+        String message = lines.isEmpty() ? "Cart is empty."
+                : unavailable > 0 ? unavailable + " of " + lines.size() + " items are no longer available."
+                : priceChanges > 0 ? priceChanges + " of " + lines.size() + " prices changed since the items were added."
+                : "Cart is ready for checkout.";
+        return new CartValidationResponse(valid, message, total, priceChanges, unavailable, checks, items);
+    }
 
-                // If quantity becomes zero, remove the item
-                if (cartItem.getQuantity() <= 0) {
-                    cart.getItems().remove(cartItem);
-                }
-                break;
+    // The key ItemType.lineKey gives, without its checks: a line that could never be stored is still reported
+    private static String lineKey(String type, String itemId) {
+        return ItemType.normalize(type) + ":" + itemId;
+    }
+
+    // One more unit of the line's item; false when that would exceed cart.max-lines distinct items
+    private boolean addUnit(List<CartItem> lines, CartItem line) {
+        for (CartItem existing : lines) {
+            if (existing.getItemId().equals(line.getItemId()) && existing.getType().equalsIgnoreCase(line.getType())) {
+                existing.setQuantity(existing.getQuantity() + 1);
+                return true;
             }
         }
+        if (lines.size() >= maxLines) return false;
+        lines.add(line);
+        return true;
+    }
 
-        if (!itemFound) {
-            return new ResponseMessage(false, "Item not found in the cart.");
+    private static String validate(CartLineRequest line, String type) {
+        if (line.getItemId() == null || line.getItemId().isBlank()) return "itemId is required";
+        if (!CatalogChangedEvent.BOOK.equals(type) && !CatalogChangedEvent.HOME.equals(type)) {
+            return "type must be \"book\" or \"home\"";
         }
+        if (line.getQuantity() == null || line.getQuantity() < 1) return "quantity must be at least 1";
+        return null;
+    }
+
+    private static CartItem cartLine(String itemId, String type, int quantity, String name, double price,
+                                     String imageUrl, Date reservedUntil) {
+        CartItem cartItem = new CartItem();
+        cartItem.setItemId(itemId);
+        cartItem.setType(type);
+        cartItem.setQuantity(quantity);
+        cartItem.setName(name);
+        cartItem.setPrice(price);
+        cartItem.setImageUrl(imageUrl);
+        cartItem.setReservedUntil(reservedUntil);
+        return cartItem;
+    }
 
-        // If the cart becomes empty after removal, delete the cart
-        if (cart.getItems().isEmpty()) {
-            cartRepository.delete(cart);
-            return new ResponseMessage(true, "Cart deleted as it became empty.");
+    public List<CartItem> getAllCartItemsForUser(String userId) {
+        if (cartWriteBuffer.isEnabled()) {
+            List<CartItem> buffered = cartWriteBuffer.items(userId);
+            if (buffered != null) return buffered;
+        }
+        // Check if the cart for the user exists
+        Optional<Cart> cart = cartRepository.findByUserId(userId);
+        return cart.map(Cart::getItems).orElse(new ArrayList<>());
+    }
+
+    public ResponseMessage removeFromCart(String userId, String itemId, String type) {
+        // this is because we call this type of remove query from frontend only when we want to delete the entire cart
+        if (itemId == null && type == null) {
+            cartWriteBuffer.flushUser(userId); // Checkout: the buffered lines are part of what is ordered
+            // Emptied, not deleted: a journal replay must still find the positions it has written up to
+            if (cartRepository.clearLines(userId) == 0) {
+                return new ResponseMessage(false, "Cart not found for the user.");
+            }
+            return new ResponseMessage(true, "Entire cart deleted successfully.");
         }
 
-        // Save the updated cart
-        cartRepository.save(cart);
+        if (cartWriteBuffer.isEnabled()) {
+            switch (cartWriteBuffer.removeOne(userId, itemId, type)) {
+                case REMOVED:
+                    // Its unit goes back to stock when the buffer writes the removal
+                    publishRemoved(userId, itemId, type);
+                    return new ResponseMessage(true, "Item quantity reduced successfully.");
+                case NO_LINE:
+                    return new ResponseMessage(false, "Item not found in the cart.");
+                case NO_CART:
+                    return new ResponseMessage(false, "Cart not found for the user.");
+                default:
+                    cartWriteBuffer.flushUser(userId); // The hold is about to run out: decide against the stored cart
+            }
+        }
+
+        // One server-side update: decrements the line and drops it at zero
+        UpdateResult result = cartRepository.removeOne(userId, itemId, type);
+        if (result.getMatchedCount() == 0) {
+            return new ResponseMessage(false, "Cart not found for the user.");
+        }
+        if (result.getModifiedCount() == 0) {
+            return new ResponseMessage(false, "Item not found in the cart.");
+        }
+        // After the cart write, so no unit is back on sale while a cart still holds it
+        ItemType itemType = ItemType.of(type);
+        if (itemType == ItemType.BOOK) {
+            inventoryService.releaseOne(Book.class, itemId);
+        } else if (itemType == ItemType.HOME) {
+            inventoryService.releaseOne(HomeItem.class, itemId);
+        }
+        publishRemoved(userId, itemId, type);
         return new ResponseMessage(true, "Item quantity reduced successfully.");
     }
+
+    // A unit the user took out of the cart is neither ordered nor abandoned; the seller comes from the cached catalog
+    private void publishRemoved(String userId, String itemId, String type) {
+        ItemType itemType = ItemType.of(type);
+        String sellerId = null;
+        if (itemType == ItemType.BOOK) {
+            sellerId = Optional.ofNullable(bookService.getBookById(itemId)).map(Book::getSellerId).orElse(null);
+        } else if (itemType == ItemType.HOME) {
+            sellerId = Optional.ofNullable(homeItemService.getHomeItemById(itemId)).map(HomeItem::getSellerId).orElse(null);
+        }
+        eventPublisher.publishEvent(new CartLifecycleEvent(CartLifecycleEvent.Kind.REMOVED, userId, sellerId,
+                itemType == null ? type : itemType.code(), itemId, 1));
+    }
 }
@@ -0,0 +1,664 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CartLifecycleEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.CartItem;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.ItemType;
+import com.buyandsellstore.app.repository.CartRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Opt-in write-behind for the cart clicks of logged-in users ({@code cart.write-behind.enabled}).
+ *
+ * addToCart and removeFromCart change a per-user buffer of net units per line, under one of
+ * STRIPES locks picked by the user id, instead of writing MongoDB. Every
+ * {@code cart.write-behind.flush-ms} each user's changes go out as one applyChanges update,
+ * however many clicks they hold; checkout and the other cart writes flush the user first.
+ * While a user has buffered changes, cartItems is the stored cart, read once, with the changes
+ * applied in memory. Writes and reads of one user's cart are ordered by a second set of striped
+ * locks, so a user waits for their own write, never for the flush of everybody else.
+ *
+ * Every change is appended to a local journal in {@code cart.write-behind.journal-dir} before
+ * it is buffered (and forced to disk with {@code cart.write-behind.fsync}). Each flush starts a
+ * new journal segment and deletes the older ones once everything was written. Segments left by
+ * a crash are replayed at startup: each change carries a sequence number that the write stores
+ * on the cart per node, so none is applied twice; checkout therefore empties the cart rather
+ * than deleting it. The directory must survive a restart of the node, so it has to be set
+ * explicitly.
+ *
+ * Stock is reserved right away, when a unit is added. The unit of a buffered removal goes back
+ * only after the cart write that drops it, the order the direct path uses, so until the flush
+ * the line and its unit stay together: a crash leaves both to the replay, or to ReservationService
+ * if the node never returns. A crash between the cart write and the release loses the units
+ * instead of selling them twice. A removal is buffered only while the line's hold has more than
+ * {@code cart.write-behind.hold-margin-ms} to run, so ReservationService can not expire and
+ * release the same units in the meantime; otherwise the user is flushed and it goes direct.
+ *
+ * The buffer lives in one node's memory: a checkout on another node would miss the clicks
+ * buffered here, and this node's flush would later put them back into the checked-out cart.
+ * Write-behind therefore runs on one node only. The node takes a lease in MongoDB
+ * ({@code cart.write-behind.lease-ms}, renewed by the flush) and a second node refuses to start
+ * with write-behind on; a node that loses the lease writes carts directly until it gets it back.
+ * Stop the old node before starting its replacement.
+ */
+@Component
+public class CartWriteBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(CartWriteBuffer.class);
+    private static final int STRIPES = 64;
+    static final String LEASE_COLLECTION = "cartWriteBehindLease";
+    private static final String LEASE_ID = "lease";
+
+    public enum Removal { REMOVED, NO_LINE, NO_CART, DIRECT }
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${cart.write-behind.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${cart.write-behind.journal-dir:}")
+    private String journalDir = "";
+
+    @Value("${cart.write-behind.fsync:false}")
+    private boolean fsync = false;
+
+    @Value("${cart.write-behind.hold-margin-ms:60000}")
+    private long holdMarginMs = 60000;
+
+    @Value("${cart.write-behind.lease-ms:30000}")
+    private long leaseMs = 30000;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES]; // Guard the buffer, held only in memory
+    private final ReentrantLock[] writeStripes = new ReentrantLock[STRIPES]; // One write of a user's cart at a time, in seq order
+    private final ReentrantLock flushLock = new ReentrantLock(); // One flush cycle at a time
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Set<String> writing = ConcurrentHashMap.newKeySet(); // Taken for a write, not yet in MongoDB
+
+    private final Object journalLock = new Object();
+    private final List<Path> segments = new ArrayList<>(); // Oldest first; the last one is appended to
+    private FileChannel journal;
+    private String node;
+    private long seq;
+    private volatile long leaseUntil; // This node may buffer until then
+
+    private final LongAdder mutations = new LongAdder();
+    private final LongAdder cartWrites = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+
+    private static final class Pending {
+        final Map<String, CartItem> changes = new LinkedHashMap<>(); // Line key -> the line with its net units as quantity
+        long seq; // Of the newest change
+        boolean loaded; // base was read
+        Map<String, CartItem> base; // The stored lines; null when there was no cart
+        final Map<String, CartItem> releases = new LinkedHashMap<>(); // Line key -> units removed, given back once written
+    }
+
+    public CartWriteBuffer() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+            writeStripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Whether clicks go into the buffer: write-behind is on and this node holds the lease
+    public boolean isEnabled() {
+        return enabled && System.currentTimeMillis() < leaseUntil;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) return;
+        if (journalDir == null || journalDir.isBlank()) {
+            throw new IllegalStateException("cart.write-behind.journal-dir must be set to a directory that survives restarts");
+        }
+        Path dir = Path.of(journalDir);
+        Files.createDirectories(dir);
+        Path nodeFile = dir.resolve("node-id");
+        if (!Files.exists(nodeFile)) Files.writeString(nodeFile, UUID.randomUUID().toString().replace("-", ""));
+        node = Files.readString(nodeFile).trim();
+        if (!takeLease()) {
+            throw new IllegalStateException("Cart write-behind is on at another node; it buffers carts in one node's memory,"
+                    + " so only one node may run it");
+        }
+
+        // New sequence numbers continue after everything this node ever journaled
+        long floor = System.currentTimeMillis() * 1000;
+        Map<String, List<Document>> records = new LinkedHashMap<>();
+        List<Path> found;
+        try (Stream<Path> files = Files.list(dir)) {
+            found = files.filter(f -> f.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+        for (Path segment : found) {
+            String name = segment.getFileName().toString();
+            floor = Math.max(floor, Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length())));
+            for (String json : Files.readAllLines(segment, StandardCharsets.UTF_8)) {
+                if (json.isBlank()) continue;
+                Document record;
+                try {
+                    record = Document.parse(json);
+                } catch (RuntimeException e) {
+                    log.warn("Skipping a torn cart journal record in {}", segment); // The append a crash cut short
+                    continue;
+                }
+                floor = Math.max(floor, ((Number) record.get("seq")).longValue());
+                records.computeIfAbsent(record.getString("userId"), u -> new ArrayList<>()).add(record);
+            }
+            segments.add(segment);
+        }
+        seq = floor;
+
+        // Only what the cart does not have yet goes back into the buffer
+        for (Map.Entry<String, List<Document>> entry : records.entrySet()) {
+            long position = cartRepository.journalPosition(entry.getKey(), node);
+            Pending p = new Pending();
+            for (Document record : entry.getValue()) {
+                long recordSeq = ((Number) record.get("seq")).longValue();
+                if (recordSeq <= position) continue;
+                CartItem change = line(record);
+                combine(p, change, recordSeq);
+                if (change.getQuantity() < 0) addRelease(p, change);
+                replayed.increment();
+            }
+            if (!p.changes.isEmpty()) pending.put(entry.getKey(), p);
+        }
+        synchronized (journalLock) {
+            startSegment();
+        }
+        if (!pending.isEmpty()) log.info("Replaying {} journaled cart changes of {} users", replayed.sum(), pending.size());
+        flush();
+    }
+
+    // Buffers line.quantity more units of the line; the stock must already be reserved
+    public void add(String userId, CartItem line) {
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            long changeSeq = append(userId, line, line.getQuantity());
+            combine(pending.computeIfAbsent(userId, u -> new Pending()), line, changeSeq);
+        } finally {
+            lock.unlock();
+        }
+        mutations.increment();
+    }
+
+    // Buffers one unit less of the line, decided against the user's cart with its buffered changes
+    public Removal removeOne(String userId, String itemId, String type) {
+        String key;
+        try {
+            key = ItemType.lineKey(type, itemId);
+        } catch (IllegalArgumentException e) {
+            return Removal.DIRECT; // Never in a cart; the direct path reports it
+        }
+        load(userId);
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            Pending p = pending.get(userId);
+            if (p == null || !p.loaded) return Removal.DIRECT; // Flushed in between
+            Map<String, CartItem> view = view(p);
+            CartItem line = view.get(key);
+            if (line == null) return p.base == null && view.isEmpty() ? Removal.NO_CART : Removal.NO_LINE;
+            Date until = line.getReservedUntil();
+            if (until != null && until.getTime() - System.currentTimeMillis() < holdMarginMs) return Removal.DIRECT;
+
+            CartItem change = new CartItem(line.getItemId(), line.getType(), line.getName(), -1, line.getPrice(), line.getImageUrl());
+            long changeSeq = append(userId, change, -1);
+            combine(p, change, changeSeq);
+            addRelease(p, change); // Its unit goes back once the removal is written
+        } finally {
+            lock.unlock();
+        }
+        mutations.increment();
+        return Removal.REMOVED;
+    }
+
+    // The user's lines with the buffered changes applied; null when nothing is buffered, so the stored cart is current
+    public List<CartItem> items(String userId) {
+        if (!enabled || (!pending.containsKey(userId) && !writing.contains(userId))) return null;
+        load(userId);
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            Pending p = pending.get(userId);
+            return p == null || !p.loaded ? null : new ArrayList<>(view(p).values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Writes the user's buffered changes now, e.g. before checkout; throws when MongoDB rejects them, which stay buffered
+    public void flushUser(String userId) {
+        if (!enabled) return;
+        ReentrantLock writeLock = writeStripe(userId);
+        writeLock.lock();
+        try {
+            if (!writeUser(userId)) throw new IllegalStateException("Could not write the buffered cart changes of user " + userId);
+        } finally {
+            writeLock.unlock();
+        }
+        // A running cycle trims the journal itself when it ends
+        if (flushLock.tryLock()) {
+            try {
+                trimJournal();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-ms:500}")
+    public void flush() {
+        if (!enabled) return;
+        renewLease();
+        flushLock.lock();
+        try {
+            List<String> users;
+            int older;
+            for (ReentrantLock lock : stripes) lock.lock();
+            try {
+                users = new ArrayList<>(pending.keySet());
+                // Everything journaled so far is buffered for one of users or already written
+                synchronized (journalLock) {
+                    older = segments.size();
+                    if (!users.isEmpty()) startSegment();
+                }
+            } finally {
+                for (int i = STRIPES - 1; i >= 0; i--) stripes[i].unlock();
+            }
+
+            boolean failed = false;
+            for (String userId : users) {
+                ReentrantLock writeLock = writeStripe(userId);
+                writeLock.lock();
+                try {
+                    if (!writeUser(userId)) failed = true;
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            if (!failed && !users.isEmpty()) deleteSegments(older);
+            trimJournal();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) return;
+        flush();
+        synchronized (journalLock) {
+            try {
+                if (journal != null) journal.close();
+            } catch (IOException e) {
+                log.warn("Could not close the cart journal: {}", e.getMessage());
+            }
+        }
+        try {
+            mongoTemplate.remove(new Query(Criteria.where("_id").is(LEASE_ID).and("node").is(node)), LEASE_COLLECTION);
+        } catch (RuntimeException e) {
+            log.warn("Could not give up the cart write-behind lease, it expires in {} ms: {}", leaseMs, e.getMessage());
+        }
+    }
+
+    // Takes the lease, or extends it, unless another node holds one that has not expired
+    private boolean takeLease() {
+        long now = System.currentTimeMillis();
+        Query free = new Query(Criteria.where("_id").is(LEASE_ID)
+                .orOperator(Criteria.where("node").is(node), Criteria.where("expiresAt").lt(new Date(now))));
+        try {
+            // No match inserts the lease again, which the held one's _id rejects
+            mongoTemplate.upsert(free, new Update().set("node", node).set("expiresAt", new Date(now + leaseMs)), LEASE_COLLECTION);
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        leaseUntil = now + leaseMs;
+        return true;
+    }
+
+    // Renews the lease once a third of it has run; what is already buffered is flushed either way
+    private void renewLease() {
+        if (System.currentTimeMillis() < leaseUntil - leaseMs * 2 / 3) return;
+        try {
+            if (!takeLease()) {
+                if (leaseUntil != 0) log.error("Another node holds the cart write-behind lease; writing carts directly");
+                leaseUntil = 0;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not renew the cart write-behind lease: {}", e.getMessage());
+        }
+    }
+
+    // Reads the stored cart into the user's entry, after writing what is buffered so the read includes it
+    private void load(String userId) {
+        if (isLoaded(userId) && !writing.contains(userId)) return;
+        ReentrantLock writeLock = writeStripe(userId);
+        writeLock.lock();
+        try {
+            if (isLoaded(userId)) return;
+            if (!writeUser(userId)) throw new IllegalStateException("Could not write the buffered cart changes of user " + userId);
+            // Nothing else writes the buffer to this cart while the write lock is held, so changes buffered from
+            // here on are not in what is read
+            Map<String, CartItem> base = cartRepository.findByUserId(userId).map(cart -> copy(cart.getLines())).orElse(null);
+            ReentrantLock lock = stripe(userId);
+            lock.lock();
+            try {
+                Pending p = pending.computeIfAbsent(userId, u -> new Pending());
+                p.loaded = true;
+                p.base = base;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean isLoaded(String userId) {
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            Pending p = pending.get(userId);
+            return p != null && p.loaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Takes the user's changes and writes them, or puts them back when MongoDB failed; with the user's write lock held
+    private boolean writeUser(String userId) {
+        Pending p;
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            p = pending.remove(userId);
+            if (p != null) writing.add(userId);
+        } finally {
+            lock.unlock();
+        }
+        if (p == null) return true;
+        try {
+            if (write(userId, p)) {
+                release(userId, p);
+                return true;
+            }
+            restore(userId, p);
+            return false;
+        } finally {
+            writing.remove(userId);
+        }
+    }
+
+    // Starts a new segment and deletes the others once every journaled change is in MongoDB; with flushLock held
+    private void trimJournal() {
+        for (ReentrantLock lock : stripes) lock.lock();
+        try {
+            if (!writing.isEmpty()) return;
+            for (Pending p : pending.values()) {
+                if (!p.changes.isEmpty()) return;
+            }
+            synchronized (journalLock) {
+                if (segments.size() == 1 && journal.size() == 0) return;
+                int older = segments.size();
+                startSegment();
+                deleteSegments(older);
+            }
+        } catch (IOException e) {
+            log.warn("Could not check the cart journal: {}", e.getMessage());
+        } finally {
+            for (int i = STRIPES - 1; i >= 0; i--) stripes[i].unlock();
+        }
+    }
+
+    // One update with the user's net changes; false when MongoDB failed
+    private boolean write(String userId, Pending p) {
+        List<CartItem> changes = new ArrayList<>();
+        for (CartItem change : p.changes.values()) {
+            if (change.getQuantity() != 0) changes.add(change);
+        }
+        if (changes.isEmpty()) return true;
+        try {
+            // A buffered first add only finds out here that it created the cart
+            if (cartRepository.applyChanges(userId, changes, node, p.seq)) eventPublisher.publishEvent(CartLifecycleEvent.created(userId));
+            cartWrites.increment();
+            return true;
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Could not write {} buffered cart changes of user {}: {}", changes.size(), userId, e.getMessage());
+            return false;
+        }
+    }
+
+    // Gives back the units of the removals just written; a failure loses them rather than risk giving them back twice
+    private void release(String userId, Pending p) {
+        Map<Class<?>, Map<String, Integer>> units = new LinkedHashMap<>();
+        for (CartItem line : p.releases.values()) {
+            ItemType type = ItemType.of(line.getType());
+            if (type == null) continue; // Never reserved
+            units.computeIfAbsent(type == ItemType.BOOK ? Book.class : HomeItem.class, c -> new LinkedHashMap<>())
+                    .merge(line.getItemId(), line.getQuantity(), Integer::sum);
+        }
+        units.forEach((entityClass, byId) -> {
+            try {
+                inventoryService.releaseAll(entityClass, byId);
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Could not give back the stock of {} removed cart lines of user {}: {}", byId.size(), userId, e.getMessage());
+            }
+        });
+    }
+
+    // Puts changes that could not be written back under the ones buffered since
+    private void restore(String userId, Pending failed) {
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            Pending p = pending.get(userId);
+            if (p == null) {
+                failed.loaded = false; // The stored cart may have moved on since it was read
+                failed.base = null;
+                pending.put(userId, failed);
+                return;
+            }
+            Map<String, CartItem> newer = new LinkedHashMap<>(p.changes);
+            p.changes.clear();
+            p.changes.putAll(failed.changes);
+            for (CartItem change : newer.values()) combine(p, change, p.seq);
+            p.seq = Math.max(p.seq, failed.seq);
+            for (CartItem removed : failed.releases.values()) {
+                CartItem change = copy(removed);
+                change.setQuantity(-removed.getQuantity());
+                addRelease(p, change);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void combine(Pending p, CartItem change, long changeSeq) {
+        String key = ItemType.lineKey(change.getType(), change.getItemId());
+        CartItem current = p.changes.get(key);
+        if (current == null) {
+            p.changes.put(key, copy(change));
+        } else {
+            current.setQuantity(current.getQuantity() + change.getQuantity());
+            if (change.getQuantity() > 0) {
+                // The latest add describes the line and renews its hold
+                current.setName(change.getName());
+                current.setPrice(change.getPrice());
+                current.setImageUrl(change.getImageUrl());
+                current.setSellerId(change.getSellerId());
+                current.setReservedUntil(change.getReservedUntil());
+            }
+        }
+        p.seq = Math.max(p.seq, changeSeq);
+    }
+
+    // Counts the units of a removal change as owed back to stock
+    private static void addRelease(Pending p, CartItem change) {
+        String key = ItemType.lineKey(change.getType(), change.getItemId());
+        CartItem current = p.releases.get(key);
+        if (current == null) {
+            CartItem released = copy(change);
+            released.setQuantity(-change.getQuantity());
+            p.releases.put(key, released);
+        } else {
+            current.setQuantity(current.getQuantity() - change.getQuantity());
+        }
+    }
+
+    // The stored lines with the changes applied, as addLines and removeOne would leave them
+    private static Map<String, CartItem> view(Pending p) {
+        Map<String, CartItem> lines = p.base == null ? new LinkedHashMap<>() : copy(p.base);
+        for (Map.Entry<String, CartItem> entry : p.changes.entrySet()) {
+            CartItem change = entry.getValue();
+            CartItem line = lines.get(entry.getKey());
+            if (line != null) {
+                line.setQuantity(line.getQuantity() + change.getQuantity());
+                if (change.getQuantity() > 0) line.setReservedUntil(change.getReservedUntil());
+                if (line.getQuantity() <= 0) lines.remove(entry.getKey());
+            } else if (change.getQuantity() > 0) {
+                CartItem added = copy(change);
+                added.setType(ItemType.normalize(change.getType()));
+                lines.put(entry.getKey(), added);
+            }
+        }
+        return lines;
+    }
+
+    // Journals one change and returns its sequence number
+    private long append(String userId, CartItem line, int quantity) {
+        synchronized (journalLock) {
+            long changeSeq = seq + 1;
+            Document record = new Document("seq", changeSeq).append("userId", userId)
+                    .append("itemId", line.getItemId()).append("type", line.getType()).append("quantity", quantity)
+                    .append("name", line.getName()).append("price", line.getPrice()).append("imageUrl", line.getImageUrl())
+                    .append("sellerId", line.getSellerId()).append("reservedUntil", line.getReservedUntil());
+            try {
+                journal.write(ByteBuffer.wrap((record.toJson() + "\n").getBytes(StandardCharsets.UTF_8)));
+                if (fsync) journal.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not journal a cart change", e);
+            }
+            seq = changeSeq;
+            return changeSeq;
+        }
+    }
+
+    // With journalLock held
+    private void startSegment() {
+        Path segment = Path.of(journalDir).resolve(String.format("segment-%020d.log", seq + 1));
+        try {
+            if (journal != null) journal.close();
+            journal = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start cart journal segment " + segment, e);
+        }
+        segments.add(segment);
+    }
+
+    // Deletes the first count segments, whose changes are all written
+    private void deleteSegments(int count) {
+        synchronized (journalLock) {
+            for (int i = 0; i < count && segments.size() > 1; i++) {
+                Path segment = segments.remove(0);
+                try {
+                    Files.deleteIfExists(segment);
+                } catch (IOException e) {
+                    log.warn("Could not delete cart journal segment {}: {}", segment, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static CartItem line(Document record) {
+        CartItem line = new CartItem(record.getString("itemId"), record.getString("type"), record.getString("name"),
+                record.getInteger("quantity"), record.get("price") instanceof Number price ? price.doubleValue() : 0.0,
+                record.getString("imageUrl"));
+        line.setSellerId(record.getString("sellerId"));
+        line.setReservedUntil(record.getDate("reservedUntil"));
+        return line;
+    }
+
+    private static CartItem copy(CartItem line) {
+        CartItem copy = new CartItem(line.getItemId(), line.getType(), line.getName(), line.getQuantity(), line.getPrice(), line.getImageUrl());
+        copy.setSellerId(line.getSellerId());
+        copy.setReservedUntil(line.getReservedUntil());
+        return copy;
+    }
+
+    private static Map<String, CartItem> copy(Map<String, CartItem> lines) {
+        Map<String, CartItem> copy = new LinkedHashMap<>();
+        if (lines != null) lines.forEach((key, line) -> copy.put(key, copy(line)));
+        return copy;
+    }
+
+    private ReentrantLock stripe(String userId) {
+        return stripes[(userId.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    private ReentrantLock writeStripe(String userId) {
+        return writeStripes[(userId.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("leaseHeld", isEnabled());
+        stats.put("pendingCarts", pending.size());
+        stats.put("mutations", mutations.sum());
+        stats.put("cartWrites", cartWrites.sum());
+        stats.put("failures", failures.sum());
+        stats.put("replayed", replayed.sum());
+        synchronized (journalLock) {
+            stats.put("journalSegments", segments.size());
+        }
+        return stats;
+    }
+}
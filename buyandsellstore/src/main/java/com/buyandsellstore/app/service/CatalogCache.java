@@ -0,0 +1,223 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CacheInvalidationEvent;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.Review;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process read-through cache for book and home item lookups by id.
+ *
+ * Items are kept in LRU order and bounded by an estimate of their heap size, so a few items
+ * with thousands of reviews cannot crowd out the rest. Every save publishes a
+ * {@link CatalogChangedEvent}, which evicts the item here.
+ *
+ * Stock is kept apart with a short TTL: a cached item can be slightly stale, but its
+ * quantity is refreshed from MongoDB at least every {@code catalog.cache.stock-ttl-ms}.
+ * Paths that decrement stock read the item uncached.
+ */
+@Component
+public class CatalogCache {
+
+    private final long maxBytes;
+    private final long stockTtlMs;
+    private final int maxStockEntries;
+
+    private final LinkedHashMap<String, Entry> items = new LinkedHashMap<>(1024, 0.75f, true);
+    private long bytes;
+    private long generation; // bumped by every eviction, see stamp()
+
+    private final LinkedHashMap<String, long[]> stock; // key -> {quantity, expiresAt}
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder stockHits = new LongAdder();
+    private final LongAdder stockMisses = new LongAdder();
+
+    public CatalogCache(@Value("${catalog.cache.max-bytes:33554432}") long maxBytes,
+                        @Value("${catalog.cache.stock-ttl-ms:1000}") long stockTtlMs,
+                        @Value("${catalog.cache.max-stock-entries:100000}") int maxStockEntries) {
+        this.maxBytes = maxBytes;
+        this.stockTtlMs = stockTtlMs;
+        this.maxStockEntries = maxStockEntries;
+        this.stock = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+                return size() > CatalogCache.this.maxStockEntries;
+            }
+        };
+    }
+
+    public Book getBook(String id) {
+        return (Book) get(CatalogChangedEvent.BOOK + ":" + id);
+    }
+
+    public void putBook(Book book, long stamp) {
+        put(CatalogChangedEvent.BOOK + ":" + book.getId(), book, stamp, weigh(book.getTitle(), book.getAuthor(),
+                book.getDescription(), book.getImageUrl(), book.getReviews()));
+    }
+
+    public HomeItem getHomeItem(String id) {
+        return (HomeItem) get(CatalogChangedEvent.HOME + ":" + id);
+    }
+
+    public void putHomeItem(HomeItem homeItem, long stamp) {
+        put(CatalogChangedEvent.HOME + ":" + homeItem.getId(), homeItem, stamp, weigh(homeItem.getTitle(),
+                homeItem.getManufacturer(), homeItem.getDescription(), homeItem.getImageUrl(), homeItem.getReviews()));
+    }
+
+    /**
+     * Take a stamp before loading from MongoDB and pass it to the put. If an eviction happened
+     * in between, the loaded copy may predate that save and is not cached.
+     */
+    public synchronized long stamp() {
+        return generation;
+    }
+
+    // Cached quantity, or null when missing or older than the stock TTL
+    public Integer getStock(String type, String id) {
+        String key = type + ":" + id;
+        synchronized (stock) {
+            long[] entry = stock.get(key);
+            if (entry != null && entry[1] > System.currentTimeMillis()) {
+                stockHits.increment();
+                return (int) entry[0];
+            }
+        }
+        stockMisses.increment();
+        return null;
+    }
+
+    public void putStock(String type, String id, int quantity) {
+        synchronized (stock) {
+            stock.put(type + ":" + id, new long[]{quantity, System.currentTimeMillis() + stockTtlMs});
+        }
+    }
+
+    public void evict(String type, String id) {
+        String key = type + ":" + id;
+        boolean removed;
+        synchronized (this) {
+            generation++;
+            Entry entry = items.remove(key);
+            removed = entry != null;
+            if (removed) bytes -= entry.weight;
+        }
+        synchronized (stock) {
+            removed |= stock.remove(key) != null;
+        }
+        if (removed) invalidations.increment();
+    }
+
+    // Saves, review changes and quantity changes all go through BookService/HomeItemService.save
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        evict(event.getType(), event.getItemId());
+    }
+
+    // Writes made by other nodes, see ChangeStreamListener
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        if (event.getCatalogType() == null) return;
+        if (event.isAll()) {
+            clear();
+        } else {
+            evict(event.getCatalogType(), event.getDocumentId());
+        }
+    }
+
+    public void clear() {
+        synchronized (this) {
+            generation++;
+            items.clear();
+            bytes = 0;
+        }
+        synchronized (stock) {
+            stock.clear();
+        }
+        invalidations.increment();
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("entries", items.size());
+            stats.put("bytes", bytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("stockHits", stockHits.sum());
+        stats.put("stockMisses", stockMisses.sum());
+        return stats;
+    }
+
+    private Object get(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = items.get(key);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    private synchronized void put(String key, Object value, long stamp, int weight) {
+        if (stamp != generation || weight > maxBytes) return;
+        Entry previous = items.put(key, new Entry(value, weight));
+        if (previous != null) bytes -= previous.weight;
+        bytes += weight;
+
+        Iterator<Entry> eldest = items.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().weight;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    // Rough heap footprint: object headers plus two bytes per char of text
+    static int weigh(String a, String b, String c, String d, List<Review> reviews) {
+        long size = 160 + chars(a) + chars(b) + chars(c) + chars(d);
+        if (reviews != null) {
+            for (Review review : reviews) {
+                size += 96 + chars(review.getReviewer()) + chars(review.getComment());
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    private static long chars(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
+    private static final class Entry {
+        final Object value;
+        final int weight;
+
+        Entry(Object value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CacheInvalidationEvent;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter of every live book and home item id, so lookups of ids that do not exist
+ * (typos, stale links, bots probing random ids) are answered without a MongoDB query.
+ *
+ * The filter is built from an _id-only scan at startup and rebuilt every
+ * {@code catalog.id-filter.rebuild-ms}, which also drops deleted ids and resizes it for the
+ * current catalog. New items are added as they are saved or imported, and, through the
+ * change stream, when another node creates them. Until the first build finishes every id
+ * is treated as possibly present.
+ *
+ * On a single node the filter is exact. With several nodes an item created on another one
+ * is reported absent until its insert arrives through the change stream, usually well under
+ * a second; without change streams that window lasts until the next rebuild, so such
+ * deployments set {@code catalog.id-filter.enabled=false}.
+ */
+@Component
+public class CatalogIdFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogIdFilter.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${catalog.id-filter.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${catalog.id-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate = 0.01;
+
+    // Sized for this many times the current catalog, so growth until the next rebuild keeps the rate
+    @Value("${catalog.id-filter.headroom:2}")
+    private double headroom = 2;
+
+    private volatile BloomFilter current;   // null until the first build
+    private volatile BloomFilter building;  // Also receives new ids while a rebuild scans
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private volatile long lastBuildMs;
+
+    /**
+     * True only when the id certainly does not exist. False means "look it up"; callers
+     * whose lookup then finds nothing report it through {@link #recordMiss()}.
+     */
+    public boolean isDefinitelyAbsent(String type, String id) {
+        BloomFilter filter = current;
+        String key = key(type, id);
+        if (filter == null || key == null) return false;
+        checks.increment();
+        if (filter.mightContain(key)) return false;
+        rejected.increment();
+        return true;
+    }
+
+    // A lookup the filter let through found no item: a false positive
+    public void recordMiss() {
+        if (current != null) falsePositives.increment();
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        add(event.getType(), event.getItemId());
+    }
+
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        String type = event.getCatalogType();
+        if (type == null || event.isDeleted()) return;
+        if (event.isAll()) {
+            rebuildInBackground(); // Inserts may have been missed
+        } else {
+            add(type, event.getDocumentId());
+        }
+    }
+
+    private void add(String type, String id) {
+        String key = key(type, id);
+        if (key == null) return;
+        // building before current: a rebuild publishes its filter as current before clearing building
+        BloomFilter next = building;
+        BloomFilter filter = current;
+        if (next != null) next.put(key);
+        if (filter != null) filter.put(key);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        if (!enabled) return;
+        Thread thread = new Thread(this::rebuild, "catalog-id-filter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Scheduled(initialDelayString = "${catalog.id-filter.rebuild-ms:21600000}", fixedDelayString = "${catalog.id-filter.rebuild-ms:21600000}")
+    public synchronized void rebuild() {
+        if (!enabled) return;
+        long started = System.currentTimeMillis();
+        try {
+            String books = mongoTemplate.getCollectionName(Book.class);
+            String homeItems = mongoTemplate.getCollectionName(HomeItem.class);
+            long count = mongoTemplate.getCollection(books).estimatedDocumentCount()
+                    + mongoTemplate.getCollection(homeItems).estimatedDocumentCount();
+            BloomFilter filter = BloomFilter.create((long) (count * headroom) + 1024, falsePositiveRate);
+            building = filter;
+            scan(books, CatalogChangedEvent.BOOK, filter);
+            scan(homeItems, CatalogChangedEvent.HOME, filter);
+            current = filter;
+            lastBuildMs = System.currentTimeMillis() - started;
+            log.info("Catalog id filter built: {} ids, {} KB, {} ms", filter.insertions(), filter.sizeBytes() / 1024, lastBuildMs);
+        } catch (RuntimeException e) {
+            log.warn("Could not build the catalog id filter, keeping the previous one: {}", e.getMessage());
+        } finally {
+            building = null;
+        }
+    }
+
+    private void scan(String collection, String type, BloomFilter filter) {
+        for (Document doc : mongoTemplate.getCollection(collection).find()
+                .projection(new Document("_id", 1)).batchSize(10_000)) {
+            Object id = doc.get("_id");
+            filter.put(type + ":" + (id instanceof ObjectId objectId ? objectId.toHexString() : String.valueOf(id)));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        BloomFilter filter = current;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", filter != null);
+        stats.put("ids", filter == null ? 0 : filter.insertions());
+        stats.put("bytes", filter == null ? 0 : filter.sizeBytes());
+        stats.put("hashes", filter == null ? 0 : filter.hashes());
+        stats.put("expectedFalsePositiveRate", filter == null ? 0 : filter.expectedFalsePositiveRate());
+        // Share of lookups for missing ids that the filter failed to reject
+        long misses = falsePositives.sum() + rejected.sum();
+        stats.put("observedFalsePositiveRate", misses == 0 ? 0 : (double) falsePositives.sum() / misses);
+        stats.put("checks", checks.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("lastBuildMs", lastBuildMs);
+        return stats;
+    }
+
+    private static String key(String type, String id) {
+        String normalized = TrendingService.normalizeType(type);
+        return normalized == null || id == null ? null : normalized + ":" + id;
+    }
+}
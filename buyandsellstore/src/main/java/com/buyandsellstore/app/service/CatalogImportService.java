@@ -0,0 +1,292 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.ImportReport;
+import com.buyandsellstore.app.repository.ImportReportRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Streams a seller's CSV or JSON Lines file into the catalog.
+ *
+ * Rows are parsed one at a time and validated, then handled in chunks: one query finds
+ * which of the titles the seller already has, and the rest go out as one unordered bulk insert.
+ * That is two round trips per chunk instead of two per item. Rejected rows are collected
+ * in an {@link ImportReport}.
+ */
+@Service
+public class CatalogImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogImportService.class);
+
+    private static final String PARSE_ERROR = "\u0000error";
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ImportReportRepository importReportRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private RankingService rankingService;
+
+    @Value("${catalog.import.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${catalog.import.max-errors:1000}")
+    private int maxErrors = 1000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @param itemType "book" or "home"
+     * @param fileName used to tell JSON Lines (.jsonl/.ndjson) from CSV
+     */
+    public ImportReport importCatalog(String sellerId, String itemType, String fileName, InputStream in) {
+        ImportReport report = importReportRepository.save(new ImportReport(sellerId, itemType, fileName));
+        Set<String> seenKeys = new HashSet<>();
+        List<Pending> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            RowSource rows = isJsonLines(fileName) ? jsonLines(reader) : csv(reader);
+            Map<String, String> row;
+            while ((row = rows.next()) != null) {
+                int rowNumber = report.getRowsRead() + 1;
+                report.setRowsRead(rowNumber);
+
+                Pending pending = toItem(itemType, sellerId, rowNumber, row, report);
+                if (pending == null) continue;
+                if (!seenKeys.add(pending.key)) {
+                    report.setDuplicates(report.getDuplicates() + 1);
+                    addError(report, rowNumber, pending.title, "Duplicate of an item earlier in the file");
+                    continue;
+                }
+                chunk.add(pending);
+                if (chunk.size() >= chunkSize) {
+                    flush(itemType, sellerId, chunk, report);
+                    chunk.clear();
+                }
+            }
+            flush(itemType, sellerId, chunk, report);
+            report.setStatus("COMPLETED");
+        } catch (IOException | RuntimeException e) {
+            log.warn("Catalog import {} for seller {} failed: {}", report.getId(), sellerId, e.getMessage());
+            report.setStatus("FAILED");
+            addError(report, report.getRowsRead() + 1, null, "Import stopped: " + e.getMessage());
+        }
+        report.setFinishedAt(new Date());
+        return importReportRepository.save(report);
+    }
+
+    public ImportReport getReport(String id) {
+        return importReportRepository.findById(id).orElse(null);
+    }
+
+    // Validates one row and builds the entity, or records why it was rejected
+    private Pending toItem(String itemType, String sellerId, int rowNumber, Map<String, String> row, ImportReport report) {
+        String title = text(row, "title");
+        String reason = row.get(PARSE_ERROR);
+        Double price = null;
+        Integer quantity = null;
+        if (reason == null) {
+            price = number(row, "price");
+            quantity = count(row, "totalquantity");
+            if (title.isEmpty()) reason = "Missing title";
+            else if (price == null || price < 0 || price.isInfinite()) reason = "Missing or invalid price";
+            else if (quantity == null || quantity < 0) reason = "Missing or invalid totalQuantity";
+            else if (CatalogChangedEvent.BOOK.equals(itemType) && text(row, "author").isEmpty()) reason = "Missing author";
+            else if (CatalogChangedEvent.HOME.equals(itemType) && text(row, "manufacturer").isEmpty()) reason = "Missing manufacturer";
+            else if (CatalogChangedEvent.HOME.equals(itemType) && text(row, "type").isEmpty()) reason = "Missing type";
+        }
+        if (reason != null) {
+            report.setRejected(report.getRejected() + 1);
+            addError(report, rowNumber, title.isEmpty() ? null : title, reason);
+            return null;
+        }
+
+        String id = new ObjectId().toHexString();
+        if (CatalogChangedEvent.BOOK.equals(itemType)) {
+            Book book = new Book(title, text(row, "author"), price, text(row, "imageurl"), text(row, "description"),
+                    sellerId, quantity);
+            book.setId(id);
+            book.setReviews(new ArrayList<>());
+            book.setRankScore(rankingService.rankScore(itemType, 0, 0)); // Unreviewed: the prior
+            return new Pending(rowNumber, title, title, book);
+        }
+        HomeItem homeItem = new HomeItem(title, text(row, "type"), text(row, "description"), price, text(row, "imageurl"),
+                text(row, "manufacturer"), sellerId, quantity);
+        homeItem.setId(id);
+        homeItem.setReviews(new ArrayList<>());
+        homeItem.setRankScore(rankingService.rankScore(itemType, 0, 0));
+        return new Pending(rowNumber, title, uniqueKey(homeItem), homeItem);
+    }
+
+    private void flush(String itemType, String sellerId, List<Pending> chunk, ImportReport report) {
+        if (chunk.isEmpty()) return;
+        Class<?> entityClass = CatalogChangedEvent.BOOK.equals(itemType) ? Book.class : HomeItem.class;
+
+        // One query for the whole chunk instead of findByTitleAndSellerId per row
+        List<String> titles = new ArrayList<>(chunk.size());
+        for (Pending pending : chunk) titles.add(pending.title);
+        Query query = new Query(Criteria.where("sellerId").is(sellerId).and("title").in(titles));
+        query.fields().include("title").include("manufacturer");
+        Set<String> existing = new HashSet<>();
+        for (Object item : mongoTemplate.find(query, entityClass)) {
+            existing.add(item instanceof Book book ? book.getTitle() : uniqueKey((HomeItem) item));
+        }
+
+        List<Pending> toInsert = new ArrayList<>(chunk.size());
+        for (Pending pending : chunk) {
+            if (existing.contains(pending.key)) {
+                report.setDuplicates(report.getDuplicates() + 1);
+                addError(report, pending.row, pending.title, "Seller already has an item with this title");
+            } else {
+                toInsert.add(pending);
+            }
+        }
+        if (toInsert.isEmpty()) return;
+
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityClass);
+        List<Object> items = new ArrayList<>(toInsert.size());
+        for (Pending pending : toInsert) items.add(pending.item);
+        ops.insert(items);
+
+        Set<Integer> failed = new HashSet<>();
+        try {
+            report.setInserted(report.getInserted() + ops.execute().getInsertedCount());
+        } catch (BulkOperationException e) {
+            // Unordered: everything except the listed indexes went in
+            report.setInserted(report.getInserted() + e.getResult().getInsertedCount());
+            for (BulkWriteError error : e.getErrors()) {
+                Pending pending = toInsert.get(error.getIndex());
+                failed.add(error.getIndex());
+                if (error.getCode() == DUPLICATE_KEY) {
+                    report.setDuplicates(report.getDuplicates() + 1);
+                    addError(report, pending.row, pending.title, "Seller already has an item with this title");
+                } else {
+                    report.setRejected(report.getRejected() + 1);
+                    addError(report, pending.row, pending.title, error.getMessage());
+                }
+            }
+        }
+
+        // Let the cache and the search/suggest/browse indexes see the new items
+        for (int i = 0; i < toInsert.size(); i++) {
+            if (failed.contains(i)) continue;
+            Object item = toInsert.get(i).item;
+            eventPublisher.publishEvent(item instanceof Book book ? CatalogChangedEvent.of(book)
+                    : CatalogChangedEvent.of((HomeItem) item));
+        }
+    }
+
+    private void addError(ImportReport report, int row, String title, String reason) {
+        if (report.getErrors().size() < maxErrors) {
+            report.getErrors().add(new ImportReport.RowError(row, title, reason));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private static boolean isJsonLines(String fileName) {
+        String name = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".jsonl") || name.endsWith(".ndjson");
+    }
+
+    // Header row names the columns; matching is case-insensitive
+    private static RowSource csv(BufferedReader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) return () -> null;
+        List<String> columns = new ArrayList<>(header.size());
+        for (String name : header) columns.add(name.trim().toLowerCase(Locale.ROOT));
+        return () -> {
+            List<String> values = csv.next();
+            if (values == null) return null;
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < columns.size() && i < values.size(); i++) {
+                row.put(columns.get(i), values.get(i));
+            }
+            return row;
+        };
+    }
+
+    private RowSource jsonLines(BufferedReader reader) {
+        return () -> {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) return null;
+            } while (line.isBlank());
+            Map<String, String> row = new HashMap<>();
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                if (!node.isObject()) throw new IllegalArgumentException("not a JSON object");
+                node.fields().forEachRemaining(field ->
+                        row.put(field.getKey().toLowerCase(Locale.ROOT), field.getValue().isNull() ? "" : field.getValue().asText()));
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                row.put(PARSE_ERROR, "Invalid JSON: " + e.getMessage().lines().findFirst().orElse(""));
+            }
+            return row;
+        };
+    }
+
+    private static String text(Map<String, String> row, String column) {
+        String value = row.get(column);
+        return value == null ? "" : value.trim();
+    }
+
+    private static Double number(Map<String, String> row, String column) {
+        try {
+            return Double.valueOf(text(row, column));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer count(Map<String, String> row, String column) {
+        try {
+            return Integer.valueOf(text(row, column));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private interface RowSource {
+        Map<String, String> next() throws IOException;
+    }
+
+    // Same fields as the unique index on HomeItem; books are unique by title alone
+    private static String uniqueKey(HomeItem homeItem) {
+        return homeItem.getManufacturer() + '\u0000' + homeItem.getTitle();
+    }
+
+    private record Pending(int row, String title, String key, Object item) {
+    }
+}
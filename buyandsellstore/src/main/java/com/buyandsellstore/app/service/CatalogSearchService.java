@@ -0,0 +1,114 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.SearchHit;
+import com.buyandsellstore.app.event.CacheInvalidationEvent;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.repository.BookRepository;
+import com.buyandsellstore.app.repository.HomeItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Typo-tolerant search over book and home item text, backed by an in-memory word/trigram index
+ * that is kept in sync through the BookService/HomeItemService save paths. Changes that arrive
+ * while the catalog is loaded are applied after the load, see {@link SnapshotGate}.
+ */
+@Service
+public class CatalogSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSearchService.class);
+
+    private static final String[] BOOK_FIELDS = {"title", "author"};
+    private static final String[] HOME_FIELDS = {"title", "manufacturer"};
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private HomeItemRepository homeItemRepository;
+
+    @Value("${catalog.search.default-limit:20}")
+    private int defaultLimit;
+
+    private final TrigramIndex index;
+    private final SnapshotGate gate = new SnapshotGate();
+
+    public CatalogSearchService(@Value("${catalog.search.max-documents:2000000}") int maxDocuments) {
+        this.index = new TrigramIndex(maxDocuments);
+    }
+
+    public List<SearchHit> search(String query, Boolean fuzzy, Integer limit) {
+        if (query == null) return new ArrayList<>();
+        int max = limit == null ? defaultLimit : Math.min(limit, 100);
+
+        List<SearchHit> hits = new ArrayList<>();
+        for (TrigramIndex.Match match : index.search(query, !Boolean.FALSE.equals(fuzzy), max)) {
+            hits.add(new SearchHit(match.itemId, match.type, match.title, match.field, match.text, match.distance));
+        }
+        return hits;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCatalog() {
+        Thread loader = new Thread(() -> {
+            gate.load(() -> {
+                bookRepository.findAll().forEach(this::index);
+                homeItemRepository.findAll().forEach(this::index);
+            });
+            log.info("Catalog search index loaded: {} items, {} words, {} postings",
+                    index.size(), index.vocabularySize(), index.postingEntries());
+        }, "catalog-search-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.getBook() != null) {
+            gate.apply(() -> index(event.getBook()));
+        } else {
+            gate.apply(() -> index(event.getHomeItem()));
+        }
+    }
+
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        if (event.getCatalogType() == null) return;
+        if (event.isAll()) {
+            // Cleared first, or items deleted while the stream was down would stay searchable
+            index.removeType(event.getCatalogType());
+            loadCatalog();
+        } else if (event.isDeleted()) {
+            gate.apply(() -> index.remove(event.getCatalogType() + ":" + event.getDocumentId()));
+        }
+    }
+
+    private void index(Book book) {
+        add(CatalogChangedEvent.BOOK, book.getId(), book.getTitle(), BOOK_FIELDS,
+                new String[]{book.getTitle(), book.getAuthor()});
+    }
+
+    private void index(HomeItem homeItem) {
+        add(CatalogChangedEvent.HOME, homeItem.getId(), homeItem.getTitle(), HOME_FIELDS,
+                new String[]{homeItem.getTitle(), homeItem.getManufacturer()});
+    }
+
+    private void add(String type, String itemId, String title, String[] fields, String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) values[i] = "";
+        }
+        if (!index.upsert(type + ":" + itemId, type, itemId, title, fields, values)) {
+            log.warn("Catalog search index is full, {} {} is not searchable", type, itemId);
+        }
+    }
+}
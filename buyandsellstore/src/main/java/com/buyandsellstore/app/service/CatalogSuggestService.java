@@ -0,0 +1,187 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.Suggestion;
+import com.buyandsellstore.app.event.CacheInvalidationEvent;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.repository.BookRepository;
+import com.buyandsellstore.app.repository.HomeItemRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Serves search-box autocomplete from an in-memory trie over book titles/authors and
+ * home item titles/manufacturers. The trie is rebuilt off the request path whenever the
+ * catalog changes and swapped in atomically, so lookups never touch MongoDB. Changes that
+ * arrive while the catalog is loaded are applied after the load, see {@link SnapshotGate}.
+ */
+@Service
+public class CatalogSuggestService {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private HomeItemRepository homeItemRepository;
+
+    @Value("${catalog.suggest.top-k:10}")
+    private int topK;
+
+    // Delay before a rebuild, so a burst of uploads only triggers one
+    @Value("${catalog.suggest.rebuild-delay-ms:500}")
+    private long rebuildDelayMs;
+
+    private final AtomicReference<SuggestionTrie> trie = new AtomicReference<>(SuggestionTrie.empty());
+    private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+
+    // Indexed terms per catalog item, keyed by "type:itemId"
+    private final Map<String, List<Term>> termsByItem = new ConcurrentHashMap<>();
+    private final SnapshotGate gate = new SnapshotGate();
+
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "catalog-suggest-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public List<Suggestion> suggest(String prefix, Integer limit) {
+        int max = limit == null ? topK : Math.max(0, Math.min(limit, topK));
+        return trie.get().lookup(prefix, max);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCatalog() {
+        rebuildExecutor.execute(() -> {
+            gate.load(() -> {
+                for (Book book : bookRepository.findAll()) {
+                    termsByItem.put(key(CatalogChangedEvent.BOOK, book.getId()), termsOf(book));
+                }
+                for (HomeItem homeItem : homeItemRepository.findAll()) {
+                    termsByItem.put(key(CatalogChangedEvent.HOME, homeItem.getId()), termsOf(homeItem));
+                }
+            });
+            rebuild();
+        });
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        List<Term> terms = event.getBook() != null ? termsOf(event.getBook()) : termsOf(event.getHomeItem());
+        gate.apply(() -> {
+            List<Term> previous = termsByItem.put(key(event.getType(), event.getItemId()), terms);
+
+            // Stock and price updates save the whole item; only rebuild when indexed text or ranking moved
+            if (!terms.equals(previous) && rebuildPending.compareAndSet(false, true)) {
+                rebuildExecutor.schedule(this::rebuild, rebuildDelayMs, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    // Items deleted on any node; a lost change stream reloads everything
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        if (event.getCatalogType() == null) return;
+        if (event.isAll()) {
+            termsByItem.keySet().removeIf(key -> key.startsWith(event.getCatalogType() + ":"));
+            loadCatalog();
+        } else if (event.isDeleted()) {
+            gate.apply(() -> {
+                if (termsByItem.remove(key(event.getCatalogType(), event.getDocumentId())) != null
+                        && rebuildPending.compareAndSet(false, true)) {
+                    rebuildExecutor.schedule(this::rebuild, rebuildDelayMs, TimeUnit.MILLISECONDS);
+                }
+            });
+        }
+    }
+
+    void rebuild() {
+        // Cleared first so changes arriving during the build schedule another pass
+        rebuildPending.set(false);
+
+        // Identical text (e.g. one author across many books) becomes a single suggestion
+        Map<String, Candidate> candidates = new HashMap<>();
+        termsByItem.forEach((itemKey, terms) -> {
+            for (Term term : terms) {
+                String dedupeKey = term.type + '|' + term.field + '|' + SuggestionTrie.normalize(term.text).trim();
+                candidates.computeIfAbsent(dedupeKey, k -> new Candidate(term)).add(term);
+            }
+        });
+
+        List<Candidate> ranked = new ArrayList<>(candidates.values());
+        ranked.sort(Comparator.comparingDouble((Candidate c) -> c.popularity).reversed()
+                .thenComparing(c -> c.best.text));
+
+        List<Suggestion> entries = new ArrayList<>(ranked.size());
+        for (Candidate candidate : ranked) {
+            Term best = candidate.best;
+            entries.add(new Suggestion(best.text, best.itemId, best.type, best.field));
+        }
+        trie.set(SuggestionTrie.build(entries, topK));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private static String key(String type, String itemId) {
+        return type + ":" + itemId;
+    }
+
+    private static List<Term> termsOf(Book book) {
+        double popularity = popularity(book.getReviews() == null ? 0 : book.getReviews().size(), book.getRatings());
+        List<Term> terms = new ArrayList<>(2);
+        addTerm(terms, book.getTitle(), "title", CatalogChangedEvent.BOOK, book.getId(), popularity);
+        addTerm(terms, book.getAuthor(), "author", CatalogChangedEvent.BOOK, book.getId(), popularity);
+        return terms;
+    }
+
+    private static List<Term> termsOf(HomeItem homeItem) {
+        double popularity = popularity(homeItem.getReviews() == null ? 0 : homeItem.getReviews().size(), homeItem.getRatings());
+        List<Term> terms = new ArrayList<>(2);
+        addTerm(terms, homeItem.getTitle(), "title", CatalogChangedEvent.HOME, homeItem.getId(), popularity);
+        addTerm(terms, homeItem.getManufacturer(), "manufacturer", CatalogChangedEvent.HOME, homeItem.getId(), popularity);
+        return terms;
+    }
+
+    private static void addTerm(List<Term> terms, String text, String field, String type, String itemId, double popularity) {
+        if (text != null && !text.isBlank()) {
+            terms.add(new Term(text.trim(), field, type, itemId, popularity));
+        }
+    }
+
+    // Review count drives popularity; the average rating only breaks ties
+    private static double popularity(int reviewCount, double ratings) {
+        return reviewCount + ratings / 10.0;
+    }
+
+    private record Term(String text, String field, String type, String itemId, double popularity) {
+    }
+
+    private static final class Candidate {
+        Term best;
+        double popularity;
+
+        Candidate(Term first) {
+            this.best = first;
+        }
+
+        void add(Term term) {
+            popularity += term.popularity;
+            if (term.popularity > best.popularity) best = term;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CacheInvalidationEvent;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the in-process caches of every app node in step with writes made by the other nodes.
+ *
+ * One change stream watches books, homeItems, users and carts. Book and home item writes are
+ * replayed locally as {@link CatalogChangedEvent}s with the post-image, so the cache, search,
+ * suggest and browse indexes refresh exactly as after a local save. Deletes and user/cart changes
+ * become {@link CacheInvalidationEvent}s. Changes made by this node come back too; the handlers
+ * are idempotent.
+ *
+ * The resume token is saved to the changeStreamTokens collection about once a second, so a
+ * restarted node continues where it stopped. If the oplog no longer reaches back that far,
+ * every cache is told to drop everything instead.
+ *
+ * Change streams need a replica set, so this is off unless catalog.change-streams.enabled=true.
+ */
+@Service
+public class ChangeStreamListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeStreamListener.class);
+
+    static final String TOKEN_COLLECTION = "changeStreamTokens";
+
+    // Server error codes meaning the resume token can no longer be used
+    private static final List<Integer> HISTORY_LOST = Arrays.asList(280, 286);
+
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final String streamId;
+    private final long tokenFlushMs;
+
+    private volatile boolean running;
+    private Thread worker;
+    private BsonDocument resumeToken;
+    private BsonDocument savedToken;
+    private long lastFlush;
+
+    public ChangeStreamListener(MongoTemplate mongoTemplate,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${catalog.change-streams.enabled:false}") boolean enabled,
+                                @Value("${catalog.change-streams.id:app-caches}") String streamId,
+                                @Value("${catalog.change-streams.token-flush-ms:1000}") long tokenFlushMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.streamId = streamId;
+        this.tokenFlushMs = tokenFlushMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || running) return;
+        running = true;
+        worker = new Thread(this::run, "change-stream-listener");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            try {
+                worker.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        resumeToken = loadToken();
+        savedToken = resumeToken;
+        long backoffMs = 1000;
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = open()) {
+                backoffMs = 1000;
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change != null && change.getOperationType() == OperationType.INVALIDATE) {
+                        // The stream is closed for good; start a new one and assume we missed things
+                        resumeToken = null;
+                        invalidateEverything();
+                        break;
+                    }
+                    if (change != null) {
+                        translate(change).forEach(eventPublisher::publishEvent);
+                    }
+                    if (cursor.getResumeToken() != null) {
+                        resumeToken = cursor.getResumeToken();
+                    }
+                    flushToken(false);
+                }
+            } catch (MongoCommandException e) {
+                if (HISTORY_LOST.contains(e.getErrorCode())) {
+                    log.warn("Change stream resume token expired, invalidating all caches");
+                    resumeToken = null;
+                    invalidateEverything();
+                } else {
+                    backoffMs = pause(e, backoffMs);
+                }
+            } catch (RuntimeException e) {
+                backoffMs = pause(e, backoffMs);
+            }
+        }
+        flushToken(true);
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open() {
+        List<String> collections = new ArrayList<>();
+        for (CacheInvalidationEvent.Source source : CacheInvalidationEvent.Source.values()) {
+            collections.add(source.getCollection());
+        }
+        List<Bson> pipeline = List.of(Aggregates.match(Filters.in("ns.coll", collections)));
+        var stream = mongoTemplate.getDb().watch(pipeline)
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+        return stream.cursor();
+    }
+
+    /**
+     * Events to publish locally for one change. Package-private for tests.
+     */
+    List<Object> translate(ChangeStreamDocument<Document> change) {
+        String collection = change.getNamespace() == null ? null : change.getNamespace().getCollectionName();
+        CacheInvalidationEvent.Source source = CacheInvalidationEvent.Source.fromCollection(collection);
+        List<Object> events = new ArrayList<>(1);
+        if (source == null) return events;
+
+        OperationType operation = change.getOperationType();
+        switch (operation) {
+            case INSERT, UPDATE, REPLACE -> {
+                String id = idOf(change.getDocumentKey());
+                Document fullDocument = change.getFullDocument();
+                if (fullDocument != null && source == CacheInvalidationEvent.Source.BOOKS) {
+                    events.add(CatalogChangedEvent.of(mongoTemplate.getConverter().read(Book.class, fullDocument)));
+                } else if (fullDocument != null && source == CacheInvalidationEvent.Source.HOME_ITEMS) {
+                    events.add(CatalogChangedEvent.of(mongoTemplate.getConverter().read(HomeItem.class, fullDocument)));
+                } else {
+                    // users/carts, or the post-image lookup found the document already deleted
+                    events.add(new CacheInvalidationEvent(source, id, fullDocument == null));
+                }
+            }
+            case DELETE -> events.add(new CacheInvalidationEvent(source, idOf(change.getDocumentKey()), true));
+            case DROP, RENAME -> events.add(CacheInvalidationEvent.all(source));
+            default -> {
+                // other operation types do not change documents
+            }
+        }
+        return events;
+    }
+
+    private void invalidateEverything() {
+        for (CacheInvalidationEvent.Source source : CacheInvalidationEvent.Source.values()) {
+            eventPublisher.publishEvent(CacheInvalidationEvent.all(source));
+        }
+    }
+
+    private static String idOf(BsonDocument documentKey) {
+        if (documentKey == null || !documentKey.containsKey("_id")) return null;
+        BsonValue id = documentKey.get("_id");
+        if (id.isObjectId()) return id.asObjectId().getValue().toHexString();
+        if (id.isString()) return id.asString().getValue();
+        return id.toString();
+    }
+
+    private BsonDocument loadToken() {
+        Document stored = tokens().find(Filters.eq("_id", streamId)).first();
+        if (stored == null || stored.get("token") == null) return null;
+        return stored.get("token", Document.class)
+                .toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    private void flushToken(boolean force) {
+        long now = System.currentTimeMillis();
+        if (resumeToken == null || resumeToken.equals(savedToken) || (!force && now - lastFlush < tokenFlushMs)) {
+            return;
+        }
+        try {
+            tokens().replaceOne(Filters.eq("_id", streamId),
+                    new Document("_id", streamId).append("token", resumeToken).append("updatedAt", new Date(now)),
+                    new ReplaceOptions().upsert(true));
+            savedToken = resumeToken;
+            lastFlush = now;
+        } catch (RuntimeException e) {
+            log.warn("Could not save change stream resume token: {}", e.getMessage());
+        }
+    }
+
+    private MongoCollection<Document> tokens() {
+        return mongoTemplate.getCollection(TOKEN_COLLECTION);
+    }
+
+    private long pause(Exception e, long backoffMs) {
+        log.warn("Change stream interrupted, retrying in {} ms: {}", backoffMs, e.getMessage());
+        try {
+            Thread.sleep(backoffMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+        return Math.min(backoffMs * 2, 30_000);
+    }
+}
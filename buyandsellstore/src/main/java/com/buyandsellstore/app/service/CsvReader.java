@@ -0,0 +1,76 @@
+package com.buyandsellstore.app.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming RFC 4180 reader: comma separated, fields optionally in double quotes,
+ * "" for a literal quote, and line breaks allowed inside quotes. Reads one record at a time.
+ */
+final class CsvReader {
+
+    private final Reader in;
+    private int peeked = -2;
+
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    // Next record, or null at end of input; blank lines are skipped
+    List<String> next() throws IOException {
+        while (true) {
+            if (peek() == -1) return null;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean sawAny = false;
+            while (true) {
+                int c = read();
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IOException("Unterminated quoted field");
+                    } else if (c == '"') {
+                        if (peek() == '"') {
+                            field.append((char) read());
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                    sawAny = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    sawAny = true;
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r' && peek() == '\n') read();
+                    if (sawAny || !field.isEmpty()) {
+                        fields.add(field.toString());
+                        return fields;
+                    }
+                    if (c == -1) return null;
+                    break; // blank line
+                } else {
+                    field.append((char) c);
+                    sawAny = true;
+                }
+            }
+        }
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) peeked = in.read();
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        peeked = -2;
+        return c;
+    }
+}
@@ -25,6 +25,17 @@ public class EmailService {
     private String port;
 
     public void sendPasswordResetEmail(String toEmail, String resetLink) {
+        send(toEmail, "Password Reset Request", "Please click the link below to reset your password:\n" + resetLink);
+        System.out.println("Password reset email sent successfully to " + toEmail);
+    }
+
+    // One message listing all of a seller's low-stock items
+    public void sendLowStockEmail(String toEmail, String itemList) {
+        send(toEmail, "Items running low on stock",
+                "The following items are at or below your low-stock threshold:\n\n" + itemList);
+    }
+
+    private void send(String toEmail, String subject, String text) {
         // Set up mail server properties
         Properties props = new Properties();
         props.put("mail.smtp.auth", "true");
@@ -45,12 +56,11 @@ public class EmailService {
             Message message = new MimeMessage(session);
             message.setFrom(new InternetAddress(username));
             message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(toEmail));
-            message.setSubject("Password Reset Request");
-            message.setText("Please click the link below to reset your password:\n" + resetLink);
+            message.setSubject(subject);
+            message.setText(text);
 
             // Send the message
             Transport.send(message);
-            System.out.println("Password reset email sent successfully to " + toEmail);
         } catch (MessagingException e) {
             e.printStackTrace();
             throw new RuntimeException("Failed to send email", e);
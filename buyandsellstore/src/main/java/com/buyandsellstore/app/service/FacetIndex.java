@@ -0,0 +1,332 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.FacetCount;
+import com.buyandsellstore.app.model.BrowseFilter;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory facet index over home items. Every item gets a slot, and every facet value
+ * (type, manufacturer, seller, price bucket, rating floor) keeps the {@link SlotSet} of
+ * slots carrying it, updated on each save. A browse request walks the smallest set among
+ * its conditions and checks the rest per slot; facet counts for an unfiltered dimension are
+ * simply the set sizes, so no request ever scans or groups the whole collection.
+ *
+ * Facet counts follow the usual shop behaviour: the counts of one dimension ignore that
+ * dimension's own condition, so picking a type still shows how many items the other types have.
+ */
+final class FacetIndex {
+
+    // Lower bounds of the price facet buckets; the last one is open-ended
+    static final double[] PRICE_BOUNDS = {0, 25, 50, 100, 250, 500};
+
+    private enum Dim { TYPE, MANUFACTURER, SELLER, PRICE, RATING }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<Entry> entries = new ArrayList<>(); // null once removed
+    private int liveCount;
+
+    private final Map<String, SlotSet> byType = new HashMap<>();
+    private final Map<String, SlotSet> byManufacturer = new HashMap<>();
+    private final Map<String, SlotSet> bySeller = new HashMap<>();
+    private final SlotSet[] byPrice = new SlotSet[PRICE_BOUNDS.length];
+    private final SlotSet[] byRating = new SlotSet[6]; // by whole stars, 0..5
+
+    // Lower-cased facet key -> spelling shown to the user
+    private final Map<String, String> typeLabels = new HashMap<>();
+    private final Map<String, String> manufacturerLabels = new HashMap<>();
+
+    FacetIndex() {
+        for (int i = 0; i < byPrice.length; i++) byPrice[i] = new SlotSet();
+        for (int i = 0; i < byRating.length; i++) byRating[i] = new SlotSet();
+    }
+
+    void upsert(String id, String type, String manufacturer, String sellerId, double price, double rating) {
+        Entry entry = new Entry(key(type), key(manufacturer), sellerId == null ? "" : sellerId, price, rating);
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.get(id);
+            if (slot == null) {
+                slot = ids.size();
+                slotById.put(id, slot);
+                ids.add(id);
+                entries.add(null);
+            }
+            Entry old = entries.get(slot);
+            if (old != null) {
+                unpost(slot, old);
+            } else {
+                liveCount++;
+            }
+            post(slot, entry);
+            entries.set(slot, entry);
+            if (!entry.type.isEmpty()) typeLabels.putIfAbsent(entry.type, type.trim());
+            if (!entry.manufacturer.isEmpty()) manufacturerLabels.putIfAbsent(entry.manufacturer, manufacturer.trim());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.get(id);
+            if (slot == null || entries.get(slot) == null) return;
+            unpost(slot, entries.get(slot));
+            entries.set(slot, null);
+            liveCount--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            slotById.clear();
+            ids.clear();
+            entries.clear();
+            liveCount = 0;
+            byType.clear();
+            byManufacturer.clear();
+            bySeller.clear();
+            for (int i = 0; i < byPrice.length; i++) byPrice[i] = new SlotSet();
+            for (int i = 0; i < byRating.length; i++) byRating[i] = new SlotSet();
+            typeLabels.clear();
+            manufacturerLabels.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Page browse(BrowseFilter filter, int offset, int limit, int maxFacetValues) {
+        lock.readLock().lock();
+        try {
+            List<Condition> conditions = conditions(filter == null ? new BrowseFilter() : filter);
+
+            int[] matches = matches(conditions, null);
+            int total = matches == null ? liveCount : matches.length;
+            List<String> page = new ArrayList<>(Math.max(0, Math.min(limit, total - offset)));
+            if (matches == null) {
+                int skipped = 0;
+                for (int slot = 0; slot < entries.size() && page.size() < limit; slot++) {
+                    if (entries.get(slot) != null && skipped++ >= offset) page.add(ids.get(slot));
+                }
+            } else {
+                for (int i = offset; i < matches.length && page.size() < limit; i++) {
+                    page.add(ids.get(matches[i]));
+                }
+            }
+
+            List<FacetCount> types = sorted(facetCounts(conditions, matches, Dim.TYPE, byType,
+                    slot -> entries.get(slot).type), typeLabels, Integer.MAX_VALUE);
+            List<FacetCount> manufacturers = sorted(facetCounts(conditions, matches, Dim.MANUFACTURER, byManufacturer,
+                    slot -> entries.get(slot).manufacturer), manufacturerLabels, maxFacetValues);
+
+            Map<String, SlotSet> buckets = new LinkedHashMap<>();
+            for (int b = 0; b < byPrice.length; b++) buckets.put(String.valueOf(b), byPrice[b]);
+            Map<String, Integer> priceCounts = facetCounts(conditions, matches, Dim.PRICE, buckets,
+                    slot -> String.valueOf(bucketOf(entries.get(slot).price)));
+            List<FacetCount> prices = new ArrayList<>();
+            for (int b = 0; b < byPrice.length; b++) {
+                prices.add(new FacetCount(priceLabel(b), priceCounts.getOrDefault(String.valueOf(b), 0)));
+            }
+            return new Page(total, page, types, manufacturers, prices);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static int bucketOf(double price) {
+        int bucket = 0;
+        while (bucket + 1 < PRICE_BOUNDS.length && price >= PRICE_BOUNDS[bucket + 1]) bucket++;
+        return bucket;
+    }
+
+    static String priceLabel(int bucket) {
+        String low = String.valueOf((int) PRICE_BOUNDS[bucket]);
+        return bucket + 1 < PRICE_BOUNDS.length ? low + "-" + (int) PRICE_BOUNDS[bucket + 1] : low + "+";
+    }
+
+    private static String key(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void post(int slot, Entry entry) {
+        if (!entry.type.isEmpty()) byType.computeIfAbsent(entry.type, k -> new SlotSet()).add(slot);
+        if (!entry.manufacturer.isEmpty()) byManufacturer.computeIfAbsent(entry.manufacturer, k -> new SlotSet()).add(slot);
+        if (!entry.sellerId.isEmpty()) bySeller.computeIfAbsent(entry.sellerId, k -> new SlotSet()).add(slot);
+        byPrice[bucketOf(entry.price)].add(slot);
+        byRating[ratingFloor(entry.rating)].add(slot);
+    }
+
+    private void unpost(int slot, Entry entry) {
+        unpost(byType, entry.type, slot);
+        unpost(byManufacturer, entry.manufacturer, slot);
+        unpost(bySeller, entry.sellerId, slot);
+        byPrice[bucketOf(entry.price)].remove(slot);
+        byRating[ratingFloor(entry.rating)].remove(slot);
+    }
+
+    private static void unpost(Map<String, SlotSet> sets, String key, int slot) {
+        SlotSet set = sets.get(key);
+        if (set != null && set.remove(slot) && set.cardinality() == 0) sets.remove(key);
+    }
+
+    private static int ratingFloor(double rating) {
+        return (int) Math.max(0, Math.min(5, Math.floor(rating)));
+    }
+
+    private List<Condition> conditions(BrowseFilter filter) {
+        List<Condition> conditions = new ArrayList<>();
+        if (filter.getType() != null && !filter.getType().isBlank()) {
+            String type = key(filter.getType());
+            conditions.add(new Condition(Dim.TYPE, List.of(byType.getOrDefault(type, new SlotSet())),
+                    slot -> entries.get(slot).type.equals(type)));
+        }
+        if (filter.getManufacturer() != null && !filter.getManufacturer().isBlank()) {
+            String manufacturer = key(filter.getManufacturer());
+            conditions.add(new Condition(Dim.MANUFACTURER, List.of(byManufacturer.getOrDefault(manufacturer, new SlotSet())),
+                    slot -> entries.get(slot).manufacturer.equals(manufacturer)));
+        }
+        if (filter.getSellerId() != null && !filter.getSellerId().isBlank()) {
+            String sellerId = filter.getSellerId();
+            conditions.add(new Condition(Dim.SELLER, List.of(bySeller.getOrDefault(sellerId, new SlotSet())),
+                    slot -> entries.get(slot).sellerId.equals(sellerId)));
+        }
+        if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+            double min = filter.getMinPrice() == null ? Double.NEGATIVE_INFINITY : filter.getMinPrice();
+            double max = filter.getMaxPrice() == null ? Double.POSITIVE_INFINITY : filter.getMaxPrice();
+            List<SlotSet> buckets = new ArrayList<>();
+            if (min <= max) {
+                for (int b = bucketOf(min); b <= bucketOf(max); b++) buckets.add(byPrice[b]);
+            }
+            conditions.add(new Condition(Dim.PRICE, buckets, slot -> {
+                double price = entries.get(slot).price;
+                return price >= min && price <= max;
+            }));
+        }
+        if (filter.getMinRating() != null) {
+            double min = filter.getMinRating();
+            List<SlotSet> floors = new ArrayList<>();
+            for (int r = ratingFloor(min); r < byRating.length; r++) floors.add(byRating[r]);
+            conditions.add(new Condition(Dim.RATING, floors, slot -> entries.get(slot).rating >= min));
+        }
+        return conditions;
+    }
+
+    /**
+     * Slots satisfying every condition except the one on {@code skip}, ascending,
+     * or null when nothing constrains the result (every live item matches).
+     */
+    private int[] matches(List<Condition> conditions, Dim skip) {
+        Condition driver = null;
+        for (Condition condition : conditions) {
+            if (condition.dim != skip && (driver == null || condition.size < driver.size)) driver = condition;
+        }
+        if (driver == null) return null;
+
+        int[][] out = {new int[Math.min(driver.size, 1024)]};
+        int[] count = {0};
+        for (SlotSet set : driver.sets) {
+            set.forEach(slot -> {
+                for (Condition condition : conditions) {
+                    if (condition.dim != skip && !condition.test.test(slot)) return;
+                }
+                if (count[0] == out[0].length) out[0] = Arrays.copyOf(out[0], count[0] * 2);
+                out[0][count[0]++] = slot;
+            });
+        }
+        int[] result = Arrays.copyOf(out[0], count[0]);
+        if (driver.sets.size() > 1) Arrays.sort(result);
+        return result;
+    }
+
+    private Map<String, Integer> facetCounts(List<Condition> conditions, int[] matches, Dim dim,
+                                             Map<String, SlotSet> sets, IntFunction<String> valueOf) {
+        boolean constrained = conditions.stream().anyMatch(c -> c.dim == dim);
+        int[] base = constrained ? matches(conditions, dim) : matches;
+
+        Map<String, Integer> counts = new HashMap<>();
+        if (base == null) {
+            // Nothing else filters this dimension: the maintained set sizes are the answer
+            sets.forEach((value, set) -> {
+                if (set.cardinality() > 0) counts.put(value, set.cardinality());
+            });
+        } else {
+            for (int slot : base) {
+                String value = valueOf.apply(slot);
+                if (!value.isEmpty()) counts.merge(value, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static List<FacetCount> sorted(Map<String, Integer> counts, Map<String, String> labels, int max) {
+        List<FacetCount> facets = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> facets.add(new FacetCount(labels.getOrDefault(key, key), count)));
+        facets.sort(Comparator.comparingInt(FacetCount::getCount).reversed().thenComparing(FacetCount::getValue));
+        return facets.size() > max ? new ArrayList<>(facets.subList(0, max)) : facets;
+    }
+
+    static final class Page {
+        final int total;
+        final List<String> ids;
+        final List<FacetCount> types;
+        final List<FacetCount> manufacturers;
+        final List<FacetCount> prices;
+
+        Page(int total, List<String> ids, List<FacetCount> types, List<FacetCount> manufacturers, List<FacetCount> prices) {
+            this.total = total;
+            this.ids = ids;
+            this.types = types;
+            this.manufacturers = manufacturers;
+            this.prices = prices;
+        }
+    }
+
+    private static final class Condition {
+        final Dim dim;
+        final List<SlotSet> sets; // union of these holds every match
+        final IntPredicate test;  // exact check per slot
+        final int size;
+
+        Condition(Dim dim, List<SlotSet> sets, IntPredicate test) {
+            this.dim = dim;
+            this.sets = sets;
+            this.test = test;
+            this.size = sets.stream().mapToInt(SlotSet::cardinality).sum();
+        }
+    }
+
+    private static final class Entry {
+        final String type;
+        final String manufacturer;
+        final String sellerId;
+        final double price;
+        final double rating;
+
+        Entry(String type, String manufacturer, String sellerId, double price, double rating) {
+            this.type = type;
+            this.manufacturer = manufacturer;
+            this.sellerId = sellerId;
+            this.price = price;
+            this.rating = rating;
+        }
+    }
+}
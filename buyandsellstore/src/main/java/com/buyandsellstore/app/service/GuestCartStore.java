@@ -0,0 +1,305 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.model.CartItem;
+import com.buyandsellstore.app.model.GuestCart;
+import jakarta.annotation.PreDestroy;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Carts of visitors who are not logged in, keyed by an opaque token and kept in memory so
+ * browsing traffic does not write to MongoDB.
+ *
+ * Entries expire {@code cart.guest.ttl-ms} after their last change. When more than
+ * {@code cart.guest.max-entries} are held, the least recently used ones are written to the
+ * guestCarts collection, whose TTL index deletes them at the same expiry, and are read back
+ * (and removed there) the next time their token is used. On shutdown every live cart is
+ * written out the same way. A token only resolves on the node holding its cart or after it
+ * was spilled, so several nodes need sticky sessions for guests.
+ *
+ * Unknown tokens (expired carts, stale cookies, bots) are only looked up in MongoDB when a
+ * Bloom filter of the spilled tokens might hold them. The filter is rebuilt from an _id scan
+ * of guestCarts every {@code cart.guest.spilled-scan-ms}, which also picks up carts other
+ * nodes spilled on shutdown, and gets this node's spills as they happen. Until the first
+ * scan every token is looked up.
+ */
+@Component
+public class GuestCartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(GuestCartStore.class);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${cart.guest.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    @Value("${cart.guest.ttl-ms:86400000}")
+    private long ttlMs = 86400000;
+
+    @Value("${cart.guest.spilled-false-positive-rate:0.01}")
+    private double spilledFalsePositiveRate = 0.01;
+
+    private final LinkedHashMap<String, Entry> carts = new LinkedHashMap<>(1024, 0.75f, true);
+    private final Map<String, Entry> spilling = new ConcurrentHashMap<>(); // Evicted, not yet in MongoDB
+    private volatile BloomFilter spilledTokens;  // null until the first scan
+    private volatile BloomFilter scanning;       // Also receives spills while a scan runs
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder reloaded = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder lookupsSkipped = new LongAdder();
+
+    private static final class Entry {
+        final List<CartItem> items;
+        long expiresAt;
+
+        Entry(List<CartItem> items, long expiresAt) {
+            this.items = items;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // 192 random bits; the token is the only thing that ties a visitor to the cart
+    public String newToken() {
+        byte[] bytes = new byte[24];
+        RANDOM.nextBytes(bytes);
+        created.increment();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // Copy of the cart's lines; null when the token is unknown or expired
+    public List<CartItem> get(String token) {
+        if (token == null) return null;
+        Entry entry = load(token);
+        if (entry == null) return null;
+        synchronized (this) {
+            return copy(entry.items);
+        }
+    }
+
+    /**
+     * Applies a change to the cart's lines under the store's lock and renews its expiry.
+     * Returns the lines after the change, or null when the token is unknown or expired.
+     */
+    public List<CartItem> update(String token, Consumer<List<CartItem>> change) {
+        if (token == null) return null;
+        if (load(token) == null) return null;
+        List<Map.Entry<String, Entry>> evicted;
+        List<CartItem> after;
+        synchronized (this) {
+            Entry entry = carts.get(token);
+            if (entry == null) return null; // Expired or taken meanwhile
+            change.accept(entry.items);
+            entry.expiresAt = System.currentTimeMillis() + ttlMs;
+            after = copy(entry.items);
+            evicted = evictOverflow();
+        }
+        spill(evicted);
+        return after;
+    }
+
+    // Starts an empty cart for a token from newToken()
+    public void create(String token) {
+        List<Map.Entry<String, Entry>> evicted;
+        synchronized (this) {
+            carts.put(token, new Entry(new ArrayList<>(), System.currentTimeMillis() + ttlMs));
+            evicted = evictOverflow();
+        }
+        spill(evicted);
+    }
+
+    // Removes the cart and returns its lines, e.g. to move them into a user's cart; null when unknown
+    public List<CartItem> take(String token) {
+        if (token == null || load(token) == null) return null;
+        synchronized (this) {
+            Entry entry = carts.remove(token);
+            return entry == null ? null : entry.items;
+        }
+    }
+
+    // Puts lines back under their token after a take whose follow-up failed
+    public void restore(String token, List<CartItem> items) {
+        create(token);
+        update(token, lines -> lines.addAll(items));
+    }
+
+    // In memory, being spilled, or in MongoDB, in that order; a cart read back moves into memory
+    private Entry load(String token) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry entry = carts.get(token);
+            if (entry != null) {
+                if (entry.expiresAt > now) return entry;
+                carts.remove(token);
+                expired.increment();
+                return null;
+            }
+        }
+        Entry found = spilling.get(token); // Evicted a moment ago; the same entry goes back
+        if (found == null) {
+            BloomFilter filter = spilledTokens;
+            if (filter != null && !filter.mightContain(token)) {
+                lookupsSkipped.increment();
+                return null;
+            }
+            lookups.increment();
+            GuestCart stored = mongoTemplate.findAndRemove(new Query(Criteria.where("_id").is(token)), GuestCart.class);
+            if (stored == null || stored.getExpiresAt() == null || stored.getExpiresAt().getTime() <= now) return null;
+            found = new Entry(new ArrayList<>(stored.getItems()), stored.getExpiresAt().getTime());
+            reloaded.increment();
+        }
+        List<Map.Entry<String, Entry>> evicted;
+        Entry entry;
+        synchronized (this) {
+            entry = carts.putIfAbsent(token, found); // Another request may have loaded it first
+            if (entry == null) entry = found;
+            evicted = evictOverflow();
+        }
+        spill(evicted);
+        return entry;
+    }
+
+    // Caller holds the lock
+    private List<Map.Entry<String, Entry>> evictOverflow() {
+        List<Map.Entry<String, Entry>> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Entry>> eldest = carts.entrySet().iterator();
+        while (carts.size() > maxEntries && eldest.hasNext()) {
+            Map.Entry<String, Entry> entry = eldest.next();
+            eldest.remove();
+            evicted.add(Map.entry(entry.getKey(), entry.getValue()));
+            spilling.put(entry.getKey(), entry.getValue());
+        }
+        return evicted;
+    }
+
+    private void spill(List<Map.Entry<String, Entry>> evicted) {
+        for (Map.Entry<String, Entry> entry : evicted) {
+            try {
+                Entry cart = entry.getValue();
+                List<CartItem> items;
+                synchronized (this) {
+                    items = copy(cart.items);
+                }
+                if (cart.expiresAt > System.currentTimeMillis() && !items.isEmpty()) {
+                    markSpilled(entry.getKey()); // Before the write, so a lookup right after it is not skipped
+                    mongoTemplate.save(new GuestCart(entry.getKey(), items, new Date(cart.expiresAt)));
+                    markSpilled(entry.getKey()); // Again, for a scan that started in between
+                    spilled.increment();
+                    boolean back;
+                    synchronized (this) {
+                        back = carts.containsKey(entry.getKey());
+                    }
+                    // Used again while it was being written: memory has it, so the copy must not outlive it
+                    if (back) mongoTemplate.remove(new Query(Criteria.where("_id").is(entry.getKey())), GuestCart.class);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not move guest cart out of memory, dropping it: {}", e.getMessage());
+            } finally {
+                spilling.remove(entry.getKey());
+            }
+        }
+    }
+
+    private void markSpilled(String token) {
+        // scanning before spilledTokens: a scan publishes its filter before clearing scanning
+        BloomFilter next = scanning;
+        BloomFilter filter = spilledTokens;
+        if (next != null) next.put(token);
+        if (filter != null) filter.put(token);
+    }
+
+    // Rebuilds the filter of spilled tokens; rows deleted by the TTL index drop out of it here
+    @Scheduled(fixedDelayString = "${cart.guest.spilled-scan-ms:60000}")
+    public synchronized void scanSpilled() {
+        try {
+            String name = mongoTemplate.getCollectionName(GuestCart.class);
+            MongoCollection<Document> collection = mongoTemplate.getCollection(name);
+            BloomFilter filter = BloomFilter.create(2 * collection.estimatedDocumentCount() + 1024, spilledFalsePositiveRate);
+            scanning = filter;
+            for (Document doc : collection.find().projection(new Document("_id", 1)).batchSize(10_000)) {
+                filter.put(String.valueOf(doc.get("_id")));
+            }
+            spilledTokens = filter;
+        } catch (RuntimeException e) {
+            log.warn("Could not scan the spilled guest carts, keeping the previous filter: {}", e.getMessage());
+        } finally {
+            scanning = null;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.guest.purge-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Iterator<Entry> it = carts.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().expiresAt <= now) {
+                    it.remove();
+                    expired.increment();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void spillAll() {
+        List<Map.Entry<String, Entry>> all;
+        synchronized (this) {
+            all = new ArrayList<>(carts.entrySet());
+            carts.clear();
+        }
+        spill(all);
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inMemory", carts.size());
+        stats.put("created", created.sum());
+        stats.put("spilled", spilled.sum());
+        stats.put("reloaded", reloaded.sum());
+        stats.put("expired", expired.sum());
+        stats.put("lookups", lookups.sum());
+        stats.put("lookupsSkipped", lookupsSkipped.sum());
+        return stats;
+    }
+
+    private static List<CartItem> copy(List<CartItem> items) {
+        List<CartItem> copy = new ArrayList<>(items.size());
+        for (CartItem item : items) {
+            CartItem line = new CartItem();
+            line.setItemId(item.getItemId());
+            line.setType(item.getType());
+            line.setName(item.getName());
+            line.setQuantity(item.getQuantity());
+            line.setPrice(item.getPrice());
+            line.setImageUrl(item.getImageUrl());
+            copy.add(line);
+        }
+        return copy;
+    }
+}
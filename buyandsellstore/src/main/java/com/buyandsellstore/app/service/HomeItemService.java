@@ -1,13 +1,25 @@
 package com.buyandsellstore.app.service;
 
+import com.buyandsellstore.app.dto.UploadHomeItemResponse;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
 import com.buyandsellstore.app.model.HomeItem;
 import com.buyandsellstore.app.model.Review;
 import com.buyandsellstore.app.repository.HomeItemRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 
 @Service
 public class HomeItemService {
@@ -15,12 +27,106 @@ public class HomeItemService {
     @Autowired
     private HomeItemRepository homeItemRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private RankingService rankingService;
+
+    @Autowired
+    private CatalogIdFilter catalogIdFilter;
+
+    private static final int REVIEW_WRITE_ATTEMPTS = 3;
+    private static final int EDIT_ATTEMPTS = 3;
+    static final String HOT_STOCK_MESSAGE = "Stock of this item is sharded for a flash sale; disable hot inventory first.";
+
     public List<HomeItem> getAllHomeItems() {
         return homeItemRepository.findAll();
     }
 
+    // Cached; the returned item is shared, so use getHomeItemForUpdate before modifying and saving it
     public HomeItem getHomeItemById(String id) {
-        return homeItemRepository.findById(id).orElse(null);
+        HomeItem cached = catalogCache.getHomeItem(id);
+        if (cached != null) {
+            Integer stock = getStock(id);
+            // A copy: other readers hold the cached instance
+            return stock == null || stock == cached.getTotalQuantity() ? cached : cached.withTotalQuantity(stock);
+        }
+        if (catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.HOME, id)) return null;
+        long stamp = catalogCache.stamp();
+        HomeItem homeItem = homeItemRepository.findById(id).orElse(null);
+        if (homeItem == null) {
+            catalogIdFilter.recordMiss();
+        } else {
+            catalogCache.putHomeItem(homeItem, stamp);
+            catalogCache.putStock(CatalogChangedEvent.HOME, id, homeItem.getTotalQuantity());
+        }
+        return homeItem;
+    }
+
+    // getById for many ids: cached ones from memory, the rest in one query; ids that do not exist are left out
+    public Map<String, HomeItem> getHomeItemsByIds(Collection<String> ids) {
+        Map<String, HomeItem> found = new LinkedHashMap<>();
+        List<String> toLoad = new ArrayList<>();
+        for (String id : ids) {
+            HomeItem cached = catalogCache.getHomeItem(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else if (!catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.HOME, id)) {
+                toLoad.add(id);
+            }
+        }
+        if (toLoad.isEmpty()) return found;
+        long stamp = catalogCache.stamp();
+        int loaded = 0;
+        for (HomeItem homeItem : homeItemRepository.findAllById(toLoad)) {
+            catalogCache.putHomeItem(homeItem, stamp);
+            found.put(homeItem.getId(), homeItem);
+            loaded++;
+        }
+        for (int i = loaded; i < toLoad.size(); i++) catalogIdFilter.recordMiss();
+        return found;
+    }
+
+    // getForUpdate for many ids in one findAllById, e.g. to price a checkout; ids that do not exist are left out
+    public Map<String, HomeItem> getHomeItemsForUpdate(Collection<String> ids) {
+        List<String> toLoad = new ArrayList<>();
+        for (String id : ids) {
+            if (!catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.HOME, id)) toLoad.add(id);
+        }
+        Map<String, HomeItem> found = new LinkedHashMap<>();
+        if (toLoad.isEmpty()) return found;
+        for (HomeItem homeItem : homeItemRepository.findAllById(toLoad)) found.put(homeItem.getId(), homeItem);
+        for (int i = found.size(); i < toLoad.size(); i++) catalogIdFilter.recordMiss();
+        return found;
+    }
+
+    // Always reads MongoDB, for read-modify-write paths
+    public HomeItem getHomeItemForUpdate(String id) {
+        if (catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.HOME, id)) return null;
+        HomeItem homeItem = homeItemRepository.findById(id).orElse(null);
+        if (homeItem == null) catalogIdFilter.recordMiss();
+        return homeItem;
+    }
+
+    // Current quantity, at most catalog.cache.stock-ttl-ms old
+    public Integer getStock(String id) {
+        Integer stock = catalogCache.getStock(CatalogChangedEvent.HOME, id);
+        if (stock == null) {
+            Query query = new Query(Criteria.where("_id").is(id));
+            query.fields().include("totalQuantity");
+            HomeItem homeItem = mongoTemplate.findOne(query, HomeItem.class);
+            if (homeItem == null) return null;
+            stock = homeItem.getTotalQuantity();
+            catalogCache.putStock(CatalogChangedEvent.HOME, id, stock);
+        }
+        return stock;
     }
     
     public HomeItem getHomeItemByType(String type) {
@@ -39,38 +145,76 @@ public class HomeItemService {
         return homeItemRepository.findByManufacturer(manufacturer);
     }
 
+    // For new items; edits of a stored one go through updateHomeItem
     public HomeItem save(HomeItem homeItem) {
-        return homeItemRepository.save(homeItem);
+        homeItem.setVersion(homeItem.getVersion() + 1);
+        // New items start at the prior, not below every rated item; refreshPriors only rescores stored scores
+        int reviewCount = homeItem.getReviews() == null ? 0 : homeItem.getReviews().size();
+        homeItem.setReviewCount(reviewCount);
+        homeItem.setRankScore(rankingService.rankScore(CatalogChangedEvent.HOME, homeItem.getRatings(), reviewCount));
+        HomeItem saved = homeItemRepository.save(homeItem);
+        eventPublisher.publishEvent(CatalogChangedEvent.of(saved));
+        return saved;
     }
-    
+
+    /**
+     * A seller's edit of a stored item: one $set of the edited fields, guarded on the version
+     * it was read at, so stock changes, reviews and write tokens written by others are kept.
+     * Throws DuplicateKeyException when the new manufacturer and title clash.
+     */
+    public UploadHomeItemResponse updateHomeItem(String id, String title, String description, int totalQuantity,
+                                                 double price, String imageUrl, String manufacturer, String sellerId,
+                                                 String type) {
+        for (int attempt = 0; attempt < EDIT_ATTEMPTS; attempt++) {
+            HomeItem existing = getHomeItemForUpdate(id);
+            if (existing == null) return new UploadHomeItemResponse(false, "Home item not found.", null);
+
+            // The shard sum overwrites totalQuantity on the next rebalance, so a restock here would be lost
+            boolean hot = existing.getHotShards() != null;
+            if (hot && totalQuantity != existing.getTotalQuantity()) {
+                return new UploadHomeItemResponse(false, HOT_STOCK_MESSAGE, null);
+            }
+            Update edit = new Update()
+                    .set("title", title)
+                    .set("description", description)
+                    .set("price", price)
+                    .set("imageUrl", imageUrl)
+                    .set("manufacturer", manufacturer)
+                    .set("sellerId", sellerId)
+                    .set("type", type)
+                    .inc("version", 1);
+            if (!hot) edit.set("totalQuantity", totalQuantity);
+            Criteria unchanged = Criteria.where("_id").is(id);
+            // Documents written before versions existed have no field, which reads as 0
+            unchanged = existing.getVersion() == 0 ? unchanged.and("version").in(0, null)
+                    : unchanged.and("version").is(existing.getVersion());
+            HomeItem updated = mongoTemplate.findAndModify(new Query(unchanged), edit,
+                    FindAndModifyOptions.options().returnNew(true), HomeItem.class);
+            if (updated != null) {
+                eventPublisher.publishEvent(CatalogChangedEvent.of(updated));
+                return new UploadHomeItemResponse(true, "Home item updated successfully.", updated);
+            }
+        }
+        return new UploadHomeItemResponse(false, "Home item is being changed, please retry.", null);
+    }
+
     // New methods for review management
-    
+
     // Add a review to a home item
     public HomeItem addReview(String homeItemId, Review newReview) {
-        HomeItem homeItem = homeItemRepository.findById(homeItemId).orElse(null);
-        if (homeItem != null) {
+        return updateReviews(homeItemId, homeItem -> {
             List<Review> reviews = homeItem.getReviews();
             if (reviews == null) reviews = new ArrayList<>();
             reviews.add(newReview);
             homeItem.setReviews(reviews);
-            
-            // Update ratings average
-            double totalRating = 0;
-            for (Review review : reviews) {
-                totalRating += review.getRating();
-            }
-            double averageRating = totalRating / reviews.size();
-            homeItem.setRatings(averageRating);
-            
-            homeItemRepository.save(homeItem);
-        }
-        return homeItem;
+            return true;
+        });
     }
 
     // Update a review by reviewer name
     public HomeItem updateReview(String homeItemId, String reviewer, Review updatedReview) {
-        HomeItem homeItem = homeItemRepository.findById(homeItemId).orElse(null);
-        if (homeItem != null && homeItem.getReviews() != null) {
+        return updateReviews(homeItemId, homeItem -> {
+            if (homeItem.getReviews() == null) return false;
             for (Review review : homeItem.getReviews()) {
                 if (review.getReviewer().equalsIgnoreCase(reviewer)) {
                     review.setComment(updatedReview.getComment());
@@ -78,43 +222,41 @@ public class HomeItemService {
                     break;
                 }
             }
-            
-            // Update ratings average
-            List<Review> reviews = homeItem.getReviews();
-            double totalRating = 0;
-            for (Review review : reviews) {
-                totalRating += review.getRating();
-            }
-            double averageRating = totalRating / reviews.size();
-            homeItem.setRatings(averageRating);
-            
-            homeItemRepository.save(homeItem);
-        }
-        return homeItem;
+            return true;
+        });
     }
 
     // Delete a review by reviewer name
     public HomeItem deleteReview(String homeItemId, String reviewer) {
-        HomeItem homeItem = homeItemRepository.findById(homeItemId).orElse(null);
-        if (homeItem != null && homeItem.getReviews() != null) {
+        return updateReviews(homeItemId, homeItem -> {
+            if (homeItem.getReviews() == null) return false;
             homeItem.getReviews().removeIf(review -> review.getReviewer().equalsIgnoreCase(reviewer));
-            
-            // Update ratings average if there are still reviews
+            return true;
+        });
+    }
+
+    // Applies a review change and stores it with the new rating and rank score in one
+    // conditional write; reloads and retries when another review landed in between
+    private HomeItem updateReviews(String homeItemId, Predicate<HomeItem> change) {
+        for (int attempt = 0; attempt < REVIEW_WRITE_ATTEMPTS; attempt++) {
+            HomeItem homeItem = homeItemRepository.findById(homeItemId).orElse(null);
+            if (homeItem == null || !change.test(homeItem)) return homeItem;
+
+            // Update ratings average; 0 when no reviews are left
             List<Review> reviews = homeItem.getReviews();
-            if (!reviews.isEmpty()) {
-                double totalRating = 0;
-                for (Review review : reviews) {
-                    totalRating += review.getRating();
-                }
-                double averageRating = totalRating / reviews.size();
-                homeItem.setRatings(averageRating);
-            } else {
-                // If no reviews are left, reset ratings to 0
-                homeItem.setRatings(0.0);
+            double totalRating = 0;
+            for (Review review : reviews) {
+                totalRating += review.getRating();
+            }
+            homeItem.setRatings(reviews.isEmpty() ? 0.0 : totalRating / reviews.size());
+            homeItem.setReviewCount(reviews.size());
+            homeItem.setRankScore(rankingService.rankScore(CatalogChangedEvent.HOME, homeItem.getRatings(), reviews.size()));
+
+            if (homeItemRepository.updateReviews(homeItem)) {
+                eventPublisher.publishEvent(CatalogChangedEvent.of(homeItem));
+                return homeItem;
             }
-            
-            homeItemRepository.save(homeItem);
         }
-        return homeItem;
+        throw new RuntimeException("Home item " + homeItemId + " is being reviewed concurrently, please retry");
     }
 }
\ No newline at end of file
@@ -0,0 +1,298 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.ResponseMessage;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.InventoryShard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sharded stock for items under a flash sale, so buyers of one popular item stop queueing on
+ * the single totalQuantity field of its document.
+ *
+ * Enabling moves an item's stock into N documents of inventoryShards and marks the item with
+ * hotShards. A reservation decrements a random shard and probes the others in turn when it
+ * is empty, so concurrent buyers mostly write different documents. Every
+ * {@code catalog.hot-inventory.rebalance-ms} the shards of each hot item are evened out and
+ * their sum is written back to the item's totalQuantity, which is what every reader sees.
+ *
+ * The item-level decrement requires hotShards to be absent, so stock is never taken from both
+ * places. A node learns that an item became hot at its next rebalance; until then it reports
+ * the item as sold out, and a release it sends to the item document is overwritten by the
+ * next sync, which loses that unit instead of selling it twice. Moves between shards are two
+ * writes and likewise lose, never add, units if interrupted.
+ */
+@Service
+public class HotInventoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(HotInventoryService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${catalog.hot-inventory.max-shards:64}")
+    private int maxShards = 64;
+
+    private volatile Map<String, Integer> hot = Map.of(); // "type:itemId" -> shards
+
+    private final LongAdder shardReserves = new LongAdder();
+    private final LongAdder probes = new LongAdder();       // Extra shards tried because the first was empty
+    private final LongAdder soldOut = new LongAdder();
+    private final LongAdder rebalancedUnits = new LongAdder();
+    private volatile long lastRebalanceMs;
+
+    public boolean isHot(String type, String itemId) {
+        return hot.containsKey(key(type, itemId));
+    }
+
+    public synchronized ResponseMessage enable(String type, String itemId, int shards) {
+        String normalized = TrendingService.normalizeType(type);
+        if (normalized == null || itemId == null) return new ResponseMessage(false, "type must be \"book\" or \"home\".");
+        if (shards < 2 || shards > maxShards) return new ResponseMessage(false, "shards must be between 2 and " + maxShards + ".");
+        Class<?> entityClass = entityClass(normalized);
+
+        Query itemQuery = new Query(Criteria.where("_id").is(itemId));
+        itemQuery.fields().include("totalQuantity", "version", "hotShards");
+        Object item = mongoTemplate.findOne(itemQuery, entityClass);
+        if (item == null) return new ResponseMessage(false, "Item not found.");
+        if (hotShards(item) != null) return new ResponseMessage(false, "Hot inventory is already enabled for this item.");
+        int quantity = Math.max(0, item instanceof Book book ? book.getTotalQuantity() : ((HomeItem) item).getTotalQuantity());
+        long version = item instanceof Book book ? book.getVersion() : ((HomeItem) item).getVersion();
+
+        // Shards first, then the flag, guarded by the version: a sale on the item document in
+        // between fails the flag and the shards are dropped again
+        mongoTemplate.remove(shardsOf(normalized, itemId), InventoryShard.class); // Left over from an interrupted attempt
+        List<InventoryShard> slices = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            slices.add(new InventoryShard(normalized, itemId, i, quantity / shards + (i < quantity % shards ? 1 : 0)));
+        }
+        mongoTemplate.insert(slices, InventoryShard.class);
+        Criteria unchanged = Criteria.where("_id").is(itemId).and("hotShards").exists(false);
+        unchanged = version == 0 ? unchanged.and("version").in(0, null) : unchanged.and("version").is(version);
+        if (mongoTemplate.updateFirst(new Query(unchanged), new Update().set("hotShards", shards).inc("version", 1),
+                entityClass).getModifiedCount() == 0) {
+            mongoTemplate.remove(shardsOf(normalized, itemId), InventoryShard.class);
+            return new ResponseMessage(false, "Item changed while enabling hot inventory, try again.");
+        }
+
+        Map<String, Integer> next = new HashMap<>(hot);
+        next.put(key(normalized, itemId), shards);
+        hot = next;
+        return new ResponseMessage(true, "Stock of " + quantity + " split across " + shards + " shards.");
+    }
+
+    public synchronized ResponseMessage disable(String type, String itemId) {
+        String normalized = TrendingService.normalizeType(type);
+        if (normalized == null || itemId == null) return new ResponseMessage(false, "type must be \"book\" or \"home\".");
+        Class<?> entityClass = entityClass(normalized);
+
+        // The item counter restarts from zero and each shard is moved into it as it is removed,
+        // so sales can continue on the item while the shards drain
+        Object before = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(itemId).and("hotShards").exists(true)),
+                new Update().set("totalQuantity", 0).unset("hotShards").inc("version", 1),
+                FindAndModifyOptions.options().returnNew(false), entityClass);
+        if (before == null) return new ResponseMessage(false, "Hot inventory is not enabled for this item.");
+        Map<String, Integer> next = new HashMap<>(hot);
+        next.remove(key(normalized, itemId));
+        hot = next;
+
+        int moved = 0;
+        for (int i = 0; i < hotShards(before); i++) {
+            InventoryShard shard = mongoTemplate.findAndRemove(
+                    new Query(Criteria.where("_id").is(InventoryShard.id(normalized, itemId, i))), InventoryShard.class);
+            if (shard == null || shard.getQuantity() <= 0) continue;
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(itemId)),
+                    new Update().inc("totalQuantity", shard.getQuantity()), entityClass);
+            moved += shard.getQuantity();
+        }
+        publish(entityClass, itemId);
+        return new ResponseMessage(true, "Moved " + moved + " units back to the item.");
+    }
+
+    /**
+     * Takes quantity units from the shards: from one shard that has them all, otherwise
+     * gathered from several. False when the shards together hold fewer, or when the item is
+     * not hot on this node.
+     */
+    public boolean reserve(String type, String itemId, int quantity) {
+        Integer shards = hot.get(key(type, itemId));
+        if (shards == null) return false;
+        String normalized = TrendingService.normalizeType(type);
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            if (i > 0) probes.increment();
+            if (take(InventoryShard.id(normalized, itemId, (start + i) % shards), quantity)) {
+                shardReserves.increment();
+                return true;
+            }
+        }
+        if (quantity > 1 && gather(normalized, itemId, shards, start, quantity)) {
+            shardReserves.increment();
+            return true;
+        }
+        soldOut.increment();
+        return false;
+    }
+
+    // Gives units back to a random shard; false when there is no shard to take them
+    public boolean release(String type, String itemId, int quantity) {
+        Integer shards = hot.get(key(type, itemId));
+        if (shards == null) return false;
+        String id = InventoryShard.id(TrendingService.normalizeType(type), itemId, ThreadLocalRandom.current().nextInt(shards));
+        return mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(id)),
+                new Update().inc("quantity", quantity), InventoryShard.class).getMatchedCount() > 0;
+    }
+
+    private boolean take(String shardId, int quantity) {
+        return mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(shardId).and("quantity").gte(quantity)),
+                new Update().inc("quantity", -quantity), InventoryShard.class).getModifiedCount() > 0;
+    }
+
+    // No shard holds the whole quantity: take what each has, and put it all back if it is not enough
+    private boolean gather(String type, String itemId, int shards, int start, int quantity) {
+        Map<String, Integer> taken = new LinkedHashMap<>();
+        int remaining = quantity;
+        for (int i = 0; i < shards && remaining > 0; i++) {
+            String id = InventoryShard.id(type, itemId, (start + i) % shards);
+            InventoryShard shard = mongoTemplate.findById(id, InventoryShard.class);
+            int want = shard == null ? 0 : Math.min(shard.getQuantity(), remaining);
+            if (want > 0 && take(id, want)) {
+                taken.put(id, want);
+                remaining -= want;
+            }
+        }
+        if (remaining == 0) return true;
+        taken.forEach((id, units) -> mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(id)),
+                new Update().inc("quantity", units), InventoryShard.class));
+        return false;
+    }
+
+    // Also how this node finds out which items are hot, so it first runs right at startup
+    @Scheduled(fixedDelayString = "${catalog.hot-inventory.rebalance-ms:1000}")
+    public synchronized void rebalance() {
+        long started = System.currentTimeMillis();
+        try {
+            Map<String, Integer> next = new HashMap<>();
+            for (Class<?> entityClass : List.of(Book.class, HomeItem.class)) {
+                String type = entityClass == Book.class ? CatalogChangedEvent.BOOK : CatalogChangedEvent.HOME;
+                Query flagged = new Query(Criteria.where("hotShards").exists(true));
+                flagged.fields().include("hotShards", "totalQuantity");
+                for (Object item : mongoTemplate.find(flagged, entityClass)) {
+                    String itemId = item instanceof Book book ? book.getId() : ((HomeItem) item).getId();
+                    next.put(key(type, itemId), hotShards(item));
+                    int total = even(type, itemId, hotShards(item));
+                    int reported = item instanceof Book book ? book.getTotalQuantity() : ((HomeItem) item).getTotalQuantity();
+                    if (total != reported && mongoTemplate.updateFirst(
+                            new Query(Criteria.where("_id").is(itemId).and("hotShards").exists(true)),
+                            new Update().set("totalQuantity", total), entityClass).getModifiedCount() > 0) {
+                        publish(entityClass, itemId);
+                    }
+                }
+            }
+            hot = next;
+        } catch (RuntimeException e) {
+            log.warn("Hot inventory rebalance failed, retrying on the next run: {}", e.getMessage());
+        } finally {
+            lastRebalanceMs = System.currentTimeMillis() - started;
+        }
+    }
+
+    // Moves units from the fullest shards to the emptiest ones and returns the item's total
+    int even(String type, String itemId, int shards) {
+        int[] quantities = new int[shards];
+        for (InventoryShard shard : mongoTemplate.find(shardsOf(type, itemId), InventoryShard.class)) {
+            if (shard.getShard() >= 0 && shard.getShard() < shards) quantities[shard.getShard()] = shard.getQuantity();
+        }
+        int total = 0;
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int quantity : quantities) {
+            total += quantity;
+            min = Math.min(min, quantity);
+            max = Math.max(max, quantity);
+        }
+        if (max - min <= 1) return total; // Already as even as it gets
+
+        int pool = 0;
+        for (int i = 0; i < shards; i++) {
+            int surplus = quantities[i] - target(total, shards, i);
+            if (surplus > 0 && take(InventoryShard.id(type, itemId, i), surplus)) pool += surplus;
+        }
+        for (int i = 0; i < shards && pool > 0; i++) {
+            int give = Math.min(pool, target(total, shards, i) - quantities[i]);
+            if (give <= 0) continue;
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(InventoryShard.id(type, itemId, i))),
+                    new Update().inc("quantity", give), InventoryShard.class);
+            pool -= give;
+            rebalancedUnits.add(give);
+        }
+        if (pool > 0) { // Shards drained since the read; the units go to the first one
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(InventoryShard.id(type, itemId, 0))),
+                    new Update().inc("quantity", pool), InventoryShard.class);
+        }
+        return total;
+    }
+
+    private static int target(int total, int shards, int shard) {
+        return total / shards + (shard < total % shards ? 1 : 0);
+    }
+
+    private void publish(Class<?> entityClass, String itemId) {
+        Object item = mongoTemplate.findById(itemId, entityClass);
+        if (item != null) {
+            eventPublisher.publishEvent(item instanceof Book book ? CatalogChangedEvent.of(book)
+                    : CatalogChangedEvent.of((HomeItem) item));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hotItems", hot.size());
+        stats.put("shardReserves", shardReserves.sum());
+        stats.put("probes", probes.sum());
+        stats.put("soldOut", soldOut.sum());
+        stats.put("rebalancedUnits", rebalancedUnits.sum());
+        stats.put("lastRebalanceMs", lastRebalanceMs);
+        return stats;
+    }
+
+    private static Query shardsOf(String type, String itemId) {
+        return new Query(Criteria.where("type").is(type).and("itemId").is(itemId));
+    }
+
+    private static Integer hotShards(Object item) {
+        return item instanceof Book book ? book.getHotShards() : ((HomeItem) item).getHotShards();
+    }
+
+    private static Class<?> entityClass(String type) {
+        return CatalogChangedEvent.BOOK.equals(type) ? Book.class : HomeItem.class;
+    }
+
+    private static String key(String type, String itemId) {
+        return TrendingService.normalizeType(type) + ":" + itemId;
+    }
+}
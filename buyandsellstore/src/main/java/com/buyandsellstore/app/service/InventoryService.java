@@ -0,0 +1,310 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.InventoryUpdateResult;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.InventoryUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.util.Pair;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Partial stock and price updates for many items at once.
+ *
+ * Each item becomes one updateOne with {@code $set}/{@code $inc}, and all of a collection's
+ * updates go out in a single unordered bulk write. The optimistic check lives in the filter:
+ * an item whose version moved since the seller read it simply does not match. A decrement
+ * also requires enough stock, so quantities never go negative.
+ *
+ * The updated documents are then read back in one query to publish change events for the
+ * caches and indexes. Every write of a batch pushes the batch's token onto the item's
+ * writeTokens, so the same read tells exactly which filters matched when the bulk result
+ * reports fewer matches than updates.
+ *
+ * Carts take and return single units with {@link #reserveOne} and {@link #releaseOne}: one
+ * findAndModify each, so concurrent buyers can neither oversell nor overwrite each other's
+ * decrement. {@link #reserveAll} does the same for many items in one bulk write. Items in
+ * hot inventory mode take and return their units through {@link HotInventoryService} instead.
+ */
+@Service
+public class InventoryService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CatalogIdFilter catalogIdFilter;
+
+    @Autowired
+    private HotInventoryService hotInventory;
+
+    // Tokens of the latest bulk writes kept on an item (writeTokens); more writes to one item between a bulk and its read would hide a match
+    private static final int WRITE_TOKENS = 32;
+
+    @Value("${catalog.inventory.max-batch:1000}")
+    private int maxBatch = 1000;
+
+    /**
+     * Takes one unit if any is left. Returns the item as it is after the decrement, or null
+     * when it is sold out or does not exist.
+     */
+    public <T> T reserveOne(Class<T> entityClass, String itemId) {
+        String type = entityClass == Book.class ? CatalogChangedEvent.BOOK : CatalogChangedEvent.HOME;
+        if (catalogIdFilter.isDefinitelyAbsent(type, itemId)) return null;
+        if (hotInventory.isHot(type, itemId)) {
+            return hotInventory.reserve(type, itemId, 1) ? mongoTemplate.findById(itemId, entityClass) : null;
+        }
+        // Never from the item document while its stock is sharded, even if this node does not know yet
+        return adjustStock(entityClass, Criteria.where("_id").is(itemId).and("totalQuantity").gt(0)
+                .and("hotShards").exists(false), -1);
+    }
+
+    // Puts one unit back, e.g. when it leaves a cart; null when the item no longer exists
+    public <T> T releaseOne(Class<T> entityClass, String itemId) {
+        String type = entityClass == Book.class ? CatalogChangedEvent.BOOK : CatalogChangedEvent.HOME;
+        if (hotInventory.release(type, itemId, 1)) return mongoTemplate.findById(itemId, entityClass);
+        return adjustStock(entityClass, Criteria.where("_id").is(itemId), 1);
+    }
+
+    /**
+     * Takes units of many items of one collection in a single unordered bulk write, all of an
+     * item's units or none. Returns the outcome per id: UPDATED, NOT_FOUND or INSUFFICIENT_STOCK.
+     *
+     * Each write is an updateOne on {_id, totalQuantity >= n}, which never creates anything.
+     * A bulk result only counts matches, so every write also pushes this call's token onto the
+     * item's last WRITE_TOKENS writeTokens, a field the models map so full saves keep it. When fewer writes matched than were sent,
+     * one _id $in read tells them apart: no document is NOT_FOUND, a document without the token
+     * is INSUFFICIENT_STOCK.
+     */
+    public Map<String, String> reserveAll(Class<?> entityClass, Map<String, Integer> units) {
+        Map<String, String> outcome = new LinkedHashMap<>();
+        String type = entityClass == Book.class ? CatalogChangedEvent.BOOK : CatalogChangedEvent.HOME;
+        String token = new ObjectId().toHexString();
+        List<String> ids = new ArrayList<>(units.size());
+        List<Pair<Query, UpdateDefinition>> writes = new ArrayList<>(units.size());
+        for (Map.Entry<String, Integer> entry : units.entrySet()) {
+            String id = entry.getKey();
+            int quantity = entry.getValue();
+            if (hotInventory.isHot(type, id)) {
+                outcome.put(id, hotInventory.reserve(type, id, quantity)
+                        ? InventoryUpdateResult.UPDATED : InventoryUpdateResult.INSUFFICIENT_STOCK);
+                continue;
+            }
+            ids.add(id);
+            writes.add(Pair.of(new Query(Criteria.where("_id").is(id).and("totalQuantity").gte(quantity)
+                            .and("hotShards").exists(false)),
+                    new Update().inc("totalQuantity", -quantity).inc("version", 1)
+                            .push("writeTokens").slice(-WRITE_TOKENS).each(token)));
+            outcome.put(id, InventoryUpdateResult.UPDATED);
+        }
+        if (writes.isEmpty()) return outcome;
+
+        BulkWriteResult result = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityClass).updateOne(writes).execute();
+        if (result.getMatchedCount() < writes.size()) {
+            Query query = new Query(Criteria.where("_id").in(ids));
+            query.fields().include("writeTokens");
+            Map<String, Document> items = new HashMap<>();
+            for (Document item : mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(entityClass))) {
+                items.put(String.valueOf(item.get("_id")), item);
+            }
+            for (String id : ids) {
+                Document item = items.get(id);
+                if (item == null) {
+                    outcome.put(id, InventoryUpdateResult.NOT_FOUND);
+                } else if (!item.getList("writeTokens", String.class, List.of()).contains(token)) {
+                    outcome.put(id, InventoryUpdateResult.INSUFFICIENT_STOCK);
+                }
+            }
+        }
+
+        List<String> reserved = new ArrayList<>();
+        outcome.forEach((id, status) -> {
+            if (InventoryUpdateResult.UPDATED.equals(status)) reserved.add(id);
+        });
+        publishChanges(entityClass, reserved);
+        return outcome;
+    }
+
+    // Gives back units taken by reserveAll, e.g. when the cart write that should hold them fails
+    public void releaseAll(Class<?> entityClass, Map<String, Integer> units) {
+        String type = entityClass == Book.class ? CatalogChangedEvent.BOOK : CatalogChangedEvent.HOME;
+        List<Pair<Query, UpdateDefinition>> writes = new ArrayList<>(units.size());
+        List<String> ids = new ArrayList<>(units.size());
+        units.forEach((id, quantity) -> {
+            if (hotInventory.release(type, id, quantity)) return;
+            writes.add(Pair.of(new Query(Criteria.where("_id").is(id)),
+                    new Update().inc("totalQuantity", quantity).inc("version", 1)));
+            ids.add(id);
+        });
+        if (writes.isEmpty()) return;
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityClass).updateOne(writes).execute();
+        publishChanges(entityClass, ids);
+    }
+
+    private void publishChanges(Class<?> entityClass, Collection<String> ids) {
+        if (ids.isEmpty()) return;
+        for (Object item : mongoTemplate.find(new Query(Criteria.where("_id").in(ids)), entityClass)) {
+            eventPublisher.publishEvent(item instanceof Book book ? CatalogChangedEvent.of(book)
+                    : CatalogChangedEvent.of((HomeItem) item));
+        }
+    }
+
+    private <T> T adjustStock(Class<T> entityClass, Criteria criteria, int delta) {
+        T item = mongoTemplate.findAndModify(new Query(criteria),
+                new Update().inc("totalQuantity", delta).inc("version", 1),
+                FindAndModifyOptions.options().returnNew(true), entityClass);
+        if (item != null) {
+            eventPublisher.publishEvent(item instanceof Book book ? CatalogChangedEvent.of(book)
+                    : CatalogChangedEvent.of((HomeItem) item));
+        }
+        return item;
+    }
+
+    public List<InventoryUpdateResult> updateInventory(List<InventoryUpdate> updates) {
+        List<InventoryUpdateResult> results = new ArrayList<>(updates.size());
+        Map<String, List<Integer>> byType = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>();
+
+        for (int i = 0; i < updates.size(); i++) {
+            InventoryUpdate update = updates.get(i);
+            InventoryUpdateResult result = new InventoryUpdateResult(update.getItemId(), update.getType(), null, null);
+            results.add(result);
+
+            String problem = validate(update);
+            if (problem == null && i >= maxBatch) problem = "At most " + maxBatch + " updates per request";
+            if (problem == null && !seen.add(update.getType() + ":" + update.getItemId())) problem = "Item listed more than once";
+            if (problem == null && (update.getTotalQuantity() != null || update.getQuantityDelta() != null)
+                    && hotInventory.isHot(update.getType(), update.getItemId())) {
+                problem = "Stock of this item is sharded for a flash sale; disable hot inventory first";
+            }
+            if (problem != null) {
+                result.setStatus(InventoryUpdateResult.INVALID);
+                result.setMessage(problem);
+            } else {
+                byType.computeIfAbsent(update.getType(), type -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for (Map.Entry<String, List<Integer>> entry : byType.entrySet()) {
+            apply(entry.getKey(), entry.getValue(), updates, results);
+        }
+        return results;
+    }
+
+    private void apply(String type, List<Integer> positions, List<InventoryUpdate> updates, List<InventoryUpdateResult> results) {
+        Class<?> entityClass = CatalogChangedEvent.BOOK.equals(type) ? Book.class : HomeItem.class;
+
+        String token = new ObjectId().toHexString();
+        List<Pair<Query, UpdateDefinition>> writes = new ArrayList<>(positions.size());
+        List<String> ids = new ArrayList<>(positions.size());
+        for (int position : positions) {
+            InventoryUpdate update = updates.get(position);
+            writes.add(Pair.of(filter(update), changes(update).push("writeTokens").slice(-WRITE_TOKENS).each(token)));
+            ids.add(update.getItemId());
+        }
+        int matched = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityClass)
+                .updateOne(writes)
+                .execute()
+                .getMatchedCount();
+
+        Map<String, Object> current = new HashMap<>();
+        for (Object item : mongoTemplate.find(new Query(Criteria.where("_id").in(ids)), entityClass)) {
+            current.put(item instanceof Book book ? book.getId() : ((HomeItem) item).getId(), item);
+        }
+
+        boolean allMatched = matched == positions.size();
+        for (int position : positions) {
+            InventoryUpdate update = updates.get(position);
+            InventoryUpdateResult result = results.get(position);
+            Object item = current.get(update.getItemId());
+            if (item == null) {
+                result.setStatus(InventoryUpdateResult.NOT_FOUND);
+                result.setMessage("Item not found.");
+                continue;
+            }
+            long version = item instanceof Book book ? book.getVersion() : ((HomeItem) item).getVersion();
+            int quantity = item instanceof Book book ? book.getTotalQuantity() : ((HomeItem) item).getTotalQuantity();
+            result.setVersion(version);
+            result.setTotalQuantity(quantity);
+            List<String> tokens = item instanceof Book book ? book.getWriteTokens() : ((HomeItem) item).getWriteTokens();
+            boolean applied = allMatched || (tokens != null && tokens.contains(token));
+            result.setStatus(classify(update, version, applied));
+
+            if (InventoryUpdateResult.UPDATED.equals(result.getStatus())) {
+                eventPublisher.publishEvent(item instanceof Book book ? CatalogChangedEvent.of(book)
+                        : CatalogChangedEvent.of((HomeItem) item));
+            } else if (InventoryUpdateResult.VERSION_CONFLICT.equals(result.getStatus())) {
+                result.setMessage("Item was changed since version " + update.getExpectedVersion() + ".");
+            } else {
+                result.setMessage("Not enough stock for a change of " + update.getQuantityDelta() + ".");
+            }
+        }
+    }
+
+    // Whether the write matched comes from the batch token; why it did not is read from the
+    // item as it is now, so a version that moved since is reported as the conflict
+    static String classify(InventoryUpdate update, long version, boolean applied) {
+        if (applied) return InventoryUpdateResult.UPDATED;
+        Long expected = update.getExpectedVersion();
+        if (expected != null && version != expected) return InventoryUpdateResult.VERSION_CONFLICT;
+        return InventoryUpdateResult.INSUFFICIENT_STOCK;
+    }
+
+    static Query filter(InventoryUpdate update) {
+        Criteria criteria = Criteria.where("_id").is(update.getItemId());
+        Long expected = update.getExpectedVersion();
+        if (expected != null) {
+            // Documents written before versions existed have no field, which reads as 0
+            criteria = expected == 0 ? criteria.and("version").in(0, null) : criteria.and("version").is(expected);
+        }
+        Integer delta = update.getQuantityDelta();
+        if (delta != null && delta < 0) {
+            criteria = criteria.and("totalQuantity").gte(-delta);
+        }
+        return new Query(criteria);
+    }
+
+    static Update changes(InventoryUpdate update) {
+        Update changes = new Update().inc("version", 1);
+        if (update.getPrice() != null) changes.set("price", update.getPrice());
+        if (update.getTotalQuantity() != null) changes.set("totalQuantity", update.getTotalQuantity());
+        if (update.getQuantityDelta() != null) changes.inc("totalQuantity", update.getQuantityDelta());
+        return changes;
+    }
+
+    private static String validate(InventoryUpdate update) {
+        if (update.getItemId() == null || update.getItemId().isBlank()) return "itemId is required";
+        if (!CatalogChangedEvent.BOOK.equals(update.getType()) && !CatalogChangedEvent.HOME.equals(update.getType())) {
+            return "type must be \"book\" or \"home\"";
+        }
+        if (update.getPrice() == null && update.getTotalQuantity() == null && update.getQuantityDelta() == null) {
+            return "Nothing to update";
+        }
+        if (update.getTotalQuantity() != null && update.getQuantityDelta() != null) {
+            return "Use either totalQuantity or quantityDelta, not both";
+        }
+        if (update.getPrice() != null && (update.getPrice() < 0 || update.getPrice().isNaN() || update.getPrice().isInfinite())) {
+            return "price must be zero or more";
+        }
+        if (update.getTotalQuantity() != null && update.getTotalQuantity() < 0) return "totalQuantity must be zero or more";
+        return null;
+    }
+}
@@ -0,0 +1,194 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.LowStockReport;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.ResponseMessage;
+import com.buyandsellstore.app.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Low-stock thresholds per seller, the lowStockItems query and the alert job.
+ *
+ * Both collections carry a partial index on {sellerId, totalQuantity} holding only items
+ * with at most {@link #MAX_THRESHOLD} in stock. A threshold can never exceed that bound, so
+ * every low-stock query is answered from the partial index, which stays small however big
+ * the catalog gets. The job steps through the sellers in that index with one seek each, reads
+ * only the items under each seller's own threshold, and sends each seller one email listing
+ * all their low items, and only when an item was added since the last email.
+ */
+@Service
+public class LowStockService {
+
+    private static final Logger log = LoggerFactory.getLogger(LowStockService.class);
+
+    public static final int MAX_THRESHOLD = 100; // Must match the partialFilter of seller_low_stock
+    static final String INDEX = "seller_low_stock";
+    private static final int SELLER_PAGE = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${catalog.low-stock.default-threshold:5}")
+    private int defaultThreshold = 5;
+
+    public ResponseMessage setLowStockThreshold(String sellerId, int threshold) {
+        if (threshold < 0 || threshold > MAX_THRESHOLD) {
+            return new ResponseMessage(false, "Threshold must be between 0 and " + MAX_THRESHOLD + ".");
+        }
+        long matched = mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(sellerId)),
+                new Update().set("lowStockThreshold", threshold), User.class).getMatchedCount();
+        if (matched == 0) return new ResponseMessage(false, "Seller not found.");
+        return new ResponseMessage(true, "Low-stock threshold set to " + threshold + ".");
+    }
+
+    public LowStockReport lowStockItems(String sellerId) {
+        Query sellerQuery = new Query(Criteria.where("_id").is(sellerId));
+        sellerQuery.fields().include("lowStockThreshold");
+        int threshold = thresholdFor(mongoTemplate.findOne(sellerQuery, User.class));
+
+        LowStockReport report = new LowStockReport();
+        report.setSellerId(sellerId);
+        report.setThreshold(threshold);
+        report.setBooks(mongoTemplate.find(lowStock(sellerId, threshold), Book.class));
+        report.setHomeItems(mongoTemplate.find(lowStock(sellerId, threshold), HomeItem.class));
+        return report;
+    }
+
+    private static Query lowStock(String sellerId, int threshold) {
+        return new Query(Criteria.where("sellerId").is(sellerId).and("totalQuantity").lte(threshold))
+                .with(Sort.by(Sort.Direction.ASC, "totalQuantity"))
+                .withHint(INDEX);
+    }
+
+    int thresholdFor(User seller) {
+        Integer threshold = seller == null ? null : seller.getLowStockThreshold();
+        return threshold == null ? defaultThreshold : Math.min(threshold, MAX_THRESHOLD);
+    }
+
+    @Scheduled(initialDelayString = "${catalog.low-stock.check-ms:900000}", fixedDelayString = "${catalog.low-stock.check-ms:900000}")
+    public void notifySellers() {
+        try {
+            // Sellers with items in either partial index, in sellerId order: one index seek each
+            Set<String> checked = new HashSet<>();
+            int sent = 0;
+            String nextBook = nextSeller(Book.class, null);
+            String nextHome = nextSeller(HomeItem.class, null);
+            while (nextBook != null || nextHome != null) {
+                String sellerId = nextBook == null ? nextHome
+                        : nextHome == null || nextBook.compareTo(nextHome) <= 0 ? nextBook : nextHome;
+                checked.add(sellerId);
+                if (check(loadSeller(sellerId))) sent++;
+                if (sellerId.equals(nextBook)) nextBook = nextSeller(Book.class, sellerId);
+                if (sellerId.equals(nextHome)) nextHome = nextSeller(HomeItem.class, sellerId);
+            }
+
+            // Plus those whose last alert lists items that were restocked since, a page at a time
+            String after = null;
+            while (true) {
+                Criteria criteria = Criteria.where("lowStockNotified.0").exists(true);
+                if (after != null) criteria = criteria.and("_id").gt(after);
+                Query sellerQuery = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(SELLER_PAGE);
+                sellerQuery.fields().include("email").include("lowStockThreshold").include("lowStockNotified");
+                List<User> page = mongoTemplate.find(sellerQuery, User.class);
+                for (User seller : page) {
+                    if (checked.add(seller.getId()) && check(seller)) sent++;
+                }
+                if (page.size() < SELLER_PAGE) break;
+                after = page.get(page.size() - 1).getId();
+            }
+            if (sent > 0) log.info("Sent {} low-stock alerts", sent);
+        } catch (RuntimeException e) {
+            log.warn("Low-stock check failed: {}", e.getMessage());
+        }
+    }
+
+    // The smallest sellerId after the given one with an item in the partial index, or null
+    private String nextSeller(Class<?> entityClass, String after) {
+        Criteria criteria = Criteria.where("totalQuantity").lte(MAX_THRESHOLD);
+        criteria = after == null ? criteria.and("sellerId").ne(null) : criteria.and("sellerId").gt(after);
+        Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "sellerId")).withHint(INDEX);
+        query.fields().include("sellerId");
+        Object item = mongoTemplate.findOne(query, entityClass);
+        if (item == null) return null;
+        return item instanceof Book book ? book.getSellerId() : ((HomeItem) item).getSellerId();
+    }
+
+    private User loadSeller(String sellerId) {
+        Query sellerQuery = new Query(Criteria.where("_id").is(sellerId));
+        sellerQuery.fields().include("email").include("lowStockThreshold").include("lowStockNotified");
+        return mongoTemplate.findOne(sellerQuery, User.class);
+    }
+
+    // Reads only the seller's items under their own threshold; returns whether a mail went out
+    private boolean check(User seller) {
+        if (seller == null) return false;
+        int threshold = thresholdFor(seller);
+        List<Candidate> low = new ArrayList<>();
+        collect(Book.class, CatalogChangedEvent.BOOK, seller.getId(), threshold, low);
+        collect(HomeItem.class, CatalogChangedEvent.HOME, seller.getId(), threshold, low);
+        return notify(seller, low);
+    }
+
+    private void collect(Class<?> entityClass, String type, String sellerId, int threshold, List<Candidate> low) {
+        Query query = lowStock(sellerId, threshold);
+        query.fields().include("title").include("totalQuantity");
+        for (Object item : mongoTemplate.find(query, entityClass)) {
+            low.add(item instanceof Book book
+                    ? new Candidate(type, book.getId(), book.getTitle(), book.getTotalQuantity())
+                    : new Candidate(type, ((HomeItem) item).getId(), ((HomeItem) item).getTitle(), ((HomeItem) item).getTotalQuantity()));
+        }
+    }
+
+    // Emails the seller if an item went low since the last alert; returns whether a mail went out
+    private boolean notify(User seller, List<Candidate> low) {
+        low.sort(Comparator.comparingInt(Candidate::quantity));
+
+        List<String> keys = new ArrayList<>(low.size());
+        for (Candidate candidate : low) keys.add(candidate.type + ":" + candidate.id);
+        Set<String> notified = new HashSet<>(seller.getLowStockNotified() == null ? List.of() : seller.getLowStockNotified());
+        if (notified.equals(new HashSet<>(keys))) return false;
+
+        boolean sent = false;
+        if (!notified.containsAll(keys)) {
+            // Nowhere to send it yet: leave lowStockNotified as it was, so the items count as new once there is
+            if (seller.getEmail() == null) return false;
+            StringBuilder text = new StringBuilder();
+            for (Candidate candidate : low) {
+                text.append(candidate.quantity).append(" left: ").append(candidate.title)
+                        .append(notified.contains(candidate.type + ":" + candidate.id) ? "" : " (new)").append('\n');
+            }
+            try {
+                emailService.sendLowStockEmail(seller.getEmail(), text.toString());
+                sent = true;
+            } catch (RuntimeException e) {
+                // Leave lowStockNotified as it was so the next run tries again
+                log.warn("Could not send the low-stock alert to seller {}: {}", seller.getId(), e.getMessage());
+                return false;
+            }
+        }
+        // Restocked items drop out, so they are reported again if they run low once more
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(seller.getId())),
+                new Update().set("lowStockNotified", keys), User.class);
+        return sent;
+    }
+
+    private record Candidate(String type, String id, String title, int quantity) {
+    }
+}
@@ -1,9 +1,12 @@
 package com.buyandsellstore.app.service;
 
 import com.buyandsellstore.app.dto.*;
+import com.buyandsellstore.app.event.CartLifecycleEvent;
+import com.buyandsellstore.app.event.ItemActivityEvent;
 import com.buyandsellstore.app.model.*;
 import com.buyandsellstore.app.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.text.SimpleDateFormat;
@@ -21,9 +24,6 @@ public class OrderService {
     @Autowired
     private HomeItemRepository homeItemRepository;
 
-    @Autowired
-    private CartRepository cartRepository;
-
     @Autowired
     private WishlistItemRepository wishlistItemRepository;
 
@@ -36,9 +36,20 @@ public class OrderService {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private HomeItemService homeItemService;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private CartEventService cartEventService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public SellerStats getSellerStats(String sellerId) {
         List<Order> allOrders = orderRepository.findAll();
-        List<Cart> allCarts = cartRepository.findAll();
         List<WishlistItem> wishlistItems = wishlistItemRepository.findAll();
 
         Set<String> uniqueBuyers = new HashSet<>();
@@ -63,7 +74,7 @@ public class OrderService {
                     String dateKey = new SimpleDateFormat("yyyy-MM-dd").format(order.getCreatedAt());
                     revenueByDate.merge(dateKey, itemRevenue, Double::sum);
 
-                    bookRepository.findById(item.getItemId()).ifPresent(book -> {
+                    Optional.ofNullable(bookService.getBookById(item.getItemId())).ifPresent(book -> {
                         purchasedBooks.add(book);
                         bookSalesCount.merge(book.getId(), item.getQuantity(), Integer::sum);
                     });
@@ -83,18 +94,18 @@ public class OrderService {
                 .map(Map.Entry::getKey).collect(Collectors.toList());
 
         List<Book> topSellingBooks = sortedTopBooks.stream().limit(3)
-                .map(id -> bookRepository.findById(id).orElse(null))
+                .map(bookService::getBookById)
                 .filter(Objects::nonNull).collect(Collectors.toList());
 
         List<Book> leastSellingBooks = sortedTopBooks.stream()
                 .skip(Math.max(0, sortedTopBooks.size() - 3))
-                .map(id -> bookRepository.findById(id).orElse(null))
+                .map(bookService::getBookById)
                 .filter(Objects::nonNull).collect(Collectors.toList());
 
         Map<String, Integer> wishlistCountMap = new HashMap<>();
         for (WishlistItem item : wishlistItems) {
             if (item.getType().equalsIgnoreCase("book")) {
-                bookRepository.findById(item.getItemId()).ifPresent(book -> {
+                Optional.ofNullable(bookService.getBookById(item.getItemId())).ifPresent(book -> {
                     if (sellerId.equals(book.getSellerId())) {
                         wishlistCountMap.merge(book.getId(), 1, Integer::sum);
                     }
@@ -117,16 +128,8 @@ public class OrderService {
                 .sorted((a, b) -> b.getValue() - a.getValue()).limit(5)
                 .map(Map.Entry::getKey).collect(Collectors.toList());
 
-        int usersWithItems = 0, usersWhoOrdered = 0;
-        Set<String> buyers = new HashSet<>(userPurchaseCount.keySet());
-        for (Cart cart : allCarts) {
-            boolean hasSellerItem = cart.getItems().stream().anyMatch(item -> sellerId.equals(item.getSellerId()));
-            if (hasSellerItem) {
-                usersWithItems++;
-                if (buyers.contains(cart.getUserId())) usersWhoOrdered++;
-            }
-        }
-        double cartAbandonmentRate = usersWithItems == 0 ? 0.0 : (1 - (usersWhoOrdered * 1.0 / usersWithItems)) * 100;
+        // Kept up to date from cart events over analytics.cart.window-days, so no cart is read here
+        double cartAbandonmentRate = cartEventService.abandonmentRate(sellerId);
 
         List<RevenueEntry> revenueEntries = revenueByDate.entrySet().stream()
                 .map(e -> new RevenueEntry(e.getKey(), e.getValue())).collect(Collectors.toList());
@@ -148,44 +151,66 @@ public class OrderService {
         stats.setCartAbandonmentRate(cartAbandonmentRate);
         stats.setTotalOrders(allOrders.size());
         stats.setOrderFulfillmentDelay(fulfillmentEntries);
-        stats.setTrendingRecommendations(new ArrayList<>());
+        stats.setTrendingRecommendations(trendingService.trendingBooksForSeller(sellerId, 5));
 
         return stats;
     }
 
+    /**
+     * Places the order for what the user's cart holds, at server prices. The cart is claimed
+     * first (see CartService.claimCart), so every ordered unit is one the cart reserved; the
+     * submitted items only confirm what the buyer saw and must match the cart line for line.
+     * When prices changed since the items were added, the submitted totalPrice has to be the
+     * current total (as validateCart reports it), otherwise the order is refused so the buyer
+     * can confirm the new prices. Nothing is written when a line is gone or out of stock. The
+     * cart is emptied right before the order is saved, and the lines that update returns must
+     * still be the claimed ones; otherwise they are put back and the order is refused.
+     */
     public OrderResponse createOrder(String userId, List<CartItem> items, float totalPrice,
                                      Address billing, Address shipping, Payment payment) {
         try {
-            List<CartItem> processedItems = new ArrayList<>();
-
-            for (CartItem item : items) {
-                if ("book".equalsIgnoreCase(item.getType())) {
-                    bookRepository.findById(item.getItemId()).ifPresent(book -> {
-                        item.setSellerId(book.getSellerId());
-                        processedItems.add(item);
-                    });
-                } else if ("home".equalsIgnoreCase(item.getType())) {
-                    homeItemRepository.findById(item.getItemId()).ifPresent(homeItem -> {
-                        item.setSellerId(homeItem.getSellerId());
-                        processedItems.add(item);
-                    });
-                } else {
-                    processedItems.add(item);
-                }
+            List<CartItem> cart = cartService.claimCart(userId);
+            CartValidationResponse checked = cartService.revalidate(cart, cart);
+            if (cart.isEmpty() || checked.getUnavailable() > 0) {
+                return new OrderResponse(false, "Failed to create order: " + checked.getMessage(), null);
             }
+            if (!sameLines(items, cart)) {
+                return new OrderResponse(false, "Failed to create order: the cart changed, please review it.", null);
+            }
+            if (checked.getPriceChanges() > 0 && Math.abs(totalPrice - checked.getTotal()) >= 0.01) {
+                return new OrderResponse(false, String.format(Locale.ROOT,
+                        "Failed to create order: %s Please confirm the new total of %.2f.", checked.getMessage(), checked.getTotal()), null);
+            }
+            List<CartItem> processedItems = checked.getItems();
 
             Order order = new Order();
             order.setId(UUID.randomUUID().toString());
             order.setUserId(userId);
             order.setItems(processedItems);
-            order.setTotalPrice(totalPrice);
+            order.setTotalPrice((float) checked.getTotal());
             order.setBilling(billing);
             order.setShipping(shipping);
             order.setPayment(payment);
             order.setCreatedAt(new Date());
 
-            orderRepository.save(order);
-            cartService.removeFromCart(userId, null, null);
+            // Taken before the order is saved: a line removed in another tab since the claim must not be sold
+            List<CartItem> taken = cartService.takeCart(userId);
+            if (!sameLines(taken, cart)) {
+                cartService.restoreCart(userId, taken);
+                return new OrderResponse(false, "Failed to create order: the cart changed, please review it.", null);
+            }
+            try {
+                orderRepository.save(order);
+            } catch (RuntimeException e) {
+                cartService.restoreCart(userId, taken);
+                throw e;
+            }
+            for (CartItem item : processedItems) {
+                eventPublisher.publishEvent(new ItemActivityEvent(item.getType(), item.getItemId(),
+                        ItemActivityEvent.Kind.ORDER, item.getQuantity()));
+                eventPublisher.publishEvent(new CartLifecycleEvent(CartLifecycleEvent.Kind.ORDERED, userId,
+                        item.getSellerId(), item.getType(), item.getItemId(), item.getQuantity()));
+            }
 
             return new OrderResponse(true, "Order created successfully", order);
         } catch (Exception e) {
@@ -194,6 +219,20 @@ public class OrderService {
         }
     }
 
+    // Whether the submitted lines are the cart's lines with the same quantities
+    private static boolean sameLines(List<CartItem> items, List<CartItem> cart) {
+        if (items == null) return false;
+        Map<String, Integer> submitted = new HashMap<>();
+        for (CartItem item : items) {
+            submitted.merge(ItemType.normalize(item.getType()) + ":" + item.getItemId(), item.getQuantity(), Integer::sum);
+        }
+        Map<String, Integer> held = new HashMap<>();
+        for (CartItem line : cart) {
+            held.merge(ItemType.normalize(line.getType()) + ":" + line.getItemId(), line.getQuantity(), Integer::sum);
+        }
+        return submitted.equals(held);
+    }
+
     public List<Order> getOrdersByUserId(String userId) {
         try {
             List<Order> orderList = orderRepository.findByUserId(userId);
@@ -0,0 +1,183 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.PricePoint;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.PriceHistoryBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Price history of every catalog item, kept as buckets of up to
+ * {@code catalog.price-history.bucket-size} (epochMillis, price) pairs per document.
+ *
+ * A change is one update that pushes onto the item's open bucket; once a bucket is full it
+ * no longer matches the filter and the next change starts a new one. A point costs about
+ * 26 bytes, so an item whose price changes daily grows by under 10 KB and two documents a
+ * year. Writes that leave the price as it was (stock, reviews) are skipped by the filter
+ * itself, against the stored lastPrice, so every node agrees on what the last price was.
+ *
+ * priceHistory reads only the buckets overlapping the range, newest first, and downsamples
+ * the points into at most maxPoints time windows.
+ */
+@Service
+public class PriceHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceHistoryService.class);
+
+    private static final long DEFAULT_RANGE_MS = 30L * 24 * 60 * 60 * 1000;
+    private static final int DEFAULT_POINTS = 200;
+    private static final int MAX_POINTS = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${catalog.price-history.bucket-size:200}")
+    private int bucketSize = 200;
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.getItemId() == null) return;
+        double price = event.getBook() != null ? event.getBook().getPrice() : event.getHomeItem().getPrice();
+        record(event.getType(), event.getItemId(), price, System.currentTimeMillis());
+    }
+
+    void record(String type, String itemId, double price, long now) {
+        try {
+            Update append = new Update()
+                    .push("t", now)
+                    .push("p", price)
+                    .inc("n", 1)
+                    .min("start", now)
+                    .max("end", now)
+                    .set("lastPrice", price)
+                    .setOnInsert("type", type);
+            // The price check and the push are one atomic update of the open bucket
+            Query changed = new Query(Criteria.where("itemId").is(itemId).and("n").lt(bucketSize).and("lastPrice").ne(price));
+            if (mongoTemplate.updateFirst(changed, append, PriceHistoryBucket.class).getMatchedCount() > 0) return;
+            // Either the price is unchanged or there is no open bucket: the item is new or its last bucket is full
+            Double last = latestPrice(itemId);
+            if (last != null && last == price) return;
+            // Two nodes starting a bucket at once may both push this price; a repeated point reads the same
+            Query openBucket = new Query(Criteria.where("itemId").is(itemId).and("n").lt(bucketSize));
+            mongoTemplate.upsert(openBucket, append, PriceHistoryBucket.class);
+        } catch (RuntimeException e) {
+            // The catalog write already succeeded; a missing point is not worth failing it
+            log.warn("Could not record price {} of {} {}: {}", price, type, itemId, e.getMessage());
+        }
+    }
+
+    private Double latestPrice(String itemId) {
+        Query query = new Query(Criteria.where("itemId").is(itemId)).with(Sort.by(Sort.Direction.DESC, "start")).limit(1);
+        query.fields().include("lastPrice");
+        PriceHistoryBucket bucket = mongoTemplate.findOne(query, PriceHistoryBucket.class);
+        return bucket == null ? null : bucket.getLastPrice();
+    }
+
+    /**
+     * Prices of an item between from and to (ISO-8601 instants; default the last 30 days).
+     * The first point is the price already in effect at from, if any. When there are more
+     * changes than maxPoints, each point stands for one time window and carries the last,
+     * lowest and highest price of that window.
+     */
+    public List<PricePoint> priceHistory(String itemId, String from, String to, Integer maxPoints) {
+        long end = to == null ? System.currentTimeMillis() : parse("to", to);
+        long begin = from == null ? end - DEFAULT_RANGE_MS : parse("from", from);
+        if (begin > end) throw new IllegalArgumentException("from must not be after to");
+        int limit = Math.max(1, Math.min(maxPoints == null ? DEFAULT_POINTS : maxPoints, MAX_POINTS));
+
+        // Newest first, down to the first bucket that starts before the range: it holds the opening price
+        Query query = new Query(Criteria.where("itemId").is(itemId).and("start").lte(end))
+                .with(Sort.by(Sort.Direction.DESC, "start"));
+        List<PriceHistoryBucket> buckets = new ArrayList<>();
+        try (Stream<PriceHistoryBucket> stream = mongoTemplate.stream(query, PriceHistoryBucket.class)) {
+            Iterator<PriceHistoryBucket> it = stream.iterator();
+            while (it.hasNext()) {
+                PriceHistoryBucket bucket = it.next();
+                buckets.add(bucket);
+                if (bucket.getStart() <= begin) break;
+            }
+        }
+        Collections.reverse(buckets);
+        return downsample(buckets, begin, end, limit);
+    }
+
+    static List<PricePoint> downsample(List<PriceHistoryBucket> buckets, long begin, long end, int limit) {
+        Double opening = null;
+        List<Long> times = new ArrayList<>();
+        List<Double> prices = new ArrayList<>();
+        for (PriceHistoryBucket bucket : buckets) {
+            for (int i = 0; i < bucket.getT().size() && i < bucket.getP().size(); i++) {
+                long t = bucket.getT().get(i);
+                double p = bucket.getP().get(i);
+                if (t < begin) {
+                    opening = p;
+                } else if (t <= end) {
+                    times.add(t);
+                    prices.add(p);
+                }
+            }
+        }
+
+        List<PricePoint> points = new ArrayList<>();
+        int total = prices.size() + (opening == null ? 0 : 1);
+        if (total <= limit) {
+            if (opening != null) points.add(new PricePoint(iso(begin), opening, opening, opening));
+            for (int i = 0; i < prices.size(); i++) {
+                double p = prices.get(i);
+                points.add(new PricePoint(iso(times.get(i)), p, p, p));
+            }
+            return points;
+        }
+
+        // Each window reports the price in effect at its end and the range it moved through,
+        // including the price carried in from the previous window
+        long width = (end - begin) / limit + 1;
+        Double carried = opening;
+        int i = 0;
+        for (int w = 0; w < limit && (w == 0 || i < prices.size()); w++) {
+            long windowStart = begin + w * width;
+            long windowEnd = windowStart + width;
+            boolean changed = false;
+            double min = carried == null ? Double.POSITIVE_INFINITY : carried;
+            double max = carried == null ? Double.NEGATIVE_INFINITY : carried;
+            Double last = carried;
+            while (i < prices.size() && times.get(i) < windowEnd) {
+                last = prices.get(i++);
+                min = Math.min(min, last);
+                max = Math.max(max, last);
+                changed = true;
+            }
+            if (changed || (w == 0 && carried != null)) {
+                points.add(new PricePoint(iso(windowStart), last, min, max));
+            }
+            carried = last;
+        }
+        return points;
+    }
+
+    private static long parse(String name, String value) {
+        try {
+            return Instant.parse(value).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be an ISO-8601 instant, e.g. 2024-05-01T00:00:00Z");
+        }
+    }
+
+    private static String iso(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).toString();
+    }
+}
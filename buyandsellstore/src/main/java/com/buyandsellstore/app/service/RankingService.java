@@ -0,0 +1,159 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.TopRatedPage;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Bayesian-average ranking: {@code rankScore = (m * C + n * avg) / (m + n)}, where avg and n
+ * are an item's own rating and review count, C is the mean rating over all reviews of its
+ * collection and m ({@code catalog.rank.prior-weight}) is how many reviews an item needs
+ * before its own average counts as much as the prior. One 5-star review barely moves an
+ * item off C, while 500 reviews at 4.8 score close to 4.8.
+ *
+ * The score is stored on the item when it is saved or imported and by every review mutation,
+ * so topRated is an index walk over {rankScore: -1, _id: -1}. C is refreshed by a scheduled
+ * job, which also rescores the items whose score it changed.
+ */
+@Service
+public class RankingService {
+
+    private static final Logger log = LoggerFactory.getLogger(RankingService.class);
+
+    private static final double DEFAULT_PRIOR = 3.0;
+    private static final double PRIOR_EPSILON = 1e-6;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${catalog.rank.prior-weight:10}")
+    private double priorWeight = 10;
+
+    @Value("${catalog.rank.max-page:100}")
+    private int maxPage = 100;
+
+    private volatile double bookPrior = DEFAULT_PRIOR;
+    private volatile double homePrior = DEFAULT_PRIOR;
+
+    public double rankScore(String type, double averageRating, int reviewCount) {
+        double prior = CatalogChangedEvent.BOOK.equals(type) ? bookPrior : homePrior;
+        return score(prior, priorWeight, averageRating, reviewCount);
+    }
+
+    static double score(double prior, double priorWeight, double averageRating, int reviewCount) {
+        if (priorWeight + reviewCount <= 0) return 0;
+        return (priorWeight * prior + reviewCount * averageRating) / (priorWeight + reviewCount);
+    }
+
+    // Runs once at startup and then every catalog.rank.prior-refresh-ms
+    @Scheduled(initialDelayString = "${catalog.rank.prior-initial-delay-ms:0}",
+            fixedDelayString = "${catalog.rank.prior-refresh-ms:3600000}")
+    public void refreshPriors() {
+        try {
+            bookPrior = refresh(Book.class, bookPrior);
+            homePrior = refresh(HomeItem.class, homePrior);
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the rating priors: {}", e.getMessage());
+        }
+    }
+
+    private double refresh(Class<?> entityClass, double current) {
+        String collection = mongoTemplate.getCollectionName(entityClass);
+        Document stats = mongoTemplate.getCollection(collection).aggregate(List.of(
+                new Document("$unwind", "$reviews"),
+                new Document("$group", new Document("_id", null)
+                        .append("mean", new Document("$avg", "$reviews.rating"))
+                        .append("count", new Document("$sum", 1))))).first();
+        double prior = stats == null || stats.get("mean") == null ? DEFAULT_PRIOR : ((Number) stats.get("mean")).doubleValue();
+
+        // Rescore in the database, touching only items whose score actually moves
+        Document n = new Document("$size", new Document("$ifNull", List.of("$reviews", List.of())));
+        Document avg = new Document("$ifNull", List.of(new Document("$avg", "$reviews.rating"), 0));
+        Document score = new Document("$divide", List.of(
+                new Document("$add", List.of(priorWeight * prior, new Document("$multiply", List.of(n, avg)))),
+                new Document("$add", List.of(priorWeight, n))));
+        Document filter = Math.abs(prior - current) < PRIOR_EPSILON
+                ? new Document("rankScore", new Document("$exists", false))
+                : new Document();
+        filter.append("$expr", new Document("$ne", List.of("$rankScore", score)));
+        long changed = mongoTemplate.getCollection(collection).updateMany(filter, List.of(
+                new Document("$set", new Document("rankScore", score).append("reviewCount", n)))).getModifiedCount();
+        if (changed > 0) {
+            log.info("Rating prior of {} is {} ({} reviews), rescored {} items", collection, prior,
+                    stats == null ? 0 : stats.get("count"), changed);
+        }
+        return prior;
+    }
+
+    /**
+     * Best-ranked items of one type, highest first. {@code after} is the endCursor of the
+     * previous page; the cursor holds the last score and id, so paging does not skip or
+     * repeat items when scores of earlier pages change in between.
+     */
+    public TopRatedPage topRated(String type, Integer first, String after) {
+        int limit = Math.max(1, Math.min(first == null ? 20 : first, maxPage));
+        Class<?> entityClass = CatalogChangedEvent.HOME.equals(type) ? HomeItem.class : Book.class;
+
+        Query query = new Query();
+        Cursor cursor = Cursor.decode(after);
+        if (cursor != null) {
+            query.addCriteria(new Criteria().orOperator(
+                    Criteria.where("rankScore").lt(cursor.score),
+                    Criteria.where("rankScore").is(cursor.score).and("_id").lt(cursor.id)));
+        }
+        query.with(Sort.by(Sort.Order.desc("rankScore"), Sort.Order.desc("_id"))).limit(limit + 1);
+
+        List<?> items = mongoTemplate.find(query, entityClass);
+        boolean hasNext = items.size() > limit;
+        if (hasNext) items = items.subList(0, limit);
+
+        TopRatedPage page = new TopRatedPage();
+        page.setHasNextPage(hasNext);
+        if (!items.isEmpty()) {
+            Object last = items.get(items.size() - 1);
+            page.setEndCursor(last instanceof Book book ? Cursor.encode(book.getRankScore(), book.getId())
+                    : Cursor.encode(((HomeItem) last).getRankScore(), ((HomeItem) last).getId()));
+        }
+        if (entityClass == Book.class) {
+            page.setBooks(items.stream().map(Book.class::cast).toList());
+        } else {
+            page.setHomeItems(items.stream().map(HomeItem.class::cast).toList());
+        }
+        return page;
+    }
+
+    record Cursor(double score, String id) {
+
+        static String encode(double score, String id) {
+            String raw = Double.toString(score) + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return null;
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int colon = raw.indexOf(':');
+                return new Cursor(Double.parseDouble(raw.substring(0, colon)), raw.substring(colon + 1));
+            } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+    }
+}
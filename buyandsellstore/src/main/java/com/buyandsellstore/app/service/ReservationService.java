@@ -0,0 +1,194 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CartLifecycleEvent;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.Cart;
+import com.buyandsellstore.app.model.HomeItem;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.util.Pair;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gives back the stock held by cart lines nobody checked out in time.
+ *
+ * Every unit in a cart was taken from totalQuantity when it was added, and the line carries
+ * a reservedUntil that each add pushes forward by {@code cart.reservation.ttl-ms}. Every
+ * {@code catalog.reservation.sweep-ms} the sweeper finds carts with expired lines through
+ * the index on their nextExpiry, drops those lines from each cart in one findAndModify and restores
+ * their units with one unordered bulk $inc per collection. The cart write comes first, so a
+ * line removed by its owner at the same time is released once, by whichever got there first.
+ * A crash between the two writes loses the units instead of selling them twice.
+ */
+@Service
+public class ReservationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private HotInventoryService hotInventory;
+
+    @Value("${catalog.reservation.batch-size:500}")
+    private int batchSize = 500;
+
+    // Bounds one run so a backlog after downtime is worked off over several runs
+    @Value("${catalog.reservation.max-batches:20}")
+    private int maxBatches = 20;
+
+    private final LongAdder expiredLines = new LongAdder();
+    private final LongAdder releasedUnits = new LongAdder();
+    private volatile long lastSweepMs;
+    private volatile Map<String, Object> stock = Map.of();
+
+    @Scheduled(initialDelayString = "${catalog.reservation.sweep-ms:60000}", fixedDelayString = "${catalog.reservation.sweep-ms:60000}")
+    public void sweep() {
+        long started = System.currentTimeMillis();
+        try {
+            Date now = new Date(started);
+            for (int batch = 0; batch < maxBatches; batch++) {
+                if (sweepBatch(now) < batchSize) break;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Reservation sweep failed, retrying on the next run: {}", e.getMessage());
+        } finally {
+            lastSweepMs = System.currentTimeMillis() - started;
+        }
+    }
+
+    // Releases the expired lines of up to batchSize carts; returns how many carts it looked at
+    int sweepBatch(Date now) {
+        MongoCollection<Document> carts = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Cart.class));
+        Document expiredFilter = new Document("nextExpiry", new Document("$lt", now));
+        List<Document> cartIds = carts.find(expiredFilter).projection(new Document("_id", 1))
+                .limit(batchSize).into(new ArrayList<>());
+
+        Map<String, Map<String, Integer>> released = new LinkedHashMap<>(); // type -> itemId -> units
+        Document expired = expired(now);
+        Document kept = new Document("$arrayToObject", new Document("$filter",
+                new Document("input", new Document("$objectToArray", "$lines")).append("as", "l")
+                        .append("cond", new Document("$not", List.of(expired)))));
+        List<Document> dropExpired = List.of(
+                new Document("$set", new Document("lines", kept)),
+                new Document("$set", new Document("nextExpiry", new Document("$min", new Document("$map",
+                        new Document("input", new Document("$objectToArray", "$lines")).append("as", "l")
+                                .append("in", "$$l.v.reservedUntil"))))));
+        for (Document cartId : cartIds) {
+            // The document as it was before this update says exactly which lines it dropped
+            Document before = carts.findOneAndUpdate(new Document("_id", cartId.get("_id")).append("nextExpiry", new Document("$lt", now)),
+                    dropExpired, new FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE)
+                            .projection(new Document("lines", 1).append("userId", 1)));
+            if (before == null) continue; // Checked out or changed since the scan
+            Document lines = before.get("lines", Document.class);
+            for (Object value : lines == null ? List.of() : lines.values()) {
+                if (!(value instanceof Document line) || !isExpired(line, now)) continue;
+                String type = TrendingService.normalizeType(line.getString("type"));
+                Integer quantity = line.getInteger("quantity");
+                if (type == null || line.getString("itemId") == null || quantity == null || quantity <= 0) continue;
+                released.computeIfAbsent(type, t -> new LinkedHashMap<>()).merge(line.getString("itemId"), quantity, Integer::sum);
+                expiredLines.increment();
+                eventPublisher.publishEvent(new CartLifecycleEvent(CartLifecycleEvent.Kind.EXPIRED, before.getString("userId"),
+                        line.getString("sellerId"), type, line.getString("itemId"), quantity));
+            }
+        }
+
+        for (Map.Entry<String, Map<String, Integer>> entry : released.entrySet()) {
+            restore(CatalogChangedEvent.BOOK.equals(entry.getKey()) ? Book.class : HomeItem.class, entry.getValue());
+        }
+        return cartIds.size();
+    }
+
+    private void restore(Class<?> entityClass, Map<String, Integer> units) {
+        String type = entityClass == Book.class ? CatalogChangedEvent.BOOK : CatalogChangedEvent.HOME;
+        List<Pair<Query, UpdateDefinition>> writes = new ArrayList<>(units.size());
+        List<String> ids = new ArrayList<>(units.size());
+        for (Map.Entry<String, Integer> entry : units.entrySet()) {
+            releasedUnits.add(entry.getValue());
+            if (hotInventory.release(type, entry.getKey(), entry.getValue())) continue; // Sharded stock
+            writes.add(Pair.of(new Query(Criteria.where("_id").is(entry.getKey())),
+                    new Update().inc("totalQuantity", entry.getValue()).inc("version", 1)));
+            ids.add(entry.getKey());
+        }
+        if (writes.isEmpty()) return;
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityClass).updateOne(writes).execute();
+
+        // Caches and the id filter follow stock through the usual event
+        for (Object item : mongoTemplate.find(new Query(Criteria.where("_id").in(ids)), entityClass)) {
+            eventPublisher.publishEvent(item instanceof Book book ? CatalogChangedEvent.of(book)
+                    : CatalogChangedEvent.of((HomeItem) item));
+        }
+    }
+
+    // A line added before reservations existed has no reservedUntil and is kept
+    private static Document expired(Date now) {
+        return new Document("$and", List.of(
+                new Document("$eq", List.of(new Document("$type", "$$l.v.reservedUntil"), "date")),
+                new Document("$lt", List.of("$$l.v.reservedUntil", now))));
+    }
+
+    private static boolean isExpired(Document line, Date now) {
+        return line.get("reservedUntil") instanceof Date until && until.before(now);
+    }
+
+    // Units held in carts against units left to sell; a full pass over both, so refreshed on its own schedule
+    @Scheduled(fixedDelayString = "${catalog.reservation.stats-ms:300000}")
+    public void refreshStock() {
+        try {
+            Date now = new Date();
+            Map<String, Object> next = new LinkedHashMap<>();
+            next.put("reservedUnits", sum(mongoTemplate.getCollectionName(Cart.class), List.of(
+                    new Document("$project", new Document("line", new Document("$objectToArray", "$lines"))),
+                    new Document("$unwind", "$line"),
+                    new Document("$match", new Document("line.v.reservedUntil", new Document("$gte", now))),
+                    new Document("$group", new Document("_id", null).append("units", new Document("$sum", "$line.v.quantity"))))));
+            for (Class<?> entityClass : List.of(Book.class, HomeItem.class)) {
+                next.put("available" + entityClass.getSimpleName() + "Units", sum(mongoTemplate.getCollectionName(entityClass), List.of(
+                        new Document("$group", new Document("_id", null).append("units", new Document("$sum", "$totalQuantity"))))));
+            }
+            next.put("computedAt", now.toInstant().toString());
+            stock = next;
+        } catch (RuntimeException e) {
+            log.warn("Could not compute reservation stock figures: {}", e.getMessage());
+        }
+    }
+
+    private long sum(String collection, List<Document> pipeline) {
+        Document result = mongoTemplate.getCollection(collection).aggregate(pipeline).first();
+        return result == null ? 0 : ((Number) result.get("units")).longValue();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(stock);
+        stats.put("expiredLines", expiredLines.sum());
+        stats.put("releasedUnits", releasedUnits.sum());
+        stats.put("lastSweepMs", lastSweepMs);
+        return stats;
+    }
+}
@@ -0,0 +1,147 @@
+package com.buyandsellstore.app.service;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints, laid out like a roaring bitmap: slots are split into
+ * chunks of 65536 by their high 16 bits, and each chunk is a sorted char array while sparse
+ * and switches to a 1024-word bitmap once it holds more than 4096 values. A facet value with
+ * a handful of items therefore costs a few bytes instead of a bitmap the size of the catalog.
+ *
+ * Not thread-safe; callers guard it.
+ */
+final class SlotSet {
+
+    private static final int ARRAY_MAX = 4096;
+
+    private Object[] chunks = new Object[0]; // sorted char[] (first counts[i] in use) or long[1024]
+    private int[] counts = new int[0];
+    private int cardinality;
+
+    boolean add(int slot) {
+        int hi = slot >>> 16;
+        char lo = (char) slot;
+        if (hi >= chunks.length) {
+            int size = Math.max(hi + 1, chunks.length * 2);
+            chunks = Arrays.copyOf(chunks, size);
+            counts = Arrays.copyOf(counts, size);
+        }
+        Object chunk = chunks[hi];
+        if (chunk == null) {
+            chunks[hi] = new char[]{lo, 0, 0, 0};
+            counts[hi] = 1;
+            cardinality++;
+            return true;
+        }
+        if (chunk instanceof long[] words) {
+            long bit = 1L << lo;
+            if ((words[lo >>> 6] & bit) != 0) return false;
+            words[lo >>> 6] |= bit;
+        } else {
+            char[] values = (char[]) chunk;
+            int count = counts[hi];
+            int pos = Arrays.binarySearch(values, 0, count, lo);
+            if (pos >= 0) return false;
+            pos = -pos - 1;
+            if (count == ARRAY_MAX) {
+                long[] words = toBitmap(values, count);
+                words[lo >>> 6] |= 1L << lo;
+                chunks[hi] = words;
+            } else {
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, Math.min(ARRAY_MAX, count * 2));
+                    chunks[hi] = values;
+                }
+                System.arraycopy(values, pos, values, pos + 1, count - pos);
+                values[pos] = lo;
+            }
+        }
+        counts[hi]++;
+        cardinality++;
+        return true;
+    }
+
+    boolean remove(int slot) {
+        int hi = slot >>> 16;
+        if (hi >= chunks.length || chunks[hi] == null) return false;
+        char lo = (char) slot;
+        Object chunk = chunks[hi];
+        if (chunk instanceof long[] words) {
+            long bit = 1L << lo;
+            if ((words[lo >>> 6] & bit) == 0) return false;
+            words[lo >>> 6] &= ~bit;
+            if (counts[hi] - 1 == ARRAY_MAX) {
+                chunks[hi] = toArray(words, ARRAY_MAX);
+            }
+        } else {
+            char[] values = (char[]) chunk;
+            int count = counts[hi];
+            int pos = Arrays.binarySearch(values, 0, count, lo);
+            if (pos < 0) return false;
+            System.arraycopy(values, pos + 1, values, pos, count - pos - 1);
+            if (count == 1) chunks[hi] = null;
+        }
+        counts[hi]--;
+        cardinality--;
+        return true;
+    }
+
+    boolean contains(int slot) {
+        int hi = slot >>> 16;
+        if (hi >= chunks.length || chunks[hi] == null) return false;
+        char lo = (char) slot;
+        if (chunks[hi] instanceof long[] words) {
+            return (words[lo >>> 6] & (1L << lo)) != 0;
+        }
+        return Arrays.binarySearch((char[]) chunks[hi], 0, counts[hi], lo) >= 0;
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    // Visits every slot in ascending order
+    void forEach(IntConsumer action) {
+        for (int hi = 0; hi < chunks.length; hi++) {
+            Object chunk = chunks[hi];
+            if (chunk == null) continue;
+            int base = hi << 16;
+            if (chunk instanceof long[] words) {
+                for (int w = 0; w < words.length; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        action.accept(base | (w << 6) | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                char[] values = (char[]) chunk;
+                for (int i = 0; i < counts[hi]; i++) {
+                    action.accept(base | values[i]);
+                }
+            }
+        }
+    }
+
+    private static long[] toBitmap(char[] values, int count) {
+        long[] words = new long[1024];
+        for (int i = 0; i < count; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    private static char[] toArray(long[] words, int count) {
+        char[] values = new char[count];
+        int n = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,57 @@
+package com.buyandsellstore.app.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps an in-memory index loaded from a findAll snapshot consistent with the catalog events
+ * that arrive while the snapshot is read.
+ *
+ * A snapshot may read an item before an event changes or deletes it and put the old version
+ * in after the event was handled. While a load runs, changes passed to {@link #apply} are
+ * therefore queued and applied, in order, once the snapshot is in. Loads may overlap (an
+ * invalidation during startup); the queue is kept until the last one ends, which replays it
+ * whole, since the index operations it holds are idempotent.
+ */
+final class SnapshotGate {
+
+    private final Object lock = new Object();
+    private List<Runnable> queued; // Non-null while a load runs
+    private int loads;
+
+    // Runs the change now, or after the running loads
+    void apply(Runnable change) {
+        synchronized (lock) {
+            if (queued != null) {
+                queued.add(change);
+                return;
+            }
+        }
+        change.run();
+    }
+
+    // Reads the snapshot, then applies the changes queued meanwhile, including those queued while applying
+    void load(Runnable snapshot) {
+        synchronized (lock) {
+            if (queued == null) queued = new ArrayList<>();
+            loads++;
+        }
+        try {
+            snapshot.run();
+        } finally {
+            int applied = 0;
+            while (true) {
+                List<Runnable> next;
+                synchronized (lock) {
+                    if (applied == queued.size()) {
+                        if (--loads == 0) queued = null;
+                        break;
+                    }
+                    next = new ArrayList<>(queued.subList(applied, queued.size()));
+                }
+                next.forEach(Runnable::run);
+                applied += next.size();
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.SellerStorefront;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The seller storefront page in one call.
+ *
+ * Each collection is read with a single aggregation: $match on sellerId and $sort on title,
+ * both served by the {sellerId, title} index, feeding a $facet with one branch for the page
+ * of items and one for the count and review totals. Inside a $facet no index applies, so
+ * the sort stays in front of it. The two aggregations and the seller lookup run at the
+ * same time, so the page costs one round trip of latency instead of three full list loads.
+ */
+@Service
+public class StorefrontService {
+
+    private static final int DEFAULT_PAGE = 20;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${catalog.storefront.max-page:100}")
+    private int maxPage = 100;
+
+    // Three queries per storefront request; size it with the Mongo connection pool in mind
+    @Value("${catalog.storefront.query-threads:8}")
+    private int queryThreads = 8;
+
+    private ExecutorService queryExecutor;
+
+    @PostConstruct
+    public void start() {
+        queryExecutor = Executors.newFixedThreadPool(queryThreads, r -> {
+            Thread thread = new Thread(r, "storefront-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SellerStorefront sellerStorefront(String sellerId, Integer first, Integer offset) {
+        int limit = Math.max(1, Math.min(first == null ? DEFAULT_PAGE : first, maxPage));
+        int skip = Math.max(0, offset == null ? 0 : offset);
+
+        CompletableFuture<Document> books = CompletableFuture.supplyAsync(
+                () -> facet(mongoTemplate.getCollectionName(Book.class), sellerId, skip, limit), queryExecutor);
+        CompletableFuture<Document> homeItems = CompletableFuture.supplyAsync(
+                () -> facet(mongoTemplate.getCollectionName(HomeItem.class), sellerId, skip, limit), queryExecutor);
+        CompletableFuture<User> seller = CompletableFuture.supplyAsync(() -> findSeller(sellerId), queryExecutor);
+
+        SellerStorefront storefront = new SellerStorefront();
+        try {
+            storefront.setSeller(seller.join());
+            Document bookFacet = books.join();
+            Document homeFacet = homeItems.join();
+
+            List<Book> bookPage = new ArrayList<>();
+            for (Document doc : bookFacet.getList("items", Document.class)) {
+                bookPage.add(mongoTemplate.getConverter().read(Book.class, doc));
+            }
+            List<HomeItem> homePage = new ArrayList<>();
+            for (Document doc : homeFacet.getList("items", Document.class)) {
+                homePage.add(mongoTemplate.getConverter().read(HomeItem.class, doc));
+            }
+            storefront.setBooks(bookPage);
+            storefront.setHomeItems(homePage);
+
+            Document bookStats = stats(bookFacet);
+            Document homeStats = stats(homeFacet);
+            storefront.setBookCount(number(bookStats, "count").intValue());
+            storefront.setHomeItemCount(number(homeStats, "count").intValue());
+            int reviews = number(bookStats, "reviews").intValue() + number(homeStats, "reviews").intValue();
+            double ratingSum = number(bookStats, "ratingSum").doubleValue() + number(homeStats, "ratingSum").doubleValue();
+            storefront.setReviewCount(reviews);
+            storefront.setAverageRating(reviews == 0 ? 0 : ratingSum / reviews);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return storefront;
+    }
+
+    private Document facet(String collection, String sellerId, int skip, int limit) {
+        Document reviews = new Document("$ifNull", List.of("$reviews", List.of()));
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("sellerId", sellerId)),
+                new Document("$sort", new Document("title", 1)),
+                new Document("$facet", new Document()
+                        .append("items", List.of(
+                                new Document("$skip", skip),
+                                new Document("$limit", limit)))
+                        .append("stats", List.of(
+                                new Document("$group", new Document("_id", null)
+                                        .append("count", new Document("$sum", 1))
+                                        .append("reviews", new Document("$sum", new Document("$size", reviews)))
+                                        .append("ratingSum", new Document("$sum", new Document("$sum", "$reviews.rating"))))))));
+        Document result = mongoTemplate.getCollection(collection).aggregate(pipeline).first();
+        return result == null ? new Document("items", List.of()).append("stats", List.of()) : result;
+    }
+
+    private User findSeller(String sellerId) {
+        Query query = new Query(Criteria.where("_id").is(sellerId));
+        query.fields().exclude("password").exclude("resetToken").exclude("lowStockNotified");
+        return mongoTemplate.findOne(query, User.class);
+    }
+
+    // The $group branch is empty when the seller has no items of that kind
+    private static Document stats(Document facet) {
+        List<Document> stats = facet.getList("stats", Document.class);
+        return stats == null || stats.isEmpty() ? new Document() : stats.get(0);
+    }
+
+    private static Number number(Document doc, String key) {
+        Object value = doc.get(key);
+        return value instanceof Number n ? n : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queryExecutor.shutdownNow();
+    }
+}
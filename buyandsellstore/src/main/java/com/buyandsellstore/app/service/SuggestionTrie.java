@@ -0,0 +1,192 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.Suggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable prefix trie over catalog text. Entries are ranked by popularity up front,
+ * so every node only needs the K smallest entry ranks below it to answer a lookup
+ * without walking its subtree.
+ */
+final class SuggestionTrie {
+
+    // Longest key stored per word start; longer prefixes are matched by filtering.
+    static final int MAX_DEPTH = 24;
+
+    private static final int[] NO_ENTRIES = new int[0];
+    private static final SuggestionTrie EMPTY =
+            new SuggestionTrie(new Suggestion[0], new String[0], new Node(new char[0], new Node[0], NO_ENTRIES));
+
+    private final Suggestion[] entries; // index == popularity rank (0 = most popular)
+    private final String[] keys;        // normalized text of each entry
+    private final Node root;
+
+    private SuggestionTrie(Suggestion[] entries, String[] keys, Node root) {
+        this.entries = entries;
+        this.keys = keys;
+        this.root = root;
+    }
+
+    static SuggestionTrie empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds a trie from entries that are already sorted by descending popularity.
+     * Each entry is reachable from the start of every word in its text, so "rowling"
+     * finds "J.K. Rowling".
+     */
+    static SuggestionTrie build(List<Suggestion> rankedEntries, int topK) {
+        Suggestion[] entries = rankedEntries.toArray(new Suggestion[0]);
+        String[] keys = new String[entries.length];
+        BuilderNode root = new BuilderNode();
+
+        for (int rank = 0; rank < entries.length; rank++) {
+            String key = normalize(entries[rank].getText());
+            keys[rank] = key;
+            for (int start = 0; start < key.length(); start++) {
+                if (start > 0 && key.charAt(start - 1) != ' ') continue;
+                BuilderNode node = root;
+                int end = Math.min(key.length(), start + MAX_DEPTH);
+                for (int i = start; i < end; i++) {
+                    node = node.children.computeIfAbsent(key.charAt(i), c -> new BuilderNode());
+                }
+                node.terminals.add(rank);
+            }
+        }
+        return new SuggestionTrie(entries, keys, root.freeze(topK));
+    }
+
+    /**
+     * Returns up to {@code limit} suggestions whose text has a word starting with the prefix,
+     * most popular first.
+     */
+    List<Suggestion> lookup(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) return new ArrayList<>();
+
+        Node node = root;
+        int depth = Math.min(key.length(), MAX_DEPTH);
+        for (int i = 0; i < depth && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) return new ArrayList<>();
+
+        List<Suggestion> result = new ArrayList<>(Math.min(limit, node.top.length));
+        for (int rank : node.top) {
+            if (result.size() >= limit) break;
+            if (key.length() > MAX_DEPTH && !matchesWordPrefix(keys[rank], key)) continue;
+            result.add(entries[rank]);
+        }
+        return result;
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    static String normalize(String text) {
+        if (text == null) return "";
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(c);
+        }
+        // keep a single trailing space so "harry " only matches whole words
+        if (pendingSpace) sb.append(' ');
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean matchesWordPrefix(String text, String prefix) {
+        int from = 0;
+        while (from >= 0) {
+            if (text.startsWith(prefix, from)) return true;
+            int space = text.indexOf(' ', from);
+            from = space < 0 ? -1 : space + 1;
+        }
+        return false;
+    }
+
+    private static final class Node {
+        final char[] labels;   // sorted child labels
+        final Node[] children; // children[i] is reached through labels[i]
+        final int[] top;       // up to K best entry ranks in this subtree, ascending
+
+        Node(char[] labels, Node[] children, int[] top) {
+            this.labels = labels;
+            this.children = children;
+            this.top = top;
+        }
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i < 0 ? null : children[i];
+        }
+    }
+
+    // Mutable node used only while building; frozen into the compact form afterwards.
+    private static final class BuilderNode {
+        final Map<Character, BuilderNode> children = new HashMap<>();
+        final List<Integer> terminals = new ArrayList<>();
+
+        Node freeze(int topK) {
+            char[] labels = new char[children.size()];
+            int n = 0;
+            for (Character c : children.keySet()) labels[n++] = c;
+            Arrays.sort(labels);
+
+            Node[] frozen = new Node[labels.length];
+            int[] best = terminals.isEmpty() ? NO_ENTRIES : terminals.stream().mapToInt(Integer::intValue).toArray();
+            Arrays.sort(best);
+            best = dedupe(best, topK);
+            for (int i = 0; i < labels.length; i++) {
+                frozen[i] = children.get(labels[i]).freeze(topK);
+                best = mergeTop(best, frozen[i].top, topK);
+            }
+            return new Node(labels, frozen, best);
+        }
+    }
+
+    // Merges two ascending rank arrays, dropping duplicates and keeping the first k.
+    private static int[] mergeTop(int[] a, int[] b, int k) {
+        if (b.length == 0) return a;
+        if (a.length == 0) return b;
+        int[] out = new int[Math.min(k, a.length + b.length)];
+        int i = 0, j = 0, n = 0;
+        while (n < out.length && (i < a.length || j < b.length)) {
+            int next;
+            if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+                next = a[i++];
+            } else {
+                next = b[j++];
+            }
+            if (n == 0 || out[n - 1] != next) out[n++] = next;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static int[] dedupe(int[] sorted, int k) {
+        int[] out = new int[Math.min(k, sorted.length)];
+        int n = 0;
+        for (int v : sorted) {
+            if (n == out.length) break;
+            if (n == 0 || out[n - 1] != v) out[n++] = v;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+}
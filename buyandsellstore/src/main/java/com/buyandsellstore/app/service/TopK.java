@@ -0,0 +1,78 @@
+package com.buyandsellstore.app.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The k highest-scoring keys, for scores that only ever grow (forward-decayed counters).
+ *
+ * Writers keep a small array sorted by score under a lock and publish an immutable copy;
+ * readers take that copy without locking, so reading the top is O(k) and never touches
+ * the counters. Offers that cannot enter a full top are rejected before the lock.
+ */
+final class TopK {
+
+    record Entry(String key, double score) {
+    }
+
+    private final int capacity;
+    private final Entry[] entries;
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final Set<String> members = ConcurrentHashMap.newKeySet();
+    private int size;
+
+    private volatile List<Entry> snapshot = List.of();
+    private volatile double floor = Double.NEGATIVE_INFINITY; // Lowest score once full
+
+    TopK(int capacity) {
+        this.capacity = capacity;
+        this.entries = new Entry[capacity];
+    }
+
+    void offer(String key, double score) {
+        if (score <= floor && !members.contains(key)) return;
+        synchronized (this) {
+            Integer position = positions.get(key);
+            int i;
+            if (position != null) {
+                if (score <= entries[position].score()) return; // A later, higher offer got here first
+                i = position;
+            } else if (size < capacity) {
+                i = size++;
+                members.add(key);
+            } else {
+                if (score <= entries[size - 1].score()) return;
+                i = size - 1;
+                positions.remove(entries[i].key());
+                members.remove(entries[i].key());
+                members.add(key);
+            }
+            entries[i] = new Entry(key, score);
+            // Scores only grow, so the entry can only move up
+            while (i > 0 && entries[i - 1].score() < entries[i].score()) {
+                Entry above = entries[i - 1];
+                entries[i - 1] = entries[i];
+                entries[i] = above;
+                positions.put(above.key(), i);
+                i--;
+            }
+            positions.put(key, i);
+            snapshot = List.of(Arrays.copyOf(entries, size));
+            if (size == capacity) floor = entries[size - 1].score();
+        }
+    }
+
+    // Highest first
+    List<Entry> top(int limit) {
+        List<Entry> current = snapshot;
+        return current.size() <= limit ? current : current.subList(0, limit);
+    }
+
+    boolean contains(String key) {
+        return members.contains(key);
+    }
+}
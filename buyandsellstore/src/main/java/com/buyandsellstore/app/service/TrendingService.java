@@ -0,0 +1,253 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.TrendingItem;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.event.ItemActivityEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Trending items from exponentially decayed popularity counters.
+ *
+ * Uses forward decay: an event at time t adds {@code w * e^(λ(t - epoch))} instead of
+ * decaying every counter as time passes, so counters only grow and are never rewritten to decay.
+ * They are kept as natural logs to stay finite, and a counter's current decayed value is
+ * {@code e^(log - λ(now - epoch))}, with λ = ln 2 / half-life. Because all counters are
+ * scaled by the same factor, ranking by the stored log gives the decayed ranking.
+ *
+ * Counters are lock-free CAS cells in a ConcurrentHashMap; a {@link TopK} per type is kept
+ * up to date on every increment, so reading the trending list is O(k).
+ *
+ * Each node checkpoints only its own contribution, to a document of its own keyed by item and
+ * a per-process node id, so nodes never overwrite each other's counts. Startup merges every
+ * stored contribution. A checkpoint also forgets counters that decayed below the floor and
+ * deletes stored contributions that did, including those of nodes that are gone.
+ */
+@Service
+public class TrendingService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingService.class);
+
+    public static final String COLLECTION = "trendingCounters";
+    static final long EPOCH = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    private static final long DEAD = Double.doubleToRawLongBits(Double.NaN); // A pruned cell, never written again
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private HomeItemService homeItemService;
+
+    private final double lambda; // Per millisecond
+    private final double pruneBelow;
+    private final int maxLimit;
+
+    private final String node = new ObjectId().toHexString();
+    private final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>(); // "type:id" -> log score bits
+    private final ConcurrentHashMap<String, AtomicLong> own = new ConcurrentHashMap<>(); // This node's share of counters, what it checkpoints
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final TopK books;
+    private final TopK homeItems;
+
+    public TrendingService(@Value("${catalog.trending.half-life-ms:21600000}") long halfLifeMs,
+                           @Value("${catalog.trending.top-k:100}") int topK,
+                           @Value("${catalog.trending.prune-below:0.01}") double pruneBelow) {
+        this.lambda = Math.log(2) / halfLifeMs;
+        this.pruneBelow = Math.log(pruneBelow);
+        this.maxLimit = topK;
+        this.books = new TopK(topK);
+        this.homeItems = new TopK(topK);
+    }
+
+    @EventListener
+    public void onActivity(ItemActivityEvent event) {
+        String type = normalizeType(event.getType());
+        if (type == null || event.getItemId() == null) return;
+        record(type, event.getItemId(), event.getKind().getWeight() * Math.max(1, event.getQuantity()), System.currentTimeMillis());
+    }
+
+    void record(String type, String itemId, double weight, long now) {
+        String key = type + ":" + itemId;
+        double increment = Math.log(weight) + lambda * (now - EPOCH);
+        double updated = add(counters, key, increment);
+        add(own, key, increment);
+        dirty.add(key);
+        topFor(type).offer(itemId, updated);
+    }
+
+    // Adds to the cell of key; a cell pruned in the meantime is replaced, so no increment is lost
+    private static double add(ConcurrentHashMap<String, AtomicLong> cells, String key, double increment) {
+        while (true) {
+            AtomicLong cell = cells.computeIfAbsent(key, k -> new AtomicLong(Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY)));
+            long current = cell.get();
+            if (current == DEAD) {
+                cells.remove(key, cell);
+                continue;
+            }
+            double updated = logAdd(Double.longBitsToDouble(current), increment);
+            if (cell.compareAndSet(current, Double.doubleToRawLongBits(updated))) return updated;
+        }
+    }
+
+    // Drops the cell unless it was bumped since it was seen at seen
+    private static boolean prune(ConcurrentHashMap<String, AtomicLong> cells, String key, AtomicLong cell, long seen) {
+        if (seen == DEAD || !cell.compareAndSet(seen, DEAD)) return false;
+        cells.remove(key, cell);
+        return true;
+    }
+
+    // log(e^a + e^b) without overflow
+    static double logAdd(double a, double b) {
+        if (a == Double.NEGATIVE_INFINITY) return b;
+        double max = Math.max(a, b);
+        return max + Math.log1p(Math.exp(Math.min(a, b) - max));
+    }
+
+    public List<TrendingItem> trending(String type, Integer limit) {
+        String normalized = normalizeType(type);
+        if (normalized == null) return List.of();
+        int n = Math.max(1, Math.min(limit == null ? 10 : limit, maxLimit));
+        double offset = lambda * (System.currentTimeMillis() - EPOCH);
+
+        List<TrendingItem> result = new ArrayList<>(n);
+        for (TopK.Entry entry : topFor(normalized).top(n)) {
+            TrendingItem item = new TrendingItem(entry.key(), normalized, Math.exp(entry.score() - offset));
+            if (CatalogChangedEvent.BOOK.equals(normalized)) {
+                item.setBook(bookService.getBookById(entry.key()));
+                if (item.getBook() == null) continue; // Deleted since
+            } else {
+                item.setHomeItem(homeItemService.getHomeItemById(entry.key()));
+                if (item.getHomeItem() == null) continue;
+            }
+            result.add(item);
+        }
+        return result;
+    }
+
+    // The seller's books among the trending set; reads the top-K, not the catalog
+    public List<Book> trendingBooksForSeller(String sellerId, int limit) {
+        List<Book> result = new ArrayList<>();
+        for (TopK.Entry entry : books.top(maxLimit)) {
+            Book book = bookService.getBookById(entry.key());
+            if (book != null && Objects.equals(sellerId, book.getSellerId())) {
+                result.add(book);
+                if (result.size() == limit) break;
+            }
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.trending.checkpoint-ms:60000}", initialDelayString = "${catalog.trending.checkpoint-ms:60000}")
+    public void checkpoint() {
+        double floor = lambda * (System.currentTimeMillis() - EPOCH) + pruneBelow;
+        int pruned = sweep(floor);
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+        List<String> written = new ArrayList<>();
+        for (String key : dirty) {
+            dirty.remove(key);
+            AtomicLong cell = own.get(key);
+            if (cell == null) continue;
+            double score = Double.longBitsToDouble(cell.get());
+            if (Double.isNaN(score)) continue; // Pruned
+            int colon = key.indexOf(':');
+            // Only this node writes this document, so a plain $set of its running total is safe
+            ops.upsert(new Query(Criteria.where("_id").is(key + "@" + node)),
+                    new Update().set("type", key.substring(0, colon)).set("itemId", key.substring(colon + 1))
+                            .set("node", node).set("logScore", score));
+            written.add(key);
+        }
+        // Contributions of every node decay alike; drop those that are worth nothing now
+        ops.remove(new Query(Criteria.where("logScore").lt(floor)));
+        try {
+            ops.execute();
+            log.debug("Checkpointed {} trending counters ({} pruned)", written.size(), pruned);
+        } catch (RuntimeException e) {
+            dirty.addAll(written); // Try again next time
+            log.warn("Could not checkpoint trending counters: {}", e.getMessage());
+        }
+    }
+
+    // Forgets every counter that decayed below the floor, not only the ones touched since the last checkpoint
+    int sweep(double floor) {
+        int pruned = 0;
+        for (Map.Entry<String, AtomicLong> entry : own.entrySet()) {
+            long seen = entry.getValue().get();
+            if (Double.longBitsToDouble(seen) < floor) prune(own, entry.getKey(), entry.getValue(), seen);
+        }
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            String key = entry.getKey();
+            long seen = entry.getValue().get();
+            if (!(Double.longBitsToDouble(seen) < floor)) continue; // NaN (pruned) compares false too
+            int colon = key.indexOf(':');
+            if (topFor(key.substring(0, colon)).contains(key.substring(colon + 1))) continue;
+            if (prune(counters, key, entry.getValue(), seen)) pruned++;
+        }
+        return pruned;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Thread loader = new Thread(() -> {
+            int loaded = 0;
+            for (Document doc : mongoTemplate.getCollection(COLLECTION).find()) {
+                if (merge(doc)) loaded++;
+            }
+            log.info("Trending counters loaded: {}", loaded);
+        }, "trending-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    // Adds a stored contribution of any node to the counters; it stays out of this node's own share
+    boolean merge(Document doc) {
+        String type = doc.getString("type");
+        String itemId = doc.getString("itemId");
+        Double score = doc.getDouble("logScore");
+        if (normalizeType(type) == null || itemId == null || score == null) return false;
+        // Events recorded before the load finished are merged, not overwritten
+        double merged = add(counters, type + ":" + itemId, score);
+        topFor(type).offer(itemId, merged);
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("counters", counters.size());
+        stats.put("dirty", dirty.size());
+        return stats;
+    }
+
+    private TopK topFor(String type) {
+        return CatalogChangedEvent.BOOK.equals(type) ? books : homeItems;
+    }
+
+    // Carts use "book"/"home", wishlists also "homeItem"
+    static String normalizeType(String type) {
+        if (type == null) return null;
+        if (type.equalsIgnoreCase(CatalogChangedEvent.BOOK)) return CatalogChangedEvent.BOOK;
+        if (type.equalsIgnoreCase(CatalogChangedEvent.HOME) || type.equalsIgnoreCase("homeItem")) return CatalogChangedEvent.HOME;
+        return null;
+    }
+}
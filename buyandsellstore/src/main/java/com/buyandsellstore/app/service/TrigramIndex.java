@@ -0,0 +1,399 @@
+package com.buyandsellstore.app.service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo-tolerant word index used by catalog search.
+ *
+ * Every distinct word of the catalog goes into a vocabulary with a trigram index on top.
+ * A query word is expanded to the vocabulary words within a bounded edit distance: the
+ * q-gram lemma says such a word shares at least |T(w)| - 4k padded trigrams with it (a
+ * transposition can break four), so only the rarest trigram lists are unioned and the
+ * rest are checked by binary search. The vocabulary is far smaller than the catalog, so
+ * this stays cheap at a million items. The items of each expanded word are then
+ * intersected across query words, starting from the rarest.
+ *
+ * Documents are append-only slots; an update tombstones the old slot and the index
+ * compacts itself once tombstones make up a quarter of it.
+ */
+final class TrigramIndex {
+
+    private final int maxDocuments;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Vocabulary: word id -> word, items containing it; trigram -> word ids
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final List<IntList> itemsByWord = new ArrayList<>();
+    private final Map<Long, IntList> wordsByGram = new HashMap<>();
+
+    // Documents
+    private final Map<String, Integer> slotByKey = new HashMap<>();
+    private final List<Doc> docs = new ArrayList<>();
+    private final BitSet dead = new BitSet();
+    private int deadCount;
+    private long postingEntries;
+
+    TrigramIndex(int maxDocuments) {
+        this.maxDocuments = maxDocuments;
+    }
+
+    /**
+     * Adds or replaces a document. Returns false when the index is full and the document was dropped.
+     */
+    boolean upsert(String key, String type, String itemId, String title, String[] fieldNames, String[] fieldValues) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = slotByKey.get(key);
+            if (existing != null) {
+                Doc old = docs.get(existing);
+                if (Arrays.equals(old.fieldValues, fieldValues)) {
+                    // Same searchable text; just refresh what we display
+                    docs.set(existing, new Doc(type, itemId, title, fieldNames, fieldValues, old.fieldWords));
+                    return true;
+                }
+                dead.set(existing);
+                deadCount++;
+            } else if (liveCount() >= maxDocuments) {
+                return false;
+            }
+            add(key, new Doc(type, itemId, title, fieldNames, fieldValues, null));
+            if (deadCount > 1024 && deadCount * 4 > docs.size()) {
+                compact();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotByKey.remove(key);
+            if (slot != null && !dead.get(slot)) {
+                dead.set(slot);
+                deadCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drops every document of one type before it is reloaded, and the vocabulary only they used
+    void removeType(String type) {
+        lock.writeLock().lock();
+        try {
+            slotByKey.values().removeIf(slot -> docs.get(slot).type.equals(type));
+            compact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds documents containing every query word, each allowing up to
+     * {@link #maxEditsFor(int)} edits when fuzzy, ranked by total edits.
+     */
+    List<Match> search(String query, boolean fuzzy, int limit) {
+        String q = SuggestionTrie.normalize(query).trim();
+        if (q.isEmpty() || limit <= 0) return new ArrayList<>();
+        String[] tokens = q.split(" ");
+
+        lock.readLock().lock();
+        try {
+            // Expand each query word into vocabulary words (word id -> edits)
+            List<Map<Integer, Integer>> expansions = new ArrayList<>(tokens.length);
+            for (String token : tokens) {
+                Map<Integer, Integer> variants = expand(token, fuzzy ? maxEditsFor(token.length()) : 0);
+                if (variants.isEmpty()) return new ArrayList<>();
+                expansions.add(variants);
+            }
+            expansions.sort(Comparator.comparingLong(this::postingSize));
+
+            // Seed candidates from the rarest word, then intersect the others into it
+            Map<Integer, Integer> candidates = new HashMap<>();
+            expansions.get(0).forEach((wordId, edits) -> {
+                IntList items = itemsByWord.get(wordId);
+                for (int n = 0; n < items.size; n++) {
+                    int slot = items.ids[n];
+                    if (!dead.get(slot)) candidates.merge(slot, edits, Math::min);
+                }
+            });
+            for (int t = 1; t < expansions.size() && !candidates.isEmpty(); t++) {
+                Map<Integer, Integer> variants = expansions.get(t);
+                Iterator<Map.Entry<Integer, Integer>> it = candidates.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Integer, Integer> candidate = it.next();
+                    int best = Integer.MAX_VALUE;
+                    for (Map.Entry<Integer, Integer> variant : variants.entrySet()) {
+                        if (variant.getValue() < best && itemsByWord.get(variant.getKey()).contains(candidate.getKey())) {
+                            best = variant.getValue();
+                        }
+                    }
+                    if (best == Integer.MAX_VALUE) {
+                        it.remove();
+                    } else {
+                        candidate.setValue(candidate.getValue() + best);
+                    }
+                }
+            }
+
+            List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(candidates.entrySet());
+            ranked.sort(Map.Entry.<Integer, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+
+            Set<Integer> anchorWords = expansions.get(0).keySet();
+            List<Match> matches = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && i < limit; i++) {
+                Doc doc = docs.get(ranked.get(i).getKey());
+                int field = doc.fieldContaining(anchorWords);
+                matches.add(new Match(doc.type, doc.itemId, doc.title, doc.fieldNames[field], doc.fieldValues[field],
+                        ranked.get(i).getValue()));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long postingEntries() {
+        lock.readLock().lock();
+        try {
+            return postingEntries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int vocabularySize() {
+        lock.readLock().lock();
+        try {
+            return words.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Short words tolerate fewer typos, otherwise almost everything matches
+    static int maxEditsFor(int wordLength) {
+        if (wordLength <= 3) return 0;
+        if (wordLength <= 7) return 1;
+        return 2;
+    }
+
+    private int liveCount() {
+        return docs.size() - deadCount;
+    }
+
+    private long postingSize(Map<Integer, Integer> variants) {
+        long total = 0;
+        for (int wordId : variants.keySet()) total += itemsByWord.get(wordId).size;
+        return total;
+    }
+
+    // Vocabulary words within maxEdits of the token; caller holds a lock
+    private Map<Integer, Integer> expand(String token, int maxEdits) {
+        Map<Integer, Integer> variants = new HashMap<>();
+        Integer exact = wordIds.get(token);
+        if (exact != null) variants.put(exact, 0);
+        if (maxEdits == 0) return variants;
+
+        long[] grams = trigramsOf(token);
+        int threshold = Math.max(1, grams.length - 4 * maxEdits);
+        IntList[] lists = new IntList[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = wordsByGram.getOrDefault(grams[i], IntList.EMPTY);
+        }
+        Arrays.sort(lists, Comparator.comparingInt(l -> l.size));
+
+        int prefixLists = grams.length - threshold + 1;
+        Map<Integer, Integer> overlaps = new HashMap<>();
+        for (int i = 0; i < prefixLists; i++) {
+            for (int n = 0; n < lists[i].size; n++) {
+                overlaps.merge(lists[i].ids[n], 1, Integer::sum);
+            }
+        }
+        overlaps.forEach((wordId, overlap) -> {
+            for (int i = prefixLists; i < lists.length && overlap + (lists.length - i) >= threshold; i++) {
+                if (lists[i].contains(wordId)) overlap++;
+            }
+            if (overlap >= threshold && !variants.containsKey(wordId)) {
+                int edits = boundedEditDistance(words.get(wordId), token, maxEdits);
+                if (edits <= maxEdits) variants.put(wordId, edits);
+            }
+        });
+        return variants;
+    }
+
+    // Assigns the next slot to the document and posts it under each of its words; caller holds the write lock
+    private void add(String key, Doc doc) {
+        int slot = docs.size();
+        int[][] fieldWords = new int[doc.fieldValues.length][];
+        for (int f = 0; f < doc.fieldValues.length; f++) {
+            String normalized = SuggestionTrie.normalize(doc.fieldValues[f]).trim();
+            String[] parts = normalized.isEmpty() ? new String[0] : normalized.split(" ");
+            fieldWords[f] = new int[parts.length];
+            for (int w = 0; w < parts.length; w++) {
+                int wordId = wordId(parts[w]);
+                fieldWords[f][w] = wordId;
+                IntList items = itemsByWord.get(wordId);
+                // a word repeated in the same item is posted once
+                if (items.size == 0 || items.ids[items.size - 1] != slot) {
+                    items.add(slot);
+                    postingEntries++;
+                }
+            }
+        }
+        docs.add(new Doc(doc.type, doc.itemId, doc.title, doc.fieldNames, doc.fieldValues, fieldWords));
+        slotByKey.put(key, slot);
+    }
+
+    private int wordId(String word) {
+        Integer id = wordIds.get(word);
+        if (id != null) return id;
+        int newId = words.size();
+        wordIds.put(word, newId);
+        words.add(word);
+        itemsByWord.add(new IntList());
+        for (long gram : trigramsOf(word)) {
+            wordsByGram.computeIfAbsent(gram, g -> new IntList()).add(newId);
+        }
+        return newId;
+    }
+
+    // Rebuilds the vocabulary and postings from live documents only; caller holds the write lock
+    private void compact() {
+        Map<String, Doc> live = new LinkedHashMap<>();
+        slotByKey.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .forEach(e -> live.put(e.getKey(), docs.get(e.getValue())));
+        wordIds.clear();
+        words.clear();
+        itemsByWord.clear();
+        wordsByGram.clear();
+        slotByKey.clear();
+        docs.clear();
+        dead.clear();
+        deadCount = 0;
+        postingEntries = 0;
+        live.forEach(this::add);
+    }
+
+    /**
+     * Distinct trigrams of a word padded with '$', so its start/end and short words count.
+     * Three 16-bit chars are packed into one long.
+     */
+    static long[] trigramsOf(String word) {
+        String padded = "$" + word + "$";
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+        }
+        long[] out = new long[grams.size()];
+        int n = 0;
+        for (long g : grams) out[n++] = g;
+        return out;
+    }
+
+    /**
+     * Edit distance counting insertions, deletions, substitutions and adjacent transpositions
+     * (optimal string alignment). Gives up with {@code max + 1} once the result must exceed {@code max}.
+     */
+    static int boundedEditDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        int[] prevPrev = new int[b.length() + 1];
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    cur[j] = Math.min(cur[j], prevPrev[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (rowMin > max) return max + 1;
+            int[] tmp = prevPrev;
+            prevPrev = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return Math.min(prev[b.length()], max + 1);
+    }
+
+    static final class Match {
+        final String type;
+        final String itemId;
+        final String title;
+        final String field;
+        final String text;
+        final int distance;
+
+        Match(String type, String itemId, String title, String field, String text, int distance) {
+            this.type = type;
+            this.itemId = itemId;
+            this.title = title;
+            this.field = field;
+            this.text = text;
+            this.distance = distance;
+        }
+    }
+
+    private static final class Doc {
+        final String type;
+        final String itemId;
+        final String title;
+        final String[] fieldNames;
+        final String[] fieldValues;
+        final int[][] fieldWords; // word ids per field
+
+        Doc(String type, String itemId, String title, String[] fieldNames, String[] fieldValues, int[][] fieldWords) {
+            this.type = type;
+            this.itemId = itemId;
+            this.title = title;
+            this.fieldNames = fieldNames;
+            this.fieldValues = fieldValues;
+            this.fieldWords = fieldWords;
+        }
+
+        int fieldContaining(Set<Integer> wordIds) {
+            for (int f = 0; f < fieldWords.length; f++) {
+                for (int wordId : fieldWords[f]) {
+                    if (wordIds.contains(wordId)) return f;
+                }
+            }
+            return 0;
+        }
+    }
+
+    // Growable, always-sorted int list; ids are appended in increasing order
+    private static final class IntList {
+        static final IntList EMPTY = new IntList();
+
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.buyandsellstore.app.service;
 
+import com.buyandsellstore.app.event.ItemActivityEvent;
 import com.buyandsellstore.app.model.WishlistItem;
 import com.buyandsellstore.app.repository.WishlistItemRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -12,15 +14,27 @@ import java.util.Optional;
 public class WishlistItemService {
 
     private final WishlistItemRepository wishlistItemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogIdFilter catalogIdFilter;
 
     @Autowired
-    public WishlistItemService(WishlistItemRepository wishlistItemRepository) {
+    public WishlistItemService(WishlistItemRepository wishlistItemRepository, ApplicationEventPublisher eventPublisher,
+                               CatalogIdFilter catalogIdFilter) {
         this.wishlistItemRepository = wishlistItemRepository;
+        this.eventPublisher = eventPublisher;
+        this.catalogIdFilter = catalogIdFilter;
     }
 
     // Create or add a new wishlist item
     public WishlistItem addWishlistItem(WishlistItem wishlistItem) {
-        return wishlistItemRepository.save(wishlistItem);
+        // Only ids the catalog certainly does not have are refused; no query is made either way
+        if (catalogIdFilter.isDefinitelyAbsent(wishlistItem.getType(), wishlistItem.getItemId())) {
+            throw new IllegalArgumentException("Item not found: " + wishlistItem.getItemId());
+        }
+        WishlistItem saved = wishlistItemRepository.save(wishlistItem);
+        eventPublisher.publishEvent(new ItemActivityEvent(wishlistItem.getType(), wishlistItem.getItemId(),
+                ItemActivityEvent.Kind.WISHLIST, 1));
+        return saved;
     }
 
     // Retrieve a wishlist item by its ID
@@ -0,0 +1,40 @@
+package com.buyandsellstore.app.config;
+
+import com.buyandsellstore.app.repository.CartRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CartLinesMigrationTest {
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @InjectMocks
+    private CartLinesMigration migration;
+
+    @Test
+    public void testRunsBatchesUntilOneComesBackShort() {
+        ReflectionTestUtils.setField(migration, "batchSize", 2);
+        when(cartRepository.migrateItemsToLines(2)).thenReturn(2, 2, 1);
+
+        migration.migrate();
+
+        verify(cartRepository, times(3)).migrateItemsToLines(2);
+    }
+
+    @Test
+    public void testAFailedMigrationStopsTheStartup() {
+        when(cartRepository.migrateItemsToLines(anyInt())).thenThrow(new RuntimeException("connection refused"));
+
+        // Serving with unmigrated carts would show them empty
+        assertThrows(IllegalStateException.class, migration::migrate);
+    }
+}
@@ -0,0 +1,118 @@
+package com.buyandsellstore.app.config;
+
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MongoIndexConfigTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    private void stubTemplate() {
+        when(mongoTemplate.getConverter()).thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+        when(mongoTemplate.indexOps(any(Class.class))).thenReturn(indexOperations);
+        when(mongoTemplate.getCollectionName(any(Class.class))).thenAnswer(invocation ->
+                ((Class<?>) invocation.getArgument(0)).getSimpleName());
+    }
+
+    private static IndexInfo index(String name, String... fields) {
+        List<IndexField> keys = Arrays.stream(fields).map(field -> IndexField.create(field, Sort.Direction.ASC)).toList();
+        return new IndexInfo(keys, name, false, false, null);
+    }
+
+    @Test
+    public void testReportsMissingIndexesWithoutCreatingThem() {
+        stubTemplate();
+        // Every collection already has the book index under another name, nothing else
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(index("_id_", "_id"), index("legacy", "sellerId", "title")));
+
+        MongoIndexConfig config = new MongoIndexConfig(mongoTemplate, false);
+        config.verifyIndexes();
+
+        List<String> missing = config.getMissingIndexes();
+        assertTrue(missing.contains("Cart {\"userId\": 1}"));
+        assertTrue(missing.contains("User {\"username\": 1}"));
+        assertTrue(missing.contains("HomeItem {\"type\": 1}"));
+        assertTrue(missing.contains("Book {\"rankScore\": -1, \"_id\": -1}"));
+        assertFalse(missing.contains("Book {\"sellerId\": 1, \"title\": 1}"));
+        verify(indexOperations, never()).ensureIndex(any(IndexDefinition.class));
+    }
+
+    @Test
+    public void testCreatesMissingIndexes() {
+        stubTemplate();
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(index("_id_", "_id")));
+
+        MongoIndexConfig config = new MongoIndexConfig(mongoTemplate, true);
+        config.verifyIndexes();
+
+        assertTrue(config.getMissingIndexes().isEmpty());
+        verify(indexOperations, atLeast(MongoIndexConfig.INDEXED_ENTITIES.size())).ensureIndex(any(IndexDefinition.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAUniqueIndexBlockedByDuplicatesFailsStartupAndNamesThem() {
+        stubTemplate();
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(index("_id_", "_id")));
+        when(indexOperations.ensureIndex(any(IndexDefinition.class))).thenAnswer(invocation -> {
+            IndexDefinition index = invocation.getArgument(0);
+            if (index.getIndexKeys().containsKey("title") && Boolean.TRUE.equals(index.getIndexOptions().get("unique"))) {
+                throw new RuntimeException("E11000 duplicate key");
+            }
+            return "created";
+        });
+        MongoCollection<Document> books = mock(MongoCollection.class);
+        AggregateIterable<Document> groups = mock(AggregateIterable.class);
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        when(mongoTemplate.getCollection("Book")).thenReturn(books);
+        when(books.aggregate(anyList())).thenReturn(groups);
+        when(groups.allowDiskUse(true)).thenReturn(groups);
+        when(groups.iterator()).thenReturn(cursor);
+        when(cursor.hasNext()).thenReturn(true, false);
+        when(cursor.next()).thenReturn(new Document("_id", new Document("sellerId", "s1").append("title", "Dune")).append("count", 2));
+        when(mongoTemplate.getCollection("HomeItem")).thenThrow(new RuntimeException("timeout"));
+
+        MongoIndexConfig config = new MongoIndexConfig(mongoTemplate, true);
+        IllegalStateException failure = assertThrows(IllegalStateException.class, config::verifyIndexes);
+
+        assertTrue(failure.getMessage().contains("{\"sellerId\": \"s1\", \"title\": \"Dune\"} x2"));
+        assertTrue(failure.getMessage().contains("HomeItem"));
+        assertTrue(config.getMissingIndexes().contains("Book {\"sellerId\": 1, \"title\": 1}"));
+    }
+
+    @Test
+    public void testKeysCompareByFieldsNotName() {
+        assertEquals(MongoIndexConfig.keyOf(new Document("sellerId", 1).append("title", 1)),
+                MongoIndexConfig.keyOf(index("whatever", "sellerId", "title")));
+        assertNotEquals(MongoIndexConfig.keyOf(new Document("title", 1).append("sellerId", 1)),
+                MongoIndexConfig.keyOf(index("whatever", "sellerId", "title")));
+    }
+}
@@ -0,0 +1,126 @@
+package com.buyandsellstore.app.config;
+
+import com.buyandsellstore.app.repository.*;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ConnectionString;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Calls every derived query method of every repository against a real MongoDB, captures the
+ * command it sends and runs explain() on it. Fails when a plan contains a COLLSCAN, i.e. when a
+ * query was added without a matching index in MongoIndexConfig's catalogue. The repositories are
+ * found by scanning their package, so a new one is checked without being listed here.
+ *   mvn test -Dtest=RepositoryQueryPlanTest -Dit.mongo.uri=mongodb://localhost:27017/?directConnection=true
+ */
+@EnabledIfSystemProperty(named = "it.mongo.uri", matches = ".+")
+public class RepositoryQueryPlanTest {
+
+    private static final String DATABASE = "buyandsellstore_plan_it";
+    private static final Set<String> QUERY_COMMANDS = Set.of("find", "count", "delete", "aggregate");
+    // Session and routing fields the driver adds, not accepted inside explain
+    private static final Set<String> DRIVER_FIELDS = Set.of("$db", "lsid", "$clusterTime", "$readPreference", "txnNumber");
+
+    @Test
+    public void testEveryRepositoryQueryUsesAnIndex() throws Exception {
+        List<BsonDocument> commands = new ArrayList<>();
+        CommandListener listener = new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                if (QUERY_COMMANDS.contains(event.getCommandName())) commands.add(event.getCommand().clone());
+            }
+        };
+        MongoClientSettings settings = MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(System.getProperty("it.mongo.uri")))
+                .addCommandListener(listener)
+                .build();
+
+        try (MongoClient client = MongoClients.create(settings)) {
+            MongoTemplate template = new MongoTemplate(client, DATABASE);
+            template.getDb().drop();
+            new MongoIndexConfig(template, true).verifyIndexes();
+            MongoRepositoryFactory factory = new MongoRepositoryFactory(template);
+            ReviewScoreRepositoryImpl reviewScores = new ReviewScoreRepositoryImpl();
+            ReflectionTestUtils.setField(reviewScores, "mongoTemplate", template);
+            CartLineRepositoryImpl cartLines = new CartLineRepositoryImpl();
+            ReflectionTestUtils.setField(cartLines, "mongoTemplate", template);
+
+            List<String> scans = new ArrayList<>();
+            MongoDatabase database = client.getDatabase(DATABASE);
+            List<Class<?>> repositories = repositories();
+            assertTrue(repositories.contains(ReviewRepository.class), "Scan found " + repositories);
+            for (Class<?> repositoryType : repositories) {
+                Object repository = ReviewScoreRepository.class.isAssignableFrom(repositoryType)
+                        ? factory.getRepository(repositoryType, RepositoryComposition.RepositoryFragments.just(reviewScores))
+                        : CartLineRepository.class.isAssignableFrom(repositoryType)
+                        ? factory.getRepository(repositoryType, RepositoryComposition.RepositoryFragments.just(cartLines))
+                        : factory.getRepository(repositoryType);
+                for (Method method : repositoryType.getDeclaredMethods()) {
+                    if (method.isDefault()) continue;
+                    commands.clear();
+                    method.invoke(repository, sampleArguments(method));
+                    assertFalse(commands.isEmpty(), "No query captured for " + method);
+
+                    for (BsonDocument command : commands) {
+                        DRIVER_FIELDS.forEach(command::remove);
+                        Document plan = database.runCommand(new Document("explain", command).append("verbosity", "queryPlanner"));
+                        if (plan.toJson().contains("\"COLLSCAN\"")) {
+                            scans.add(repositoryType.getSimpleName() + "." + method.getName());
+                        }
+                    }
+                }
+            }
+            assertTrue(scans.isEmpty(), "Queries without an index: " + scans);
+        }
+    }
+
+    // Every Spring Data repository interface next to BookRepository
+    private static List<Class<?>> repositories() throws ClassNotFoundException {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+            @Override
+            protected boolean isCandidateComponent(AnnotatedBeanDefinition definition) {
+                return definition.getMetadata().isInterface();
+            }
+        };
+        scanner.addIncludeFilter(new AssignableTypeFilter(Repository.class));
+        List<Class<?>> found = new ArrayList<>();
+        for (BeanDefinition candidate : scanner.findCandidateComponents(BookRepository.class.getPackageName())) {
+            found.add(Class.forName(candidate.getBeanClassName()));
+        }
+        found.sort(Comparator.comparing(Class::getName));
+        return found;
+    }
+
+    private static Object[] sampleArguments(Method method) {
+        Object[] args = new Object[method.getParameterCount()];
+        for (int i = 0; i < args.length; i++) {
+            assertEquals(String.class, method.getParameterTypes()[i], "Add a sample value for " + method);
+            args[i] = "x";
+        }
+        return args;
+    }
+}
@@ -0,0 +1,36 @@
+package com.buyandsellstore.app.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testNoFalseNegatives() {
+        BloomFilter filter = BloomFilter.create(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) filter.put("book:" + i);
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filter.mightContain("book:" + i));
+        }
+        // Keys whose bits were all set already are not counted, a fraction of the false positive rate
+        assertEquals(100_000, filter.insertions(), 500);
+    }
+
+    @Test
+    public void testFalsePositiveRateMatchesTheSizing() {
+        BloomFilter filter = BloomFilter.create(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) filter.put("book:" + i);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("home:" + i)) falsePositives++;
+        }
+        double rate = falsePositives / 100_000.0;
+        assertTrue(rate < 0.015, "false positive rate " + rate);
+        assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.002);
+        // About 9.6 bits and 7 hashes per key at 1%
+        assertEquals(7, filter.hashes());
+        assertTrue(filter.sizeBytes() < 125_000);
+    }
+}
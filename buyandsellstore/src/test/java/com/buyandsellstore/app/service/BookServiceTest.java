@@ -1,21 +1,30 @@
 package com.buyandsellstore.app.service;
 
 import com.buyandsellstore.app.dto.UploadBookResponse;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
 import com.buyandsellstore.app.model.Book;
 import com.buyandsellstore.app.repository.BookRepository;
 import com.buyandsellstore.app.resolver.BookResolver;
 import com.buyandsellstore.app.service.BookService;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,6 +34,21 @@ public class BookServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private CatalogCache catalogCache;
+
+    @Mock
+    private RankingService rankingService;
+
+    @Mock
+    private CatalogIdFilter catalogIdFilter;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
     @InjectMocks
     private BookService bookService;
 
@@ -64,12 +88,82 @@ public class BookServiceTest {
     }
 
 
+    @Test
+    public void testCachedBookIsServedWithFreshStockWithoutChangingIt() {
+        book.setTotalQuantity(5);
+        when(catalogCache.getBook("1")).thenReturn(book);
+        when(catalogCache.getStock(CatalogChangedEvent.BOOK, "1")).thenReturn(2);
+
+        Book result = bookService.getBookById("1");
+
+        assertEquals(2, result.getTotalQuantity());
+        assertEquals("Test Book", result.getTitle());
+        assertEquals(5, book.getTotalQuantity()); // Other readers still see the cached instance as it was
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    public void testUpdateBookSetsOnlyTheEditedFieldsAtTheVersionItWasRead() {
+        book.setVersion(7);
+        when(bookRepository.findById("1")).thenReturn(Optional.of(book));
+        Book after = new Book();
+        after.setId("1");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Book.class)))
+                .thenReturn(after);
+
+        UploadBookResponse response = bookService.updateBook("1", "New", "Author", 4, 12.0, "img", "desc", "s1");
+
+        assertTrue(response.isSuccess());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(Book.class));
+        assertEquals(new Document("_id", "1").append("version", 7L), query.getValue().getQueryObject());
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals(Set.of("title", "author", "totalQuantity", "price", "imageUrl", "description", "sellerId"), set.keySet());
+        verify(bookRepository, never()).save(any(Book.class)); // No whole-document replace
+        verify(eventPublisher).publishEvent(any(CatalogChangedEvent.class));
+    }
+
+    @Test
+    public void testUpdateBookRereadsWhenTheVersionMoved() {
+        Book sold = new Book();
+        sold.setId("1");
+        sold.setVersion(8);
+        when(bookRepository.findById("1")).thenReturn(Optional.of(book), Optional.of(sold));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Book.class)))
+                .thenReturn(null, sold);
+
+        assertTrue(bookService.updateBook("1", "New", "Author", 4, 12.0, "img", "desc", "s1").isSuccess());
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Book.class));
+    }
+
+    @Test
+    public void testRestockOfAHotBookIsRefusedOtherEditsKeepTheShardTotal() {
+        book.setHotShards(8);
+        book.setTotalQuantity(40);
+        when(bookRepository.findById("1")).thenReturn(Optional.of(book));
+
+        UploadBookResponse restock = bookService.updateBook("1", "New", "Author", 100, 12.0, "img", "desc", "s1");
+        assertFalse(restock.isSuccess());
+        assertEquals(BookService.HOT_STOCK_MESSAGE, restock.getMessage());
+        verifyNoInteractions(mongoTemplate);
+
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Book.class)))
+                .thenReturn(book);
+        assertTrue(bookService.updateBook("1", "New", "Author", 40, 12.0, "img", "desc", "s1").isSuccess());
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(Book.class));
+        assertFalse(update.getValue().getUpdateObject().get("$set", Document.class).containsKey("totalQuantity"));
+    }
+
     //This is because update and upload both uses repository save method
     @Test
     public void testUploadBook_and_UpdateBook() {
         when(bookRepository.save(book)).thenReturn(book);
+        when(rankingService.rankScore(eq(CatalogChangedEvent.BOOK), anyDouble(), anyInt())).thenReturn(3.5);
         Book uploadedBook = bookService.save(book);
         assertNotNull(uploadedBook);
+        assertEquals(3.5, uploadedBook.getRankScore());
         assertEquals("1", uploadedBook.getId());
         verify(bookRepository, times(1)).save(book);
     }
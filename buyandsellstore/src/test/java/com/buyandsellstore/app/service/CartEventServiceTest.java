@@ -0,0 +1,121 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CartLifecycleEvent;
+import com.buyandsellstore.app.model.CartEvent;
+import com.buyandsellstore.app.model.SellerCartDay;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CartEventServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @InjectMocks
+    private CartEventService cartEventService;
+
+    private static CartLifecycleEvent event(CartLifecycleEvent.Kind kind, String sellerId, int quantity) {
+        return new CartLifecycleEvent(kind, "u1", sellerId, "book", "b1", quantity);
+    }
+
+    private static SellerCartDay day(long added, long ordered) {
+        SellerCartDay day = new SellerCartDay();
+        day.setAdded(added);
+        day.setOrdered(ordered);
+        return day;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushWritesAllEventsInOneInsertAndOneCounterBulk() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SellerCartDay.class)).thenReturn(bulkOperations);
+        when(bulkOperations.upsert(anyList())).thenReturn(bulkOperations);
+        cartEventService.onCartEvent(CartLifecycleEvent.created("u1"));
+        cartEventService.onCartEvent(event(CartLifecycleEvent.Kind.ITEM_ADDED, "s1", 2));
+        cartEventService.onCartEvent(event(CartLifecycleEvent.Kind.ITEM_ADDED, "s1", 1));
+        cartEventService.onCartEvent(event(CartLifecycleEvent.Kind.ORDERED, "s1", 2));
+        cartEventService.onCartEvent(event(CartLifecycleEvent.Kind.REMOVED, "s1", 1));
+        cartEventService.onCartEvent(event(CartLifecycleEvent.Kind.EXPIRED, "s2", 1));
+
+        cartEventService.flush();
+
+        ArgumentCaptor<Collection<CartEvent>> inserted = ArgumentCaptor.forClass(Collection.class);
+        verify(mongoTemplate).insert(inserted.capture(), eq(CartEvent.class));
+        assertEquals(6, inserted.getValue().size());
+        ArgumentCaptor<List<Pair<Query, Update>>> counters = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations).upsert(counters.capture());
+        verify(bulkOperations).execute();
+        String today = LocalDate.now(ZoneOffset.UTC).toString();
+        Pair<Query, Update> s1 = counters.getValue().get(0);
+        assertEquals("s1:" + today, s1.getFirst().getQueryObject().get("_id"));
+        assertEquals(new Document("added", 3L).append("ordered", 2L).append("expired", 0L).append("removed", 1L),
+                s1.getSecond().getUpdateObject().get("$inc"));
+        assertEquals(new Document("sellerId", "s1").append("day", today), s1.getSecond().getUpdateObject().get("$setOnInsert"));
+        assertEquals(2, counters.getValue().size());
+        assertEquals(0, cartEventService.stats().get("pending"));
+        assertEquals(6L, cartEventService.stats().get("written"));
+    }
+
+    @Test
+    void eventsBeyondTheBoundAreDroppedNotQueued() {
+        ReflectionTestUtils.setField(cartEventService, "maxPending", 1);
+        cartEventService.onCartEvent(CartLifecycleEvent.created("u1"));
+        cartEventService.onCartEvent(CartLifecycleEvent.created("u2"));
+
+        assertEquals(1, cartEventService.stats().get("pending"));
+        assertEquals(1L, cartEventService.stats().get("dropped"));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void abandonmentRateReadsOneDocumentPerDayOfTheWindow() {
+        ReflectionTestUtils.setField(cartEventService, "windowDays", 7);
+        when(mongoTemplate.find(any(Query.class), eq(SellerCartDay.class))).thenReturn(List.of(day(6, 1), day(4, 2)));
+
+        assertEquals(70.0, cartEventService.abandonmentRate("s1"), 1e-9);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(SellerCartDay.class));
+        List<?> ids = (List<?>) ((Document) query.getValue().getQueryObject().get("_id")).get("$in");
+        assertEquals(7, ids.size());
+        assertEquals("s1:" + LocalDate.now(ZoneOffset.UTC), ids.get(0));
+    }
+
+    @Test
+    void unitsTheUserRemovedAreNotAbandoned() {
+        SellerCartDay day = day(10, 2);
+        day.setRemoved(3);
+        when(mongoTemplate.find(any(Query.class), eq(SellerCartDay.class))).thenReturn(List.of(day));
+        assertEquals(50.0, cartEventService.abandonmentRate("s1"), 1e-9);
+    }
+
+    @Test
+    void moreOrdersThanAddsIsNoAbandonment() {
+        when(mongoTemplate.find(any(Query.class), eq(SellerCartDay.class))).thenReturn(List.of(day(1, 3)));
+        assertEquals(0.0, cartEventService.abandonmentRate("s1"));
+    }
+}
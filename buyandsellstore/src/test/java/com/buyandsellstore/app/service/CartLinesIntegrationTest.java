@@ -0,0 +1,145 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.model.Cart;
+import com.buyandsellstore.app.model.CartItem;
+import com.buyandsellstore.app.repository.CartLineRepositoryImpl;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * The keyed cart line updates and the migration of items lists, run by a real MongoDB.
+ *   mvn test -Dtest=CartLinesIntegrationTest -Dit.mongo.uri=mongodb://localhost:27017/?directConnection=true
+ */
+@EnabledIfSystemProperty(named = "it.mongo.uri", matches = ".+")
+public class CartLinesIntegrationTest {
+
+    private static final String DATABASE = "buyandsellstore_cart_lines_it";
+
+    private MongoClient client;
+    private MongoTemplate template;
+    private CartLineRepositoryImpl cartLines;
+
+    @BeforeEach
+    public void setup() {
+        client = MongoClients.create(System.getProperty("it.mongo.uri"));
+        template = new MongoTemplate(client, DATABASE);
+        template.getDb().drop();
+        cartLines = new CartLineRepositoryImpl();
+        ReflectionTestUtils.setField(cartLines, "mongoTemplate", template);
+    }
+
+    @AfterEach
+    public void teardown() {
+        template.getDb().drop();
+        client.close();
+    }
+
+    private static CartItem line(String itemId, String type, int quantity, double price, Date reservedUntil) {
+        CartItem item = new CartItem(itemId, type, "Name " + itemId, quantity, price, "");
+        item.setReservedUntil(reservedUntil);
+        return item;
+    }
+
+    private Cart cart() {
+        return template.findOne(new Query(Criteria.where("userId").is("u1")), Cart.class);
+    }
+
+    @Test
+    public void testLinesAreAddedAndRemovedByKey() {
+        Date soon = new Date(System.currentTimeMillis() + 60000);
+        Date later = new Date(System.currentTimeMillis() + 120000);
+        assertTrue(cartLines.addLine("u1", line("b1", "Book", 1, 9.5, later)));
+        assertFalse(cartLines.addLines("u1", List.of(line("b1", "book", 2, 1.0, soon), line("h1", "homeItem", 1, 20.0, later))));
+
+        Cart cart = cart();
+        assertEquals(List.of("book:b1", "home:h1"), List.copyOf(cart.getLines().keySet()));
+        assertEquals(3, cart.getLines().get("book:b1").getQuantity());
+        assertEquals(9.5, cart.getLines().get("book:b1").getPrice()); // As first added
+        assertEquals(soon, cart.getNextExpiry());
+
+        assertEquals(1, cartLines.removeOne("u1", "h1", "HOME").getModifiedCount());
+        assertEquals(0, cartLines.removeOne("u1", "h1", "home").getModifiedCount());
+        assertEquals(1, cartLines.removeOne("u1", "b1", "book").getModifiedCount());
+        cart = cart();
+        assertEquals(List.of("book:b1"), List.copyOf(cart.getLines().keySet()));
+        assertEquals(2, cart.getLines().get("book:b1").getQuantity());
+        assertEquals(0, cartLines.removeOne("nobody", "b1", "book").getMatchedCount());
+    }
+
+    @Test
+    public void testCheckoutRenewsEveryHoldThenTakesTheLines() {
+        Date expired = new Date(System.currentTimeMillis() - 1000);
+        Date until = new Date(System.currentTimeMillis() + 600000);
+        cartLines.addLines("u1", List.of(line("b1", "book", 2, 9.5, expired), line("h1", "home", 1, 20.0, null)));
+
+        Cart claimed = cartLines.renewHolds("u1", until);
+        assertEquals(until, claimed.getLines().get("book:b1").getReservedUntil());
+        assertEquals(until, claimed.getLines().get("home:h1").getReservedUntil());
+        assertEquals(until, cart().getNextExpiry());
+        assertNull(cartLines.renewHolds("nobody", until));
+
+        assertEquals(2, cartLines.takeLines("u1").getLines().get("book:b1").getQuantity());
+        assertTrue(cart().getLines().isEmpty());
+        assertTrue(cartLines.takeLines("u1").getLines().isEmpty());
+    }
+
+    @Test
+    public void testNetChangesAreAppliedOncePerSequenceNumber() {
+        Date later = new Date(System.currentTimeMillis() + 120000);
+        cartLines.addLines("u1", List.of(line("b1", "book", 2, 9.5, later), line("h1", "home", 1, 20.0, later)));
+
+        assertFalse(cartLines.applyChanges("u1", List.of(line("b1", "book", -1, 9.5, null),
+                line("h1", "home", -3, 20.0, null), line("b2", "book", 4, 3.0, later), line("h2", "home", -1, 1.0, null)), "n1", 10));
+        assertFalse(cartLines.applyChanges("u1", List.of(line("b2", "book", 4, 3.0, later)), "n1", 10)); // Replayed
+        assertFalse(cartLines.applyChanges("u1", List.of(line("b2", "book", 1, 3.0, later)), "n2", 5)); // Another node
+
+        Cart cart = cart();
+        assertEquals(List.of("book:b1", "book:b2"), List.copyOf(cart.getLines().keySet()));
+        assertEquals(1, cart.getLines().get("book:b1").getQuantity());
+        assertEquals(5, cart.getLines().get("book:b2").getQuantity());
+        assertEquals(10L, cartLines.journalPosition("u1", "n1"));
+        assertEquals(0L, cartLines.journalPosition("u2", "n1"));
+
+        assertTrue(cartLines.applyChanges("u2", List.of(line("b1", "book", 1, 9.5, later)), "n1", 11)); // Creates the cart
+        assertFalse(cartLines.applyChanges("u2", List.of(line("b1", "book", 1, 9.5, later)), "n1", 11));
+        assertEquals(11L, cartLines.journalPosition("u2", "n1"));
+
+        // Checkout empties the cart; replaying what was ordered must not bring it back
+        assertEquals(1, cartLines.clearLines("u2"));
+        assertFalse(cartLines.applyChanges("u2", List.of(line("b1", "book", 1, 9.5, later)), "n1", 11));
+        assertTrue(template.findOne(new Query(Criteria.where("userId").is("u2")), Cart.class).getLines().isEmpty());
+        assertEquals(0, cartLines.clearLines("nobody"));
+    }
+
+    @Test
+    public void testItemsListsAreMigratedIntoLines() {
+        Date until = new Date(System.currentTimeMillis() + 60000);
+        template.getCollection("carts").insertOne(new Document("userId", "u1").append("items", List.of(
+                new Document("itemId", "b1").append("type", "Book").append("quantity", 2).append("price", 5.0),
+                new Document("itemId", "h1").append("type", "home").append("quantity", 1).append("reservedUntil", until))));
+        cartLines.addLine("u1", line("b1", "book", 1, 5.0, null)); // Written by the new code before the migration got there
+
+        assertEquals(1, cartLines.migrateItemsToLines(10));
+        assertEquals(0, cartLines.migrateItemsToLines(10));
+
+        Cart cart = cart();
+        assertEquals(3, cart.getLines().get("book:b1").getQuantity());
+        assertEquals(1, cart.getLines().get("home:h1").getQuantity());
+        assertEquals(until, cart.getNextExpiry());
+        assertFalse(template.getCollection("carts").find().first().containsKey("items"));
+    }
+}
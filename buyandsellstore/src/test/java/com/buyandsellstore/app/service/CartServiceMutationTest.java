@@ -0,0 +1,229 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.AddItemsToCartResponse;
+import com.buyandsellstore.app.dto.CartLineResult;
+import com.buyandsellstore.app.dto.InventoryUpdateResult;
+import com.buyandsellstore.app.dto.ResponseMessage;
+import com.buyandsellstore.app.event.CartLifecycleEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.CartItem;
+import com.buyandsellstore.app.model.CartLineRequest;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.repository.CartRepository;
+import com.mongodb.client.result.UpdateResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Cart mutations go to the server as single updates; the cart document is never read and saved back
+@ExtendWith(MockitoExtension.class)
+public class CartServiceMutationTest {
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private HomeItemService homeItemService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private GuestCartStore guestCartStore;
+
+    @Mock
+    private CartWriteBuffer cartWriteBuffer;
+
+    @InjectMocks
+    private CartService cartService;
+
+    @Test
+    void addToCartIsOneUpdateWithTheLineDetails() {
+        Book book = new Book();
+        book.setId("b1");
+        book.setTitle("Dune");
+        book.setPrice(9.5);
+        when(bookService.getBookById("b1")).thenReturn(book);
+
+        ResponseMessage response = cartService.addToCart("u1", "b1", "book");
+
+        assertTrue(response.isSuccess());
+        ArgumentCaptor<CartItem> line = ArgumentCaptor.forClass(CartItem.class);
+        verify(cartRepository).addLine(eq("u1"), line.capture());
+        assertEquals("Dune", line.getValue().getName());
+        assertEquals(9.5, line.getValue().getPrice());
+        assertEquals(1, line.getValue().getQuantity());
+        verify(cartRepository, never()).findByUserId(anyString());
+        verify(cartRepository, never()).save(any());
+    }
+
+    @Test
+    void removeFromCartReportsFromTheUpdateResult() {
+        when(cartRepository.removeOne("u1", "b1", "book")).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(cartRepository.removeOne("u1", "b2", "book")).thenReturn(UpdateResult.acknowledged(1, 0L, null));
+        when(cartRepository.removeOne("u2", "b1", "book")).thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        assertTrue(cartService.removeFromCart("u1", "b1", "book").isSuccess());
+        assertEquals("Item not found in the cart.", cartService.removeFromCart("u1", "b2", "book").getMessage());
+        assertEquals("Cart not found for the user.", cartService.removeFromCart("u2", "b1", "book").getMessage());
+        verify(cartRepository, never()).findByUserId(anyString());
+        verify(cartRepository, never()).save(any());
+        verify(inventoryService, times(1)).releaseOne(Book.class, "b1"); // Only the unit that left a cart
+        verify(inventoryService, never()).releaseOne(Book.class, "b2");
+    }
+
+    @Test
+    void aRemovedUnitIsReportedWithItsSeller() {
+        Book dune = new Book();
+        dune.setSellerId("s1");
+        when(bookService.getBookById("b1")).thenReturn(dune);
+        when(cartRepository.removeOne("u1", "b1", "Book")).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        assertTrue(cartService.removeFromCart("u1", "b1", "Book").isSuccess());
+
+        ArgumentCaptor<CartLifecycleEvent> event = ArgumentCaptor.forClass(CartLifecycleEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(CartLifecycleEvent.Kind.REMOVED, event.getValue().getKind());
+        assertEquals("s1", event.getValue().getSellerId());
+        assertEquals("book", event.getValue().getType());
+        assertEquals(1, event.getValue().getQuantity());
+    }
+
+    @Test
+    void removingTheWholeCartIsOneUpdateThatKeepsTheCart() {
+        when(cartRepository.clearLines("u1")).thenReturn(1L);
+
+        assertTrue(cartService.removeFromCart("u1", null, null).isSuccess());
+        assertFalse(cartService.removeFromCart("u2", null, null).isSuccess());
+        verify(cartRepository, never()).findByUserId(anyString());
+        verify(cartRepository, never()).deleteByUserId(anyString());
+    }
+
+    @Test
+    void withWriteBehindClicksGoToTheBufferInsteadOfMongo() {
+        when(cartWriteBuffer.isEnabled()).thenReturn(true);
+        when(cartWriteBuffer.removeOne("u1", "b1", "book")).thenReturn(CartWriteBuffer.Removal.REMOVED);
+        when(cartWriteBuffer.removeOne("u1", "b2", "book")).thenReturn(CartWriteBuffer.Removal.DIRECT);
+        when(cartRepository.removeOne("u1", "b2", "book")).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        assertTrue(cartService.addToCart("u1", "b1", "book").isSuccess());
+        assertTrue(cartService.removeFromCart("u1", "b1", "book").isSuccess());
+        assertTrue(cartService.removeFromCart("u1", "b2", "book").isSuccess()); // Hold about to run out
+
+        verify(cartWriteBuffer).add(eq("u1"), any(CartItem.class));
+        verify(cartRepository, never()).addLine(anyString(), any());
+        verify(cartRepository, never()).removeOne("u1", "b1", "book");
+        InOrder inOrder = inOrder(cartWriteBuffer, cartRepository, inventoryService);
+        inOrder.verify(cartWriteBuffer).flushUser("u1");
+        inOrder.verify(cartRepository).removeOne("u1", "b2", "book");
+        inOrder.verify(inventoryService).releaseOne(Book.class, "b2");
+        // The buffered removal's unit goes back with its flush, not now
+        verify(inventoryService, never()).releaseOne(Book.class, "b1");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void addItemsToCartReservesInBulkAndWritesTheCartOnce() {
+        Book dune = new Book();
+        dune.setId("b1");
+        dune.setTitle("Dune");
+        dune.setPrice(9.5);
+        Book sold = new Book();
+        sold.setId("b2");
+        when(bookService.getBooksByIds(Set.of("b1", "b2"))).thenReturn(Map.of("b1", dune, "b2", sold));
+        when(homeItemService.getHomeItemsByIds(Set.of("h1"))).thenReturn(Map.of());
+        when(inventoryService.reserveAll(Book.class, Map.of("b1", 2, "b2", 1)))
+                .thenReturn(Map.of("b1", InventoryUpdateResult.UPDATED, "b2", InventoryUpdateResult.INSUFFICIENT_STOCK));
+        when(inventoryService.reserveAll(HomeItem.class, Map.of())).thenReturn(Map.of());
+
+        AddItemsToCartResponse response = cartService.addItemsToCart("u1", List.of(
+                new CartLineRequest("b1", "Book", 2),
+                new CartLineRequest("b2", "book", 1),
+                new CartLineRequest("h1", "home", 1),
+                new CartLineRequest("b1", "book", 1),
+                new CartLineRequest("x", "toy", 1)));
+
+        assertFalse(response.isSuccess());
+        assertEquals(List.of(CartLineResult.ADDED, CartLineResult.INSUFFICIENT_STOCK, CartLineResult.NOT_FOUND,
+                        CartLineResult.INVALID, CartLineResult.INVALID),
+                response.getResults().stream().map(CartLineResult::getStatus).toList());
+        ArgumentCaptor<List<CartItem>> lines = ArgumentCaptor.forClass(List.class);
+        verify(cartRepository).addLines(eq("u1"), lines.capture());
+        assertEquals(1, lines.getValue().size());
+        assertEquals("Dune", lines.getValue().get(0).getName());
+        assertEquals(2, lines.getValue().get(0).getQuantity());
+        assertNotNull(lines.getValue().get(0).getReservedUntil());
+        verify(inventoryService, never()).releaseAll(any(), anyMap());
+    }
+
+    @Test
+    void addItemsToCartGivesStockBackWhenTheCartWriteFails() {
+        Book dune = new Book();
+        dune.setId("b1");
+        when(bookService.getBooksByIds(Set.of("b1"))).thenReturn(Map.of("b1", dune));
+        when(inventoryService.reserveAll(Book.class, Map.of("b1", 3))).thenReturn(Map.of("b1", InventoryUpdateResult.UPDATED));
+        doThrow(new IllegalStateException("down")).when(cartRepository).addLines(eq("u1"), anyList());
+
+        AddItemsToCartResponse response = cartService.addItemsToCart("u1", List.of(new CartLineRequest("b1", "book", 3)));
+
+        assertFalse(response.isSuccess());
+        assertEquals(CartLineResult.FAILED, response.getResults().get(0).getStatus());
+        verify(inventoryService).releaseAll(Book.class, Map.of("b1", 3));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void guestCartMergesThroughTheBatchAddAndKeepsUnwrittenLines() {
+        CartItem guestLine = new CartItem();
+        guestLine.setItemId("b1");
+        guestLine.setType("book");
+        guestLine.setQuantity(2);
+        when(guestCartStore.take("t1")).thenReturn(new ArrayList<>(List.of(guestLine)));
+        Book dune = new Book();
+        dune.setId("b1");
+        when(bookService.getBooksByIds(Set.of("b1"))).thenReturn(Map.of("b1", dune));
+        when(inventoryService.reserveAll(Book.class, Map.of("b1", 2))).thenReturn(Map.of("b1", InventoryUpdateResult.UPDATED));
+        doThrow(new IllegalStateException("down")).when(cartRepository).addLines(eq("u1"), anyList());
+
+        AddItemsToCartResponse merged = cartService.mergeGuestCart("u1", "t1");
+
+        assertEquals(CartLineResult.FAILED, merged.getResults().get(0).getStatus());
+        verify(guestCartStore).restore("t1", List.of(guestLine)); // Tried again at the next login
+    }
+
+    @Test
+    void guestAddsNeverTouchTheCartCollection() {
+        Book dune = new Book();
+        dune.setId("b1");
+        dune.setTotalQuantity(4);
+        when(bookService.getBookById("b1")).thenReturn(dune);
+        when(guestCartStore.newToken()).thenReturn("fresh");
+        when(guestCartStore.update(any(), any())).thenAnswer(invocation ->
+                "fresh".equals(invocation.getArgument(0)) ? List.of(new CartItem()) : null); // No token yet
+
+        assertEquals("fresh", cartService.addToGuestCart(null, "b1", "book").getGuestCartToken());
+
+        verify(guestCartStore).create("fresh");
+        verifyNoInteractions(cartRepository, inventoryService);
+    }
+}
@@ -0,0 +1,119 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.CartLineCheck;
+import com.buyandsellstore.app.dto.CartValidationResponse;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.Cart;
+import com.buyandsellstore.app.model.CartItem;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.repository.CartRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// Checkout reprices the whole cart with one read per item type
+@ExtendWith(MockitoExtension.class)
+public class CartServiceValidationTest {
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private HomeItemService homeItemService;
+
+    @Mock
+    private CartWriteBuffer cartWriteBuffer;
+
+    @InjectMocks
+    private CartService cartService;
+
+    private static CartItem line(String itemId, String type, int quantity, double price, Date reservedUntil) {
+        CartItem item = new CartItem(itemId, type, "old name", quantity, price, "");
+        item.setReservedUntil(reservedUntil);
+        return item;
+    }
+
+    private static Book book(String id, double price, int stock) {
+        Book book = new Book("Title " + id, "Author", price, "img", "", "seller-" + id, stock);
+        book.setId(id);
+        return book;
+    }
+
+    private void cartOf(CartItem... lines) {
+        Cart cart = new Cart();
+        cart.setUserId("u1");
+        cart.setItems(List.of(lines));
+        when(cartRepository.findByUserId("u1")).thenReturn(Optional.of(cart));
+    }
+
+    @Test
+    void repricesEveryLineWithOneReadPerType() {
+        Date later = new Date(System.currentTimeMillis() + 60000);
+        HomeItem lamp = new HomeItem();
+        lamp.setId("h1");
+        lamp.setTitle("Lamp");
+        lamp.setPrice(20.0);
+        lamp.setSellerId("seller-h1");
+        cartOf(line("b1", "book", 2, 10.0, later), line("b2", "book", 1, 5.0, later), line("h1", "home", 1, 20.0, later));
+        when(bookService.getBooksForUpdate(Set.of("b1", "b2"))).thenReturn(Map.of("b1", book("b1", 12.0, 0), "b2", book("b2", 5.0, 0)));
+        when(homeItemService.getHomeItemsForUpdate(Set.of("h1"))).thenReturn(Map.of("h1", lamp));
+
+        CartValidationResponse response = cartService.validateCart("u1");
+
+        assertFalse(response.isValid());
+        assertEquals(49.0, response.getTotal());
+        assertEquals(1, response.getPriceChanges());
+        assertEquals(0, response.getUnavailable());
+        CartLineCheck changed = response.getLines().get(0);
+        assertEquals(CartLineCheck.PRICE_CHANGED, changed.getStatus());
+        assertEquals(10.0, changed.getCartPrice());
+        assertEquals(12.0, changed.getPrice());
+        assertEquals("Title b1", response.getItems().get(0).getName());
+        assertEquals("seller-h1", response.getItems().get(2).getSellerId());
+        verify(bookService, never()).getBookById(anyString());
+        verifyNoMoreInteractions(bookService, homeItemService);
+    }
+
+    @Test
+    void expiredHoldsNeedStockAndMissingItemsAreReported() {
+        Date earlier = new Date(System.currentTimeMillis() - 60000);
+        cartOf(line("b1", "book", 3, 10.0, earlier), line("b2", "book", 1, 5.0, null), line("gone", "book", 1, 1.0, null));
+        when(bookService.getBooksForUpdate(Set.of("b1", "b2", "gone"))).thenReturn(Map.of("b1", book("b1", 10.0, 2), "b2", book("b2", 5.0, 0)));
+
+        CartValidationResponse response = cartService.validateCart("u1");
+
+        assertEquals(CartLineCheck.INSUFFICIENT_STOCK, response.getLines().get(0).getStatus());
+        assertEquals(CartLineCheck.OK, response.getLines().get(1).getStatus()); // Held since before holds expired
+        assertEquals(CartLineCheck.NOT_FOUND, response.getLines().get(2).getStatus());
+        assertEquals(2, response.getUnavailable());
+        assertEquals(5.0, response.getTotal());
+        assertEquals(1, response.getItems().size());
+    }
+
+    @Test
+    void submittedLinesOnlyUseTheUnitsTheCartHolds() {
+        CartItem held = line("b1", "book", 1, 10.0, null);
+        when(bookService.getBooksForUpdate(Set.of("b1"))).thenReturn(Map.of("b1", book("b1", 10.0, 1)));
+
+        CartValidationResponse response = cartService.revalidate(List.of(line("b1", "book", 3, 10.0, null)), List.of(held));
+
+        assertEquals(CartLineCheck.INSUFFICIENT_STOCK, response.getLines().get(0).getStatus());
+        assertEquals(CartLineCheck.OK, cartService.revalidate(List.of(line("b1", "book", 2, 10.0, null)), List.of(held))
+                .getLines().get(0).getStatus());
+    }
+}
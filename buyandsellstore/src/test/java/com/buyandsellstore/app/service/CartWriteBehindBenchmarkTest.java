@@ -0,0 +1,153 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.model.Cart;
+import com.buyandsellstore.app.model.CartItem;
+import com.buyandsellstore.app.repository.CartLineRepositoryImpl;
+import com.buyandsellstore.app.repository.CartRepository;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Bursts of cart clicks against a real MongoDB: clicks per second written directly, one update
+ * each, and through CartWriteBuffer flushed every FLUSH_MS. Both must leave the same carts; the
+ * throughput of each is printed.
+ *   mvn test -Dtest=CartWriteBehindBenchmarkTest -Dit.mongo.uri=mongodb://localhost:27017/?directConnection=true
+ */
+@EnabledIfSystemProperty(named = "it.mongo.uri", matches = ".+")
+public class CartWriteBehindBenchmarkTest {
+
+    private static final String DATABASE = "buyandsellstore_write_behind_it";
+    private static final int USERS = 32;
+    private static final int CLICKS_PER_USER = 400; // Three adds, then one removal
+    private static final long FLUSH_MS = 200;
+
+    @TempDir
+    private Path journalDir;
+
+    private MongoClient client;
+    private MongoTemplate template;
+    private CartLineRepositoryImpl cartLines;
+    private CartWriteBuffer buffer;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        client = MongoClients.create(System.getProperty("it.mongo.uri"));
+        template = new MongoTemplate(client, DATABASE);
+        template.getDb().drop();
+        cartLines = new CartLineRepositoryImpl();
+        ReflectionTestUtils.setField(cartLines, "mongoTemplate", template);
+        CartRepository cartRepository = new MongoRepositoryFactory(template)
+                .getRepository(CartRepository.class, RepositoryComposition.RepositoryFragments.just(cartLines));
+        buffer = new CartWriteBuffer();
+        ReflectionTestUtils.setField(buffer, "cartRepository", cartRepository);
+        ReflectionTestUtils.setField(buffer, "inventoryService", Mockito.mock(InventoryService.class)); // Stock is not measured here
+        ReflectionTestUtils.setField(buffer, "mongoTemplate", template);
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "journalDir", journalDir.toString());
+        buffer.open();
+    }
+
+    @AfterEach
+    public void teardown() {
+        buffer.close();
+        template.getDb().drop();
+        client.close();
+    }
+
+    @Test
+    public void testWriteBehindAgainstDirectWrites() throws Exception {
+        long directMs = click("direct-", (userId, add) -> {
+            if (add) cartLines.addLine(userId, line());
+            else cartLines.removeOne(userId, "b1", "book");
+        });
+
+        ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+        flusher.scheduleWithFixedDelay(buffer::flush, FLUSH_MS, FLUSH_MS, TimeUnit.MILLISECONDS);
+        long bufferedMs;
+        try {
+            bufferedMs = click("buffered-", (userId, add) -> {
+                if (add) buffer.add(userId, line());
+                else assertEquals(CartWriteBuffer.Removal.REMOVED, buffer.removeOne(userId, "b1", "book"));
+            });
+        } finally {
+            flusher.shutdown();
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        long flushStarted = System.nanoTime();
+        buffer.flush();
+        bufferedMs += (System.nanoTime() - flushStarted) / 1_000_000; // Until everything is in MongoDB
+
+        int expected = CLICKS_PER_USER / 2;
+        for (int u = 0; u < USERS; u++) {
+            assertEquals(expected, quantity("direct-" + u));
+            assertEquals(expected, quantity("buffered-" + u));
+        }
+        long clicks = (long) USERS * CLICKS_PER_USER;
+        System.out.printf("%d clicks from %d users: direct %d ms (%.0f/s), write-behind %d ms (%.0f/s), %s cart writes%n",
+                clicks, USERS, directMs, clicks * 1000.0 / Math.max(1, directMs),
+                bufferedMs, clicks * 1000.0 / Math.max(1, bufferedMs), buffer.stats().get("cartWrites"));
+    }
+
+    private interface Click {
+        void apply(String userId, boolean add) throws Exception;
+    }
+
+    // One thread per user clicking on the same line; returns the elapsed ms
+    private long click(String prefix, Click click) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(USERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int u = 0; u < USERS; u++) {
+                String userId = prefix + u;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < CLICKS_PER_USER; i++) click.apply(userId, i % 4 != 3);
+                    return null;
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) future.get();
+            return (System.nanoTime() - started) / 1_000_000;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static CartItem line() {
+        CartItem line = new CartItem("b1", "book", "Dune", 1, 9.5, "");
+        line.setReservedUntil(new Date(System.currentTimeMillis() + 1800000));
+        return line;
+    }
+
+    private int quantity(String userId) {
+        Cart cart = template.findOne(new Query(Criteria.where("userId").is(userId)), Cart.class);
+        return cart == null || !cart.getLines().containsKey("book:b1") ? 0 : cart.getLines().get("book:b1").getQuantity();
+    }
+}
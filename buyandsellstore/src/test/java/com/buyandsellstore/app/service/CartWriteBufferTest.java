@@ -0,0 +1,267 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CartLifecycleEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.Cart;
+import com.buyandsellstore.app.model.CartItem;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.repository.CartRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CartWriteBufferTest {
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @TempDir
+    private Path journalDir;
+
+    private CartWriteBuffer buffer;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        buffer = buffer();
+    }
+
+    @AfterEach
+    public void teardown() {
+        buffer.close();
+    }
+
+    private CartWriteBuffer buffer() throws Exception {
+        CartWriteBuffer opened = new CartWriteBuffer();
+        ReflectionTestUtils.setField(opened, "cartRepository", cartRepository);
+        ReflectionTestUtils.setField(opened, "inventoryService", inventoryService);
+        ReflectionTestUtils.setField(opened, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(opened, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(opened, "enabled", true);
+        ReflectionTestUtils.setField(opened, "journalDir", journalDir.toString());
+        opened.open();
+        return opened;
+    }
+
+    private static CartItem line(String itemId, String type, int quantity, long holdMs) {
+        CartItem line = new CartItem(itemId, type, "Name " + itemId, quantity, 5.0, "");
+        line.setReservedUntil(new Date(System.currentTimeMillis() + holdMs));
+        return line;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CartItem> written(String userId) {
+        ArgumentCaptor<List<CartItem>> changes = ArgumentCaptor.forClass(List.class);
+        verify(cartRepository).applyChanges(eq(userId), changes.capture(), anyString(), anyLong());
+        return changes.getValue();
+    }
+
+    @Test
+    void clicksAreCoalescedIntoOneUpdatePerCart() {
+        for (int i = 0; i < 3; i++) buffer.add("u1", line("b1", "book", 1, 1800000));
+        buffer.add("u1", line("h1", "home", 1, 1800000));
+        buffer.add("u2", line("b1", "book", 1, 1800000));
+        verifyNoInteractions(cartRepository);
+
+        buffer.flush();
+
+        List<CartItem> u1 = written("u1");
+        assertEquals(2, u1.size());
+        assertEquals(3, u1.get(0).getQuantity());
+        assertEquals(1, u1.get(1).getQuantity());
+        assertEquals(1, written("u2").get(0).getQuantity());
+        assertEquals(5L, buffer.stats().get("mutations"));
+        assertEquals(2L, buffer.stats().get("cartWrites"));
+        assertEquals(0, buffer.stats().get("pendingCarts"));
+        assertEquals(1, buffer.stats().get("journalSegments"));
+    }
+
+    @Test
+    void aFlushThatCreatesTheCartReportsIt() {
+        when(cartRepository.applyChanges(eq("u1"), anyList(), anyString(), anyLong())).thenReturn(true);
+        buffer.add("u1", line("b1", "book", 1, 1800000));
+        buffer.add("u2", line("b1", "book", 1, 1800000)); // Into an existing cart
+        buffer.flush();
+
+        ArgumentCaptor<CartLifecycleEvent> event = ArgumentCaptor.forClass(CartLifecycleEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(CartLifecycleEvent.Kind.CREATED, event.getValue().getKind());
+        assertEquals("u1", event.getValue().getUserId());
+    }
+
+    @Test
+    void cartItemsAndRemovalsSeeTheStoredCartWithTheBufferedChanges() {
+        Cart stored = new Cart("u1");
+        stored.setItems(List.of(line("b1", "book", 1, 1800000), line("h1", "home", 1, 1000),
+                line("b2", "book", 2, 1800000))); // b2 as the write of the add below leaves it
+        when(cartRepository.findByUserId("u1")).thenReturn(Optional.of(stored));
+        buffer.add("u1", line("b2", "book", 2, 1800000));
+        assertEquals(List.of(1, 1, 2), buffer.items("u1").stream().map(CartItem::getQuantity).toList());
+        assertEquals(2, written("u1").get(0).getQuantity()); // Written before the stored cart was read
+        clearInvocations(cartRepository);
+
+        buffer.add("u1", line("b2", "book", 1, 1800000));
+        assertEquals(3, buffer.items("u1").get(2).getQuantity());
+        assertEquals(CartWriteBuffer.Removal.REMOVED, buffer.removeOne("u1", "b1", "book"));
+        assertEquals(CartWriteBuffer.Removal.NO_LINE, buffer.removeOne("u1", "b1", "book"));
+        assertEquals(CartWriteBuffer.Removal.DIRECT, buffer.removeOne("u1", "h1", "home")); // Its hold is about to run out
+        assertEquals(List.of("h1", "b2"), buffer.items("u1").stream().map(CartItem::getItemId).toList());
+        verifyNoInteractions(cartRepository); // All from memory
+
+        buffer.flush();
+        List<CartItem> changes = written("u1");
+        assertEquals(List.of("b2", "b1"), changes.stream().map(CartItem::getItemId).toList());
+        assertEquals(List.of(1, -1), changes.stream().map(CartItem::getQuantity).toList());
+        verify(inventoryService).releaseAll(Book.class, Map.of("b1", 1));
+    }
+
+    @Test
+    void aBufferedRemovalGivesItsUnitBackOnlyAfterTheCartWrite() throws Exception {
+        Cart stored = new Cart("u1");
+        stored.setItems(List.of(line("h1", "home", 2, 1800000)));
+        when(cartRepository.findByUserId("u1")).thenReturn(Optional.of(stored));
+        buffer.add("u1", line("h1", "home", 2, 1800000));
+        assertEquals(CartWriteBuffer.Removal.REMOVED, buffer.removeOne("u1", "h1", "home"));
+        ArgumentCaptor<Long> position = ArgumentCaptor.forClass(Long.class);
+        verify(cartRepository).applyChanges(eq("u1"), anyList(), anyString(), position.capture()); // The add, before the read
+        verifyNoInteractions(inventoryService);
+        clearInvocations(cartRepository);
+
+        // Crash before the flush: the journal replays the removal together with its release
+        when(cartRepository.journalPosition(eq("u1"), anyString())).thenReturn(position.getValue());
+        CartWriteBuffer restarted = buffer();
+        try {
+            assertEquals(-1, written("u1").get(0).getQuantity());
+            InOrder inOrder = inOrder(cartRepository, inventoryService);
+            inOrder.verify(cartRepository).applyChanges(eq("u1"), anyList(), anyString(), anyLong());
+            inOrder.verify(inventoryService).releaseAll(HomeItem.class, Map.of("h1", 1));
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void aSecondNodeCanNotTurnWriteBehindOn() {
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(CartWriteBuffer.LEASE_COLLECTION)))
+                .thenThrow(new DuplicateKeyException("lease"));
+        assertThrows(IllegalStateException.class, this::buffer);
+        assertTrue(buffer.isEnabled()); // The node that holds the lease keeps buffering
+    }
+
+    @Test
+    void aUserWithNoCartAndNothingBufferedHasNoCart() {
+        when(cartRepository.findByUserId("u1")).thenReturn(Optional.empty());
+        assertNull(buffer.items("u1"));
+        assertEquals(CartWriteBuffer.Removal.NO_CART, buffer.removeOne("u1", "b1", "book"));
+    }
+
+    @Test
+    void journaledChangesAreReplayedAfterACrash() throws Exception {
+        buffer.add("u1", line("b1", "book", 1, 1800000));
+        buffer.add("u1", line("b1", "book", 1, 1800000));
+        buffer.add("u2", line("b1", "book", 1, 1800000));
+        // Crash: nothing flushed; u2's change was already written by a flush that did not get to delete the journal
+        when(cartRepository.journalPosition(eq("u1"), anyString())).thenReturn(0L);
+        when(cartRepository.journalPosition(eq("u2"), anyString())).thenReturn(Long.MAX_VALUE);
+
+        CartWriteBuffer restarted = buffer();
+        try {
+            assertEquals(2, written("u1").get(0).getQuantity());
+            verify(cartRepository, never()).applyChanges(eq("u2"), anyList(), anyString(), anyLong());
+            assertEquals(2L, restarted.stats().get("replayed"));
+            assertEquals(1, restarted.stats().get("journalSegments"));
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void aRestartAfterCheckoutReplaysNothing() throws Exception {
+        buffer.add("u1", line("b1", "book", 2, 1800000));
+        buffer.flushUser("u1"); // Checkout
+        assertEquals(1, buffer.stats().get("journalSegments"));
+
+        CartWriteBuffer restarted = buffer();
+        try {
+            verify(cartRepository, never()).journalPosition(anyString(), anyString());
+            verify(cartRepository, times(1)).applyChanges(eq("u1"), anyList(), anyString(), anyLong());
+            assertEquals(0L, restarted.stats().get("replayed"));
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void theJournalIsTrimmedOnShutdownWithNothingLeftToWrite() throws Exception {
+        buffer.add("u1", line("b1", "book", 1, 1800000));
+        buffer.flushUser("u1");
+        buffer.add("u2", line("b1", "book", 1, 1800000));
+        buffer.flushUser("u2");
+        buffer.close();
+
+        CartWriteBuffer restarted = buffer();
+        try {
+            verify(cartRepository, never()).journalPosition(anyString(), anyString());
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void theJournalDirectoryMustBeSet() {
+        CartWriteBuffer unset = new CartWriteBuffer();
+        ReflectionTestUtils.setField(unset, "enabled", true);
+        assertThrows(IllegalStateException.class, unset::open);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void changesMongoRejectedStayBufferedAndJournaled() {
+        when(cartRepository.applyChanges(eq("u1"), anyList(), anyString(), anyLong()))
+                .thenThrow(new RuntimeException("down")).thenReturn(true);
+        buffer.add("u1", line("b1", "book", 1, 1800000));
+        buffer.flush();
+        assertEquals(1, buffer.stats().get("pendingCarts"));
+        assertEquals(2, buffer.stats().get("journalSegments"));
+
+        buffer.add("u1", line("b1", "book", 1, 1800000));
+        buffer.flush();
+
+        ArgumentCaptor<List<CartItem>> changes = ArgumentCaptor.forClass(List.class);
+        verify(cartRepository, times(2)).applyChanges(eq("u1"), changes.capture(), anyString(), anyLong());
+        assertEquals(2, changes.getValue().get(0).getQuantity());
+        assertEquals(1L, buffer.stats().get("failures"));
+        assertEquals(1, buffer.stats().get("journalSegments"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogCacheTest {
+
+    @Test
+    public void testSaveEventEvictsItemAndStock() {
+        CatalogCache cache = new CatalogCache(1 << 20, 60_000, 100);
+        Book book = book("1", "Dune");
+        cache.putBook(book, cache.stamp());
+        cache.putStock(CatalogChangedEvent.BOOK, "1", 5);
+        assertSame(book, cache.getBook("1"));
+        assertEquals(5, cache.getStock(CatalogChangedEvent.BOOK, "1"));
+
+        cache.onCatalogChanged(CatalogChangedEvent.of(book));
+        assertNull(cache.getBook("1"));
+        assertNull(cache.getStock(CatalogChangedEvent.BOOK, "1"));
+        assertEquals(1L, cache.stats().get("invalidations"));
+    }
+
+    @Test
+    public void testLoadThatRacedAnEvictionIsNotCached() {
+        CatalogCache cache = new CatalogCache(1 << 20, 60_000, 100);
+        long stamp = cache.stamp();
+        cache.evict(CatalogChangedEvent.BOOK, "1");
+        cache.putBook(book("1", "Dune"), stamp);
+        assertNull(cache.getBook("1"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedWhenOverBudget() {
+        Book first = book("1", "Dune");
+        int weight = CatalogCache.weigh(first.getTitle(), null, null, null, null);
+        CatalogCache cache = new CatalogCache(weight * 2L, 60_000, 100);
+        cache.putBook(first, cache.stamp());
+        cache.putBook(book("2", "Emma"), cache.stamp());
+        cache.getBook("1");
+        cache.putBook(book("3", "Odes"), cache.stamp());
+
+        assertNotNull(cache.getBook("1"));
+        assertNull(cache.getBook("2"));
+        assertTrue((long) cache.stats().get("evictions") >= 1);
+        assertTrue((double) cache.stats().get("hitRatio") > 0);
+    }
+
+    @Test
+    public void testStockExpires() throws InterruptedException {
+        CatalogCache cache = new CatalogCache(1 << 20, 1, 100);
+        cache.putStock(CatalogChangedEvent.HOME, "1", 3);
+        Thread.sleep(5);
+        assertNull(cache.getStock(CatalogChangedEvent.HOME, "1"));
+    }
+
+    private static Book book(String id, String title) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        return book;
+    }
+}
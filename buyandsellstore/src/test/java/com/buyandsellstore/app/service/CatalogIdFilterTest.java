@@ -0,0 +1,122 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CacheInvalidationEvent;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CatalogIdFilterTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private CatalogIdFilter catalogIdFilter;
+
+    @SuppressWarnings("unchecked")
+    private void stubCollection(String name, List<Document> docs) {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        FindIterable<Document> find = mock(FindIterable.class);
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        Iterator<Document> it = docs.iterator();
+        when(mongoTemplate.getCollection(name)).thenReturn(collection);
+        when(collection.estimatedDocumentCount()).thenReturn((long) docs.size());
+        when(collection.find()).thenReturn(find);
+        when(find.projection(any())).thenReturn(find);
+        when(find.batchSize(anyInt())).thenReturn(find);
+        when(find.iterator()).thenReturn(cursor);
+        when(cursor.hasNext()).thenAnswer(invocation -> it.hasNext());
+        lenient().when(cursor.next()).thenAnswer(invocation -> it.next());
+    }
+
+    private void build(List<Document> books, List<Document> homeItems) {
+        when(mongoTemplate.getCollectionName(Book.class)).thenReturn("books");
+        when(mongoTemplate.getCollectionName(HomeItem.class)).thenReturn("homeItems");
+        stubCollection("books", books);
+        stubCollection("homeItems", homeItems);
+        catalogIdFilter.rebuild();
+    }
+
+    @Test
+    public void testEverythingMayExistUntilBuilt() {
+        assertFalse(catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.BOOK, "missing"));
+        assertEquals(false, catalogIdFilter.stats().get("ready"));
+    }
+
+    @Test
+    public void testDisabledFilterLetsEveryIdThrough() {
+        ReflectionTestUtils.setField(catalogIdFilter, "enabled", false);
+        catalogIdFilter.rebuild();
+
+        verifyNoInteractions(mongoTemplate);
+        assertFalse(catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.BOOK, new ObjectId().toHexString()));
+        assertEquals(false, catalogIdFilter.stats().get("ready"));
+    }
+
+    @Test
+    public void testRejectsIdsNotInTheCatalog() {
+        ObjectId book = new ObjectId();
+        ObjectId homeItem = new ObjectId();
+        build(List.of(new Document("_id", book)), List.of(new Document("_id", homeItem)));
+
+        assertFalse(catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.BOOK, book.toHexString()));
+        assertFalse(catalogIdFilter.isDefinitelyAbsent("homeItem", homeItem.toHexString())); // Wishlist spelling
+        assertTrue(catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.BOOK, homeItem.toHexString()));
+        assertTrue(catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.HOME, new ObjectId().toHexString()));
+        assertEquals(2L, catalogIdFilter.stats().get("rejected"));
+    }
+
+    @Test
+    public void testNewItemsAreAddedFromEvents() {
+        build(List.of(), List.of());
+        Book book = new Book();
+        book.setId("b1");
+
+        catalogIdFilter.onCatalogChanged(CatalogChangedEvent.of(book));
+        catalogIdFilter.onCacheInvalidation(new CacheInvalidationEvent(CacheInvalidationEvent.Source.HOME_ITEMS, "h1", false));
+
+        assertFalse(catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.BOOK, "b1"));
+        assertFalse(catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.HOME, "h1"));
+    }
+
+    @Test
+    public void testObservedFalsePositivesAreReported() {
+        build(List.of(new Document("_id", new ObjectId())), List.of());
+
+        assertTrue(catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.BOOK, "x"));
+        catalogIdFilter.recordMiss();
+
+        assertEquals(0.5, (double) catalogIdFilter.stats().get("observedFalsePositiveRate"), 1e-9);
+    }
+
+    @Test
+    public void testFailedRebuildKeepsThePreviousFilter() {
+        build(List.of(new Document("_id", "b1")), List.of());
+        when(mongoTemplate.getCollection("books")).thenThrow(new RuntimeException("connection refused"));
+
+        catalogIdFilter.rebuild();
+
+        assertFalse(catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.BOOK, "b1"));
+        assertTrue(catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.BOOK, "b2"));
+    }
+}
@@ -0,0 +1,180 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.ImportReport;
+import com.buyandsellstore.app.repository.ImportReportRepository;
+import com.mongodb.bulk.BulkWriteResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CatalogImportServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ImportReportRepository importReportRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private RankingService rankingService;
+
+    @InjectMocks
+    private CatalogImportService catalogImportService;
+
+    private final List<List<Object>> insertedChunks = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        when(importReportRepository.save(any(ImportReport.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private void stubBulkInsert(Class<?> entityClass) {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityClass)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenAnswer(invocation -> {
+            insertedChunks.add(new ArrayList<>(invocation.getArgument(0)));
+            return bulkOperations;
+        });
+        when(bulkOperations.execute()).thenAnswer(invocation -> {
+            BulkWriteResult result = mock(BulkWriteResult.class);
+            when(result.getInsertedCount()).thenReturn(insertedChunks.get(insertedChunks.size() - 1).size());
+            return result;
+        });
+    }
+
+    private ImportReport run(String type, String fileName, String content) {
+        return catalogImportService.importCatalog("seller1", type, fileName,
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testCsvWithQuotedFieldsIsInserted() {
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(List.of());
+        when(rankingService.rankScore("book", 0, 0)).thenReturn(3.5);
+        stubBulkInsert(Book.class);
+
+        ImportReport report = run("book", "books.csv",
+                "Title,Author,Price,TotalQuantity,Description\n"
+                        + "\"Dune, Deluxe\",Frank Herbert,12.5,3,\"Says \"\"spice\"\"\nover two lines\"\n"
+                        + "Emma,Jane Austen,8,1,\n");
+
+        assertEquals("COMPLETED", report.getStatus());
+        assertEquals(2, report.getRowsRead());
+        assertEquals(2, report.getInserted());
+        assertEquals(1, insertedChunks.size());
+        Book dune = (Book) insertedChunks.get(0).get(0);
+        assertEquals("Dune, Deluxe", dune.getTitle());
+        assertEquals("Says \"spice\"\nover two lines", dune.getDescription());
+        assertEquals("seller1", dune.getSellerId());
+        assertNotNull(dune.getId());
+        assertEquals(3.5, dune.getRankScore()); // Ranked at the prior, not at 0
+        verify(eventPublisher, times(2)).publishEvent(any(CatalogChangedEvent.class));
+    }
+
+    @Test
+    public void testInvalidRowsAreReportedAndSkipped() {
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(List.of());
+        stubBulkInsert(Book.class);
+
+        ImportReport report = run("book", "books.csv",
+                "title,author,price,totalQuantity\n"
+                        + ",Nobody,5,1\n"
+                        + "Cheap,Someone,-1,1\n"
+                        + "Anonymous,,5,1\n"
+                        + "Fine,Someone,5,1\n");
+
+        assertEquals(4, report.getRowsRead());
+        assertEquals(3, report.getRejected());
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getErrors().get(0).getRow());
+        assertEquals("Missing title", report.getErrors().get(0).getReason());
+        assertEquals("Missing or invalid price", report.getErrors().get(1).getReason());
+        assertEquals("Missing author", report.getErrors().get(2).getReason());
+    }
+
+    @Test
+    public void testDuplicatesInFileAndInDatabaseAreNotInserted() {
+        Book existing = new Book();
+        existing.setTitle("Dune");
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(List.of(existing));
+        stubBulkInsert(Book.class);
+
+        ImportReport report = run("book", "books.jsonl",
+                "{\"title\":\"Dune\",\"author\":\"Frank Herbert\",\"price\":10,\"totalQuantity\":1}\n"
+                        + "{\"title\":\"Emma\",\"author\":\"Jane Austen\",\"price\":8,\"totalQuantity\":2}\n"
+                        + "{\"title\":\"Emma\",\"author\":\"Jane Austen\",\"price\":8,\"totalQuantity\":2}\n"
+                        + "not json\n");
+
+        assertEquals(4, report.getRowsRead());
+        assertEquals(2, report.getDuplicates());
+        assertEquals(1, report.getRejected());
+        assertEquals(1, report.getInserted());
+        assertEquals("Emma", ((Book) insertedChunks.get(0).get(0)).getTitle());
+        assertTrue(report.getErrors().stream().anyMatch(error -> error.getRow() == 4 && error.getReason().startsWith("Invalid JSON")));
+    }
+
+    @Test
+    public void testRowsAreInsertedInChunksWithOneLookupEach() {
+        ReflectionTestUtils.setField(catalogImportService, "chunkSize", 2);
+        when(mongoTemplate.find(any(Query.class), eq(HomeItem.class))).thenReturn(List.of());
+        stubBulkInsert(HomeItem.class);
+
+        StringBuilder csv = new StringBuilder("title,type,manufacturer,price,totalQuantity\n");
+        for (int i = 0; i < 5; i++) {
+            csv.append("Lamp ").append(i).append(",Lighting,Acme,20,4\n");
+        }
+        ImportReport report = run("home", "items.csv", csv.toString());
+
+        assertEquals(5, report.getInserted());
+        assertEquals(3, insertedChunks.size());
+        ArgumentCaptor<Query> lookups = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(3)).find(lookups.capture(), eq(HomeItem.class));
+        assertEquals("seller1", lookups.getValue().getQueryObject().get("sellerId"));
+    }
+
+    @Test
+    public void testHomeItemsAreUniqueByManufacturerAndTitle() {
+        HomeItem existing = new HomeItem();
+        existing.setTitle("Lamp");
+        existing.setManufacturer("Acme");
+        when(mongoTemplate.find(any(Query.class), eq(HomeItem.class))).thenReturn(List.of(existing));
+        stubBulkInsert(HomeItem.class);
+
+        ImportReport report = run("home", "items.csv",
+                "title,type,manufacturer,price,totalQuantity\n"
+                        + "Lamp,Lighting,Acme,20,4\n"
+                        + "Lamp,Lighting,Globex,25,2\n"
+                        + "Lamp,Lighting,Globex,25,2\n");
+
+        assertEquals(1, report.getInserted());
+        assertEquals(2, report.getDuplicates());
+        assertEquals("Globex", ((HomeItem) insertedChunks.get(0).get(0)).getManufacturer());
+    }
+}
@@ -0,0 +1,63 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Runs against a real single-node replica set, e.g.
+ *   docker run -d -p 27017:27017 mongo:7 --replSet rs0 && docker exec <id> mongosh --eval "rs.initiate()"
+ *   mvn test -Dtest=ChangeStreamListenerReplicaSetTest -Dit.mongo.uri=mongodb://localhost:27017/?directConnection=true
+ */
+@EnabledIfSystemProperty(named = "it.mongo.uri", matches = ".+")
+public class ChangeStreamListenerReplicaSetTest {
+
+    @Test
+    public void testDeliversChangesAndResumesAfterRestart() throws Exception {
+        try (MongoClient client = MongoClients.create(System.getProperty("it.mongo.uri"))) {
+            MongoTemplate template = new MongoTemplate(client, "buyandsellstore_it");
+            template.dropCollection(Book.class);
+            template.dropCollection(ChangeStreamListener.TOKEN_COLLECTION);
+
+            List<Object> events = new CopyOnWriteArrayList<>();
+            ChangeStreamListener first = new ChangeStreamListener(template, events::add, true, "it", 0);
+            first.start();
+            Thread.sleep(1500); // let the stream open
+            template.save(book("b1", "Dune"));
+            awaitBook(events, "b1");
+            first.stop();
+
+            // Written while no listener runs; the next one must pick it up from the stored token
+            template.save(book("b2", "Emma"));
+            ChangeStreamListener second = new ChangeStreamListener(template, events::add, true, "it", 0);
+            second.start();
+            awaitBook(events, "b2");
+            second.stop();
+        }
+    }
+
+    private static void awaitBook(List<Object> events, String id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (events.stream().anyMatch(e -> e instanceof CatalogChangedEvent c && id.equals(c.getItemId()))) return;
+            Thread.sleep(50);
+        }
+        fail("No change event for book " + id);
+    }
+
+    private static Book book(String id, String title) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        return book;
+    }
+}
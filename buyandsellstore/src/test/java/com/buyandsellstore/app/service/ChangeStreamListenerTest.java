@@ -0,0 +1,87 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CacheInvalidationEvent;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ChangeStreamListenerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ChangeStreamListener listener;
+
+    @BeforeEach
+    public void setup() {
+        listener = new ChangeStreamListener(mongoTemplate, eventPublisher, true, "test", 1000);
+    }
+
+    @Test
+    public void testBookUpdateBecomesCatalogChange() {
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+
+        Document book = new Document("_id", "b1").append("title", "Dune").append("totalQuantity", 3);
+        List<Object> events = listener.translate(change("update", "books", "b1", book));
+
+        assertEquals(1, events.size());
+        CatalogChangedEvent event = (CatalogChangedEvent) events.get(0);
+        assertEquals(CatalogChangedEvent.BOOK, event.getType());
+        assertEquals("Dune", event.getBook().getTitle());
+        assertEquals(3, event.getBook().getTotalQuantity());
+    }
+
+    @Test
+    public void testDeleteAndUserChangesBecomeInvalidations() {
+        CacheInvalidationEvent deleted = (CacheInvalidationEvent) listener
+                .translate(change("delete", "homeItems", "h1", null)).get(0);
+        assertEquals(CacheInvalidationEvent.Source.HOME_ITEMS, deleted.getSource());
+        assertEquals("h1", deleted.getDocumentId());
+        assertTrue(deleted.isDeleted());
+
+        CacheInvalidationEvent user = (CacheInvalidationEvent) listener
+                .translate(change("update", "users", "u1", new Document("_id", "u1"))).get(0);
+        assertEquals(CacheInvalidationEvent.Source.USERS, user.getSource());
+        assertFalse(user.isDeleted());
+
+        CacheInvalidationEvent dropped = (CacheInvalidationEvent) listener
+                .translate(change("drop", "carts", null, null)).get(0);
+        assertTrue(dropped.isAll());
+    }
+
+    @Test
+    public void testOtherCollectionsAreIgnored() {
+        assertTrue(listener.translate(change("insert", "orders", "o1", new Document("_id", "o1"))).isEmpty());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private static ChangeStreamDocument<Document> change(String operation, String collection, String id, Document fullDocument) {
+        BsonDocument namespace = new BsonDocument("db", new BsonString("test")).append("coll", new BsonString(collection));
+        BsonDocument key = id == null ? null : new BsonDocument("_id", new BsonString(id));
+        return new ChangeStreamDocument<>(operation, new BsonDocument(), namespace, null, fullDocument, null, key,
+                null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,98 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.FacetCount;
+import com.buyandsellstore.app.model.BrowseFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FacetIndexTest {
+
+    private FacetIndex index;
+
+    @BeforeEach
+    public void setup() {
+        index = new FacetIndex();
+        index.upsert("1", "Appliance", "Philips", "s1", 20.0, 4.5);
+        index.upsert("2", "appliance", "KitchenAid", "s1", 300.0, 3.0);
+        index.upsert("3", "Furniture", "Ikea", "s2", 80.0, 4.0);
+        index.upsert("4", "Decor", "Ikea", "s2", 15.0, 0.0);
+    }
+
+    @Test
+    public void testUnfilteredBrowseUsesMaintainedCounts() {
+        FacetIndex.Page page = index.browse(null, 0, 10, 20);
+        assertEquals(4, page.total);
+        assertEquals(List.of("1", "2", "3", "4"), page.ids);
+        assertEquals(2, count(page.types, "Appliance"));
+        assertEquals(2, count(page.manufacturers, "Ikea"));
+        assertEquals(2, count(page.prices, "0-25"));
+        assertEquals(1, count(page.prices, "250-500"));
+    }
+
+    @Test
+    public void testFiltersCombine() {
+        BrowseFilter filter = new BrowseFilter();
+        filter.setType("APPLIANCE");
+        filter.setMaxPrice(100.0);
+        FacetIndex.Page page = index.browse(filter, 0, 10, 20);
+        assertEquals(List.of("1"), page.ids);
+
+        filter = new BrowseFilter();
+        filter.setMinRating(4.0);
+        filter.setSellerId("s2");
+        assertEquals(List.of("3"), index.browse(filter, 0, 10, 20).ids);
+    }
+
+    @Test
+    public void testFacetIgnoresItsOwnCondition() {
+        BrowseFilter filter = new BrowseFilter();
+        filter.setType("Furniture");
+        filter.setManufacturer("Ikea");
+        FacetIndex.Page page = index.browse(filter, 0, 10, 20);
+        assertEquals(1, page.total);
+        // Other Ikea types are still counted, and the manufacturer facet is limited to furniture
+        assertEquals(1, count(page.types, "Decor"));
+        assertEquals(1, count(page.manufacturers, "Ikea"));
+        assertEquals(0, count(page.manufacturers, "Philips"));
+    }
+
+    @Test
+    public void testUpsertMovesItemBetweenFacets() {
+        index.upsert("4", "Furniture", "Ikea", "s2", 600.0, 5.0);
+        FacetIndex.Page page = index.browse(null, 0, 10, 20);
+        assertEquals(2, count(page.types, "Furniture"));
+        assertEquals(0, count(page.types, "Decor"));
+        assertEquals(1, count(page.prices, "500+"));
+
+        index.remove("4");
+        assertEquals(3, index.browse(null, 0, 10, 20).total);
+    }
+
+    @Test
+    public void testPaging() {
+        BrowseFilter filter = new BrowseFilter();
+        filter.setMinPrice(10.0);
+        assertEquals(List.of("2", "3"), index.browse(filter, 1, 2, 20).ids);
+        assertEquals(4, index.browse(filter, 1, 2, 20).total);
+    }
+
+    private static int count(List<FacetCount> facets, String value) {
+        return facets.stream().filter(f -> f.getValue().equals(value)).mapToInt(FacetCount::getCount).findFirst().orElse(0);
+    }
+
+    @Test
+    public void testClearEmptiesEveryFacet() {
+        index.clear();
+        FacetIndex.Page page = index.browse(null, 0, 10, 20);
+        assertEquals(0, page.total);
+        assertEquals(0, count(page.types, "Appliance"));
+        assertEquals(0, count(page.prices, "0-25"));
+
+        index.upsert("5", "Decor", "Ikea", "s2", 15.0, 0.0);
+        assertEquals(List.of("5"), index.browse(null, 0, 10, 20).ids);
+    }
+}
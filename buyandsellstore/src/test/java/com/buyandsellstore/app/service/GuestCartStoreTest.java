@@ -0,0 +1,159 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.model.CartItem;
+import com.buyandsellstore.app.model.GuestCart;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GuestCartStoreTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private GuestCartStore store;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(store, "maxEntries", 2);
+    }
+
+    private static CartItem line(String itemId, int quantity) {
+        CartItem item = new CartItem();
+        item.setItemId(itemId);
+        item.setType("book");
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private String cartWith(String itemId) {
+        String token = store.newToken();
+        store.create(token);
+        store.update(token, lines -> lines.add(line(itemId, 1)));
+        return token;
+    }
+
+    @Test
+    void tokensAreRandomAndUrlSafe() {
+        String token = store.newToken();
+        assertEquals(32, token.length());
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+        assertNotEquals(token, store.newToken());
+    }
+
+    @Test
+    void changesStayInMemory() {
+        String token = cartWith("b1");
+        store.update(token, lines -> lines.get(0).setQuantity(3));
+
+        assertEquals(3, store.get(token).get(0).getQuantity());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void leastRecentlyUsedCartSpillsToMongoAndComesBack() {
+        String first = cartWith("b1");
+        String second = cartWith("b2");
+        store.get(first); // second is now the eldest
+        cartWith("b3");
+
+        ArgumentCaptor<GuestCart> saved = ArgumentCaptor.forClass(GuestCart.class);
+        verify(mongoTemplate).save(saved.capture());
+        assertEquals(second, saved.getValue().getId());
+        assertEquals("b2", saved.getValue().getItems().get(0).getItemId());
+        assertTrue(saved.getValue().getExpiresAt().after(new Date()));
+
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(GuestCart.class))).thenReturn(saved.getValue());
+        assertEquals("b2", store.get(second).get(0).getItemId());
+        assertEquals(1L, store.stats().get("reloaded"));
+    }
+
+    @Test
+    void unknownTokensAreNotCreatedByUse() {
+        assertNull(store.get("nope"));
+        assertNull(store.update("nope", lines -> lines.add(line("b1", 1))));
+        assertNull(store.take(null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void scan(String... spilledTokens) {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        FindIterable<Document> find = mock(FindIterable.class);
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        Iterator<String> it = List.of(spilledTokens).iterator();
+        when(mongoTemplate.getCollectionName(GuestCart.class)).thenReturn("guestCarts");
+        when(mongoTemplate.getCollection("guestCarts")).thenReturn(collection);
+        when(collection.estimatedDocumentCount()).thenReturn((long) spilledTokens.length);
+        when(collection.find()).thenReturn(find);
+        when(find.projection(any())).thenReturn(find);
+        when(find.batchSize(anyInt())).thenReturn(find);
+        when(find.iterator()).thenReturn(cursor);
+        when(cursor.hasNext()).thenAnswer(invocation -> it.hasNext());
+        lenient().when(cursor.next()).thenAnswer(invocation -> new Document("_id", it.next()));
+        store.scanSpilled();
+    }
+
+    @Test
+    void onlyTokensThatMayHaveBeenSpilledAreLookedUp() {
+        scan("spilled-on-another-node");
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(GuestCart.class))).thenReturn(null);
+
+        assertNull(store.get("never-issued"));
+        assertNull(store.get("spilled-on-another-node"));
+        String first = cartWith("b1");
+        cartWith("b2");
+        cartWith("b3"); // Spills first
+        store.take(first);
+
+        verify(mongoTemplate, times(2)).findAndRemove(any(Query.class), eq(GuestCart.class));
+        assertEquals(1L, store.stats().get("lookupsSkipped"));
+        assertEquals(2L, store.stats().get("lookups"));
+    }
+
+    @Test
+    void expiredCartsAreDroppedNotSpilled() {
+        ReflectionTestUtils.setField(store, "ttlMs", -1L);
+        String token = cartWith("b1");
+
+        store.purgeExpired();
+
+        assertEquals(0, store.stats().get("inMemory"));
+        assertNull(store.get(token));
+        verify(mongoTemplate, never()).save(any());
+    }
+
+    @Test
+    void takeRemovesTheCartAndRestorePutsLinesBack() {
+        String token = cartWith("b1");
+
+        List<CartItem> taken = store.take(token);
+        assertEquals(1, taken.size());
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(GuestCart.class))).thenReturn(null);
+        assertNull(store.get(token));
+
+        store.restore(token, new ArrayList<>(taken));
+        assertEquals("b1", store.get(token).get(0).getItemId());
+    }
+}
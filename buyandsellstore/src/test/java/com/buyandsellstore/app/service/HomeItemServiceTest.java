@@ -1,5 +1,6 @@
 package com.buyandsellstore.app.service;
 
+import com.buyandsellstore.app.event.CatalogChangedEvent;
 import com.buyandsellstore.app.model.HomeItem;
 import com.buyandsellstore.app.model.Review;
 import com.buyandsellstore.app.repository.HomeItemRepository;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,6 +18,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,6 +26,18 @@ public class HomeItemServiceTest {
     @Mock
     private HomeItemRepository homeItemRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private CatalogCache catalogCache;
+
+    @Mock
+    private RankingService rankingService;
+
+    @Mock
+    private CatalogIdFilter catalogIdFilter;
+
     @InjectMocks
     private HomeItemService homeItemService;
 
@@ -97,12 +112,15 @@ public class HomeItemServiceTest {
     public void testAddReview() {
         Review review = new Review("test", "test", 5);
         when(homeItemRepository.findById("1")).thenReturn(Optional.of(homeItem));
-        when(homeItemRepository.save(any(HomeItem.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(homeItemRepository.updateReviews(any(HomeItem.class))).thenReturn(true);
+        when(rankingService.rankScore("home", 5.0, 1)).thenReturn(3.2);
 
         HomeItem result = homeItemService.addReview("1", review);
         assertNotNull(result);
         assertEquals(1, result.getReviews().size());
         assertEquals(5.0, result.getRatings());
+        assertEquals(1, result.getReviewCount());
+        assertEquals(3.2, result.getRankScore());
     }
 
     @Test
@@ -112,7 +130,7 @@ public class HomeItemServiceTest {
         homeItem.setReviews(new ArrayList<>(List.of(originalReview)));
 
         when(homeItemRepository.findById("1")).thenReturn(Optional.of(homeItem));
-        when(homeItemRepository.save(any(HomeItem.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(homeItemRepository.updateReviews(any(HomeItem.class))).thenReturn(true);
 
         HomeItem result = homeItemService.updateReview("1", "user1", updatedReview);
         assertEquals("Much better", result.getReviews().get(0).getComment());
@@ -125,10 +143,25 @@ public class HomeItemServiceTest {
         homeItem.setReviews(new ArrayList<>(List.of(review)));
 
         when(homeItemRepository.findById("1")).thenReturn(Optional.of(homeItem));
-        when(homeItemRepository.save(any(HomeItem.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(homeItemRepository.updateReviews(any(HomeItem.class))).thenReturn(true);
 
         HomeItem result = homeItemService.deleteReview("1", "user1");
         assertEquals(0, result.getReviews().size());
         assertEquals(0.0, result.getRatings());
     }
+
+    @Test
+    public void testReviewIsRetriedWhenAnotherReviewWonTheRace() {
+        HomeItem reloaded = new HomeItem();
+        reloaded.setId("1");
+        reloaded.setReviews(new ArrayList<>(List.of(new Review("other", "Fine", 3.0))));
+        when(homeItemRepository.findById("1")).thenReturn(Optional.of(homeItem), Optional.of(reloaded));
+        when(homeItemRepository.updateReviews(any(HomeItem.class))).thenReturn(false, true);
+
+        HomeItem result = homeItemService.addReview("1", new Review("user1", "Great", 5.0));
+        assertSame(reloaded, result);
+        assertEquals(2, result.getReviewCount());
+        assertEquals(4.0, result.getRatings());
+        verify(eventPublisher, times(1)).publishEvent(any(CatalogChangedEvent.class));
+    }
 }
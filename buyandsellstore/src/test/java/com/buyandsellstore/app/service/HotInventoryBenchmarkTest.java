@@ -0,0 +1,114 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.InventoryShard;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Flash sale on one book against a real MongoDB: reservations per second with the single
+ * totalQuantity counter and with the stock split across shards. Both must sell exactly the
+ * stock; the throughput of each is printed.
+ *   mvn test -Dtest=HotInventoryBenchmarkTest -Dit.mongo.uri=mongodb://localhost:27017/?directConnection=true
+ */
+@EnabledIfSystemProperty(named = "it.mongo.uri", matches = ".+")
+public class HotInventoryBenchmarkTest {
+
+    private static final String DATABASE = "buyandsellstore_hot_it";
+    private static final int THREADS = 64;
+    private static final int ATTEMPTS_PER_THREAD = 200;
+    private static final int SHARDS = 16;
+
+    private MongoClient client;
+    private MongoTemplate template;
+    private InventoryService inventoryService;
+    private HotInventoryService hotInventoryService;
+
+    @BeforeEach
+    public void setup() {
+        client = MongoClients.create(System.getProperty("it.mongo.uri"));
+        template = new MongoTemplate(client, DATABASE);
+        template.getDb().drop();
+        ApplicationEventPublisher noEvents = event -> { };
+        hotInventoryService = new HotInventoryService();
+        ReflectionTestUtils.setField(hotInventoryService, "mongoTemplate", template);
+        ReflectionTestUtils.setField(hotInventoryService, "eventPublisher", noEvents);
+        inventoryService = new InventoryService();
+        ReflectionTestUtils.setField(inventoryService, "mongoTemplate", template);
+        ReflectionTestUtils.setField(inventoryService, "eventPublisher", noEvents);
+        ReflectionTestUtils.setField(inventoryService, "catalogIdFilter", new CatalogIdFilter()); // Not built: lets every id through
+        ReflectionTestUtils.setField(inventoryService, "hotInventory", hotInventoryService);
+    }
+
+    @AfterEach
+    public void teardown() {
+        template.getDb().drop();
+        client.close();
+    }
+
+    @Test
+    public void testShardedCountersAgainstTheSingleCounter() throws Exception {
+        int stock = THREADS * ATTEMPTS_PER_THREAD / 2; // Half the attempts find it sold out
+
+        Book single = template.insert(new Book("Single counter", "Author", 9.99, "", "", "seller", stock));
+        long singleMs = sell(single.getId(), stock);
+        assertEquals(0, template.findById(single.getId(), Book.class).getTotalQuantity());
+
+        Book hot = template.insert(new Book("Sharded", "Author", 9.99, "", "", "seller", stock));
+        assertTrue(hotInventoryService.enable("book", hot.getId(), SHARDS).isSuccess());
+        long shardedMs = sell(hot.getId(), stock);
+        int left = template.findAll(InventoryShard.class).stream().mapToInt(InventoryShard::getQuantity).sum();
+        assertEquals(0, left);
+        hotInventoryService.rebalance();
+        assertEquals(0, template.findById(hot.getId(), Book.class).getTotalQuantity());
+
+        int attempts = THREADS * ATTEMPTS_PER_THREAD;
+        System.out.printf("%d reservation attempts from %d threads: single counter %d ms (%.0f/s), %d shards %d ms (%.0f/s)%n",
+                attempts, THREADS, singleMs, attempts * 1000.0 / Math.max(1, singleMs),
+                SHARDS, shardedMs, attempts * 1000.0 / Math.max(1, shardedMs));
+    }
+
+    // Races all threads on the item; checks exactly the stock was sold and returns the elapsed ms
+    private long sell(String itemId, int stock) throws Exception {
+        AtomicInteger sold = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        if (inventoryService.reserveOne(Book.class, itemId) != null) sold.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) future.get();
+            long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+            assertEquals(stock, sold.get());
+            return elapsedMs;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.ResponseMessage;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.InventoryShard;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class HotInventoryServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private HotInventoryService hotInventoryService;
+
+    private static final UpdateResult HIT = UpdateResult.acknowledged(1, 1L, null);
+    private static final UpdateResult MISS = UpdateResult.acknowledged(0, 0L, null);
+
+    private void markHot(String itemId, int shards) {
+        ReflectionTestUtils.setField(hotInventoryService, "hot", Map.of("book:" + itemId, shards));
+    }
+
+    private static InventoryShard shard(int index, int quantity) {
+        return new InventoryShard("book", "b1", index, quantity);
+    }
+
+    @Test
+    void reserveProbesOtherShardsWhenOneIsEmpty() {
+        markHot("b1", 4);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(InventoryShard.class)))
+                .thenReturn(MISS, MISS, HIT);
+
+        assertTrue(hotInventoryService.reserve("book", "b1", 1));
+
+        ArgumentCaptor<Query> tried = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(3)).updateFirst(tried.capture(), any(Update.class), eq(InventoryShard.class));
+        List<Object> ids = new ArrayList<>();
+        for (Query query : tried.getAllValues()) {
+            assertEquals(1, ((Document) query.getQueryObject().get("quantity")).get("$gte"));
+            ids.add(query.getQueryObject().get("_id"));
+        }
+        assertEquals(3, ids.stream().distinct().count()); // Each shard at most once
+        assertEquals(2L, hotInventoryService.stats().get("probes"));
+    }
+
+    @Test
+    void reserveFailsOnlyWhenEveryShardIsEmpty() {
+        markHot("b1", 3);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(InventoryShard.class))).thenReturn(MISS);
+
+        assertFalse(hotInventoryService.reserve("book", "b1", 1));
+        verify(mongoTemplate, times(3)).updateFirst(any(Query.class), any(Update.class), eq(InventoryShard.class));
+        assertEquals(1L, hotInventoryService.stats().get("soldOut"));
+    }
+
+    @Test
+    void itemsThatAreNotHotAreLeftToTheItemCounter() {
+        assertFalse(hotInventoryService.reserve("book", "b1", 1));
+        assertFalse(hotInventoryService.release("book", "b1", 1));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void largerQuantitiesAreGatheredFromSeveralShardsOrPutBack() {
+        markHot("b1", 2);
+        // No shard holds 5 on its own; together they hold 3 + 1
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(InventoryShard.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            Object guard = query.getQueryObject().get("quantity");
+            return guard instanceof Document document && (Integer) document.get("$gte") == 5 ? MISS : HIT;
+        });
+        when(mongoTemplate.findById(anyString(), eq(InventoryShard.class))).thenAnswer(invocation ->
+                invocation.getArgument(0).equals("book:b1:0") ? shard(0, 3) : shard(1, 1));
+
+        assertFalse(hotInventoryService.reserve("book", "b1", 5));
+
+        // 2 whole-quantity attempts, 2 partial takes, 2 give-backs
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(6)).updateFirst(any(Query.class), updates.capture(), eq(InventoryShard.class));
+        int net = 0;
+        for (Update update : updates.getAllValues().subList(2, 6)) {
+            net += (Integer) ((Document) update.getUpdateObject().get("$inc")).get("quantity");
+        }
+        assertEquals(0, net);
+    }
+
+    @Test
+    void enableUndoesTheShardsWhenTheItemChangedMeanwhile() {
+        Book book = new Book();
+        book.setId("b1");
+        book.setTotalQuantity(10);
+        book.setVersion(7);
+        when(mongoTemplate.findOne(any(Query.class), eq(Book.class))).thenReturn(book);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Book.class))).thenReturn(MISS);
+
+        ResponseMessage response = hotInventoryService.enable("book", "b1", 4);
+
+        assertFalse(response.isSuccess());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<InventoryShard>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(mongoTemplate).insert(inserted.capture(), eq(InventoryShard.class));
+        assertEquals(List.of(3, 3, 2, 2), inserted.getValue().stream().map(InventoryShard::getQuantity).toList());
+        ArgumentCaptor<Query> guard = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(guard.capture(), any(Update.class), eq(Book.class));
+        assertEquals(Document.parse("{_id: 'b1', hotShards: {$exists: false}, version: {$numberLong: '7'}}"), guard.getValue().getQueryObject());
+        verify(mongoTemplate, times(2)).remove(any(Query.class), eq(InventoryShard.class));
+        assertFalse(hotInventoryService.isHot("book", "b1"));
+    }
+
+    @Test
+    void evenMovesUnitsFromFullShardsToEmptyOnes() {
+        when(mongoTemplate.find(any(Query.class), eq(InventoryShard.class)))
+                .thenReturn(List.of(shard(0, 9), shard(1, 0), shard(2, 0)));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(InventoryShard.class))).thenReturn(HIT);
+
+        assertEquals(9, hotInventoryService.even("book", "b1", 3));
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(3)).updateFirst(queries.capture(), updates.capture(), eq(InventoryShard.class));
+        assertEquals("book:b1:0", queries.getAllValues().get(0).getQueryObject().get("_id"));
+        assertEquals(new Document("quantity", -6), updates.getAllValues().get(0).getUpdateObject().get("$inc"));
+        assertEquals(new Document("quantity", 3), updates.getAllValues().get(1).getUpdateObject().get("$inc"));
+        assertEquals(new Document("quantity", 3), updates.getAllValues().get(2).getUpdateObject().get("$inc"));
+        assertEquals(6L, hotInventoryService.stats().get("rebalancedUnits"));
+    }
+}
@@ -0,0 +1,338 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.InventoryUpdateResult;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.InventoryUpdate;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.util.Pair;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class InventoryServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private BulkWriteResult bulkWriteResult;
+
+    @Mock
+    private CatalogIdFilter catalogIdFilter;
+
+    @Mock
+    private HotInventoryService hotInventory;
+
+    @InjectMocks
+    private InventoryService inventoryService;
+
+    private static InventoryUpdate update(String id, String type, Integer delta, Long expectedVersion) {
+        InventoryUpdate update = new InventoryUpdate();
+        update.setItemId(id);
+        update.setType(type);
+        update.setQuantityDelta(delta);
+        update.setExpectedVersion(expectedVersion);
+        return update;
+    }
+
+    private static Book book(String id, int quantity, long version) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTotalQuantity(quantity);
+        book.setVersion(version);
+        return book;
+    }
+
+    private void stubBulkWrite(Class<?> entityClass, int matched) {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityClass)).thenReturn(bulkOperations);
+        when(bulkOperations.updateOne(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+        when(bulkWriteResult.getMatchedCount()).thenReturn(matched);
+    }
+
+    @Test
+    public void testAllMatchedUpdatesAreReportedAndPublished() {
+        stubBulkWrite(Book.class, 2);
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(List.of(book("b1", 7, 3), book("b2", 1, 1)));
+
+        List<InventoryUpdateResult> results = inventoryService.updateInventory(List.of(
+                update("b1", "book", 2, 2L),
+                update("b2", "book", -1, null)));
+
+        assertEquals(InventoryUpdateResult.UPDATED, results.get(0).getStatus());
+        assertEquals(7, results.get(0).getTotalQuantity());
+        assertEquals(3L, results.get(0).getVersion());
+        assertEquals(InventoryUpdateResult.UPDATED, results.get(1).getStatus());
+        verify(bulkOperations, times(1)).execute();
+        verify(eventPublisher, times(2)).publishEvent(any(CatalogChangedEvent.class));
+    }
+
+    // The token the bulk write pushed onto the first item, as the read-back would find it
+    @SuppressWarnings("unchecked")
+    private String batchToken() {
+        ArgumentCaptor<List<Pair<Query, UpdateDefinition>>> writes = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations).updateOne(writes.capture());
+        Update.Modifiers marks = (Update.Modifiers) ((Document) writes.getValue().get(0).getSecond().getUpdateObject()
+                .get("$push")).get("writeTokens");
+        return marks.getModifiers().stream().filter(m -> m.getKey().equals("$each"))
+                .map(m -> (String) ((Object[]) m.getValue())[0]).findFirst().orElseThrow();
+    }
+
+    private static Book applied(Book book, String token) {
+        book.setWriteTokens(List.of("older", token));
+        return book;
+    }
+
+    @Test
+    public void testUnmatchedUpdatesAreToldApartByTheBatchToken() {
+        stubBulkWrite(Book.class, 2);
+        // b1: 5 - 3 applied, 2 left; b2 at version 9, not 4; b3 at its version but short of stock; b4 missing
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenAnswer(invocation -> {
+            String token = batchToken();
+            return List.of(applied(book("b1", 2, 3), token), book("b2", 5, 9), book("b3", 1, 4));
+        });
+
+        List<InventoryUpdateResult> results = inventoryService.updateInventory(List.of(
+                update("b1", "book", -3, null),
+                update("b2", "book", 1, 4L),
+                update("b3", "book", -5, 4L),
+                update("b4", "book", 1, null)));
+
+        assertEquals(InventoryUpdateResult.UPDATED, results.get(0).getStatus());
+        assertEquals(2, results.get(0).getTotalQuantity());
+        assertEquals(InventoryUpdateResult.VERSION_CONFLICT, results.get(1).getStatus());
+        assertEquals(InventoryUpdateResult.INSUFFICIENT_STOCK, results.get(2).getStatus());
+        assertEquals(InventoryUpdateResult.NOT_FOUND, results.get(3).getStatus());
+        verify(eventPublisher, times(1)).publishEvent(any(CatalogChangedEvent.class));
+    }
+
+    @Test
+    public void testAnUpdateIsAppliedEvenIfTheVersionMovedAgainBeforeTheReadBack() {
+        stubBulkWrite(Book.class, 0);
+        // Matched at version 4, then a reserveOne bumped it to 6
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenAnswer(invocation ->
+                List.of(applied(book("b1", 6, 6), batchToken())));
+
+        List<InventoryUpdateResult> results = inventoryService.updateInventory(List.of(update("b1", "book", 2, 4L)));
+
+        assertEquals(InventoryUpdateResult.UPDATED, results.get(0).getStatus());
+    }
+
+    @Test
+    public void testInvalidUpdatesNeverReachMongo() {
+        InventoryUpdate both = update("h1", "home", 1, null);
+        both.setTotalQuantity(4);
+        InventoryUpdate empty = update("h2", "home", null, null);
+
+        List<InventoryUpdateResult> results = inventoryService.updateInventory(List.of(
+                both, empty, update("x", "car", 1, null)));
+
+        for (InventoryUpdateResult result : results) {
+            assertEquals(InventoryUpdateResult.INVALID, result.getStatus());
+        }
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    public void testDuplicateItemInOneBatchIsRejected() {
+        stubBulkWrite(HomeItem.class, 1);
+        HomeItem item = new HomeItem();
+        item.setId("h1");
+        item.setVersion(1);
+        when(mongoTemplate.find(any(Query.class), eq(HomeItem.class))).thenReturn(List.of(item));
+
+        List<InventoryUpdateResult> results = inventoryService.updateInventory(List.of(
+                update("h1", "home", 1, null),
+                update("h1", "home", 1, null)));
+
+        assertEquals(InventoryUpdateResult.UPDATED, results.get(0).getStatus());
+        assertEquals(InventoryUpdateResult.INVALID, results.get(1).getStatus());
+    }
+
+    @Test
+    public void testFilterGuardsVersionAndStock() {
+        Document legacy = InventoryService.filter(update("b1", "book", -3, 0L)).getQueryObject();
+        assertEquals(new Document("$in", Arrays.asList(0, null)), legacy.get("version"));
+        assertEquals(new Document("$gte", 3), legacy.get("totalQuantity"));
+
+        Document changes = InventoryService.changes(update("b1", "book", -3, null)).getUpdateObject();
+        assertEquals(new Document("version", 1).append("totalQuantity", -3), changes.get("$inc"));
+    }
+
+    @Test
+    public void testClassifyTrustsTheTokenNotTheStock() {
+        assertEquals(InventoryUpdateResult.UPDATED,
+                InventoryService.classify(update("b1", "book", -3, null), 4, true));
+        assertEquals(InventoryUpdateResult.INSUFFICIENT_STOCK,
+                InventoryService.classify(update("b1", "book", -5, 4L), 4, false));
+        assertEquals(InventoryUpdateResult.VERSION_CONFLICT,
+                InventoryService.classify(update("b1", "book", -5, 3L), 4, false));
+    }
+
+    @Test
+    public void testWriteTokensSurviveAFullSave() {
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        Book read = converter.read(Book.class, new Document("_id", "b1").append("writeTokens", List.of("t1")));
+
+        Document saved = new Document();
+        converter.write(read, saved);
+
+        assertEquals(List.of("t1"), saved.get("writeTokens"));
+    }
+
+    @Test
+    public void testReserveOneIsASingleConditionalDecrement() {
+        Book after = book("b1", 4, 8);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Book.class)))
+                .thenReturn(after);
+
+        assertSame(after, inventoryService.reserveOne(Book.class, "b1"));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), options.capture(), eq(Book.class));
+        assertEquals(Document.parse("{_id: 'b1', totalQuantity: {$gt: 0}, hotShards: {$exists: false}}"), query.getValue().getQueryObject());
+        assertEquals(Document.parse("{$inc: {totalQuantity: -1, version: 1}}"), update.getValue().getUpdateObject());
+        assertTrue(options.getValue().isReturnNew());
+        verify(eventPublisher).publishEvent(any(CatalogChangedEvent.class));
+    }
+
+    @Test
+    public void testReserveOneSoldOutPublishesNothing() {
+        assertNull(inventoryService.reserveOne(HomeItem.class, "h1"));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void testReserveOneSkipsUnknownIds() {
+        when(catalogIdFilter.isDefinitelyAbsent(CatalogChangedEvent.BOOK, "nope")).thenReturn(true);
+
+        assertNull(inventoryService.reserveOne(Book.class, "nope"));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    public void testReleaseOneIncrementsWithoutCondition() {
+        inventoryService.releaseOne(Book.class, "b1");
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(Book.class));
+        assertEquals(Document.parse("{_id: 'b1'}"), query.getValue().getQueryObject());
+        assertEquals(Document.parse("{$inc: {totalQuantity: 1, version: 1}}"), update.getValue().getUpdateObject());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReserveAllIsOneBulkOfConditionalUpdates() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class)).thenReturn(bulkOperations);
+        when(bulkOperations.updateOne(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(0, 2, 0, 2, List.of(), List.of()));
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(List.of(book("b1", 1, 2), book("b2", 0, 5)));
+        Map<String, Integer> units = new LinkedHashMap<>();
+        units.put("b1", 2);
+        units.put("b2", 1);
+
+        Map<String, String> outcome = inventoryService.reserveAll(Book.class, units);
+
+        assertEquals(Map.of("b1", InventoryUpdateResult.UPDATED, "b2", InventoryUpdateResult.UPDATED), outcome);
+        ArgumentCaptor<List<Pair<Query, UpdateDefinition>>> writes = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations).updateOne(writes.capture());
+        verify(bulkOperations, never()).upsert(anyList());
+        assertEquals(Document.parse("{_id: 'b1', totalQuantity: {$gte: 2}, hotShards: {$exists: false}}"), writes.getValue().get(0).getFirst().getQueryObject());
+        Document update = writes.getValue().get(0).getSecond().getUpdateObject();
+        assertEquals(Document.parse("{totalQuantity: -2, version: 1}"), update.get("$inc"));
+        assertTrue(update.containsKey("$push"));
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Document.class), anyString()); // All matched: nothing to tell apart
+        verify(eventPublisher, times(2)).publishEvent(any(CatalogChangedEvent.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReserveAllTellsMissingFromSoldOutWithOneRead() {
+        // b1 reserved, b2 short of stock, b3 missing: one of three writes matched
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class)).thenReturn(bulkOperations);
+        when(bulkOperations.updateOne(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of()));
+        when(mongoTemplate.getCollectionName(Book.class)).thenReturn("books");
+        ArgumentCaptor<List<Pair<Query, UpdateDefinition>>> writes = ArgumentCaptor.forClass(List.class);
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("books"))).thenAnswer(invocation -> {
+            verify(bulkOperations).updateOne(writes.capture());
+            Update.Modifiers marks = (Update.Modifiers) ((Document) writes.getValue().get(0).getSecond().getUpdateObject()
+                    .get("$push")).get("writeTokens");
+            Object token = marks.getModifiers().stream().filter(m -> m.getKey().equals("$each"))
+                    .map(m -> ((Object[]) m.getValue())[0]).findFirst().orElseThrow();
+            return List.of(new Document("_id", "b1").append("writeTokens", List.of("older", token)),
+                    new Document("_id", "b2").append("writeTokens", List.of("older")));
+        });
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(List.of(book("b1", 0, 1)));
+        Map<String, Integer> units = new LinkedHashMap<>();
+        units.put("b1", 1);
+        units.put("b2", 5);
+        units.put("b3", 1);
+
+        Map<String, String> outcome = inventoryService.reserveAll(Book.class, units);
+
+        assertEquals(InventoryUpdateResult.UPDATED, outcome.get("b1"));
+        assertEquals(InventoryUpdateResult.INSUFFICIENT_STOCK, outcome.get("b2"));
+        assertEquals(InventoryUpdateResult.NOT_FOUND, outcome.get("b3"));
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(Book.class));
+        verify(eventPublisher, times(1)).publishEvent(any(CatalogChangedEvent.class));
+    }
+
+    @Test
+    public void testHotItemsReserveFromTheirShards() {
+        when(hotInventory.isHot(CatalogChangedEvent.BOOK, "b1")).thenReturn(true);
+        when(hotInventory.reserve(CatalogChangedEvent.BOOK, "b1", 1)).thenReturn(true);
+        Book after = book("b1", 40, 2);
+        when(mongoTemplate.findById("b1", Book.class)).thenReturn(after);
+
+        assertSame(after, inventoryService.reserveOne(Book.class, "b1"));
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Book.class));
+    }
+
+    @Test
+    public void testStockChangesOnHotItemsAreRejected() {
+        when(hotInventory.isHot(CatalogChangedEvent.BOOK, "b1")).thenReturn(true);
+
+        List<InventoryUpdateResult> results = inventoryService.updateInventory(List.of(update("b1", "book", -1, null)));
+
+        assertEquals(InventoryUpdateResult.INVALID, results.get(0).getStatus());
+        verifyNoInteractions(mongoTemplate);
+    }
+}
@@ -0,0 +1,177 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.LowStockReport;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.ResponseMessage;
+import com.buyandsellstore.app.model.User;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LowStockServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private EmailService emailService;
+
+    @InjectMocks
+    private LowStockService lowStockService;
+
+    private static Book book(String id, String sellerId, int quantity) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Book " + id);
+        book.setSellerId(sellerId);
+        book.setTotalQuantity(quantity);
+        return book;
+    }
+
+    private static HomeItem homeItem(String id, String sellerId, int quantity) {
+        HomeItem homeItem = new HomeItem();
+        homeItem.setId(id);
+        homeItem.setTitle("Lamp " + id);
+        homeItem.setSellerId(sellerId);
+        homeItem.setTotalQuantity(quantity);
+        return homeItem;
+    }
+
+    private static User seller(String id, Integer threshold, String... notified) {
+        User seller = new User();
+        seller.setId(id);
+        seller.setEmail(id + "@example.com");
+        seller.setLowStockThreshold(threshold);
+        seller.setLowStockNotified(new ArrayList<>(List.of(notified)));
+        return seller;
+    }
+
+    // Answers the job's queries like the partial index would: next seller after $gt, items per seller under $lte
+    private <T> void stubIndex(Class<T> entityClass, List<T> items, Function<T, String> sellerOf, ToIntFunction<T> quantityOf) {
+        lenient().when(mongoTemplate.findOne(any(Query.class), eq(entityClass))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            assertEquals(LowStockService.INDEX, query.getHint());
+            Object after = query.getQueryObject().get("sellerId", Document.class).get("$gt");
+            return items.stream()
+                    .filter(item -> quantityOf.applyAsInt(item) <= LowStockService.MAX_THRESHOLD)
+                    .filter(item -> after == null || sellerOf.apply(item).compareTo((String) after) > 0)
+                    .min(Comparator.comparing(sellerOf)).orElse(null);
+        });
+        lenient().when(mongoTemplate.find(any(Query.class), eq(entityClass))).thenAnswer(invocation -> {
+            Document filter = ((Query) invocation.getArgument(0)).getQueryObject();
+            int threshold = (Integer) filter.get("totalQuantity", Document.class).get("$lte");
+            return items.stream()
+                    .filter(item -> sellerOf.apply(item).equals(filter.get("sellerId")))
+                    .filter(item -> quantityOf.applyAsInt(item) <= threshold).toList();
+        });
+    }
+
+    private void stubCatalog(List<Book> books, List<HomeItem> homeItems, List<User> sellers, List<User> notified) {
+        stubIndex(Book.class, books, Book::getSellerId, Book::getTotalQuantity);
+        stubIndex(HomeItem.class, homeItems, HomeItem::getSellerId, HomeItem::getTotalQuantity);
+        lenient().when(mongoTemplate.findOne(any(Query.class), eq(User.class))).thenAnswer(invocation -> {
+            Object id = ((Query) invocation.getArgument(0)).getQueryObject().get("_id");
+            return sellers.stream().filter(seller -> seller.getId().equals(id)).findFirst().orElse(null);
+        });
+        when(mongoTemplate.find(any(Query.class), eq(User.class))).thenReturn(notified);
+    }
+
+    @Test
+    void eachSellerGetsOneEmailForItemsUnderTheirOwnThreshold() {
+        User s2 = seller("s2", 60, "home:h1");
+        stubCatalog(List.of(book("b1", "s1", 2), book("b2", "s1", 8), book("b3", "s1", 0), book("b4", "s3", 500)),
+                List.of(homeItem("h1", "s2", 50)), List.of(seller("s1", null), s2), List.of(s2));
+
+        lowStockService.notifySellers();
+
+        // s1 uses the default of 5, so b2 is not low; s2 was already told about h1; s3 has nothing in the index
+        ArgumentCaptor<String> text = ArgumentCaptor.forClass(String.class);
+        verify(emailService).sendLowStockEmail(eq("s1@example.com"), text.capture());
+        verifyNoMoreInteractions(emailService);
+        assertTrue(text.getValue().startsWith("0 left: Book b3 (new)\n2 left: Book b1 (new)"));
+        assertFalse(text.getValue().contains("b2"));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(User.class));
+        assertEquals(List.of("book:b3", "book:b1"), update.getValue().getUpdateObject().get("$set", Document.class).get("lowStockNotified"));
+        // Each seller's items are read once, under their own threshold
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(Book.class));
+    }
+
+    @Test
+    void restockedItemsAreClearedWithoutAnEmail() {
+        stubCatalog(List.of(), List.of(), List.of(), List.of(seller("s1", null, "book:b1")));
+
+        lowStockService.notifySellers();
+
+        verifyNoInteractions(emailService);
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(User.class));
+    }
+
+    @Test
+    void aSellerWithoutAnEmailIsToldOnceTheyHaveOne() {
+        User seller = seller("s1", null);
+        seller.setEmail(null);
+        stubCatalog(List.of(book("b1", "s1", 1)), List.of(), List.of(seller), List.of());
+
+        lowStockService.notifySellers();
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(User.class));
+
+        seller.setEmail("s1@example.com");
+        lowStockService.notifySellers();
+        verify(emailService).sendLowStockEmail(eq("s1@example.com"), contains("Book b1 (new)"));
+    }
+
+    @Test
+    void failedEmailIsRetriedNextRun() {
+        stubCatalog(List.of(book("b1", "s1", 1)), List.of(), List.of(seller("s1", null)), List.of());
+        doThrow(new RuntimeException("Failed to send email")).when(emailService).sendLowStockEmail(anyString(), anyString());
+
+        lowStockService.notifySellers();
+
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(User.class));
+    }
+
+    @Test
+    void lowStockItemsUsesThePartialIndex() {
+        when(mongoTemplate.findOne(any(Query.class), eq(User.class))).thenReturn(seller("s1", 10));
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(List.of(book("b1", "s1", 3)));
+        when(mongoTemplate.find(any(Query.class), eq(HomeItem.class))).thenReturn(List.of());
+
+        LowStockReport report = lowStockService.lowStockItems("s1");
+
+        assertEquals(10, report.getThreshold());
+        assertEquals(1, report.getBooks().size());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Book.class));
+        assertEquals(LowStockService.INDEX, query.getValue().getHint());
+        assertEquals("{\"sellerId\": \"s1\", \"totalQuantity\": {\"$lte\": 10}}", query.getValue().getQueryObject().toJson());
+    }
+
+    @Test
+    void thresholdAboveTheIndexBoundIsRejected() {
+        ResponseMessage response = lowStockService.setLowStockThreshold("s1", LowStockService.MAX_THRESHOLD + 1);
+
+        assertFalse(response.isSuccess());
+        verifyNoInteractions(mongoTemplate);
+    }
+}
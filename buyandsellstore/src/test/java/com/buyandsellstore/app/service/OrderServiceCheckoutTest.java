@@ -0,0 +1,103 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.CartValidationResponse;
+import com.buyandsellstore.app.dto.OrderResponse;
+import com.buyandsellstore.app.model.CartItem;
+import com.buyandsellstore.app.model.Order;
+import com.buyandsellstore.app.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Orders are placed for what the cart holds, never for what the client submits
+@ExtendWith(MockitoExtension.class)
+public class OrderServiceCheckoutTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private CartService cartService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private OrderService orderService;
+
+    private static CartItem line(String itemId, int quantity, double price) {
+        return new CartItem(itemId, "book", "Name " + itemId, quantity, price, "");
+    }
+
+    private static CartValidationResponse checked(List<CartItem> items, int priceChanges, double total) {
+        return new CartValidationResponse(priceChanges == 0, "checked", total, priceChanges, 0, List.of(), items);
+    }
+
+    private OrderResponse order(List<CartItem> items, float totalPrice) {
+        return orderService.createOrder("u1", items, totalPrice, null, null, null);
+    }
+
+    @Test
+    void theOrderIsTheClaimedCart() {
+        List<CartItem> cart = List.of(line("b1", 1, 5.0));
+        when(cartService.claimCart("u1")).thenReturn(cart);
+        when(cartService.revalidate(cart, cart)).thenReturn(checked(cart, 0, 5.0));
+        when(cartService.takeCart("u1")).thenReturn(cart);
+
+        OrderResponse response = order(List.of(line("b1", 1, 5.0)), 5.0f);
+
+        assertTrue(response.isSuccess());
+        assertEquals(5.0f, response.getOrder().getTotalPrice());
+        verify(orderRepository).save(any(Order.class));
+        verify(cartService, never()).restoreCart(anyString(), anyList());
+    }
+
+    @Test
+    void moreUnitsThanTheCartHoldsAreRefused() {
+        List<CartItem> cart = List.of(line("b1", 1, 5.0));
+        when(cartService.claimCart("u1")).thenReturn(cart);
+        when(cartService.revalidate(cart, cart)).thenReturn(checked(cart, 0, 5.0));
+
+        assertFalse(order(List.of(line("b1", 5, 5.0)), 25.0f).isSuccess());
+        assertFalse(order(List.of(line("b1", 1, 5.0), line("b9", 1, 1.0)), 6.0f).isSuccess());
+        verify(cartService, never()).takeCart(anyString());
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void changedPricesNeedTheNewTotalConfirmed() {
+        List<CartItem> cart = List.of(line("b1", 2, 5.0));
+        when(cartService.claimCart("u1")).thenReturn(cart);
+        when(cartService.revalidate(cart, cart)).thenReturn(checked(List.of(line("b1", 2, 6.0)), 1, 12.0));
+        when(cartService.takeCart("u1")).thenReturn(cart);
+
+        OrderResponse stale = order(cart, 10.0f);
+        assertFalse(stale.isSuccess());
+        assertTrue(stale.getMessage().contains("12.00"));
+        verifyNoInteractions(orderRepository);
+
+        assertTrue(order(cart, 12.0f).isSuccess());
+    }
+
+    @Test
+    void aCartChangedSinceTheClaimIsPutBack() {
+        List<CartItem> cart = List.of(line("b1", 2, 5.0));
+        List<CartItem> taken = List.of(line("b1", 1, 5.0)); // One unit removed in another tab
+        when(cartService.claimCart("u1")).thenReturn(cart);
+        when(cartService.revalidate(cart, cart)).thenReturn(checked(cart, 0, 10.0));
+        when(cartService.takeCart("u1")).thenReturn(taken);
+
+        assertFalse(order(cart, 10.0f).isSuccess());
+        verify(cartService).restoreCart("u1", taken);
+        verifyNoInteractions(orderRepository);
+    }
+}
@@ -3,6 +3,7 @@ package com.buyandsellstore.app.service;
 import com.buyandsellstore.app.dto.OrderResponse;
 import com.buyandsellstore.app.model.*;
 import com.buyandsellstore.app.repository.BookRepository;
+import com.buyandsellstore.app.repository.CartRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -20,6 +21,9 @@ public class OrderServiceTest {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private CartRepository cartRepository;
+
     private Book savedBook;
 
     private final String testSellerId = "junitTestUser";
@@ -28,8 +32,10 @@ public class OrderServiceTest {
         List<CartItem> cartItemList = new ArrayList<>();
         //Book(String title, String author, double price, String imageUrl, String description, String sellerId, String type)
         Book book = new Book("test title", "testauthor", 8.99, "test url", "test description", testSellerId, "book");
+        book.setTotalQuantity(2); // Orders are checked against stock
         savedBook = bookRepository.save(book);
         cartItemList.add(new CartItem(savedBook.getId(), "book", savedBook.getTitle(), 2, savedBook.getPrice(), savedBook.getImageUrl()));
+        cartRepository.addLines(testSellerId, cartItemList); // Orders are placed for what the cart holds
         OrderResponse orderResponse = orderService.createOrder(
                 testSellerId,
                 cartItemList,
@@ -0,0 +1,161 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.PricePoint;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.PriceHistoryBucket;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PriceHistoryServiceTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long T0 = 1_717_200_000_000L; // 2024-06-01T00:00:00Z
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private PriceHistoryService priceHistoryService;
+
+    private static PriceHistoryBucket bucket(long... timesAndPrices) {
+        PriceHistoryBucket bucket = new PriceHistoryBucket();
+        List<Long> t = new ArrayList<>();
+        List<Double> p = new ArrayList<>();
+        for (int i = 0; i < timesAndPrices.length; i += 2) {
+            t.add(timesAndPrices[i]);
+            p.add((double) timesAndPrices[i + 1]);
+        }
+        bucket.setT(t);
+        bucket.setP(p);
+        bucket.setN(t.size());
+        bucket.setStart(t.get(0));
+        bucket.setEnd(t.get(t.size() - 1));
+        bucket.setLastPrice(p.get(p.size() - 1));
+        return bucket;
+    }
+
+    private void openBucketMatches(boolean matched) {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(PriceHistoryBucket.class)))
+                .thenReturn(UpdateResult.acknowledged(matched ? 1 : 0, matched ? 1L : 0L, null));
+    }
+
+    @Test
+    void priceChangeIsPushedOntoTheOpenBucket() {
+        openBucketMatches(true);
+        Book book = new Book();
+        book.setId("b1");
+        book.setPrice(12.5);
+
+        priceHistoryService.onCatalogChanged(CatalogChangedEvent.of(book));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(PriceHistoryBucket.class));
+        assertEquals("b1", query.getValue().getQueryObject().get("itemId"));
+        assertTrue(query.getValue().getQueryObject().toJson().contains("\"$lt\": 200"));
+        // Deduplicated against the stored price, not a node-local one
+        assertEquals(12.5, query.getValue().getQueryObject().get("lastPrice", Document.class).get("$ne"));
+        String changes = update.getValue().getUpdateObject().toJson();
+        assertTrue(changes.contains("\"$push\""));
+        assertTrue(changes.contains("12.5"));
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(PriceHistoryBucket.class));
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(PriceHistoryBucket.class));
+    }
+
+    @Test
+    void unchangedPriceIsNotWrittenAgain() {
+        openBucketMatches(false);
+        when(mongoTemplate.findOne(any(Query.class), eq(PriceHistoryBucket.class))).thenReturn(bucket(T0, 10));
+
+        priceHistoryService.record(CatalogChangedEvent.BOOK, "b1", 10, T0 + DAY);
+
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(PriceHistoryBucket.class));
+    }
+
+    @Test
+    void firstPriceOrAFullBucketStartsANewBucket() {
+        openBucketMatches(false);
+        when(mongoTemplate.findOne(any(Query.class), eq(PriceHistoryBucket.class))).thenReturn(null, bucket(T0, 10));
+
+        priceHistoryService.record(CatalogChangedEvent.BOOK, "b1", 10, T0);
+        priceHistoryService.record(CatalogChangedEvent.BOOK, "b1", 11, T0 + DAY);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).upsert(query.capture(), any(Update.class), eq(PriceHistoryBucket.class));
+        assertFalse(query.getValue().getQueryObject().containsKey("lastPrice"));
+    }
+
+    @Test
+    void historyStartsWithThePriceInEffectAtFrom() {
+        when(mongoTemplate.stream(any(Query.class), eq(PriceHistoryBucket.class)))
+                .thenReturn(Stream.of(bucket(T0 + 5 * DAY, 12, T0 + 8 * DAY, 9), bucket(T0, 10, T0 + 2 * DAY, 11)));
+
+        List<PricePoint> points = priceHistoryService.priceHistory("b1",
+                "2024-06-04T00:00:00Z", "2024-06-30T00:00:00Z", null);
+
+        assertEquals(3, points.size());
+        assertEquals("2024-06-04T00:00:00Z", points.get(0).getAt());
+        assertEquals(11, points.get(0).getPrice());
+        assertEquals("2024-06-06T00:00:00Z", points.get(1).getAt());
+        assertEquals(12, points.get(1).getPrice());
+        assertEquals(9, points.get(2).getPrice());
+    }
+
+    @Test
+    void olderBucketsAreNotRead() {
+        PriceHistoryBucket older = mock(PriceHistoryBucket.class);
+        when(mongoTemplate.stream(any(Query.class), eq(PriceHistoryBucket.class)))
+                .thenReturn(Stream.of(bucket(T0, 10, T0 + 2 * DAY, 11), older));
+
+        priceHistoryService.priceHistory("b1", "2024-06-02T00:00:00Z", "2024-06-30T00:00:00Z", null);
+
+        verifyNoInteractions(older);
+    }
+
+    @Test
+    void manyChangesAreDownsampledIntoWindows() {
+        // A change every hour for ten days, 240 points, into ten daily windows
+        long[] values = new long[480];
+        for (int h = 0; h < 240; h++) {
+            values[2 * h] = T0 + h * 3_600_000L;
+            values[2 * h + 1] = 100 + (h % 24);
+        }
+        List<PricePoint> points = PriceHistoryService.downsample(List.of(bucket(values)), T0, T0 + 10 * DAY - 1, 10);
+
+        assertEquals(10, points.size());
+        for (PricePoint point : points) {
+            assertEquals(123, point.getPrice());
+            assertEquals(123, point.getMax());
+        }
+        assertEquals(100, points.get(0).getMin());
+        assertEquals(100, points.get(5).getMin());
+        assertEquals("2024-06-02T00:00:00Z", points.get(1).getAt());
+    }
+
+    @Test
+    void invalidRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () ->
+                priceHistoryService.priceHistory("b1", "yesterday", null, null));
+        assertThrows(IllegalArgumentException.class, () ->
+                priceHistoryService.priceHistory("b1", "2024-06-10T00:00:00Z", "2024-06-01T00:00:00Z", null));
+    }
+}
@@ -0,0 +1,70 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.TopRatedPage;
+import com.buyandsellstore.app.model.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RankingServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private RankingService rankingService;
+
+    @Test
+    public void testManyGoodReviewsOutrankOnePerfectReview() {
+        double single = RankingService.score(3.5, 10, 5.0, 1);
+        double many = RankingService.score(3.5, 10, 4.8, 500);
+        assertTrue(many > single);
+        assertEquals(3.5, RankingService.score(3.5, 10, 0, 0), 1e-9);
+        assertEquals(4.8, many, 0.05);
+    }
+
+    @Test
+    public void testCursorRoundTrip() {
+        String cursor = RankingService.Cursor.encode(4.25, "65a1f0c2e4b0a1b2c3d4e5f6");
+        RankingService.Cursor decoded = RankingService.Cursor.decode(cursor);
+        assertEquals(4.25, decoded.score());
+        assertEquals("65a1f0c2e4b0a1b2c3d4e5f6", decoded.id());
+        assertThrows(IllegalArgumentException.class, () -> RankingService.Cursor.decode("not-a-cursor"));
+    }
+
+    @Test
+    public void testTopRatedReadsOneExtraRowToDetectNextPage() {
+        List<Book> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Book book = new Book();
+            book.setId("b" + i);
+            book.setRankScore(4.5 - i * 0.1);
+            rows.add(book);
+        }
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(query.capture(), eq(Book.class))).thenReturn(rows);
+
+        TopRatedPage page = rankingService.topRated("book", 2, RankingService.Cursor.encode(4.6, "b9"));
+
+        assertEquals(2, page.getBooks().size());
+        assertTrue(page.isHasNextPage());
+        assertEquals("b1", RankingService.Cursor.decode(page.getEndCursor()).id());
+        assertEquals(3, query.getValue().getLimit());
+        assertTrue(query.getValue().getQueryObject().containsKey("$or"));
+        assertTrue(page.getHomeItems().isEmpty());
+    }
+}
@@ -0,0 +1,163 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.event.CartLifecycleEvent;
+import com.buyandsellstore.app.event.CatalogChangedEvent;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.Cart;
+import com.buyandsellstore.app.model.HomeItem;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.util.Pair;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReservationServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private HotInventoryService hotInventory;
+
+    @Mock
+    private MongoCollection<Document> carts;
+
+    @Mock
+    private FindIterable<Document> expiredCarts;
+
+    @Mock
+    private BulkOperations bulk;
+
+    @InjectMocks
+    private ReservationService reservationService;
+
+    private final Date now = new Date(1_000_000);
+
+    private void stubExpiredCarts(Object... ids) {
+        when(mongoTemplate.getCollectionName(Cart.class)).thenReturn("carts");
+        when(mongoTemplate.getCollection("carts")).thenReturn(carts);
+        when(carts.find(any(Document.class))).thenReturn(expiredCarts);
+        when(expiredCarts.projection(any())).thenReturn(expiredCarts);
+        when(expiredCarts.limit(anyInt())).thenReturn(expiredCarts);
+        when(expiredCarts.into(anyList())).thenAnswer(invocation -> {
+            List<Document> target = invocation.getArgument(0);
+            for (Object id : ids) target.add(new Document("_id", id));
+            return target;
+        });
+    }
+
+    private static Document line(String type, String itemId, int quantity, Date reservedUntil) {
+        return new Document("itemId", itemId).append("type", type).append("quantity", quantity)
+                .append("reservedUntil", reservedUntil);
+    }
+
+    // A cart as the sweep gets it back: its lines keyed by type and item
+    private static Document lines(Document... lines) {
+        Document keyed = new Document();
+        for (Document line : lines) keyed.append(line.getString("type").toLowerCase() + ":" + line.getString("itemId"), line);
+        return new Document("lines", keyed).append("userId", "u1");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void releasesOnlyExpiredLinesWithOneBulkIncPerCollection() {
+        stubExpiredCarts("c1", "c2");
+        Date past = new Date(now.getTime() - 1);
+        Date future = new Date(now.getTime() + 60_000);
+        when(carts.findOneAndUpdate(any(Document.class), anyList(), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(lines(
+                        line("book", "b1", 2, past),
+                        line("Book", "b2", 1, future),
+                        line("home", "h1", 1, past),
+                        line("book", "legacy", 3, null)))
+                .thenReturn(lines(line("book", "b1", 1, past)));
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), any(Class.class))).thenReturn(bulk);
+        when(bulk.updateOne(anyList())).thenReturn(bulk);
+        Book book = new Book();
+        book.setId("b1");
+        HomeItem homeItem = new HomeItem();
+        homeItem.setId("h1");
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(List.of(book));
+        when(mongoTemplate.find(any(Query.class), eq(HomeItem.class))).thenReturn(List.of(homeItem));
+
+        assertEquals(2, reservationService.sweepBatch(now));
+
+        ArgumentCaptor<List<Pair<Query, UpdateDefinition>>> writes = ArgumentCaptor.forClass(List.class);
+        verify(bulk, times(2)).updateOne(writes.capture());
+        List<Pair<Query, UpdateDefinition>> bookWrites = writes.getAllValues().get(0);
+        assertEquals(1, bookWrites.size()); // Both carts' b1 lines in one $inc
+        assertEquals("b1", bookWrites.get(0).getFirst().getQueryObject().get("_id"));
+        assertEquals(new Document("totalQuantity", 3).append("version", 1),
+                bookWrites.get(0).getSecond().getUpdateObject().get("$inc"));
+        assertEquals("h1", writes.getAllValues().get(1).get(0).getFirst().getQueryObject().get("_id"));
+        verify(bulk, times(2)).execute();
+        verify(eventPublisher, times(2)).publishEvent(any(CatalogChangedEvent.class));
+        verify(eventPublisher, times(3)).publishEvent(any(CartLifecycleEvent.class)); // One per expired line, for analytics
+
+        Map<String, Object> stats = reservationService.stats();
+        assertEquals(3L, stats.get("expiredLines"));
+        assertEquals(4L, stats.get("releasedUnits"));
+    }
+
+    @Test
+    void cartChangedSinceTheScanReleasesNothing() {
+        stubExpiredCarts("c1");
+        when(carts.findOneAndUpdate(any(Document.class), anyList(), any(FindOneAndUpdateOptions.class))).thenReturn(null);
+
+        assertEquals(1, reservationService.sweepBatch(now));
+
+        verify(mongoTemplate, never()).bulkOps(any(), any(Class.class));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cartUpdateIsConditionalOnAnExpiredLine() {
+        stubExpiredCarts("c1");
+        when(carts.findOneAndUpdate(any(Document.class), anyList(), any(FindOneAndUpdateOptions.class))).thenReturn(null);
+
+        reservationService.sweepBatch(now);
+
+        ArgumentCaptor<Document> filter = ArgumentCaptor.forClass(Document.class);
+        ArgumentCaptor<List<Document>> pipeline = ArgumentCaptor.forClass(List.class);
+        verify(carts).findOneAndUpdate(filter.capture(), pipeline.capture(), any(FindOneAndUpdateOptions.class));
+        assertEquals(new Document("_id", "c1").append("nextExpiry", new Document("$lt", now)), filter.getValue());
+        String json = pipeline.getValue().get(0).toJson();
+        assertTrue(json.contains("$filter"));
+        assertTrue(json.contains("\"date\"")); // Lines without an expiry are kept
+        assertTrue(pipeline.getValue().get(1).toJson().contains("nextExpiry")); // Recomputed from the lines left
+    }
+
+    @Test
+    void sweepStopsAfterAShortBatch() {
+        stubExpiredCarts();
+
+        reservationService.sweep();
+
+        verify(carts, times(1)).find(any(Document.class));
+        verify(carts, never()).findOneAndUpdate(any(Document.class), anyList(), any(FindOneAndUpdateOptions.class));
+    }
+}
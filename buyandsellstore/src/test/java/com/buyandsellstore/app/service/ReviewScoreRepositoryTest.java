@@ -0,0 +1,72 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.repository.ReviewScoreRepositoryImpl;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Review writes are guarded by reviewsVersion, which sales and restocks leave alone
+@ExtendWith(MockitoExtension.class)
+public class ReviewScoreRepositoryTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private ReviewScoreRepositoryImpl reviewScores;
+
+    private static Book book(long version, long reviewsVersion) {
+        Book book = new Book("Dune", "Herbert", 9.5, "", "", "s1", "book");
+        book.setId("b1");
+        book.setReviews(new ArrayList<>());
+        book.setVersion(version);
+        book.setReviewsVersion(reviewsVersion);
+        return book;
+    }
+
+    private Document[] write(Book book, long matched) {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Book.class)))
+                .thenReturn(UpdateResult.acknowledged(matched, matched, null));
+        reviewScores.updateReviews(book);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(Book.class));
+        return new Document[] { query.getValue().getQueryObject(), update.getValue().getUpdateObject() };
+    }
+
+    @Test
+    void theFilterIgnoresTheStockVersion() {
+        Book book = book(40, 3);
+        Document[] written = write(book, 1);
+
+        assertEquals(3L, written[0].get("reviewsVersion"));
+        assertFalse(written[0].containsKey("version"));
+        Document inc = written[1].get("$inc", Document.class);
+        assertEquals(1, inc.get("reviewsVersion"));
+        assertFalse(inc.containsKey("version"));
+        assertEquals(4, book.getReviewsVersion());
+        assertEquals(40, book.getVersion());
+    }
+
+    @Test
+    void aReviewThatLandedInBetweenFailsTheWrite() {
+        Book book = book(0, 0);
+        assertNotNull(write(book, 0)[0].get("reviewsVersion", Document.class).get("$in")); // Absent reads as 0
+        assertEquals(0, book.getReviewsVersion());
+    }
+}
@@ -0,0 +1,41 @@
+package com.buyandsellstore.app.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlotSetTest {
+
+    @Test
+    public void testSwitchesBetweenArrayAndBitmapChunks() {
+        SlotSet set = new SlotSet();
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(set.add(i * 3));
+        }
+        assertFalse(set.add(3));
+        assertEquals(5000, set.cardinality());
+        assertTrue(set.contains(4998 * 3));
+        assertFalse(set.contains(4));
+
+        for (int i = 0; i < 4900; i++) {
+            assertTrue(set.remove(i * 3));
+        }
+        assertEquals(100, set.cardinality());
+        assertTrue(set.contains(4999 * 3));
+        assertFalse(set.contains(0));
+    }
+
+    @Test
+    public void testIteratesAcrossChunksInOrder() {
+        SlotSet set = new SlotSet();
+        set.add(200_000);
+        set.add(7);
+        set.add(65_536);
+        List<Integer> seen = new ArrayList<>();
+        set.forEach(seen::add);
+        assertEquals(List.of(7, 65_536, 200_000), seen);
+    }
+}
@@ -0,0 +1,43 @@
+package com.buyandsellstore.app.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotGateTest {
+
+    private final SnapshotGate gate = new SnapshotGate();
+    private final List<String> applied = new ArrayList<>();
+
+    @Test
+    public void testChangesOutsideALoadApplyAtOnce() {
+        gate.apply(() -> applied.add("change"));
+        assertEquals(List.of("change"), applied);
+    }
+
+    @Test
+    public void testChangesDuringALoadApplyAfterTheSnapshot() {
+        gate.load(() -> {
+            gate.apply(() -> applied.add("change"));
+            assertTrue(applied.isEmpty());
+            applied.add("snapshot");
+        });
+        assertEquals(List.of("snapshot", "change"), applied);
+
+        gate.apply(() -> applied.add("later"));
+        assertEquals("later", applied.get(2));
+    }
+
+    @Test
+    public void testOverlappingLoadsHoldChangesUntilTheLastEnds() {
+        gate.load(() -> {
+            gate.load(() -> applied.add("inner snapshot"));
+            gate.apply(() -> applied.add("change"));
+            assertEquals(List.of("inner snapshot"), applied); // The outer snapshot could still undo it
+        });
+        assertEquals(List.of("inner snapshot", "change"), applied);
+    }
+}
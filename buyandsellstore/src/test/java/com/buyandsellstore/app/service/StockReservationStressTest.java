@@ -0,0 +1,124 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.model.Book;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Many threads buying the same book at once against a real MongoDB: exactly the stock on
+ * hand is sold and no decrement is lost.
+ *   mvn test -Dtest=StockReservationStressTest -Dit.mongo.uri=mongodb://localhost:27017/?directConnection=true
+ */
+@EnabledIfSystemProperty(named = "it.mongo.uri", matches = ".+")
+public class StockReservationStressTest {
+
+    private static final String DATABASE = "buyandsellstore_stock_it";
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS_PER_THREAD = 50;
+
+    private MongoClient client;
+    private MongoTemplate template;
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    public void setup() {
+        client = MongoClients.create(System.getProperty("it.mongo.uri"));
+        template = new MongoTemplate(client, DATABASE);
+        template.getDb().drop();
+        inventoryService = new InventoryService();
+        ReflectionTestUtils.setField(inventoryService, "mongoTemplate", template);
+        ReflectionTestUtils.setField(inventoryService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(inventoryService, "catalogIdFilter", new CatalogIdFilter()); // Not built: lets every id through
+        ReflectionTestUtils.setField(inventoryService, "hotInventory", new HotInventoryService()); // No hot items
+    }
+
+    @AfterEach
+    public void teardown() {
+        template.getDb().drop();
+        client.close();
+    }
+
+    private Book insertBook(int quantity) {
+        Book book = new Book("Flash sale", "Author", 9.99, "", "", "seller", quantity);
+        return template.insert(book);
+    }
+
+    @Test
+    public void testNeverSellsMoreThanTheStock() throws Exception {
+        int stock = 500;
+        Book book = insertBook(stock);
+        AtomicInteger sold = new AtomicInteger();
+
+        race(() -> {
+            for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                if (inventoryService.reserveOne(Book.class, book.getId()) != null) sold.incrementAndGet();
+            }
+        });
+
+        // 1600 attempts for 500 units
+        Book after = template.findById(book.getId(), Book.class);
+        assertEquals(stock, sold.get());
+        assertEquals(0, after.getTotalQuantity());
+        assertEquals(stock, after.getVersion());
+    }
+
+    @Test
+    public void testConcurrentReservesAndReleasesLoseNoUpdate() throws Exception {
+        int stock = 10;
+        Book book = insertBook(stock);
+        AtomicInteger held = new AtomicInteger();
+
+        race(() -> {
+            for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                if (inventoryService.reserveOne(Book.class, book.getId()) != null) {
+                    held.incrementAndGet();
+                    if (i % 2 == 0) {
+                        inventoryService.releaseOne(Book.class, book.getId());
+                        held.decrementAndGet();
+                    }
+                }
+            }
+        });
+
+        Book after = template.findById(book.getId(), Book.class);
+        assertEquals(stock - held.get(), after.getTotalQuantity());
+        assertTrue(after.getTotalQuantity() >= 0);
+    }
+
+    // Starts all threads on a latch so they hit the same document together
+    private void race(Runnable work) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    work.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
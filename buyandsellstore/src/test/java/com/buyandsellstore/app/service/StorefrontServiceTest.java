@@ -0,0 +1,121 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.SellerStorefront;
+import com.buyandsellstore.app.model.Book;
+import com.buyandsellstore.app.model.HomeItem;
+import com.buyandsellstore.app.model.User;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StorefrontServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MongoConverter converter;
+
+    @Mock
+    private MongoCollection<Document> books;
+
+    @Mock
+    private MongoCollection<Document> homeItems;
+
+    @Mock
+    private AggregateIterable<Document> bookResult;
+
+    @Mock
+    private AggregateIterable<Document> homeResult;
+
+    @InjectMocks
+    private StorefrontService storefrontService;
+
+    @BeforeEach
+    void start() {
+        storefrontService.start();
+    }
+
+    @AfterEach
+    void shutdown() {
+        storefrontService.shutdown();
+    }
+
+    private void stubCollections(Document bookFacet, Document homeFacet) {
+        when(mongoTemplate.getCollectionName(Book.class)).thenReturn("books");
+        when(mongoTemplate.getCollectionName(HomeItem.class)).thenReturn("homeItems");
+        when(mongoTemplate.getCollection("books")).thenReturn(books);
+        when(mongoTemplate.getCollection("homeItems")).thenReturn(homeItems);
+        when(books.aggregate(anyList())).thenReturn(bookResult);
+        when(homeItems.aggregate(anyList())).thenReturn(homeResult);
+        when(bookResult.first()).thenReturn(bookFacet);
+        when(homeResult.first()).thenReturn(homeFacet);
+    }
+
+    @Test
+    void combinesBothFacetsAndTheSeller() {
+        Document bookDoc = new Document("_id", "b1").append("title", "A");
+        stubCollections(
+                new Document("items", List.of(bookDoc))
+                        .append("stats", List.of(new Document("count", 12).append("reviews", 3).append("ratingSum", 12.0))),
+                new Document("items", List.of())
+                        .append("stats", List.of(new Document("count", 2).append("reviews", 1).append("ratingSum", 2.0))));
+        Book book = new Book();
+        book.setId("b1");
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(converter.read(Book.class, bookDoc)).thenReturn(book);
+        User seller = new User();
+        seller.setId("s1");
+        when(mongoTemplate.findOne(any(Query.class), eq(User.class))).thenReturn(seller);
+
+        SellerStorefront storefront = storefrontService.sellerStorefront("s1", 1, null);
+
+        assertSame(seller, storefront.getSeller());
+        assertEquals(List.of(book), storefront.getBooks());
+        assertTrue(storefront.getHomeItems().isEmpty());
+        assertEquals(12, storefront.getBookCount());
+        assertEquals(2, storefront.getHomeItemCount());
+        assertEquals(4, storefront.getReviewCount());
+        assertEquals(3.5, storefront.getAverageRating(), 1e-9);
+    }
+
+    @Test
+    void onePipelinePerCollectionSortedBeforeTheFacet() {
+        stubCollections(new Document("items", List.of()).append("stats", List.of()), null);
+
+        SellerStorefront storefront = storefrontService.sellerStorefront("s1", 500, 40);
+
+        assertEquals(0, storefront.getBookCount());
+        assertEquals(0, storefront.getAverageRating());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Document>> pipeline = ArgumentCaptor.forClass(List.class);
+        verify(books, times(1)).aggregate(pipeline.capture());
+        assertEquals(3, pipeline.getValue().size());
+        assertEquals(new Document("sellerId", "s1"), pipeline.getValue().get(0).get("$match"));
+        // Sorted before the $facet, where the {sellerId, title} index can still serve it
+        assertEquals(new Document("title", 1), pipeline.getValue().get(1).get("$sort"));
+        String facet = pipeline.getValue().get(2).toJson();
+        assertFalse(facet.contains("$sort"));
+        assertTrue(facet.contains("\"$skip\": 40"));
+        assertTrue(facet.contains("\"$limit\": 100")); // Capped at catalog.storefront.max-page
+        verify(homeItems, times(1)).aggregate(anyList());
+    }
+}
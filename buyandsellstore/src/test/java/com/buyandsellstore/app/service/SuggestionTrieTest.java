@@ -0,0 +1,64 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.Suggestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SuggestionTrieTest {
+
+    private SuggestionTrie buildTrie(int topK) {
+        // Already ranked: most popular first
+        return SuggestionTrie.build(List.of(
+                new Suggestion("Harry Potter and the Goblet of Fire", "b1", "book", "title"),
+                new Suggestion("J.K. Rowling", "b1", "book", "author"),
+                new Suggestion("Harry Potter and the Chamber of Secrets", "b2", "book", "title"),
+                new Suggestion("Hamilton Beach", "h1", "home", "manufacturer"),
+                new Suggestion("The Hobbit", "b3", "book", "title")
+        ), topK);
+    }
+
+    private List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getText).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testLookupReturnsMostPopularFirst() {
+        SuggestionTrie trie = buildTrie(10);
+        assertEquals(List.of(
+                "Harry Potter and the Goblet of Fire",
+                "Harry Potter and the Chamber of Secrets",
+                "Hamilton Beach"), texts(trie.lookup("ha", 10)));
+    }
+
+    @Test
+    public void testLookupMatchesWordStartsAndIgnoresCase() {
+        SuggestionTrie trie = buildTrie(10);
+        assertEquals(List.of("J.K. Rowling"), texts(trie.lookup("ROWL", 10)));
+        assertEquals(List.of("The Hobbit"), texts(trie.lookup("hob", 10)));
+        assertTrue(trie.lookup("owling", 10).isEmpty());
+    }
+
+    @Test
+    public void testLookupHonoursLimitAndTopK() {
+        assertEquals(1, buildTrie(10).lookup("harry", 1).size());
+        assertEquals(2, buildTrie(2).lookup("h", 10).size());
+    }
+
+    @Test
+    public void testLookupBeyondMaxDepthFiltersCandidates() {
+        SuggestionTrie trie = buildTrie(10);
+        assertEquals(List.of("Harry Potter and the Chamber of Secrets"),
+                texts(trie.lookup("harry potter and the chamber", 10)));
+        assertTrue(trie.lookup("harry potter and the chamberpot", 10).isEmpty());
+    }
+
+    @Test
+    public void testEmptyPrefixReturnsNothing() {
+        assertTrue(buildTrie(10).lookup("   ", 10).isEmpty());
+        assertTrue(SuggestionTrie.empty().lookup("harry", 10).isEmpty());
+    }
+}
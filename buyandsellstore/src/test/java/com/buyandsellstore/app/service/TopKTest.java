@@ -0,0 +1,38 @@
+package com.buyandsellstore.app.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopKTest {
+
+    @Test
+    public void testKeepsHighestScoresInOrder() {
+        TopK top = new TopK(3);
+        top.offer("a", 1);
+        top.offer("b", 5);
+        top.offer("c", 3);
+        top.offer("d", 2); // Pushes out "a"
+        top.offer("e", 0.5); // Below the floor, rejected
+
+        List<TopK.Entry> entries = top.top(10);
+        assertEquals(List.of("b", "c", "d"), entries.stream().map(TopK.Entry::key).toList());
+        assertFalse(top.contains("a"));
+        assertFalse(top.contains("e"));
+    }
+
+    @Test
+    public void testMemberMovesUpWhenItsScoreGrows() {
+        TopK top = new TopK(3);
+        top.offer("a", 1);
+        top.offer("b", 2);
+        top.offer("c", 3);
+        top.offer("a", 4);
+        top.offer("a", 3.5); // Stale offer, ignored
+
+        assertEquals(List.of("a", "c"), top.top(2).stream().map(TopK.Entry::key).toList());
+        assertEquals(4, top.top(1).get(0).score());
+    }
+}
@@ -0,0 +1,142 @@
+package com.buyandsellstore.app.service;
+
+import com.buyandsellstore.app.dto.TrendingItem;
+import com.buyandsellstore.app.event.ItemActivityEvent;
+import com.buyandsellstore.app.model.Book;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TrendingServiceTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOps;
+
+    private TrendingService trendingService;
+
+    @BeforeEach
+    public void setUp() {
+        trendingService = new TrendingService(HOUR, 10, 0.01);
+        ReflectionTestUtils.setField(trendingService, "bookService", bookService);
+    }
+
+    private static Book book(String id, String sellerId) {
+        Book book = new Book();
+        book.setId(id);
+        book.setSellerId(sellerId);
+        return book;
+    }
+
+    @Test
+    public void testRecentActivityOutweighsOlderActivity() {
+        long now = System.currentTimeMillis();
+        // Four adds two half-lives ago are worth one add now; five are worth a bit more
+        for (int i = 0; i < 5; i++) trendingService.record("book", "old", 1, now - 2 * HOUR);
+        trendingService.record("book", "new", 1, now);
+        trendingService.record("book", "new", 1, now);
+        when(bookService.getBookById("old")).thenReturn(book("old", "s1"));
+        when(bookService.getBookById("new")).thenReturn(book("new", "s1"));
+
+        List<TrendingItem> trending = trendingService.trending("book", 5);
+        assertEquals("new", trending.get(0).getItemId());
+        assertEquals(2.0, trending.get(0).getScore(), 0.01);
+        assertEquals(1.25, trending.get(1).getScore(), 0.01);
+    }
+
+    @Test
+    public void testActivityEventsAreWeightedAndTypesNormalized() {
+        trendingService.onActivity(new ItemActivityEvent("homeItem", "h1", ItemActivityEvent.Kind.WISHLIST, 1));
+        trendingService.onActivity(new ItemActivityEvent("book", "b1", ItemActivityEvent.Kind.ORDER, 2));
+        trendingService.onActivity(new ItemActivityEvent("car", "x", ItemActivityEvent.Kind.CART, 1));
+        when(bookService.getBookById("b1")).thenReturn(book("b1", "s1"));
+
+        List<TrendingItem> trending = trendingService.trending("book", 5);
+        assertEquals(1, trending.size());
+        assertEquals(6.0, trending.get(0).getScore(), 0.01);
+        assertEquals(2, trendingService.stats().get("counters"));
+    }
+
+    @Test
+    public void testSellerRecommendationsComeFromTheTopK() {
+        long now = System.currentTimeMillis();
+        trendingService.record("book", "b1", 3, now);
+        trendingService.record("book", "b2", 2, now);
+        trendingService.record("book", "b3", 1, now);
+        when(bookService.getBookById("b1")).thenReturn(book("b1", "other"));
+        when(bookService.getBookById("b2")).thenReturn(book("b2", "s1"));
+
+        List<Book> books = trendingService.trendingBooksForSeller("s1", 1);
+        assertEquals(1, books.size());
+        assertEquals("b2", books.get(0).getId());
+    }
+
+    @Test
+    public void testLogAddMatchesPlainSum() {
+        assertEquals(Math.log(5), TrendingService.logAdd(Math.log(2), Math.log(3)), 1e-12);
+        assertEquals(1000.0, TrendingService.logAdd(1000, -1000), 1e-12);
+        assertEquals(7.0, TrendingService.logAdd(Double.NEGATIVE_INFINITY, 7.0));
+    }
+
+    @Test
+    public void testCheckpointWritesOnlyThisNodesContribution() {
+        ReflectionTestUtils.setField(trendingService, "mongoTemplate", mongoTemplate);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TrendingService.COLLECTION)).thenReturn(bulkOps);
+        long now = System.currentTimeMillis();
+        // Another node's count, loaded at startup
+        trendingService.merge(new Document("type", "book").append("itemId", "b1").append("logScore", Math.log(10) + Math.log(2) / HOUR * (now - TrendingService.EPOCH)));
+        trendingService.record("book", "b1", 1, now);
+
+        trendingService.checkpoint();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOps).upsert(query.capture(), update.capture());
+        String id = query.getValue().getQueryObject().getString("_id");
+        assertTrue(id.startsWith("book:b1@"));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals(id.substring("book:b1@".length()), set.get("node"));
+        assertEquals(Math.log(2) / HOUR * (now - TrendingService.EPOCH), set.getDouble("logScore"), 1e-9); // Not the merged 11
+        // Decayed contributions of any node are deleted in the same batch
+        verify(bulkOps).remove(argThat((Query q) -> q.getQueryObject().get("logScore", Document.class).containsKey("$lt")));
+        verify(bulkOps).execute();
+    }
+
+    @Test
+    public void testSweepForgetsDecayedCountersThatWereNotTouchedSinceTheLastCheckpoint() {
+        trendingService = new TrendingService(HOUR, 1, 0.01);
+        long now = System.currentTimeMillis();
+        trendingService.record("book", "old", 1, now - 20 * HOUR);
+        trendingService.record("book", "new", 1, now); // Pushes "old" out of the top-1
+        double floor = Math.log(2) / HOUR * (now - TrendingService.EPOCH) + Math.log(0.01);
+
+        assertEquals(1, trendingService.sweep(floor));
+        assertEquals(1, trendingService.stats().get("counters"));
+        // A later increment starts a fresh counter instead of landing in the pruned one
+        trendingService.record("book", "old", 1, now);
+        assertEquals(2, trendingService.stats().get("counters"));
+        assertEquals(0, trendingService.sweep(floor));
+    }
+}
@@ -0,0 +1,68 @@
+package com.buyandsellstore.app.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+ * Latency benchmark for fuzzy search at catalog scale. Skipped by default, run with:
+ *   mvn test -Dtest=TrigramIndexBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class TrigramIndexBenchmarkTest {
+
+    private static final int ITEMS = 1_000_000;
+    private static final int QUERIES = 2_000;
+
+    private static final String[] WORDS = {
+            "garden", "kitchen", "history", "mystery", "shadow", "river", "winter", "silver", "ocean", "forest",
+            "empire", "secret", "dragon", "castle", "journey", "summer", "harvest", "thunder", "crystal", "lantern",
+            "blender", "toaster", "vacuum", "pillow", "blanket", "skillet", "kettle", "mirror", "candle", "basket"
+    };
+
+    @Test
+    public void benchmarkFuzzySearchAtOneMillionItems() {
+        Random random = new Random(42);
+        TrigramIndex index = new TrigramIndex(ITEMS);
+        String[] titles = new String[ITEMS];
+
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < ITEMS; i++) {
+            titles[i] = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            String author = WORDS[random.nextInt(WORDS.length)] + "son " + Integer.toString(i, 36);
+            index.upsert("book:" + i, "book", String.valueOf(i), titles[i],
+                    new String[]{"title", "author"}, new String[]{titles[i], author});
+        }
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+        long[] latencies = new long[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            String title = titles[random.nextInt(ITEMS)];
+            String query = typo(title.substring(0, title.lastIndexOf(' ')), random);
+            long start = System.nanoTime();
+            index.search(query, true, 20);
+            latencies[q] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        Runtime rt = Runtime.getRuntime();
+        System.out.printf("TrigramIndex: %d items built in %d ms, %d postings, heap used %d MB%n",
+                index.size(), buildMs, index.postingEntries(), (rt.totalMemory() - rt.freeMemory()) / (1024 * 1024));
+        System.out.printf("TrigramIndex: p50 %.2f ms, p99 %.2f ms, max %.2f ms over %d queries%n",
+                latencies[QUERIES / 2] / 1e6, latencies[QUERIES * 99 / 100] / 1e6, latencies[QUERIES - 1] / 1e6, QUERIES);
+    }
+
+    // Swaps two adjacent letters, the most common typing mistake
+    private static String typo(String text, Random random) {
+        char[] chars = text.toCharArray();
+        int i = 1 + random.nextInt(Math.max(1, chars.length - 3));
+        if (chars[i] != ' ' && chars[i + 1] != ' ') {
+            char tmp = chars[i];
+            chars[i] = chars[i + 1];
+            chars[i + 1] = tmp;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,84 @@
+package com.buyandsellstore.app.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrigramIndexTest {
+
+    private static final String[] BOOK_FIELDS = {"title", "author"};
+
+    private TrigramIndex index;
+
+    @BeforeEach
+    public void setup() {
+        index = new TrigramIndex(100);
+        index.upsert("book:1", "book", "1", "The Hobbit", BOOK_FIELDS, new String[]{"The Hobbit", "J.R.R. Tolkien"});
+        index.upsert("book:2", "book", "2", "Dune", BOOK_FIELDS, new String[]{"Dune", "Frank Herbert"});
+        index.upsert("home:3", "home", "3", "Stand Mixer", new String[]{"title", "manufacturer"},
+                new String[]{"Stand Mixer", "KitchenAid"});
+    }
+
+    @Test
+    public void testFindsMisspelledAuthor() {
+        List<TrigramIndex.Match> matches = index.search("tolkein", true, 10);
+        assertEquals(1, matches.size());
+        assertEquals("1", matches.get(0).itemId);
+        assertEquals("author", matches.get(0).field);
+        assertEquals(1, matches.get(0).distance);
+    }
+
+    @Test
+    public void testFindsMisspelledWordInsideTitleAcrossTypes() {
+        List<TrigramIndex.Match> matches = index.search("kitchenaide", true, 10);
+        assertEquals(1, matches.size());
+        assertEquals("home", matches.get(0).type);
+    }
+
+    @Test
+    public void testExactModeRejectsTypos() {
+        assertTrue(index.search("hobit", false, 10).isEmpty());
+        assertEquals("1", index.search("hobbit", false, 10).get(0).itemId);
+    }
+
+    @Test
+    public void testUpsertReplacesOldText() {
+        index.upsert("book:2", "book", "2", "Dune Messiah", BOOK_FIELDS, new String[]{"Dune Messiah", "Frank Herbert"});
+        assertEquals(3, index.size());
+        assertEquals("Dune Messiah", index.search("messiah", false, 10).get(0).title);
+        assertTrue(index.search("hobbit", false, 10).stream().noneMatch(m -> m.itemId.equals("2")));
+    }
+
+    @Test
+    public void testEveryQueryWordMustMatch() {
+        assertEquals("2", index.search("frank herbet dune", true, 10).get(0).itemId);
+        assertTrue(index.search("dune hobbit", true, 10).isEmpty());
+    }
+
+    @Test
+    public void testIndexIsBounded() {
+        TrigramIndex small = new TrigramIndex(1);
+        assertTrue(small.upsert("book:1", "book", "1", "A", BOOK_FIELDS, new String[]{"A", "B"}));
+        assertFalse(small.upsert("book:2", "book", "2", "C", BOOK_FIELDS, new String[]{"C", "D"}));
+        assertTrue(small.upsert("book:1", "book", "1", "E", BOOK_FIELDS, new String[]{"E", "F"}));
+    }
+
+    @Test
+    public void testBoundedEditDistance() {
+        assertEquals(0, TrigramIndex.boundedEditDistance("dune", "dune", 2));
+        assertEquals(1, TrigramIndex.boundedEditDistance("tolkien", "tolkein", 2));
+        assertEquals(2, TrigramIndex.boundedEditDistance("herbert", "hebret", 2));
+        assertEquals(3, TrigramIndex.boundedEditDistance("tolkien", "rowling", 2));
+    }
+
+    @Test
+    public void testRemoveTypeDropsOnlyThatType() {
+        index.removeType("book");
+        assertEquals(1, index.size());
+        assertTrue(index.search("dune", false, 10).isEmpty());
+        assertEquals("3", index.search("mixer", false, 10).get(0).itemId);
+    }
+}
@@ -33,6 +33,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Arrays;
 import java.util.List;
@@ -43,6 +44,12 @@ public class WishlistItemServiceTest {
     @Mock
     private WishlistItemRepository wishlistItemRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private CatalogIdFilter catalogIdFilter;
+
     @InjectMocks
     private WishlistItemService wishlistItemService;
 